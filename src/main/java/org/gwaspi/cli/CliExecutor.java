@@ -43,6 +43,8 @@ public class CliExecutor {
 		addScriptCommand(tmpScriptCommands, new GenotypeFrequencyHardyWeinbergScriptCommand());
 		addScriptCommand(tmpScriptCommands, new ExportMatrixScriptCommand());
 		addScriptCommand(tmpScriptCommands, new TestScriptCommand(OPType.TRENDTEST));
+		addScriptCommand(tmpScriptCommands, new TestScriptCommand(OPType.FISHEREXACTTEST));
+		addScriptCommand(tmpScriptCommands, new TestScriptCommand(OPType.PERMUTATIONTEST));
 		addScriptCommand(tmpScriptCommands, new UpdateSampleInfoScriptCommand());
 
 		SCRIPT_COMMANDS = Collections.unmodifiableMap(tmpScriptCommands);
@@ -68,6 +68,12 @@ public class TestScriptCommand extends AbstractScriptCommand {
 			case TRENDTEST:
 				commandName = "trend_test";
 				break;
+			case FISHEREXACTTEST:
+				commandName = "fisher_exact_test";
+				break;
+			case PERMUTATIONTEST:
+				commandName = "permutation_test";
+				break;
 			default:
 				throw new IllegalArgumentException("Not a supported test type: " + testType.toString());
 		}
@@ -84,7 +90,7 @@ public class TestScriptCommand extends AbstractScriptCommand {
 		# Usage: java -Xms1500m -Xmx2500m -jar GWASpi.jar script scriptFile [log org.gwaspi.cli.log]
 		data-dir=/media/data/GWASpi
 		[script]
-		0.command=allelic_association # or "genotypic_association" or "trend_test"
+		0.command=allelic_association # or "genotypic_association", "trend_test", "fisher_exact_test" or "permutation_test"
 		1.study-id=1
 		2.matrix-id=8
 		3.gtfreq-id=46
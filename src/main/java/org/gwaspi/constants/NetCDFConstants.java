@@ -43,6 +43,9 @@ public class NetCDFConstants {
 		public static final String GLOB_USE_ALL_CHROMOSOMES = "use_all_chromosomes";
 		public static final String GLOB_USE_ALL_SAMPLES = "use_all_samples";
 
+		/** The association statistic of a permutation test operation. */
+		public static final String GLOB_PERMUTATION_STATISTIC = "permutation_statistic";
+
 		private Attributes() {
 		}
 	}
@@ -192,6 +195,8 @@ public class NetCDFConstants {
 		public static final String VAR_OP_MARKERS_P = "OP_markers_P";
 		public static final String VAR_OP_MARKERS_OR = "OP_markers_OR";
 		public static final String VAR_OP_MARKERS_OR2 = "OP_markers_OR2";
+		public static final String VAR_OP_MARKERS_P_ALLELIC = "OP_markers_P_allelic";
+		public static final String VAR_OP_MARKERS_P_CORRECTED = "OP_markers_P_corrected";
 
 		private Association() {
 		}
@@ -367,7 +372,9 @@ public class NetCDFConstants {
 			FILTER_BY_VALID_AFFECTION,
 			FILTER_BY_HW_THREASHOLD,
 			FILTER_FRACTION,
-			FILTER_BY_WEIGHTS;
+			FILTER_BY_WEIGHTS,
+			FISHEREXACTTEST,
+			PERMUTATIONTEST;
 
 			public static OPType compareTo(String str) {
 				try {
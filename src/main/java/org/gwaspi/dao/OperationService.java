@@ -87,5 +87,22 @@ public interface OperationService {
 
 	OperationKey insertOperation(OperationMetadata operationMetadata) throws IOException;
 
+	/**
+	 * Sets the key under which the result of an operation may be reused.
+	 * @param operationKey
+	 * @param resultCacheKey <code>null</code> to prevent reuse
+	 * @throws IOException
+	 * @see org.gwaspi.operations.OperationResultCache
+	 */
+	void setResultCacheKey(OperationKey operationKey, String resultCacheKey) throws IOException;
+
+	/**
+	 * Prevents reuse of the results of all operations within a study.
+	 * @param studyKey
+	 * @throws IOException
+	 * @see org.gwaspi.operations.OperationResultCache
+	 */
+	void clearResultCacheKeys(StudyKey studyKey) throws IOException;
+
 	void deleteOperation(OperationKey operationKey, boolean deleteReports) throws IOException;
 }
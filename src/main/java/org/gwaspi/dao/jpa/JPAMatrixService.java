@@ -29,6 +29,7 @@ import javax.persistence.Query;
 import org.gwaspi.dao.MatrixService;
 import org.gwaspi.dao.OperationService;
 import org.gwaspi.dao.ReportService;
+import org.gwaspi.datasource.netcdf.NetCdfReaderPool;
 import org.gwaspi.model.DataSetKey;
 import org.gwaspi.model.MatrixKey;
 import org.gwaspi.model.MatrixMetadata;
@@ -179,7 +180,17 @@ public class JPAMatrixService implements MatrixService {
 
 		// DELETE MATRIX NETCDF FILE
 		File matrixFile = MatrixMetadata.generatePathToNetCdfFile(matrixMetadata);
+		// ... after closing all the handles still open for reading it
+		try {
+			NetCdfReaderPool.discard(matrixFile);
+		} catch (IOException ex) {
+			LOG.warn("Failed to close all readers of the matrix file: " + matrixFile, ex);
+		}
 		org.gwaspi.global.Utils.tryToDeleteFile(matrixFile);
+		// ... and the packed genotypes file, if there is one
+		org.gwaspi.global.Utils.tryToDeleteFile(MatrixMetadata.generatePathToPackedGenotypesFile(matrixMetadata));
+		// ... and the marker-major copy of the genotypes, if there is one
+		org.gwaspi.global.Utils.tryToDeleteFile(MatrixMetadata.generatePathToMarkerMajorGenotypesFile(matrixMetadata));
 	}
 
 	@Override
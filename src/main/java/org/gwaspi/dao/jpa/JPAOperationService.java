@@ -347,6 +347,51 @@ public class JPAOperationService implements OperationService {
 		return OperationKey.valueOf(operationMetadata);
 	}
 
+	@Override
+	public void setResultCacheKey(OperationKey operationKey, String resultCacheKey) throws IOException {
+
+		EntityManager em = null;
+		try {
+			em = jpaUtil.open();
+			jpaUtil.begin(em);
+			Query query = em.createNamedQuery("operationMetadata_updateResultCacheKeyByStudyIdParentMatrixIdOperationId");
+			query.setParameter("resultCacheKey", resultCacheKey);
+			query.setParameter("studyId", operationKey.getStudyId());
+			query.setParameter("parentMatrixId", operationKey.getParentMatrixId());
+			query.setParameter("operationId", operationKey.getId());
+			query.executeUpdate();
+			jpaUtil.commit(em);
+		} catch (Exception ex) {
+			jpaUtil.rollback(em);
+			throw new IOException("Failed updating the result cache key of operation: "
+					+ operationKey.toRawIdString(),
+					ex);
+		} finally {
+			jpaUtil.close(em);
+		}
+	}
+
+	@Override
+	public void clearResultCacheKeys(StudyKey studyKey) throws IOException {
+
+		EntityManager em = null;
+		try {
+			em = jpaUtil.open();
+			jpaUtil.begin(em);
+			Query query = em.createNamedQuery("operationMetadata_clearResultCacheKeysByStudyId");
+			query.setParameter("studyId", studyKey.getId());
+			query.executeUpdate();
+			jpaUtil.commit(em);
+		} catch (Exception ex) {
+			jpaUtil.rollback(em);
+			throw new IOException("Failed clearing the result cache keys of study: "
+					+ studyKey.toRawIdString(),
+					ex);
+		} finally {
+			jpaUtil.close(em);
+		}
+	}
+
 	@Override
 	public void deleteOperation(OperationKey operationKey, boolean deleteReports) throws IOException {
 
@@ -19,48 +19,235 @@ package org.gwaspi.datasource;
 
 import java.io.IOException;
 import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gwaspi.global.Config;
+import org.gwaspi.global.OrderedBlockProcessor;
 
 /**
- * TODO add class description
+ * A list that loads its values from an underlying storage in chunks.
+ * The most recently used chunks are kept in memory (LRU),
+ * so access patterns alternating between a few regions do not re-read
+ * from the storage each time.
+ * If the implementation supports concurrent reads,
+ * sequential scans load the following chunk in the background
+ * while the current one is being processed.
+ * Instances are meant to be used by a single thread.
  * @param <V> list value type
  */
 public abstract class AbstractChunkedListSource<V> extends AbstractList<V> implements ListSource<V> {
 
-	private final int chunkSize;
-	private int loadedChunkNumber;
-	private List<V> loadedChunk;
+	private static final int DEFAULT_MAX_CHUNKS = 4;
+	private static final int DEFAULT_MAX_CACHE_MB = 64;
+
+	private static ExecutorService readAheadExecutor = null;
+
+	private final int defaultChunkSize;
+	private int chunkSize;
+	private final int maxChunks;
+	private final long maxCacheBytes;
+	/** chunk number -> chunk, in access order */
+	private final Map<Integer, List<V>> loadedChunks;
+	/** chunk number -> chunk being read in the background */
+	private final Map<Integer, Future<List<V>>> readAheadChunks;
+	private int lastChunkNumber;
+	private final AtomicLong cacheHits;
+	private final AtomicLong cacheMisses;
 
 	protected AbstractChunkedListSource(int chunkSize) {
 
-		this.chunkSize = chunkSize;
-		this.loadedChunkNumber = -1;
-		this.loadedChunk = null;
+		this.defaultChunkSize = chunkSize;
+		this.chunkSize = -1;
+		final Config config = Config.getSingleton();
+		this.maxChunks = Math.max(1, (config == null) ? DEFAULT_MAX_CHUNKS
+				: config.getInteger(Config.PROPERTY_CACHE_MAX_CHUNKS, DEFAULT_MAX_CHUNKS));
+		this.maxCacheBytes = 1024L * 1024L * Math.max(1, (config == null) ? DEFAULT_MAX_CACHE_MB
+				: config.getInteger(Config.PROPERTY_CACHE_MAX_MB, DEFAULT_MAX_CACHE_MB));
+		this.loadedChunks = new LinkedHashMap<Integer, List<V>>(maxChunks + 1, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<V>> eldest) {
+				return size() > AbstractChunkedListSource.this.maxChunks;
+			}
+		};
+		this.readAheadChunks = new HashMap<Integer, Future<List<V>>>();
+		this.lastChunkNumber = -1;
+		this.cacheHits = new AtomicLong(0);
+		this.cacheMisses = new AtomicLong(0);
+	}
+
+	private static synchronized ExecutorService getReadAheadExecutor() {
+
+		if (readAheadExecutor == null) {
+			readAheadExecutor = OrderedBlockProcessor.createWorkerPool("chunk read-ahead", 1);
+		}
+
+		return readAheadExecutor;
+	}
+
+	/**
+	 * Returns the approximate number of bytes a single loaded item occupies,
+	 * or a value <= 0 if unknown.
+	 * If known, the chunk size is chosen to make the maximum number of cached
+	 * chunks fit into the configured memory budget,
+	 * instead of using the default chunk size.
+	 * @see Config#PROPERTY_CACHE_MAX_MB
+	 */
+	protected long estimateItemBytes() {
+		return -1;
+	}
+
+	/**
+	 * Whether {@link #getRange(int, int)} of the original source may be called
+	 * from an other thread, concurrently to calls on this one.
+	 * Only then, chunks are read ahead in the background.
+	 */
+	protected boolean isConcurrentReadSafe() {
+		return false;
+	}
+
+	/**
+	 * Returns the number of items loaded at once.
+	 */
+	public int getChunkSize() {
+
+		if (chunkSize < 0) {
+			final long itemBytes = estimateItemBytes();
+			if (itemBytes > 0) {
+				final long chunkBytes = maxCacheBytes / maxChunks;
+				chunkSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, chunkBytes / itemBytes));
+			} else {
+				chunkSize = defaultChunkSize;
+			}
+		}
+
+		return chunkSize;
+	}
+
+	/**
+	 * Returns how many times access moved to a chunk
+	 * that was already loaded or read ahead.
+	 * Consecutive accesses within the same chunk are not counted.
+	 */
+	public long getCacheHits() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * Returns how many times access moved to a chunk
+	 * that had to be loaded on the calling thread.
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.get();
+	}
+
+	private Callable<List<V>> createChunkLoader(final int chunkNumber) {
+
+		final int itemsBefore = chunkNumber * getChunkSize();
+		final int itemsInAndAfter = sizeInternal() - itemsBefore;
+		final int curChunkSize = Math.min(getChunkSize(), itemsInAndAfter);
+
+		return new Callable<List<V>>() {
+			@Override
+			public List<V> call() throws IOException {
+				return getOrigSource().getRange(itemsBefore, itemsBefore + curChunkSize - 1);
+			}
+		};
+	}
+
+	private List<V> loadChunk(final int chunkNumber) throws IOException {
+
+		final Future<List<V>> readAheadChunk = readAheadChunks.remove(chunkNumber);
+		if (readAheadChunk != null) {
+			try {
+				final List<V> chunk = readAheadChunk.get();
+				cacheHits.incrementAndGet();
+				return chunk;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for chunk " + chunkNumber, ex);
+			} catch (ExecutionException ex) {
+				// fall through and retry on the calling thread,
+				// which reports the error if it persists
+			}
+		}
+
+		cacheMisses.incrementAndGet();
+		try {
+			return createChunkLoader(chunkNumber).call();
+		} catch (IOException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	/**
+	 * Cancels all pending read-ahead chunks,
+	 * so they neither keep the executor busy nor hold on to their data.
+	 */
+	private void cancelReadAhead() {
+
+		for (final Future<List<V>> readAheadChunk : readAheadChunks.values()) {
+			readAheadChunk.cancel(true);
+		}
+		readAheadChunks.clear();
+	}
+
+	private void readAhead(final int chunkNumber) {
+
+		if ((chunkNumber * (long) getChunkSize() >= sizeInternal())
+				|| loadedChunks.containsKey(chunkNumber)
+				|| readAheadChunks.containsKey(chunkNumber))
+		{
+			return;
+		}
+
+		// only keep read-ahead chunks that may still be used
+		cancelReadAhead();
+		readAheadChunks.put(chunkNumber, getReadAheadExecutor().submit(createChunkLoader(chunkNumber)));
 	}
 
 	@Override
 	public V get(int index) {
 
-		final int chunkNumber = index / chunkSize;
-		final int inChunkPosition = index % chunkSize;
+		final int curChunkSize = getChunkSize();
+		final int chunkNumber = index / curChunkSize;
+		final int inChunkPosition = index % curChunkSize;
 
-		if (chunkNumber != loadedChunkNumber) {
+		List<V> chunk = loadedChunks.get(chunkNumber);
+		if (chunk == null) {
 			try {
 				if (index >= sizeInternal()) {
 					throw new IndexOutOfBoundsException("Tried to access index " + index
 							+ " in list fo size " + sizeInternal());
 				}
-				final int itemsBefore = chunkNumber * chunkSize;
-				final int itemsInAndAfter = sizeInternal() - itemsBefore;
-				final int curChunkSize = Math.min(chunkSize, itemsInAndAfter);
-				loadedChunk = getOrigSource().getRange(itemsBefore, itemsBefore + curChunkSize - 1);
-				loadedChunkNumber = chunkNumber;
+				chunk = loadChunk(chunkNumber);
+				loadedChunks.put(chunkNumber, chunk);
 			} catch (IOException ex) {
 				throw new RuntimeException(ex);
 			}
+		} else if (chunkNumber == lastChunkNumber) {
+			// do not count every single access within the same chunk
+			return chunk.get(inChunkPosition);
+		} else {
+			cacheHits.incrementAndGet();
+		}
+
+		if (chunkNumber != lastChunkNumber) {
+			if (isConcurrentReadSafe() && (chunkNumber == lastChunkNumber + 1)) {
+				readAhead(chunkNumber + 1);
+			}
+			lastChunkNumber = chunkNumber;
 		}
 
-		return loadedChunk.get(inChunkPosition);
+		return chunk.get(inChunkPosition);
 	}
 
 	/**
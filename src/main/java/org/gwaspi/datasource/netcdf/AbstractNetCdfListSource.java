@@ -53,21 +53,45 @@ public abstract class AbstractNetCdfListSource<V> extends AbstractListSource<V>
 		this(origin, rdNetCdfFile, chunkSize, originalIndices, varNameDimension);
 	}
 
-	protected NetcdfFile getReadNetCdfFile() {
-		return rdNetCdfFile;
+	/**
+	 * Returns the handle to read from on the calling thread.
+	 * @see NetCdfReaderPool#resolveReader(NetcdfFile)
+	 */
+	protected NetcdfFile getReadNetCdfFile() throws IOException {
+		return NetCdfReaderPool.resolveReader(rdNetCdfFile);
+	}
+
+	/**
+	 * Handles from a reader pool may be used from any thread.
+	 */
+	@Override
+	protected boolean isConcurrentReadSafe() {
+		return NetCdfReaderPool.isPooled(rdNetCdfFile);
+	}
+
+	/**
+	 * Returns the length of a dimension of the NetCDF file,
+	 * or <code>-1</code>, if it does not exist.
+	 * This only uses the header, which is kept in memory,
+	 * and therefore may be called from any thread.
+	 */
+	protected int getDimensionLength(String dimensionName) {
+
+		final Dimension dim = rdNetCdfFile.findDimension(dimensionName);
+		return (dim == null) ? -1 : dim.getLength();
 	}
 
 	protected <LVT> List<LVT> readVar(String varName, int from, int to) throws IOException {
 
 		List<LVT> values = new ArrayList<LVT>(0);
-		NetCdfUtils.readVariable(rdNetCdfFile, varName, from, to, values, null);
+		NetCdfUtils.readVariable(getReadNetCdfFile(), varName, from, to, values, null);
 		return values;
 	}
 
 	protected <ST, LVT> List<LVT> readVar(String varName, Extractor<ST, LVT> storageToFinalValueExtractor, int from, int to) throws IOException {
 
 		List<ST> storageValues = new ArrayList<ST>(0);
-		NetCdfUtils.readVariable(rdNetCdfFile, varName, from, to, storageValues, null);
+		NetCdfUtils.readVariable(getReadNetCdfFile(), varName, from, to, storageValues, null);
 
 		List<LVT> values = new ArrayList<LVT>(storageValues.size());
 		for (ST st : storageValues) {
@@ -17,6 +17,7 @@
 
 package org.gwaspi.datasource.netcdf;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
@@ -25,6 +26,9 @@ import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
 import org.gwaspi.dao.MatrixService;
+import org.gwaspi.datasource.packed.MarkerMajorGenotypesBuilder;
+import org.gwaspi.datasource.packed.PackedGenotypesFile;
+import org.gwaspi.datasource.packed.PackedMarkersGenotypesSource;
 import org.gwaspi.model.DataSetSource;
 import org.gwaspi.model.ChromosomesInfosSource;
 import org.gwaspi.model.ChromosomesKeysSource;
@@ -47,44 +51,59 @@ import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 
 /**
- * TODO add class description
+ * Reads a matrix from a NetCDF file.
+ * The file is read through a {@link NetCdfReaderPool},
+ * so the sources handed out may be used from multiple threads concurrently,
+ * as long as each single source is only used by one thread at a time.
+ * {@link #close()} releases the pool, once this data-set is no longer used.
  * TODO rename to MatrixNetCdfDataSetSource
  */
-public class NetCDFDataSetSource implements DataSetSource {
+public class NetCDFDataSetSource implements DataSetSource, Closeable {
 
 	private static final Logger LOG
 			= LoggerFactory.getLogger(NetCDFDataSetSource.class);
 
 	private final File netCDFpath;
-	private NetcdfFile rdNetCdfFile;
+	private NetCdfReaderPool readerPool;
 	private StudyKey studyKey;
 	private MatrixKey matrixKey;
 	private MatrixMetadata matrixMetadata;
+	private boolean markerMajorGenotypesChecked;
+	/** The marker-major copy of the genotypes, if there is one */
+	private PackedGenotypesFile markerMajorGenotypes;
 
 	public NetCDFDataSetSource(MatrixKey matrixKey) throws IOException {
 
 		this.matrixKey = matrixKey;
 		this.matrixMetadata = getMatrixService().getMatrix(matrixKey);
+		this.markerMajorGenotypesChecked = false;
+		this.markerMajorGenotypes = null;
 		this.netCDFpath = MatrixMetadata.generatePathToNetCdfFile(matrixMetadata);
-		this.rdNetCdfFile = null;
+		this.readerPool = null;
 	}
 
 	public NetCDFDataSetSource(File netCDFpath, MatrixKey matrixKey) throws IOException {
 
 		this.netCDFpath = netCDFpath;
-		this.rdNetCdfFile = null;
+		this.readerPool = null;
 		this.studyKey = null;
 		this.matrixKey = matrixKey;
 		this.matrixMetadata = null;
+		// only matrices stored in the database may have a marker-major copy
+		this.markerMajorGenotypesChecked = true;
+		this.markerMajorGenotypes = null;
 	}
 
 	public NetCDFDataSetSource(File netCDFpath, StudyKey studyKey) throws IOException {
 
 		this.netCDFpath = netCDFpath;
-		this.rdNetCdfFile = null;
+		this.readerPool = null;
 		this.studyKey = studyKey;
 		this.matrixKey = null;
 		this.matrixMetadata = null;
+		// only matrices stored in the database may have a marker-major copy
+		this.markerMajorGenotypesChecked = true;
+		this.markerMajorGenotypes = null;
 	}
 
 	private static MatrixService getMatrixService() {
@@ -95,16 +114,41 @@ public class NetCDFDataSetSource implements DataSetSource {
 //		this(netCDFpath, null);
 //	}
 
+	/**
+	 * Returns the handle to be used by the calling thread.
+	 */
 	private NetcdfFile getReadNetCdfFile() throws IOException {
 
 		ensureReadNetCdfFile();
-		return rdNetCdfFile;
+		return readerPool.getReader();
+	}
+
+	private synchronized void ensureReadNetCdfFile() throws IOException {
+
+		if (readerPool == null) {
+			readerPool = NetCdfReaderPool.acquire(netCDFpath);
+		}
 	}
 
-	private void ensureReadNetCdfFile() throws IOException {
+	/**
+	 * Releases the NetCDF handles used by this data-set,
+	 * and the marker-major copy of the genotypes, if it was opened.
+	 * The sources handed out by this instance can not be used anymore
+	 * afterwards, unless an other user of the same file still holds them open.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
 
-		if (rdNetCdfFile == null) {
-			rdNetCdfFile = NetcdfFile.open(netCDFpath.getAbsolutePath());
+		if (markerMajorGenotypes != null) {
+			markerMajorGenotypes.close();
+			markerMajorGenotypes = null;
+			// it may be opened again
+			markerMajorGenotypesChecked = false;
+		}
+		if (readerPool != null) {
+			final NetCdfReaderPool toRelease = readerPool;
+			readerPool = null;
+			toRelease.release();
 		}
 	}
 
@@ -302,8 +346,42 @@ public class NetCDFDataSetSource implements DataSetSource {
 		return matrixMetadata;
 	}
 
+	/**
+	 * Returns the marker-major copy of the genotypes,
+	 * creating it first if that is enabled.
+	 * Only matrices stored in the database can have one.
+	 * @return the copy, or <code>null</code>, if there is none
+	 * @see MarkerMajorGenotypesBuilder
+	 */
+	private synchronized PackedGenotypesFile getMarkerMajorGenotypes() throws IOException {
+
+		if (!markerMajorGenotypesChecked) {
+			markerMajorGenotypesChecked = true;
+			final File markerMajorFile = MatrixMetadata.generatePathToMarkerMajorGenotypesFile(getMatrixMetadata());
+			if (!markerMajorFile.exists() && MarkerMajorGenotypesBuilder.isEnabled()) {
+				MarkerMajorGenotypesBuilder.ensureBuilt(getReadNetCdfFile(), markerMajorFile);
+			}
+			if (markerMajorFile.exists()) {
+				markerMajorGenotypes = PackedGenotypesFile.open(markerMajorFile);
+			}
+		}
+
+		return markerMajorGenotypes;
+	}
+
+	/**
+	 * If there is a marker-major copy of the genotypes, it is used,
+	 * as reading a marker from it is a sequential read,
+	 * instead of a strided scan over all samples.
+	 */
 	@Override
 	public MarkersGenotypesSource getMarkersGenotypesSource() throws IOException {
+
+		final PackedGenotypesFile markerMajor = getMarkerMajorGenotypes();
+		if (markerMajor != null) {
+			return PackedMarkersGenotypesSource.createForMatrix(matrixKey, markerMajor);
+		}
+
 		return NetCdfMarkersGenotypesSource.createForMatrix(matrixKey, getReadNetCdfFile());
 	}
 
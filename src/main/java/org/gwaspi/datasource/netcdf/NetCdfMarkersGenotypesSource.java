@@ -63,6 +63,12 @@ public class NetCdfMarkersGenotypesSource extends AbstractNetCdfListSource<Genot
 		return originSource;
 	}
 
+	@Override
+	protected long estimateItemBytes() {
+
+		return getDimensionLength(NetCDFConstants.Dimensions.DIM_SAMPLESET) * 2L;
+	}
+
 	@Override
 	public List<GenotypesList> getRange(int from, int to) throws IOException {
 		return readMarkerGTs(getReadNetCdfFile(), NetCDFConstants.Variables.VAR_GENOTYPES, from, to, genotypesListFactory, READ_GTS_IN_BULK);
@@ -77,7 +83,7 @@ public class NetCdfMarkersGenotypesSource extends AbstractNetCdfListSource<Genot
 		}
 
 		if (readInBulk) {
-			return NetCdfSamplesGenotypesSource.readMarkerGTLists(var, -1, -1, fromMarkerIndex, toMarkerIndex, genotypesListFactory);
+			return NetCdfSamplesGenotypesSource.readMarkerGTLists(var, -1, -1, fromMarkerIndex, toMarkerIndex);
 		} else {
 			List<GenotypesList> values = new ArrayList<GenotypesList>(toMarkerIndex - fromMarkerIndex + 1);
 
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.datasource.netcdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.NetcdfFile;
+
+/**
+ * Hands out one read-only NetCDF handle per thread for the same file,
+ * as a single {@link NetcdfFile} must not be read from multiple threads
+ * concurrently.
+ * Pools are shared between all users of the same file,
+ * and reference counted: all handles are closed
+ * once the last user released the pool,
+ * or when the file is discarded (for example because it is deleted).
+ * The handles of threads that finished are closed
+ * the next time a handle is opened for this file.
+ * Sources that got a pooled handle on one thread may be used on an other,
+ * as long as they always resolve their handle through
+ * {@link #resolveReader(NetcdfFile)}.
+ */
+public class NetCdfReaderPool {
+
+	private static final Logger log
+			= LoggerFactory.getLogger(NetCdfReaderPool.class);
+
+	/** absolute file -> pool; also guards the reference counts */
+	private static final Map<File, NetCdfReaderPool> POOLS
+			= new HashMap<File, NetCdfReaderPool>();
+	/**
+	 * pooled handle -> pool it belongs to.
+	 * This also contains the handles of finished threads that were already closed,
+	 * for as long as some source still refers to them,
+	 * so these sources get redirected to the handle of their current thread.
+	 * {@link NetcdfFile} does not override <code>equals</code>,
+	 * so this map compares identities.
+	 */
+	private static final Map<NetcdfFile, NetCdfReaderPool> HANDLES
+			= new WeakHashMap<NetcdfFile, NetCdfReaderPool>();
+
+	private final File file;
+	/** thread -> handle used by it; guarded by HANDLES */
+	private final Map<Thread, NetcdfFile> readers;
+	/** all the open handles of this pool; guarded by HANDLES */
+	private final List<NetcdfFile> openReaders;
+	private int references;
+	private boolean closed;
+
+	private NetCdfReaderPool(final File file) {
+
+		this.file = file;
+		this.readers = new WeakHashMap<Thread, NetcdfFile>();
+		this.openReaders = new ArrayList<NetcdfFile>();
+		this.references = 0;
+		this.closed = false;
+	}
+
+	/**
+	 * Returns the pool for the given file, creating it if necessary.
+	 * Each call has to be matched by a call to {@link #release()}.
+	 */
+	public static NetCdfReaderPool acquire(final File netCdfFile) {
+
+		final File key = netCdfFile.getAbsoluteFile();
+		synchronized (POOLS) {
+			NetCdfReaderPool pool = POOLS.get(key);
+			if (pool == null) {
+				pool = new NetCdfReaderPool(key);
+				POOLS.put(key, pool);
+			}
+			pool.references++;
+			return pool;
+		}
+	}
+
+	/**
+	 * Gives up one reference to this pool.
+	 * When the last one is released, all handles are closed.
+	 */
+	public void release() throws IOException {
+
+		synchronized (POOLS) {
+			if (references <= 0) {
+				throw new IllegalStateException("Pool for " + file + " was released more often then acquired");
+			}
+			references--;
+			if ((references > 0) || (POOLS.get(file) != this)) {
+				// still in use, or already discarded
+				return;
+			}
+			POOLS.remove(file);
+		}
+
+		closeAll();
+	}
+
+	/**
+	 * Closes all handles to the given file,
+	 * no matter whether the pool is still in use.
+	 * This is meant to be used before deleting the file.
+	 * Users still holding the pool may no longer read from it,
+	 * but may still release it.
+	 */
+	public static void discard(final File netCdfFile) throws IOException {
+
+		final NetCdfReaderPool pool;
+		synchronized (POOLS) {
+			pool = POOLS.remove(netCdfFile.getAbsoluteFile());
+		}
+
+		if (pool != null) {
+			pool.closeAll();
+		}
+	}
+
+	private void closeAll() throws IOException {
+
+		final List<NetcdfFile> toClose;
+		synchronized (HANDLES) {
+			closed = true;
+			toClose = new ArrayList<NetcdfFile>(openReaders);
+			openReaders.clear();
+			readers.clear();
+			final Iterator<NetcdfFile> handles = HANDLES.keySet().iterator();
+			while (handles.hasNext()) {
+				if (HANDLES.get(handles.next()) == this) {
+					handles.remove();
+				}
+			}
+		}
+
+		closeReaders(toClose);
+	}
+
+	private void closeReaders(final List<NetcdfFile> toClose) throws IOException {
+
+		IOException firstFailure = null;
+		for (final NetcdfFile reader : toClose) {
+			try {
+				reader.close();
+			} catch (IOException ex) {
+				log.warn("Failed to close NetCDF reader: " + file, ex);
+				if (firstFailure == null) {
+					firstFailure = ex;
+				}
+			}
+		}
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the handle to be used by the calling thread,
+	 * opening it if necessary.
+	 */
+	public NetcdfFile getReader() throws IOException {
+
+		final Thread current = Thread.currentThread();
+		final List<NetcdfFile> finishedReaders;
+		synchronized (HANDLES) {
+			if (closed) {
+				throw new IOException("Reader pool was already closed: " + file);
+			}
+			final NetcdfFile presentReader = readers.get(current);
+			if (presentReader != null) {
+				return presentReader;
+			}
+			finishedReaders = removeFinishedReaders();
+		}
+
+		// opening may be slow, so we do it without holding the lock,
+		// which would block the readers of all other files
+		final NetcdfFile reader = NetcdfFile.open(file.getPath());
+		final boolean published;
+		synchronized (HANDLES) {
+			published = !closed;
+			if (published) {
+				readers.put(current, reader);
+				openReaders.add(reader);
+				HANDLES.put(reader, this);
+			}
+		}
+		if (!published) {
+			finishedReaders.add(reader);
+			closeReaders(finishedReaders);
+			throw new IOException("Reader pool was already closed: " + file);
+		}
+
+		closeReaders(finishedReaders);
+
+		return reader;
+	}
+
+	/**
+	 * Removes the handles of threads that finished,
+	 * or that were already garbage collected.
+	 * Their entries in {@link #HANDLES} are kept,
+	 * so sources still referring to them get redirected.
+	 * Has to be called while holding the lock on {@link #HANDLES}.
+	 * @return the removed handles, which still have to be closed
+	 */
+	private List<NetcdfFile> removeFinishedReaders() {
+
+		final Iterator<Thread> threads = readers.keySet().iterator();
+		while (threads.hasNext()) {
+			if (!threads.next().isAlive()) {
+				threads.remove();
+			}
+		}
+
+		final List<NetcdfFile> finishedReaders = new ArrayList<NetcdfFile>();
+		final Iterator<NetcdfFile> openReadersIt = openReaders.iterator();
+		while (openReadersIt.hasNext()) {
+			final NetcdfFile openReader = openReadersIt.next();
+			if (!isUsedByAThread(openReader)) {
+				openReadersIt.remove();
+				finishedReaders.add(openReader);
+			}
+		}
+
+		return finishedReaders;
+	}
+
+	private boolean isUsedByAThread(final NetcdfFile reader) {
+
+		for (final NetcdfFile threadReader : readers.values()) {
+			if (threadReader == reader) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether the given handle belongs to a pool,
+	 * which means that it may be used concurrently
+	 * through {@link #resolveReader(NetcdfFile)}.
+	 */
+	public static boolean isPooled(final NetcdfFile netCdfFile) {
+
+		synchronized (HANDLES) {
+			return HANDLES.containsKey(netCdfFile);
+		}
+	}
+
+	/**
+	 * Returns the handle the calling thread should use in place of the given one.
+	 * For a pooled handle, this is the handle of the calling thread
+	 * from the same pool; any other handle is returned as is.
+	 */
+	public static NetcdfFile resolveReader(final NetcdfFile netCdfFile) throws IOException {
+
+		final NetCdfReaderPool pool;
+		synchronized (HANDLES) {
+			pool = HANDLES.get(netCdfFile);
+			if ((pool == null) || (pool.readers.get(Thread.currentThread()) == netCdfFile)) {
+				return netCdfFile;
+			}
+		}
+
+		return pool.getReader();
+	}
+}
@@ -27,7 +27,6 @@ import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.model.ChromosomeKey;
 import org.gwaspi.model.GenotypesList;
 import org.gwaspi.model.GenotypesListFactory;
-import org.gwaspi.model.GenotypesListManager;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MatrixKey;
 import org.gwaspi.model.SamplesGenotypesSource;
@@ -55,7 +54,6 @@ public class NetCdfSamplesGenotypesSource extends AbstractNetCdfListSource<Genot
 	private static final Logger log
 			= LoggerFactory.getLogger(NetCdfSamplesGenotypesSource.class);
 
-	private final GenotypesListFactory genotyesListFactory;
 	private SamplesGenotypesSource originSource;
 
 	private static final int DEFAULT_CHUNK_SIZE = 50;
@@ -64,7 +62,6 @@ public class NetCdfSamplesGenotypesSource extends AbstractNetCdfListSource<Genot
 	private NetCdfSamplesGenotypesSource(MatrixKey origin, NetcdfFile rdNetCdfFile) {
 		super(origin, rdNetCdfFile, DEFAULT_CHUNK_SIZE, NetCDFConstants.Dimensions.DIM_SAMPLESET);
 
-		this.genotyesListFactory = GenotypesListManager.getCommon();
 		this.originSource = null;
 	}
 
@@ -86,6 +83,12 @@ public class NetCdfSamplesGenotypesSource extends AbstractNetCdfListSource<Genot
 		return originSource;
 	}
 
+	@Override
+	protected long estimateItemBytes() {
+
+		return getDimensionLength(NetCDFConstants.Dimensions.DIM_MARKERSET) * 2L;
+	}
+
 	@Override
 	public List<GenotypesList> getRange(int from, int to) throws IOException {
 		return readSampleGTs(getReadNetCdfFile(), NetCDFConstants.Variables.VAR_GENOTYPES, from, to);
@@ -96,15 +99,15 @@ public class NetCdfSamplesGenotypesSource extends AbstractNetCdfListSource<Genot
 		Variable var = rdNetCdf.findVariable(netCdfVarName);
 
 		if (var != null) {
-			List<GenotypesList> values = new ArrayList<GenotypesList>(toSampleIndex - fromSampleIndex + 1);
-
-			for (int si = fromSampleIndex; si <= toSampleIndex; si++) {
-				List<byte[]> markerGTs = readSampleGTs(var, si, -1, -1);
-				GenotypesList genotypesList = genotyesListFactory.extract(markerGTs);
-				values.add(genotypesList);
+			final int[] varShape = var.getShape();
+			try {
+				// read all the samples at once, and wrap the result without copying
+				final String netCdfReadStr = buildNetCdfReadString(fromSampleIndex, toSampleIndex, 0, varShape[1] - 1, varShape[2]);
+				final ArrayByte.D3 sampleMarkerGTs = (ArrayByte.D3) var.read(netCdfReadStr);
+				return NetCdfUtils.wrapD3ArrayByteToGenotypeLists(sampleMarkerGTs, false);
+			} catch (InvalidRangeException ex) {
+				throw new IOException("Cannot read data", ex);
 			}
-
-			return values;
 		} else {
 			throw new IOException("Variable " + netCdfVarName + " not found in NetCdf file " + rdNetCdf.getLocation());
 		}
@@ -176,7 +179,7 @@ public class NetCdfSamplesGenotypesSource extends AbstractNetCdfListSource<Genot
 		}
 	}
 
-	static List<GenotypesList> readMarkerGTLists(Variable netCdfGTsVar, int fromSampleIndex, int toSampleIndex, int fromMarkerIndex, int toMarkerIndex, GenotypesListFactory genotypesListFactory) throws IOException {
+	static List<GenotypesList> readMarkerGTLists(Variable netCdfGTsVar, int fromSampleIndex, int toSampleIndex, int fromMarkerIndex, int toMarkerIndex) throws IOException {
 
 		final int[] varShape = netCdfGTsVar.getShape();
 
@@ -190,7 +193,7 @@ public class NetCdfSamplesGenotypesSource extends AbstractNetCdfListSource<Genot
 		try {
 			final String netCdfReadStr = buildNetCdfReadString(fromSampleIndex, toSampleIndex, fromMarkerIndex, toMarkerIndex, varShape[2]);
 			final ArrayByte.D3 sampleMarkerGTs = (ArrayByte.D3) netCdfGTsVar.read(netCdfReadStr);
-			return NetCdfUtils.writeD3ArrayByteToGenotypeLists(sampleMarkerGTs, genotypesListFactory, true);
+			return NetCdfUtils.wrapD3ArrayByteToGenotypeLists(sampleMarkerGTs, true);
 		} catch (InvalidRangeException ex) {
 			throw new IOException("Cannot read data", ex);
 		}
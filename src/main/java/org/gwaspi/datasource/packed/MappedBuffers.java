@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Releases memory mapped buffers before they get garbage collected.
+ * Java has no public API for this,
+ * but as long as a mapping exists, the mapped file can not be
+ * renamed or deleted on Windows, and it occupies address space.
+ * If unmapping is not possible on the running JVM,
+ * the mapping is left to the garbage collector.
+ * A buffer must not be accessed anymore after it was unmapped,
+ * as that would crash the JVM.
+ */
+final class MappedBuffers {
+
+	private static final Logger log = LoggerFactory.getLogger(MappedBuffers.class);
+
+	private MappedBuffers() {
+	}
+
+	static void unmap(final ByteBuffer[] buffers) {
+
+		for (int bi = 0; bi < buffers.length; bi++) {
+			if (buffers[bi] != null) {
+				unmap(buffers[bi]);
+				buffers[bi] = null;
+			}
+		}
+	}
+
+	static void unmap(final ByteBuffer buffer) {
+
+		if (!buffer.isDirect()) {
+			return;
+		}
+
+		try {
+			try {
+				// Java 9 and later
+				final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (final NoSuchMethodException ex) {
+				// Java 8 and earlier
+				final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				final Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (final Exception ex) {
+			log.debug("Failed to unmap a buffer; leaving it to the garbage collector", ex);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.datasource.packed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.global.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+/**
+ * Creates a marker-major copy of the genotypes stored in a NetCDF matrix,
+ * which stores them sample by sample.
+ * Reading a single marker from NetCDF requires a strided scan over all samples,
+ * while from the copy, it is a single sequential read.
+ * The copy uses the format of {@link PackedGenotypesFile}.
+ * It is created in a blocked transpose:
+ * each block covers all samples for a range of markers,
+ * and is read from NetCDF at once, in one contiguous run per sample,
+ * and then written to the copy marker by marker.
+ */
+public class MarkerMajorGenotypesBuilder {
+
+	private static final Logger log
+			= LoggerFactory.getLogger(MarkerMajorGenotypesBuilder.class);
+
+	/** Maximum size of a single block read from NetCDF. */
+	static final int MAX_BLOCK_BYTES = 1 << 25;
+
+	/**
+	 * One lock per copy, so copies of different matrices
+	 * may be created concurrently.
+	 * These are never removed, but there is at most one per matrix.
+	 */
+	private static final ConcurrentMap<File, Object> TARGET_LOCKS
+			= new ConcurrentHashMap<File, Object>();
+
+	private MarkerMajorGenotypesBuilder() {
+	}
+
+	/**
+	 * Whether the copy should be created
+	 * when a matrix is read marker-wise for the first time.
+	 * @see Config#PROPERTY_STORAGE_MARKER_MAJOR_COPY
+	 */
+	public static boolean isEnabled() {
+
+		final Config config = Config.getSingleton();
+		return (config != null)
+				&& config.getBoolean(Config.PROPERTY_STORAGE_MARKER_MAJOR_COPY, false);
+	}
+
+	static int calculateMarkersPerBlock(final int numSamples, final int numMarkers, final int maxBlockBytes) {
+
+		final int bytesPerMarker = Math.max(1, numSamples * NetCDFConstants.Strides.STRIDE_GT);
+		return Math.max(1, Math.min(Math.max(1, numMarkers), maxBlockBytes / bytesPerMarker));
+	}
+
+	private static Object getTargetLock(final File target) {
+
+		final File key = target.getAbsoluteFile();
+		final Object newLock = new Object();
+		final Object existingLock = TARGET_LOCKS.putIfAbsent(key, newLock);
+		return (existingLock == null) ? newLock : existingLock;
+	}
+
+	/**
+	 * Creates the copy, unless it already exists.
+	 * The copy is first written to a temporary file,
+	 * so other readers never see an incomplete one.
+	 * Only one thread creates a specific copy,
+	 * while others wait for it to be done.
+	 * @param ncFile the matrix to copy the genotypes from
+	 * @param target where to store the copy
+	 */
+	public static void ensureBuilt(final NetcdfFile ncFile, final File target)
+			throws IOException
+	{
+		synchronized (getTargetLock(target)) {
+			if (target.exists()) {
+				return;
+			}
+
+			final File tmpFile = new File(target.getParentFile(), target.getName() + ".tmp");
+			try {
+				// this releases the memory mapping of the writer,
+				// which would prevent renaming on Windows
+				build(ncFile, tmpFile, MAX_BLOCK_BYTES);
+				if (!tmpFile.renameTo(target)) {
+					throw new IOException("Failed to rename " + tmpFile + " to " + target);
+				}
+			} finally {
+				org.gwaspi.global.Utils.tryToDeleteFile(tmpFile);
+			}
+		}
+	}
+
+	static void build(final NetcdfFile ncFile, final File target, final int maxBlockBytes)
+			throws IOException
+	{
+		final Variable genotypesVar = ncFile.findVariable(NetCDFConstants.Variables.VAR_GENOTYPES);
+		if (genotypesVar == null) {
+			throw new IOException("No genotypes stored in " + ncFile.getLocation());
+		}
+		final int[] shape = genotypesVar.getShape();
+		final int numSamples = shape[0];
+		final int numMarkers = shape[1];
+		final int markersPerBlock = calculateMarkersPerBlock(numSamples, numMarkers, maxBlockBytes);
+
+		log.info("Creating marker-major copy of the genotypes: {}", target);
+		final PackedGenotypesWriter writer = new PackedGenotypesWriter(target, numMarkers, numSamples);
+		boolean closed = false;
+		try {
+			final byte[] genotype = new byte[NetCDFConstants.Strides.STRIDE_GT];
+			for (int blockStart = 0; blockStart < numMarkers; blockStart += markersPerBlock) {
+				final int blockMarkers = Math.min(markersPerBlock, numMarkers - blockStart);
+				final int[] origin = new int[] {0, blockStart, 0};
+				final int[] blockShape = new int[] {numSamples, blockMarkers, NetCDFConstants.Strides.STRIDE_GT};
+				final Array block;
+				try {
+					block = genotypesVar.read(origin, blockShape);
+				} catch (final InvalidRangeException ex) {
+					throw new IOException(ex);
+				}
+				// samplesDim, markersDim, gtStrideDim
+				final byte[] alleles = (byte[]) block.copyTo1DJavaArray();
+				for (int bmi = 0; bmi < blockMarkers; bmi++) {
+					for (int si = 0; si < numSamples; si++) {
+						final int pos = (si * blockMarkers + bmi) * NetCDFConstants.Strides.STRIDE_GT;
+						genotype[0] = alleles[pos];
+						genotype[1] = alleles[pos + 1];
+						writer.setGenotype(blockStart + bmi, si, genotype);
+					}
+				}
+			}
+			closed = true;
+			writer.close();
+		} finally {
+			if (!closed) {
+				writer.close();
+			}
+		}
+		log.info("Created marker-major copy of the genotypes: {}", target);
+	}
+}
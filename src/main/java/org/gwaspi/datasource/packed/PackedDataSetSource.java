@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.File;
+import java.io.IOException;
+import org.gwaspi.datasource.netcdf.NetCDFDataSetSource;
+import org.gwaspi.model.MarkersGenotypesSource;
+import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.MatrixMetadata;
+import org.gwaspi.model.SamplesGenotypesSource;
+import org.gwaspi.model.StudyKey;
+
+/**
+ * A matrix that stores its genotypes in a 2-bit packed file,
+ * and everything else in a NetCDF file.
+ * @see PackedGenotypesFile
+ */
+public class PackedDataSetSource extends NetCDFDataSetSource {
+
+	private final MatrixKey matrixKey;
+	private final File packedGenotypesPath;
+	private PackedGenotypesFile packedGenotypesFile;
+
+	public PackedDataSetSource(MatrixKey matrixKey) throws IOException {
+		super(matrixKey);
+
+		this.matrixKey = matrixKey;
+		this.packedGenotypesPath = null;
+		this.packedGenotypesFile = null;
+	}
+
+	/**
+	 * Reads a matrix that is not (yet) stored in the database,
+	 * for example an exported one.
+	 * @param netCDFpath the file storing everything except the genotypes
+	 * @param packedGenotypesPath the file storing the genotypes
+	 */
+	public PackedDataSetSource(File netCDFpath, File packedGenotypesPath, StudyKey studyKey) throws IOException {
+		super(netCDFpath, studyKey);
+
+		this.matrixKey = null;
+		this.packedGenotypesPath = packedGenotypesPath;
+		this.packedGenotypesFile = null;
+	}
+
+	/**
+	 * Whether the genotypes of the given matrix are stored
+	 * in the packed format.
+	 */
+	public static boolean isPacked(MatrixMetadata matrixMetadata) throws IOException {
+		return MatrixMetadata.generatePathToPackedGenotypesFile(matrixMetadata).exists();
+	}
+
+	/**
+	 * Returns the packed genotypes file stored next to a NetCDF file
+	 * outside of the database, as written by the GWASpi format exporter.
+	 * @return the packed genotypes file,
+	 *   or <code>null</code> if the genotypes are stored in the NetCDF file
+	 */
+	public static File findSiblingPackedGenotypesFile(File netCDFpath) {
+
+		String simpleName = netCDFpath.getName();
+		final int extensionStart = simpleName.lastIndexOf('.');
+		if (extensionStart > 0) {
+			simpleName = simpleName.substring(0, extensionStart);
+		}
+		final File packedGenotypesPath = new File(netCDFpath.getParentFile(), simpleName + ".gtp");
+
+		return packedGenotypesPath.exists() ? packedGenotypesPath : null;
+	}
+
+	private synchronized PackedGenotypesFile getPackedGenotypesFile() throws IOException {
+
+		if (packedGenotypesFile == null) {
+			packedGenotypesFile = PackedGenotypesFile.open((packedGenotypesPath == null)
+					? MatrixMetadata.generatePathToPackedGenotypesFile(getMatrixMetadata())
+					: packedGenotypesPath);
+		}
+
+		return packedGenotypesFile;
+	}
+
+	/**
+	 * Also releases the memory mapped genotypes.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+
+		try {
+			if (packedGenotypesFile != null) {
+				packedGenotypesFile.close();
+				packedGenotypesFile = null;
+			}
+		} finally {
+			super.close();
+		}
+	}
+
+	@Override
+	public MarkersGenotypesSource getMarkersGenotypesSource() throws IOException {
+		return PackedMarkersGenotypesSource.createForMatrix(matrixKey, getPackedGenotypesFile());
+	}
+
+	@Override
+	public SamplesGenotypesSource getSamplesGenotypesSource() throws IOException {
+		return PackedSamplesGenotypesSource.createForMatrix(matrixKey, getPackedGenotypesFile());
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.model.GenotypesList;
+
+/**
+ * Read access to a file storing the genotypes of a matrix,
+ * using 2 bits per genotype, marker by marker.
+ * The file layout is:
+ * <ol>
+ * <li>header: magic number, version, number of markers, number of samples
+ *   (4 bytes each)</li>
+ * <li>dictionary: for each marker, one flags byte
+ *   (number of used codes and escape flag),
+ *   followed by the genotypes (allele-pairs) of the 4 codes</li>
+ * <li>genotypes: for each marker, the 2-bit codes of all samples,
+ *   4 samples per byte, the first sample in the lowest bits</li>
+ * <li>exceptions: the number of entries, followed by entries of
+ *   marker index, sample index and genotype;
+ *   these are the genotypes of markers with more then 4 different values,
+ *   for which the last code is used as escape code</li>
+ * </ol>
+ * The genotypes part is memory mapped,
+ * so reading only touches the parts of the file actually used.
+ * Instances are immutable after opening, and thus thread-safe.
+ * {@link #close()} releases the memory mapping;
+ * nothing may be read from an instance after closing it.
+ * @see PackedGenotypesWriter
+ */
+public class PackedGenotypesFile implements Closeable {
+
+	static final int MAGIC = 0x47545031; // "GTP1"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 4 * 4;
+	static final int CODES_PER_MARKER = 4;
+	static final int ESCAPE_CODE = CODES_PER_MARKER - 1;
+	static final int DICTIONARY_ENTRY_BYTES = 1 + CODES_PER_MARKER * 2;
+	static final int NUM_CODES_MASK = 0x07;
+	static final int ESCAPE_FLAG = 0x08;
+	static final int GENOTYPES_PER_BYTE = 4;
+	static final int EXCEPTION_BYTES = 4 + 4 + 2;
+	/**
+	 * Maximum size of a single memory mapped region.
+	 * Java can not map more then 2GB at once.
+	 */
+	private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+	private final File file;
+	private final int numMarkers;
+	private final int numSamples;
+	private final int bytesPerMarker;
+	private final int markersPerSegment;
+	private final byte[] dictionary;
+	private final ByteBuffer[] segments;
+	/** marker index -> sample index -> genotype */
+	private final Map<Integer, Map<Integer, byte[]>> exceptions;
+	/**
+	 * Guards the mapping against being released during a read,
+	 * which would crash the JVM.
+	 */
+	private final ReadWriteLock mappingLock;
+	private boolean closed;
+
+	private PackedGenotypesFile(
+			final File file,
+			final int numMarkers,
+			final int numSamples,
+			final byte[] dictionary,
+			final ByteBuffer[] segments,
+			final Map<Integer, Map<Integer, byte[]>> exceptions)
+	{
+		this.file = file;
+		this.numMarkers = numMarkers;
+		this.numSamples = numSamples;
+		this.bytesPerMarker = calcBytesPerMarker(numSamples);
+		this.markersPerSegment = calcMarkersPerSegment(bytesPerMarker);
+		this.dictionary = dictionary;
+		this.segments = segments;
+		this.exceptions = exceptions;
+		this.mappingLock = new ReentrantReadWriteLock();
+		this.closed = false;
+	}
+
+	static int calcBytesPerMarker(final int numSamples) {
+		return (numSamples + GENOTYPES_PER_BYTE - 1) / GENOTYPES_PER_BYTE;
+	}
+
+	static int calcMarkersPerSegment(final int bytesPerMarker) {
+		return (int) Math.max(1, MAX_SEGMENT_BYTES / Math.max(1, bytesPerMarker));
+	}
+
+	static long calcGenotypesOffset(final int numMarkers) {
+		return HEADER_BYTES + (long) numMarkers * DICTIONARY_ENTRY_BYTES;
+	}
+
+	static long calcExceptionsOffset(final int numMarkers, final int numSamples) {
+		return calcGenotypesOffset(numMarkers) + (long) numMarkers * calcBytesPerMarker(numSamples);
+	}
+
+	/**
+	 * Maps the genotypes part of the file into memory,
+	 * in as many segments as required.
+	 */
+	static ByteBuffer[] mapSegments(
+			final FileChannel channel,
+			final FileChannel.MapMode mapMode,
+			final int numMarkers,
+			final int numSamples)
+			throws IOException
+	{
+		final int bytesPerMarker = calcBytesPerMarker(numSamples);
+		final int markersPerSegment = calcMarkersPerSegment(bytesPerMarker);
+		final int numSegments = (numMarkers + markersPerSegment - 1) / markersPerSegment;
+		final ByteBuffer[] segments = new ByteBuffer[numSegments];
+		long offset = calcGenotypesOffset(numMarkers);
+		for (int si = 0; si < numSegments; si++) {
+			final int segmentMarkers = Math.min(markersPerSegment, numMarkers - si * markersPerSegment);
+			final long segmentBytes = (long) segmentMarkers * bytesPerMarker;
+			segments[si] = channel.map(mapMode, offset, segmentBytes);
+			offset += segmentBytes;
+		}
+
+		return segments;
+	}
+
+	public static PackedGenotypesFile open(final File file) throws IOException {
+
+		final RandomAccessFile raFile = new RandomAccessFile(file, "r");
+		try {
+			final int magic = raFile.readInt();
+			if (magic != MAGIC) {
+				throw new IOException("Not a packed genotypes file: " + file);
+			}
+			final int version = raFile.readInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported packed genotypes file version " + version + ": " + file);
+			}
+			final int numMarkers = raFile.readInt();
+			final int numSamples = raFile.readInt();
+
+			final byte[] dictionary = new byte[numMarkers * DICTIONARY_ENTRY_BYTES];
+			raFile.readFully(dictionary);
+
+			final ByteBuffer[] segments = mapSegments(raFile.getChannel(), FileChannel.MapMode.READ_ONLY, numMarkers, numSamples);
+
+			raFile.seek(calcExceptionsOffset(numMarkers, numSamples));
+			final int numExceptions = raFile.readInt();
+			final Map<Integer, Map<Integer, byte[]>> exceptions = new HashMap<Integer, Map<Integer, byte[]>>();
+			for (int ei = 0; ei < numExceptions; ei++) {
+				final int markerIndex = raFile.readInt();
+				final int sampleIndex = raFile.readInt();
+				final byte[] genotype = new byte[2];
+				raFile.readFully(genotype);
+				Map<Integer, byte[]> markerExceptions = exceptions.get(markerIndex);
+				if (markerExceptions == null) {
+					markerExceptions = new TreeMap<Integer, byte[]>();
+					exceptions.put(markerIndex, markerExceptions);
+				}
+				markerExceptions.put(sampleIndex, genotype);
+			}
+
+			return new PackedGenotypesFile(file, numMarkers, numSamples, dictionary, segments, exceptions);
+		} finally {
+			// the memory mapped segments stay valid after closing
+			raFile.close();
+		}
+	}
+
+	/**
+	 * Releases the memory mapped genotypes,
+	 * after waiting for reads in progress on other threads.
+	 */
+	@Override
+	public void close() {
+
+		mappingLock.writeLock().lock();
+		try {
+			if (!closed) {
+				closed = true;
+				MappedBuffers.unmap(segments);
+			}
+		} finally {
+			mappingLock.writeLock().unlock();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getNumMarkers() {
+		return numMarkers;
+	}
+
+	public int getNumSamples() {
+		return numSamples;
+	}
+
+	/**
+	 * Returns the genotypes of the 4 codes of a marker.
+	 * Unused codes map to the missing genotype,
+	 * the escape code maps to <code>null</code>.
+	 */
+	private byte[][] createDecodingTable(final int markerIndex) {
+
+		final int entry = markerIndex * DICTIONARY_ENTRY_BYTES;
+		final int flags = dictionary[entry];
+		final int numCodes = flags & NUM_CODES_MASK;
+		final boolean escaped = ((flags & ESCAPE_FLAG) != 0);
+
+		final byte[][] decodingTable = new byte[CODES_PER_MARKER][];
+		for (int code = 0; code < CODES_PER_MARKER; code++) {
+			if (escaped && (code == ESCAPE_CODE)) {
+				decodingTable[code] = null;
+			} else if (code < numCodes) {
+				final int gtPos = entry + 1 + code * 2;
+				decodingTable[code] = new byte[] {dictionary[gtPos], dictionary[gtPos + 1]};
+			} else {
+				decodingTable[code] = NetCDFConstants.Defaults.DEFAULT_GT.clone();
+			}
+		}
+
+		return decodingTable;
+	}
+
+	private Map<Integer, byte[]> getExceptions(final int markerIndex) {
+
+		final Map<Integer, byte[]> markerExceptions = exceptions.get(markerIndex);
+		return (markerExceptions == null) ? Collections.<Integer, byte[]>emptyMap() : markerExceptions;
+	}
+
+	/**
+	 * Copies packed bytes of a single marker into the given array.
+	 * @param markerIndex the marker to read from
+	 * @param fromByte first byte within the markers packed row
+	 * @param target where to copy to; its length defines how much to copy
+	 */
+	private void readPacked(final int markerIndex, final int fromByte, final byte[] target) {
+
+		mappingLock.readLock().lock();
+		try {
+			if (closed) {
+				throw new IllegalStateException("Reading from a closed packed genotypes file: " + file);
+			}
+			// work on a duplicate, to not interfere with concurrent readers
+			final ByteBuffer segment = segments[markerIndex / markersPerSegment].duplicate();
+			segment.position((markerIndex % markersPerSegment) * bytesPerMarker + fromByte);
+			segment.get(target);
+		} finally {
+			mappingLock.readLock().unlock();
+		}
+	}
+
+	public GenotypesList readMarker(final int markerIndex) {
+
+		final byte[] packed = new byte[bytesPerMarker];
+		readPacked(markerIndex, 0, packed);
+
+		return new PackedGenotypesList(numSamples, packed, createDecodingTable(markerIndex), getExceptions(markerIndex));
+	}
+
+	/**
+	 * @param fromMarkerIndex first marker to read
+	 * @param toMarkerIndex last marker to read (inclusive)
+	 */
+	public List<GenotypesList> readMarkers(final int fromMarkerIndex, final int toMarkerIndex) {
+
+		final List<GenotypesList> markersGenotypes = new ArrayList<GenotypesList>(toMarkerIndex - fromMarkerIndex + 1);
+		for (int mi = fromMarkerIndex; mi <= toMarkerIndex; mi++) {
+			markersGenotypes.add(readMarker(mi));
+		}
+
+		return markersGenotypes;
+	}
+
+	/**
+	 * Reads the genotypes of a range of samples over all markers.
+	 * This reads only the bytes covering the requested samples
+	 * from each marker.
+	 * @param fromSampleIndex first sample to read
+	 * @param toSampleIndex last sample to read (inclusive)
+	 * @return one list of genotypes per sample
+	 */
+	public List<List<byte[]>> readSamples(final int fromSampleIndex, final int toSampleIndex) {
+
+		final int numReadSamples = toSampleIndex - fromSampleIndex + 1;
+		final List<List<byte[]>> samplesGenotypes = new ArrayList<List<byte[]>>(numReadSamples);
+		for (int si = 0; si < numReadSamples; si++) {
+			samplesGenotypes.add(new ArrayList<byte[]>(numMarkers));
+		}
+
+		final int fromByte = fromSampleIndex / GENOTYPES_PER_BYTE;
+		final int toByte = toSampleIndex / GENOTYPES_PER_BYTE;
+		final byte[] packed = new byte[toByte - fromByte + 1];
+		for (int mi = 0; mi < numMarkers; mi++) {
+			readPacked(mi, fromByte, packed);
+			final byte[][] decodingTable = createDecodingTable(mi);
+			final Map<Integer, byte[]> markerExceptions = getExceptions(mi);
+			for (int si = fromSampleIndex; si <= toSampleIndex; si++) {
+				final int code = PackedGenotypesList.extractCode(packed, si - fromByte * GENOTYPES_PER_BYTE);
+				byte[] genotype = decodingTable[code];
+				if (genotype == null) {
+					genotype = markerExceptions.get(si);
+				}
+				samplesGenotypes.get(si - fromSampleIndex).add(genotype);
+			}
+		}
+
+		return samplesGenotypes;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gwaspi.model.AbstractGenotypesList;
+import org.gwaspi.operations.NetCdfUtils;
+
+/**
+ * An immutable genotypes-list of a single marker,
+ * decoding the 2-bit packed storage format on-the-fly.
+ * @see PackedGenotypesFile
+ */
+class PackedGenotypesList extends AbstractGenotypesList {
+
+	private final int size;
+	private final byte[] packed;
+	/**
+	 * Translates from the 2-bit code to the full genotype.
+	 * The escape code, if used, translates to <code>null</code>.
+	 */
+	private final byte[][] decodingTable;
+	/** sample index -> genotype, for all samples with the escape code */
+	private final Map<Integer, byte[]> exceptions;
+	private final Set<byte[]> possibleGenotypes;
+
+	PackedGenotypesList(
+			final int size,
+			final byte[] packed,
+			final byte[][] decodingTable,
+			final Map<Integer, byte[]> exceptions)
+	{
+		this.size = size;
+		this.packed = packed;
+		this.decodingTable = decodingTable;
+		this.exceptions = exceptions;
+		this.possibleGenotypes = Collections.unmodifiableSet(extractPossibleGenotypes());
+	}
+
+	static int extractCode(final byte[] packed, final int index) {
+
+		final int shift = (index % PackedGenotypesFile.GENOTYPES_PER_BYTE) * 2;
+		return (packed[index / PackedGenotypesFile.GENOTYPES_PER_BYTE] >> shift) & 0x03;
+	}
+
+	/**
+	 * Only codes actually found in the list are considered,
+	 * so the result equals the one of the other genotypes-list implementations.
+	 */
+	private Set<byte[]> extractPossibleGenotypes() {
+
+		final boolean[] codeUsed = new boolean[PackedGenotypesFile.CODES_PER_MARKER];
+		for (int gti = 0; gti < size; gti++) {
+			codeUsed[extractCode(packed, gti)] = true;
+		}
+
+		final List<byte[]> candidates = new ArrayList<byte[]>(PackedGenotypesFile.CODES_PER_MARKER + exceptions.size());
+		for (int code = 0; code < codeUsed.length; code++) {
+			if (codeUsed[code] && (decodingTable[code] != null)) {
+				candidates.add(decodingTable[code]);
+			}
+		}
+		candidates.addAll(exceptions.values());
+
+		return NetCdfUtils.extractUniqueGenotypesOrdered(candidates);
+	}
+
+	@Override
+	public Set<byte[]> getPossibleGenotypes() {
+		return possibleGenotypes;
+	}
+
+	/**
+	 * Returns the internal genotype array, which must not be modified.
+	 */
+	private byte[] getInternal(int index) {
+
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("Tried to access index " + index
+					+ " in list of size " + size);
+		}
+
+		byte[] genotype = decodingTable[extractCode(packed, index)];
+		if (genotype == null) {
+			genotype = exceptions.get(index);
+		}
+
+		return genotype;
+	}
+
+	@Override
+	public byte[] get(int index) {
+
+		final byte[] genotype = getInternal(index);
+		return Arrays.copyOf(genotype, genotype.length);
+	}
+
+	@Override
+	public byte getFatherAllele(int index) {
+		return getInternal(index)[0];
+	}
+
+	@Override
+	public byte getMotherAllele(int index) {
+		return getInternal(index)[1];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
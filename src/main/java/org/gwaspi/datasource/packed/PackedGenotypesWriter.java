@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Creates a file in the format read by {@link PackedGenotypesFile}.
+ * Genotypes may be written marker by marker or sample by sample.
+ * The codes of each marker are assigned in order of first appearance.
+ * If a marker turns out to have more then 4 different genotypes,
+ * its last code becomes the escape code,
+ * and all genotypes using it are stored as exceptions.
+ * This class is not thread-safe.
+ */
+public class PackedGenotypesWriter implements Closeable {
+
+	private final File file;
+	private final int numMarkers;
+	private final int numSamples;
+	private final int bytesPerMarker;
+	private final int markersPerSegment;
+	private final RandomAccessFile raFile;
+	private final ByteBuffer[] segments;
+	private final byte[] dictionary;
+	/** marker index -> sample index -> genotype */
+	private final Map<Integer, Map<Integer, byte[]>> exceptions;
+	private int numExceptions;
+
+	public PackedGenotypesWriter(final File file, final int numMarkers, final int numSamples)
+			throws IOException
+	{
+		this.file = file;
+		this.numMarkers = numMarkers;
+		this.numSamples = numSamples;
+		this.bytesPerMarker = PackedGenotypesFile.calcBytesPerMarker(numSamples);
+		this.markersPerSegment = PackedGenotypesFile.calcMarkersPerSegment(bytesPerMarker);
+		this.raFile = new RandomAccessFile(file, "rw");
+		this.raFile.setLength(PackedGenotypesFile.calcExceptionsOffset(numMarkers, numSamples));
+		this.segments = PackedGenotypesFile.mapSegments(
+				raFile.getChannel(), FileChannel.MapMode.READ_WRITE, numMarkers, numSamples);
+		this.dictionary = new byte[numMarkers * PackedGenotypesFile.DICTIONARY_ENTRY_BYTES];
+		this.exceptions = new TreeMap<Integer, Map<Integer, byte[]>>();
+		this.numExceptions = 0;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public void setMarkerGenotypes(final int markerIndex, final List<byte[]> markerGenotypes) {
+
+		if (markerGenotypes.size() != numSamples) {
+			throw new IllegalArgumentException("Expected " + numSamples
+					+ " genotypes for marker " + markerIndex + ", got " + markerGenotypes.size());
+		}
+		int sampleIndex = 0;
+		for (final byte[] genotype : markerGenotypes) {
+			setGenotype(markerIndex, sampleIndex++, genotype);
+		}
+	}
+
+	public void setSampleGenotypes(final int sampleIndex, final List<byte[]> sampleGenotypes) {
+
+		if (sampleGenotypes.size() != numMarkers) {
+			throw new IllegalArgumentException("Expected " + numMarkers
+					+ " genotypes for sample " + sampleIndex + ", got " + sampleGenotypes.size());
+		}
+		int markerIndex = 0;
+		for (final byte[] genotype : sampleGenotypes) {
+			setGenotype(markerIndex++, sampleIndex, genotype);
+		}
+	}
+
+	private int getCode(final int markerIndex, final int sampleIndex) {
+
+		final ByteBuffer segment = segments[markerIndex / markersPerSegment];
+		final int pos = (markerIndex % markersPerSegment) * bytesPerMarker
+				+ sampleIndex / PackedGenotypesFile.GENOTYPES_PER_BYTE;
+		final int shift = (sampleIndex % PackedGenotypesFile.GENOTYPES_PER_BYTE) * 2;
+		return (segment.get(pos) >> shift) & 0x03;
+	}
+
+	private void setCode(final int markerIndex, final int sampleIndex, final int code) {
+
+		final ByteBuffer segment = segments[markerIndex / markersPerSegment];
+		final int pos = (markerIndex % markersPerSegment) * bytesPerMarker
+				+ sampleIndex / PackedGenotypesFile.GENOTYPES_PER_BYTE;
+		final int shift = (sampleIndex % PackedGenotypesFile.GENOTYPES_PER_BYTE) * 2;
+		segment.put(pos, (byte) ((segment.get(pos) & ~(0x03 << shift)) | (code << shift)));
+	}
+
+	/**
+	 * The genotype array is not stored, so it may be reused by the caller.
+	 */
+	void setGenotype(final int markerIndex, final int sampleIndex, final byte[] genotype) {
+		setCode(markerIndex, sampleIndex, encode(markerIndex, sampleIndex, genotype));
+	}
+
+	private void addException(final int markerIndex, final int sampleIndex, final byte[] genotype) {
+
+		Map<Integer, byte[]> markerExceptions = exceptions.get(markerIndex);
+		if (markerExceptions == null) {
+			markerExceptions = new TreeMap<Integer, byte[]>();
+			exceptions.put(markerIndex, markerExceptions);
+		}
+		if (markerExceptions.put(sampleIndex, new byte[] {genotype[0], genotype[1]}) == null) {
+			numExceptions++;
+		}
+	}
+
+	/**
+	 * Returns the code to use for a genotype,
+	 * assigning a new one if necessary.
+	 */
+	private int encode(final int markerIndex, final int sampleIndex, final byte[] genotype) {
+
+		final int entry = markerIndex * PackedGenotypesFile.DICTIONARY_ENTRY_BYTES;
+		final int flags = dictionary[entry];
+		final int numCodes = flags & PackedGenotypesFile.NUM_CODES_MASK;
+		final boolean escaped = ((flags & PackedGenotypesFile.ESCAPE_FLAG) != 0);
+		final int numRegularCodes = escaped ? PackedGenotypesFile.ESCAPE_CODE : numCodes;
+
+		for (int code = 0; code < numRegularCodes; code++) {
+			final int gtPos = entry + 1 + code * 2;
+			if ((dictionary[gtPos] == genotype[0]) && (dictionary[gtPos + 1] == genotype[1])) {
+				return code;
+			}
+		}
+
+		if (!escaped) {
+			if (numCodes < PackedGenotypesFile.CODES_PER_MARKER) {
+				final int gtPos = entry + 1 + numCodes * 2;
+				dictionary[gtPos] = genotype[0];
+				dictionary[gtPos + 1] = genotype[1];
+				dictionary[entry] = (byte) (numCodes + 1);
+				return numCodes;
+			}
+
+			// This marker has more then 4 different genotypes,
+			// so we move all samples using the last code to the exceptions.
+			// This happens very rarely, so scanning the whole marker is fine.
+			final int gtPos = entry + 1 + PackedGenotypesFile.ESCAPE_CODE * 2;
+			final byte[] escapedGenotype = new byte[] {dictionary[gtPos], dictionary[gtPos + 1]};
+			for (int si = 0; si < numSamples; si++) {
+				if (getCode(markerIndex, si) == PackedGenotypesFile.ESCAPE_CODE) {
+					addException(markerIndex, si, escapedGenotype);
+				}
+			}
+			dictionary[entry] = (byte) (numCodes | PackedGenotypesFile.ESCAPE_FLAG);
+		}
+
+		addException(markerIndex, sampleIndex, genotype);
+		return PackedGenotypesFile.ESCAPE_CODE;
+	}
+
+	/**
+	 * Writes the header, the dictionary and the exceptions,
+	 * and closes the file.
+	 * This also releases the memory mapping,
+	 * so the file may be renamed or deleted right after.
+	 */
+	@Override
+	public void close() throws IOException {
+
+		try {
+			for (final ByteBuffer segment : segments) {
+				((MappedByteBuffer) segment).force();
+			}
+
+			raFile.seek(0);
+			raFile.writeInt(PackedGenotypesFile.MAGIC);
+			raFile.writeInt(PackedGenotypesFile.VERSION);
+			raFile.writeInt(numMarkers);
+			raFile.writeInt(numSamples);
+			raFile.write(dictionary);
+
+			final long exceptionsOffset = PackedGenotypesFile.calcExceptionsOffset(numMarkers, numSamples);
+			final byte[] exceptionsBytes = new byte[4 + numExceptions * PackedGenotypesFile.EXCEPTION_BYTES];
+			final ByteBuffer exceptionsBuffer = ByteBuffer.wrap(exceptionsBytes);
+			exceptionsBuffer.putInt(numExceptions);
+			for (final Map.Entry<Integer, Map<Integer, byte[]>> markerExceptions : exceptions.entrySet()) {
+				for (final Map.Entry<Integer, byte[]> exception : markerExceptions.getValue().entrySet()) {
+					exceptionsBuffer.putInt(markerExceptions.getKey());
+					exceptionsBuffer.putInt(exception.getKey());
+					exceptionsBuffer.put(exception.getValue());
+				}
+			}
+			raFile.seek(exceptionsOffset);
+			raFile.write(exceptionsBytes);
+			raFile.setLength(exceptionsOffset + exceptionsBytes.length);
+		} finally {
+			MappedBuffers.unmap(segments);
+			raFile.close();
+		}
+	}
+}
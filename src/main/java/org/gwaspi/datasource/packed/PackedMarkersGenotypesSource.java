@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.IOException;
+import java.util.List;
+import org.gwaspi.datasource.AbstractListSource;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.MarkersGenotypesSource;
+import org.gwaspi.model.MatrixKey;
+
+public class PackedMarkersGenotypesSource extends AbstractListSource<GenotypesList> implements MarkersGenotypesSource {
+
+	private static final int DEFAULT_CHUNK_SIZE = 200;
+
+	private final PackedGenotypesFile packedGenotypesFile;
+	private MarkersGenotypesSource originSource;
+
+	private PackedMarkersGenotypesSource(MatrixKey origin, PackedGenotypesFile packedGenotypesFile) {
+		super(origin, DEFAULT_CHUNK_SIZE);
+
+		this.packedGenotypesFile = packedGenotypesFile;
+		this.originSource = null;
+	}
+
+	public static MarkersGenotypesSource createForMatrix(MatrixKey origin, PackedGenotypesFile packedGenotypesFile) throws IOException {
+		return new PackedMarkersGenotypesSource(origin, packedGenotypesFile);
+	}
+
+	@Override
+	public MarkersGenotypesSource getOrigSource() throws IOException {
+
+		if (originSource == null) {
+			if (getOrigin() == null) {
+				originSource = this;
+			} else {
+				originSource = getOrigDataSetSource().getMarkersGenotypesSource();
+			}
+		}
+
+		return originSource;
+	}
+
+	@Override
+	protected long estimateItemBytes() {
+		return PackedGenotypesFile.calcBytesPerMarker(packedGenotypesFile.getNumSamples());
+	}
+
+	/**
+	 * The packed file is memory mapped and immutable,
+	 * so it may be read from multiple threads.
+	 */
+	@Override
+	protected boolean isConcurrentReadSafe() {
+		return (getOrigin() == null);
+	}
+
+	@Override
+	protected int sizeInternal() {
+		return packedGenotypesFile.getNumMarkers();
+	}
+
+	@Override
+	public List<GenotypesList> getRange(int from, int to) throws IOException {
+		return packedGenotypesFile.readMarkers(from, to);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.gwaspi.datasource.AbstractListSource;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.GenotypesListFactory;
+import org.gwaspi.model.GenotypesListManager;
+import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.SamplesGenotypesSource;
+
+public class PackedSamplesGenotypesSource extends AbstractListSource<GenotypesList> implements SamplesGenotypesSource {
+
+	private static final int DEFAULT_CHUNK_SIZE = 50;
+
+	private final PackedGenotypesFile packedGenotypesFile;
+	private final GenotypesListFactory genotyesListFactory;
+	private SamplesGenotypesSource originSource;
+
+	private PackedSamplesGenotypesSource(MatrixKey origin, PackedGenotypesFile packedGenotypesFile) {
+		super(origin, DEFAULT_CHUNK_SIZE);
+
+		this.packedGenotypesFile = packedGenotypesFile;
+		this.genotyesListFactory = GenotypesListManager.getCommon();
+		this.originSource = null;
+	}
+
+	public static SamplesGenotypesSource createForMatrix(MatrixKey origin, PackedGenotypesFile packedGenotypesFile) throws IOException {
+		return new PackedSamplesGenotypesSource(origin, packedGenotypesFile);
+	}
+
+	@Override
+	public SamplesGenotypesSource getOrigSource() throws IOException {
+
+		if (originSource == null) {
+			if (getOrigin() == null) {
+				originSource = this;
+			} else {
+				originSource = getOrigDataSetSource().getSamplesGenotypesSource();
+			}
+		}
+
+		return originSource;
+	}
+
+	@Override
+	protected long estimateItemBytes() {
+		return packedGenotypesFile.getNumMarkers() * 2L;
+	}
+
+	/**
+	 * The packed file is memory mapped and immutable,
+	 * so it may be read from multiple threads.
+	 */
+	@Override
+	protected boolean isConcurrentReadSafe() {
+		return (getOrigin() == null);
+	}
+
+	@Override
+	protected int sizeInternal() {
+		return packedGenotypesFile.getNumSamples();
+	}
+
+	@Override
+	public List<GenotypesList> getRange(int from, int to) throws IOException {
+
+		final List<List<byte[]>> samplesGenotypes = packedGenotypesFile.readSamples(from, to);
+		final List<GenotypesList> samplesGenotypesLists = new ArrayList<GenotypesList>(samplesGenotypes.size());
+		for (final List<byte[]> sampleGenotypes : samplesGenotypes) {
+			samplesGenotypesLists.add(genotyesListFactory.extract(sampleGenotypes));
+		}
+
+		return samplesGenotypesLists;
+	}
+}
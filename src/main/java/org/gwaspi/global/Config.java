@@ -58,9 +58,74 @@ public class Config {
 	public static final String PROPERTY_GUI_MODE = "mode.gui"; // Boolean
 	public static final String PROPERTY_STORAGE_IN_MEMORY = "performance.storage.inMemory"; // Boolean
 	public static final String PROPERTY_STORAGE_COMPACT_GT_LISTS = "performance.storage.compactGTLists"; // Boolean
+	/** Whether newly created matrices store their genotypes 2-bit packed, instead of in the NetCDF file. */
+	public static final String PROPERTY_STORAGE_PACKED_GENOTYPES = "performance.storage.packedGenotypes"; // Boolean
+	/**
+	 * Whether to create a marker-major copy of the genotypes
+	 * of a NetCDF matrix the first time it is read marker-wise.
+	 * @see org.gwaspi.datasource.packed.MarkerMajorGenotypesBuilder
+	 */
+	public static final String PROPERTY_STORAGE_MARKER_MAJOR_COPY = "performance.storage.markerMajorCopy"; // Boolean
 	public static final String PROPERTY_LOG_OFF = "performance.logOff"; // Boolean
 	public static final String PROPERTY_MAX_HEAP_MB = "performance.heapMB.max"; // Integer
 	public static final String PROPERTY_MAX_PROCESS_MARKERS = "performance.markers.max"; // INTEGER
+	/**
+	 * Maximum number of worker threads used by a single operation;
+	 * a value <= 0 means: use all available processors.
+	 */
+	public static final String PROPERTY_MAX_WORKER_THREADS = "performance.threads.max"; // Integer
+	/**
+	 * Maximum number of chunks kept in memory by each chunked list source.
+	 * @see org.gwaspi.datasource.AbstractChunkedListSource
+	 */
+	public static final String PROPERTY_CACHE_MAX_CHUNKS = "performance.cache.chunks.max"; // Integer
+	/**
+	 * Memory budget in MB for the chunks kept by each chunked list source;
+	 * the chunk size is derived from this and the size of a single item.
+	 * @see org.gwaspi.datasource.AbstractChunkedListSource
+	 */
+	public static final String PROPERTY_CACHE_MAX_MB = "performance.cache.MB.max"; // Integer
+	/**
+	 * Memory budget in MB shared by the concurrently running,
+	 * memory intensive tasks of a single operation;
+	 * a value <= 0 means: use most of the currently free heap,
+	 * split equally among the tasks the task queue runs at the same time.
+	 * @see MemoryBoundedTaskRunner
+	 */
+	public static final String PROPERTY_TASKS_MAX_MB = "performance.tasks.MB.max"; // Integer
+	/**
+	 * Maximum number of tasks the task queue runs at the same time;
+	 * a value <= 0 means: the default of 2.
+	 * @see org.gwaspi.threadbox.TaskQueue
+	 */
+	public static final String PROPERTY_QUEUE_MAX_TASKS = "performance.queue.tasks.max"; // Integer
+	/**
+	 * Memory budget in MB shared by the tasks the task queue runs at the same time,
+	 * according to their estimated memory usage;
+	 * a value <= 0 means: three quarters of the maximum heap size.
+	 * @see org.gwaspi.threadbox.TaskQueue
+	 */
+	public static final String PROPERTY_QUEUE_MAX_MB = "performance.queue.MB.max"; // Integer
+	/**
+	 * Maximum size in MB of a COMBI kernel matrix stored on the heap;
+	 * larger ones are stored in a memory mapped scratch file.
+	 * A value < 0 means: a quarter of the maximum heap size.
+	 * @see org.gwaspi.operations.combi.SymmetricKernelMatrix
+	 */
+	public static final String PROPERTY_COMBI_KERNEL_MAX_HEAP_MB = "performance.combi.kernel.heapMB.max"; // Integer
+	/**
+	 * Memory in MB used for buffering genotypes before writing them
+	 * to a NetCDF matrix, shared by the buffer being filled
+	 * and the one being written in the background.
+	 * @see org.gwaspi.netCDF.loader.GenotypesHyperslabWriter
+	 */
+	public static final String PROPERTY_WRITE_BUFFER_MAX_MB = "performance.writeBuffer.MB.max"; // Integer
+	/**
+	 * Whether to reuse the result of an operation that was already run
+	 * on the same parent with the same parameters, instead of running it again.
+	 * @see org.gwaspi.operations.OperationResultCache
+	 */
+	public static final String PROPERTY_REUSE_OPERATION_RESULTS = "performance.operations.reuse"; // Boolean
 
 	private final boolean guiMode;
 	/** System wide preferences. */
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.global;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens input files, transparently decompressing gzip compressed ones.
+ * Compression is detected by the content of the file, not by its name.
+ * Decompression happens on a separate thread, while the caller parses,
+ * and never writes the uncompressed data to disk.
+ */
+public class InputFiles {
+
+	private static final int GZIP_MAGIC_1 = 0x1f;
+	private static final int GZIP_MAGIC_2 = 0x8b;
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+	private static final int READER_BUFFER_SIZE = 1 << 16;
+
+	private InputFiles() {
+	}
+
+	/**
+	 * Checks whether the file starts with the gzip magic number.
+	 */
+	public static boolean isGzipCompressed(final File file) throws IOException {
+
+		final InputStream in = new FileInputStream(file);
+		try {
+			return (in.read() == GZIP_MAGIC_1) && (in.read() == GZIP_MAGIC_2);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Opens a file for reading its (uncompressed) content.
+	 */
+	public static InputStream openInputStream(final File file) throws IOException {
+
+		if (isGzipCompressed(file)) {
+			final InputStream compressedIn = new GZIPInputStream(new FileInputStream(file), GZIP_BUFFER_SIZE);
+			return new ReadAheadInputStream(compressedIn, "Decompress-" + file.getName());
+		} else {
+			return new FileInputStream(file);
+		}
+	}
+
+	/**
+	 * Opens a file for reading its (uncompressed) content through a channel.
+	 * For uncompressed files, this is the files own channel.
+	 * Closing the channel closes the file.
+	 */
+	public static ReadableByteChannel openChannel(final File file) throws IOException {
+
+		final InputStream in = openInputStream(file);
+		if (in instanceof FileInputStream) {
+			return ((FileInputStream) in).getChannel();
+		} else {
+			return Channels.newChannel(in);
+		}
+	}
+
+	/**
+	 * Opens a (possibly compressed) text file, using the default character set,
+	 * just like {@link java.io.FileReader} does.
+	 */
+	public static BufferedReader openReader(final File file) throws IOException {
+		return new BufferedReader(new InputStreamReader(openInputStream(file)), READER_BUFFER_SIZE);
+	}
+
+	public static BufferedReader openReader(final String path) throws IOException {
+		return openReader(new File(path));
+	}
+}
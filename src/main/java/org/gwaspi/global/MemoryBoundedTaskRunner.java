@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent, memory intensive tasks on a pool of worker threads,
+ * starting a task only while the sum of the estimated memory usage
+ * of all the running tasks stays within a budget.
+ * A task that alone exceeds the budget is still run,
+ * but only once no other task is running.
+ * Tasks are started in the given order,
+ * and their results are returned in that same order.
+ * Each task is prepared on the calling thread right before it is started,
+ * so it may read its input from sources that are not thread-safe.
+ * With a single worker, everything is run on the calling thread.
+ * An instance may be used for any number of runs,
+ * and a failed run does not affect the later ones.
+ * @param <R> result type
+ */
+public class MemoryBoundedTaskRunner<R> {
+
+	/**
+	 * A single unit of work.
+	 * @param <R> result type
+	 */
+	public interface Task<R> {
+
+		/**
+		 * @return the number of bytes this task requires while running,
+		 *   including the prepared input
+		 */
+		long estimateMemoryBytes();
+
+		/**
+		 * Reads all the input of the task.
+		 * This is always called on the thread that called
+		 * {@link MemoryBoundedTaskRunner#run(List)},
+		 * and only once enough memory is available.
+		 * @return the actual work, to be executed on a worker thread
+		 */
+		Callable<R> prepare() throws IOException;
+	}
+
+	/**
+	 * The number of independent callers currently running at the same time,
+	 * which share the free heap, and thus the default memory budget.
+	 */
+	private static final AtomicInteger NUM_BUDGET_SHARERS = new AtomicInteger(0);
+
+	private final String name;
+	private final int numWorkers;
+	private final long memoryBudgetBytes;
+
+	public MemoryBoundedTaskRunner(final String name, final int numWorkers, final long memoryBudgetBytes) {
+
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException("Number of workers has to be at least 1, but is " + numWorkers);
+		}
+		this.name = name;
+		this.numWorkers = numWorkers;
+		this.memoryBudgetBytes = memoryBudgetBytes;
+	}
+
+	public MemoryBoundedTaskRunner(final String name) {
+		this(name, OrderedBlockProcessor.fetchNumWorkerThreads(), fetchMemoryBudgetBytes());
+	}
+
+	/**
+	 * Registers a caller that runs at the same time as other ones,
+	 * for example a task of the task queue,
+	 * and thus has to share the default memory budget with them.
+	 * Each call has to be followed by one to {@link #removeBudgetSharer()}.
+	 */
+	public static void addBudgetSharer() {
+		NUM_BUDGET_SHARERS.incrementAndGet();
+	}
+
+	/**
+	 * @see #addBudgetSharer()
+	 */
+	public static void removeBudgetSharer() {
+		NUM_BUDGET_SHARERS.decrementAndGet();
+	}
+
+	/**
+	 * Returns the memory budget for concurrently running tasks,
+	 * as configured by the user, or by default, three quarters of the currently
+	 * free heap, split equally among the registered budget sharers.
+	 * @see Config#PROPERTY_TASKS_MAX_MB
+	 * @see #addBudgetSharer()
+	 */
+	public static long fetchMemoryBudgetBytes() {
+
+		final Config config = Config.getSingleton();
+		final int configuredMB = (config == null) ? -1
+				: config.getInteger(Config.PROPERTY_TASKS_MAX_MB, -1);
+		if (configuredMB > 0) {
+			return 1024L * 1024L * configuredMB;
+		}
+		final Runtime runtime = Runtime.getRuntime();
+		final long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+		final int numSharers = Math.max(1, NUM_BUDGET_SHARERS.get());
+		return (runtime.maxMemory() - usedBytes) / 4 * 3 / numSharers;
+	}
+
+	public int getNumWorkers() {
+		return numWorkers;
+	}
+
+	public long getMemoryBudgetBytes() {
+		return memoryBudgetBytes;
+	}
+
+	public List<R> run(final List<? extends Task<R>> tasks) throws IOException {
+
+		if (numWorkers == 1) {
+			return runSequential(tasks);
+		} else {
+			return runParallel(tasks);
+		}
+	}
+
+	private List<R> runSequential(final List<? extends Task<R>> tasks) throws IOException {
+
+		final List<R> results = new ArrayList<R>(tasks.size());
+		for (final Task<R> task : tasks) {
+			try {
+				results.add(task.prepare().call());
+			} catch (final IOException ex) {
+				throw ex;
+			} catch (final RuntimeException ex) {
+				throw ex;
+			} catch (final Exception ex) {
+				throw new IOException(ex);
+			}
+		}
+
+		return results;
+	}
+
+	private List<R> runParallel(final List<? extends Task<R>> tasks) throws IOException {
+
+		// a fresh state for each run, so neither a failure of an earlier run,
+		// nor its tasks still finishing after it was aborted, affect this one
+		final Reservations reservations = new Reservations();
+		final ExecutorService workers = OrderedBlockProcessor.createWorkerPool(name, numWorkers);
+		try {
+			final List<Future<R>> futures = new ArrayList<Future<R>>(tasks.size());
+			for (final Task<R> task : tasks) {
+				final long taskBytes = task.estimateMemoryBytes();
+				if (!reservations.reserve(taskBytes)) {
+					// an earlier task failed; its exception is thrown below
+					break;
+				}
+				final Callable<R> preparedTask;
+				try {
+					preparedTask = task.prepare();
+				} catch (final IOException ex) {
+					reservations.release(taskBytes, false);
+					throw ex;
+				} catch (final RuntimeException ex) {
+					reservations.release(taskBytes, false);
+					throw ex;
+				}
+				futures.add(workers.submit(new Callable<R>() {
+					@Override
+					public R call() throws Exception {
+
+						boolean succeeded = false;
+						try {
+							final R result = preparedTask.call();
+							succeeded = true;
+							return result;
+						} finally {
+							reservations.release(taskBytes, succeeded);
+						}
+					}
+				}));
+			}
+
+			final List<R> results = new ArrayList<R>(futures.size());
+			for (final Future<R> future : futures) {
+				results.add(OrderedBlockProcessor.waitFor(future));
+			}
+
+			return results;
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Keeps track of the memory and the workers in use by the tasks of a single run.
+	 */
+	private class Reservations {
+
+		private long reservedBytes;
+		private int numRunning;
+		private boolean failed;
+
+		Reservations() {
+
+			this.reservedBytes = 0;
+			this.numRunning = 0;
+			this.failed = false;
+		}
+
+		/**
+		 * Blocks until the task fits into the memory budget
+		 * and a worker is free.
+		 * @return <code>false</code> if an other task failed in the meantime
+		 */
+		synchronized boolean reserve(final long taskBytes) throws IOException {
+
+			while (!failed
+					&& ((numRunning >= numWorkers)
+					|| ((numRunning > 0) && (reservedBytes + taskBytes > memoryBudgetBytes))))
+			{
+				try {
+					wait();
+				} catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting for memory to become available", ex);
+				}
+			}
+			if (failed) {
+				return false;
+			}
+			reservedBytes += taskBytes;
+			numRunning++;
+			return true;
+		}
+
+		synchronized void release(final long taskBytes, final boolean succeeded) {
+
+			reservedBytes -= taskBytes;
+			numRunning--;
+			failed |= !succeeded;
+			notifyAll();
+		}
+	}
+}
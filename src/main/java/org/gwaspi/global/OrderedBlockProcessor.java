@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes a sequence of input items in blocks on a pool of worker threads,
+ * while handing the results to a single consumer, in the original order.
+ * The input is always read on the calling thread,
+ * so the input source does not need to be thread-safe.
+ * Only a bounded number of blocks is in flight at any time,
+ * which keeps the memory usage constant, independent of the input size.
+ * With a single worker, everything is processed on the calling thread.
+ * @param <I> input item type
+ * @param <O> result item type
+ */
+public class OrderedBlockProcessor<I, O> {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	/**
+	 * Processes a block of input items.
+	 * Each block is processed by exactly one thread,
+	 * but different blocks are processed concurrently,
+	 * so implementations must not share mutable state between calls.
+	 * @param <I> input item type
+	 * @param <O> result item type
+	 */
+	public interface BlockProcessor<I, O> {
+
+		/**
+		 * @param firstIndex the index of the first item of the block
+		 *   within the whole input sequence
+		 * @param block the input items
+		 * @return one result per input item, in the same order
+		 */
+		List<O> processBlock(int firstIndex, List<I> block) throws IOException;
+	}
+
+	/**
+	 * Receives the results, always on the calling thread and in input order.
+	 * @param <O> result item type
+	 */
+	public interface ResultConsumer<O> {
+
+		void consume(int index, O result) throws IOException;
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final String namePrefix;
+		private final AtomicInteger threadNumber;
+
+		WorkerThreadFactory(final String namePrefix) {
+
+			this.namePrefix = namePrefix;
+			this.threadNumber = new AtomicInteger(0);
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+
+			final Thread thread = new Thread(runnable, namePrefix + " worker " + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	private final String name;
+	private final int numWorkers;
+	private final int blockSize;
+
+	public OrderedBlockProcessor(final String name, final int numWorkers, final int blockSize) {
+
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException("Number of workers has to be at least 1, but is " + numWorkers);
+		}
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size has to be at least 1, but is " + blockSize);
+		}
+		this.name = name;
+		this.numWorkers = numWorkers;
+		this.blockSize = blockSize;
+	}
+
+	public OrderedBlockProcessor(final String name) {
+		this(name, fetchNumWorkerThreads(), DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Returns the number of worker threads to be used for CPU bound processing,
+	 * as configured by the user, or the number of available processors by default.
+	 * @see Config#PROPERTY_MAX_WORKER_THREADS
+	 */
+	public static int fetchNumWorkerThreads() {
+
+		final Config config = Config.getSingleton();
+		final int configured = (config == null) ? -1
+				: config.getInteger(Config.PROPERTY_MAX_WORKER_THREADS, -1);
+		return (configured > 0) ? configured : Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Creates a pool of daemon threads,
+	 * suitable for the kind of processing done by this class.
+	 * @param name prefix of the thread names
+	 * @param numThreads number of threads in the pool
+	 */
+	public static ExecutorService createWorkerPool(final String name, final int numThreads) {
+		return Executors.newFixedThreadPool(numThreads, new WorkerThreadFactory(name));
+	}
+
+	public int getNumWorkers() {
+		return numWorkers;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public void process(
+			final Iterator<I> input,
+			final BlockProcessor<I, O> blockProcessor,
+			final ResultConsumer<O> resultConsumer)
+			throws IOException
+	{
+		if (numWorkers == 1) {
+			processSequential(input, blockProcessor, resultConsumer);
+		} else {
+			processParallel(input, blockProcessor, resultConsumer);
+		}
+	}
+
+	private List<I> readBlock(final Iterator<I> input) {
+
+		final List<I> block = new ArrayList<I>(blockSize);
+		while (input.hasNext() && (block.size() < blockSize)) {
+			block.add(input.next());
+		}
+
+		return block;
+	}
+
+	private static <O> int consumeBlock(
+			final int firstIndex,
+			final List<O> results,
+			final ResultConsumer<O> resultConsumer)
+			throws IOException
+	{
+		int index = firstIndex;
+		for (final O result : results) {
+			resultConsumer.consume(index++, result);
+		}
+
+		return index;
+	}
+
+	private void processSequential(
+			final Iterator<I> input,
+			final BlockProcessor<I, O> blockProcessor,
+			final ResultConsumer<O> resultConsumer)
+			throws IOException
+	{
+		int index = 0;
+		while (input.hasNext()) {
+			final List<I> block = readBlock(input);
+			index = consumeBlock(index, blockProcessor.processBlock(index, block), resultConsumer);
+		}
+	}
+
+	private void processParallel(
+			final Iterator<I> input,
+			final BlockProcessor<I, O> blockProcessor,
+			final ResultConsumer<O> resultConsumer)
+			throws IOException
+	{
+		// this bounds the memory usage, while still keeping all workers busy
+		final int maxBlocksInFlight = numWorkers * 2;
+		final ExecutorService workers = createWorkerPool(name, numWorkers);
+		final Queue<Future<List<O>>> blocksInFlight = new LinkedList<Future<List<O>>>();
+		try {
+			int readIndex = 0;
+			int consumeIndex = 0;
+			while (input.hasNext()) {
+				final List<I> block = readBlock(input);
+				final int firstIndex = readIndex;
+				blocksInFlight.add(workers.submit(new Callable<List<O>>() {
+					@Override
+					public List<O> call() throws Exception {
+						return blockProcessor.processBlock(firstIndex, block);
+					}
+				}));
+				readIndex += block.size();
+				if (blocksInFlight.size() >= maxBlocksInFlight) {
+					consumeIndex = consumeBlock(consumeIndex, waitFor(blocksInFlight.poll()), resultConsumer);
+				}
+			}
+			while (!blocksInFlight.isEmpty()) {
+				consumeIndex = consumeBlock(consumeIndex, waitFor(blocksInFlight.poll()), resultConsumer);
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for a task to finish, and unwraps its result
+	 * or the exception it threw.
+	 * @param <R> result type
+	 * @param future to wait for
+	 * @return the result of the task
+	 * @throws IOException if the task threw one, or if we got interrupted
+	 */
+	public static <R> R waitFor(final Future<R> future) throws IOException {
+
+		try {
+			return future.get();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a worker", ex);
+		} catch (final ExecutionException ex) {
+			throw rethrowUnchecked(ex.getCause());
+		}
+	}
+
+	/**
+	 * Prepares the failure of a worker for being thrown on the calling thread.
+	 * Unchecked exceptions and errors are thrown right away.
+	 * @param failure what the worker threw
+	 * @return the failure as an IOException, for the caller to throw
+	 */
+	public static IOException rethrowUnchecked(final Throwable failure) {
+
+		if (failure instanceof IOException) {
+			return (IOException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else {
+			return new IOException(failure);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a range of indices into sub-ranges,
+ * processes them concurrently on a pool of worker threads,
+ * and waits for all of them to finish (fork/join style).
+ * This is meant for CPU bound work on arrays,
+ * where each sub-range only reads and writes its own indices.
+ * The worker threads are created on first use,
+ * and are reused by all further calls to {@link #process(int, RangeProcessor)}.
+ * Call {@link #close()} when done, to stop the worker threads.
+ */
+public class ParallelRanges {
+
+	/**
+	 * Processes the indices <code>[from, to)</code>.
+	 * Different ranges are processed concurrently.
+	 */
+	public interface RangeProcessor {
+
+		void process(int from, int to) throws IOException;
+	}
+
+	private final String name;
+	private final int numWorkers;
+	private final int rangeSize;
+	private ExecutorService workers;
+
+	public ParallelRanges(final String name, final int numWorkers, final int rangeSize) {
+
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException("Number of workers has to be at least 1, but is " + numWorkers);
+		}
+		if (rangeSize < 1) {
+			throw new IllegalArgumentException("Range size has to be at least 1, but is " + rangeSize);
+		}
+		this.name = name;
+		this.numWorkers = numWorkers;
+		this.rangeSize = rangeSize;
+		this.workers = null;
+	}
+
+	public ParallelRanges(final String name, final int rangeSize) {
+		this(name, OrderedBlockProcessor.fetchNumWorkerThreads(), rangeSize);
+	}
+
+	/**
+	 * Processes the indices <code>[0, size)</code>,
+	 * and returns once all of them are processed.
+	 * Single ranges are processed on the calling thread.
+	 * @throws IOException the first failure of any range,
+	 *   after all ranges finished
+	 */
+	public void process(final int size, final RangeProcessor processor) throws IOException {
+
+		final int numRanges = (size + rangeSize - 1) / rangeSize;
+		if ((numWorkers == 1) || (numRanges <= 1)) {
+			for (int from = 0; from < size; from += rangeSize) {
+				processor.process(from, Math.min(size, from + rangeSize));
+			}
+			return;
+		}
+
+		if (workers == null) {
+			workers = OrderedBlockProcessor.createWorkerPool(name, numWorkers);
+		}
+		final List<Future<Void>> ranges = new ArrayList<Future<Void>>(numRanges);
+		for (int from = 0; from < size; from += rangeSize) {
+			final int rangeFrom = from;
+			final int rangeTo = Math.min(size, from + rangeSize);
+			ranges.add(workers.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+
+					processor.process(rangeFrom, rangeTo);
+					return null;
+				}
+			}));
+		}
+		IOException firstFailure = null;
+		for (final Future<Void> range : ranges) {
+			try {
+				OrderedBlockProcessor.waitFor(range);
+			} catch (final IOException ex) {
+				if (firstFailure == null) {
+					firstFailure = ex;
+				}
+			}
+		}
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
+
+	/**
+	 * Stops the worker threads, if any were started.
+	 */
+	public void close() {
+
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+	}
+}
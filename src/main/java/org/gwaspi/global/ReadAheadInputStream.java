@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Reads an other stream ahead on a background thread, in large chunks,
+ * so an expensive source (for example decompression)
+ * runs concurrently with the consumer of this stream.
+ * Only a bounded number of chunks is buffered at any time.
+ * Failures of the source are thrown to the consumer
+ * once it has read everything before the failure.
+ * Like most streams, this class is not thread-safe.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+	public static final int DEFAULT_MAX_CHUNKS_AHEAD = 4;
+
+	/** Marks the end of the source; compared by identity. */
+	private static final byte[] END = new byte[0];
+
+	private final InputStream source;
+	private final ExecutorService readerThread;
+	private final BlockingQueue<byte[]> chunks;
+	private volatile Throwable failure;
+	private byte[] current;
+	private int position;
+	private boolean finished;
+
+	public ReadAheadInputStream(
+			final InputStream source,
+			final String name,
+			final int chunkSize,
+			final int maxChunksAhead)
+	{
+		this.source = source;
+		this.readerThread = OrderedBlockProcessor.createWorkerPool(name, 1);
+		this.chunks = new ArrayBlockingQueue<byte[]>(maxChunksAhead);
+		this.failure = null;
+		this.current = null;
+		this.position = 0;
+		this.finished = false;
+
+		readerThread.submit(new Runnable() {
+			@Override
+			public void run() {
+				readAhead(chunkSize);
+			}
+		});
+		readerThread.shutdown();
+	}
+
+	public ReadAheadInputStream(final InputStream source, final String name) {
+		this(source, name, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNKS_AHEAD);
+	}
+
+	private void readAhead(final int chunkSize) {
+
+		boolean closed = false;
+		try {
+			boolean sourceFinished = false;
+			while (!sourceFinished) {
+				final byte[] chunk = new byte[chunkSize];
+				int filled = 0;
+				while (filled < chunkSize) {
+					final int read = source.read(chunk, filled, chunkSize - filled);
+					if (read < 0) {
+						sourceFinished = true;
+						break;
+					}
+					filled += read;
+				}
+				if (filled > 0) {
+					chunks.put((filled == chunkSize) ? chunk : Arrays.copyOf(chunk, filled));
+				}
+			}
+		} catch (final InterruptedException ex) {
+			// the stream was closed before the source was exhausted
+			closed = true;
+		} catch (final Throwable ex) {
+			failure = ex;
+		} finally {
+			if (!closed) {
+				try {
+					chunks.put(END);
+				} catch (final InterruptedException ex) {
+					// the stream was closed; nobody waits for the end marker anymore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes sure there is at least one unread byte in the current chunk.
+	 * @return <code>false</code> if the end of the stream was reached
+	 */
+	private boolean ensureAvailable() throws IOException {
+
+		while ((current == null) || (position >= current.length)) {
+			if (finished) {
+				if (failure != null) {
+					throw OrderedBlockProcessor.rethrowUnchecked(failure);
+				}
+				return false;
+			}
+			final byte[] chunk;
+			try {
+				chunk = chunks.take();
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for input");
+			}
+			if (chunk == END) {
+				finished = true;
+				current = null;
+			} else {
+				current = chunk;
+				position = 0;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		if (!ensureAvailable()) {
+			return -1;
+		}
+
+		return current[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+
+		if (length == 0) {
+			return 0;
+		}
+		if (!ensureAvailable()) {
+			return -1;
+		}
+
+		final int numCopied = Math.min(length, current.length - position);
+		System.arraycopy(current, position, buffer, offset, numCopied);
+		position += numCopied;
+
+		return numCopied;
+	}
+
+	/**
+	 * Waits for the next chunk if the current one is used up,
+	 * so <code>0</code> is only returned at the end of the stream.
+	 * Loops based on {@link java.io.BufferedReader#ready()} rely on that,
+	 * as they would otherwise stop whenever the source falls behind.
+	 */
+	@Override
+	public int available() throws IOException {
+		return ensureAvailable() ? (current.length - position) : 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		readerThread.shutdownNow();
+		source.close();
+	}
+}
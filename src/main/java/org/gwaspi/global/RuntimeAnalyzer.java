@@ -76,7 +76,7 @@ public class RuntimeAnalyzer {
 		this.discard = discard;
 	}
 
-	public void log(final String key, final boolean start) {
+	public synchronized void log(final String key, final boolean start) {
 
 		/*if (!discard)*/ {
 			final long curTime = System.currentTimeMillis();
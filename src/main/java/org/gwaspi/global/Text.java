@@ -234,6 +234,9 @@ public class Text {
 		public static final String hwExpHetzy = "EXP_HETZY_";
 		public static final String hwPval = "HW_p-Value_";
 		public static final String trendTest = "Trend X²";
+		public static final String fisherChiSqr = "X² (2 df) equivalent";
+		public static final String allelicPVal = "Allelic p-Value";
+		public static final String correctedPVal = "Max(T) corrected p-Value";
 		public static final String CASE = "CASE";
 		public static final String CTRL = "CTRL";
 		public static final String ALL = "ALL";
@@ -297,6 +300,10 @@ public class Text {
 		public static final String allelicAssocTest = "Allelic Association Test";
 		public static final String genoAssocTest = "Genotypic Association Test";
 		public static final String trendTest = "Cochran-Armitage Trend Test";
+		public static final String fisherExactTest = "Fisher Exact Test";
+		public static final String fisherExactTestDescription = "Fisher's exact test on the genotype counts (2x3 table) and the allele counts (2x2 table) of cases and controls, which is exact even for small counts";
+		public static final String permutationTest = "Permutation Test";
+		public static final String permutationTestDescription = "Permutation test of an association statistic, shuffling the affections of the samples many times, which yields per marker an empirical P-value and a max(T) P-value that is corrected for testing many markers";
 		public static final String chosePhenotype = "Update Affection from Phenotype File";
 		public static final String genotypeFreqAndHW = "Do you want to update the case/conrol affection info in the data-set from an external Sample Info file?";
 		public static final String addPhenotypes = "Add Phenotypes";
@@ -198,6 +198,8 @@ public class DataSetAnalysePanel extends JPanel {
 		JButton btn_allelicTest = new JButton();
 		JButton btn_genotypicTest = new JButton();
 		JButton btn_trendTest = new JButton();
+		JButton btn_fisherExactTest = new JButton();
+		JButton btn_permutationTest = new JButton();
 		JButton btn_combiTest = new JButton();
 		final Insets bigButtonInsets = new Insets(20, 30, 20, 30);
 		btn_gwasInOneGoAction.setMargin(bigButtonInsets);
@@ -205,6 +207,8 @@ public class DataSetAnalysePanel extends JPanel {
 		btn_allelicTest.setMargin(bigButtonInsets);
 		btn_genotypicTest.setMargin(bigButtonInsets);
 		btn_trendTest.setMargin(bigButtonInsets);
+		btn_fisherExactTest.setMargin(bigButtonInsets);
+		btn_permutationTest.setMargin(bigButtonInsets);
 		btn_combiTest.setMargin(bigButtonInsets);
 		JPanel pnl_NewOperation = new JPanel();
 		pnl_NewOperation.setBorder(GWASpiExplorerPanel.createRegularTitledBorder(Text.Operation.newOperation));
@@ -215,6 +219,8 @@ public class DataSetAnalysePanel extends JPanel {
 		pnl_NewOperation.add(btn_genFreqAndHW);
 		pnl_NewOperation.add(btn_genotypicTest);
 		pnl_NewOperation.add(btn_combiTest);
+		pnl_NewOperation.add(btn_fisherExactTest);
+		pnl_NewOperation.add(btn_permutationTest);
 
 		JButton btn_Help = new JButton();
 		JButton btn_Back = new JButton();
@@ -246,12 +252,16 @@ public class DataSetAnalysePanel extends JPanel {
 		final AssociationTestsAction allelicTest = new AssociationTestsAction(observedElementKey, gwasParams, currentOP, this, OPType.ALLELICTEST);
 		final AssociationTestsAction genotypicTest = new AssociationTestsAction(observedElementKey, gwasParams, currentOP, this, OPType.GENOTYPICTEST);
 		final AssociationTestsAction trendTest = new AssociationTestsAction(observedElementKey, gwasParams, currentOP, this, OPType.TRENDTEST);
+		final AssociationTestsAction fisherExactTest = new AssociationTestsAction(observedElementKey, gwasParams, currentOP, this, OPType.FISHEREXACTTEST);
+		final AssociationTestsAction permutationTest = new AssociationTestsAction(observedElementKey, gwasParams, currentOP, this, OPType.PERMUTATIONTEST);
 		final AssociationTestsAction combiTest = new AssociationTestsAction(observedElementKey, gwasParams, currentOP, this, OPType.COMBI_ASSOC_TEST);
-		testActions = new AssociationTestsAction[] {allelicTest, genotypicTest, trendTest, combiTest};
+		testActions = new AssociationTestsAction[] {allelicTest, genotypicTest, trendTest, fisherExactTest, permutationTest, combiTest};
 		refreshActionStates();
 		btn_allelicTest.setAction(allelicTest);
 		btn_genotypicTest.setAction(genotypicTest);
 		btn_trendTest.setAction(trendTest);
+		btn_fisherExactTest.setAction(fisherExactTest);
+		btn_permutationTest.setAction(permutationTest);
 		btn_combiTest.setAction(combiTest);
 		btn_Back.setAction(new BackAction(parent));
 		btn_Help.setAction(new BrowserHelpUrlAction(HelpURLs.QryURL.matrixAnalyse));
@@ -43,7 +43,9 @@ import org.gwaspi.model.OperationsList;
 import org.gwaspi.model.Report;
 import org.gwaspi.model.ReportsList;
 import org.gwaspi.operations.allelicassociationtest.AllelicAssociationTestOperation;
+import org.gwaspi.operations.fisherexacttest.FisherExactTestOperation;
 import org.gwaspi.operations.genotypicassociationtest.GenotypicAssociationTestOperation;
+import org.gwaspi.operations.permutationtest.PermutationTestOperation;
 import org.gwaspi.operations.trendtest.TrendTestOperation;
 import org.gwaspi.threadbox.MultiOperations;
 import org.gwaspi.threadbox.Deleter;
@@ -126,6 +128,10 @@ public class Report_AnalysisPanel extends JPanel {
 				pnl_ReportTmp = new Report_AnalysisGenotypicTestImpl(operationKey, reportFile, nRows);
 			} else if (currentOP.getType().equals(TrendTestOperation.class)) {
 				pnl_ReportTmp = new Report_AnalysisTrendTestImpl(operationKey, reportFile, nRows);
+			} else if (currentOP.getType().equals(FisherExactTestOperation.class)) {
+				pnl_ReportTmp = new Report_AnalysisFisherExactTestImpl(operationKey, reportFile, nRows);
+			} else if (currentOP.getType().equals(PermutationTestOperation.class)) {
+				pnl_ReportTmp = new Report_AnalysisPermutationTestImpl(operationKey, reportFile, nRows);
 			}
 		}
 		if (pnl_ReportTmp == null) {
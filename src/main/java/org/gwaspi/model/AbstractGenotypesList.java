@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.model;
+
+import java.util.AbstractList;
+
+/**
+ * Implements the primitive allele access methods of {@link GenotypesList}
+ * on top of {@link #get(int)}.
+ * Sub-classes should override them where they can do so
+ * without creating an array per genotype.
+ */
+public abstract class AbstractGenotypesList extends AbstractList<byte[]> implements GenotypesList {
+
+	private volatile GenotypeCodeTable codeTable;
+
+	protected AbstractGenotypesList() {
+
+		this.codeTable = null;
+	}
+
+	@Override
+	public byte getFatherAllele(int index) {
+		return get(index)[0];
+	}
+
+	@Override
+	public byte getMotherAllele(int index) {
+		return get(index)[1];
+	}
+
+	@Override
+	public void copyAlleles(byte[] dst) {
+
+		final int size = size();
+		for (int gti = 0; gti < size; gti++) {
+			dst[gti * 2] = getFatherAllele(gti);
+			dst[gti * 2 + 1] = getMotherAllele(gti);
+		}
+	}
+
+	private GenotypeCodeTable getCodeTable() {
+
+		// NOTE This may get created concurrently by multiple threads,
+		//   which is harmless, as the result is always the same.
+		GenotypeCodeTable curCodeTable = codeTable;
+		if (curCodeTable == null) {
+			curCodeTable = new GenotypeCodeTable(getPossibleGenotypes());
+			codeTable = curCodeTable;
+		}
+
+		return curCodeTable;
+	}
+
+	@Override
+	public int getGenotypeCode(int index) {
+		return getCodeTable().encode(getFatherAllele(index), getMotherAllele(index));
+	}
+
+	@Override
+	public byte[][] getGenotypeDecodingTable() {
+		return getCodeTable().getDecodingTable();
+	}
+}
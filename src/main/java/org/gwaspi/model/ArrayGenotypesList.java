@@ -45,6 +45,7 @@ public class ArrayGenotypesList extends ArrayList<byte[]> implements GenotypesLi
 	}
 
 	private final Set<byte[]> possibleGenotypes;
+	private final GenotypeCodeTable codeTable;
 
 	public ArrayGenotypesList(Collection<byte[]> originalGenotypes,
 			Set<byte[]> possibleGenotypes)
@@ -52,10 +53,43 @@ public class ArrayGenotypesList extends ArrayList<byte[]> implements GenotypesLi
 		super(originalGenotypes);
 
 		this.possibleGenotypes = Collections.unmodifiableSet(new LinkedHashSet<byte[]>(possibleGenotypes));
+		this.codeTable = new GenotypeCodeTable(this.possibleGenotypes);
 	}
 
 	@Override
 	public Set<byte[]> getPossibleGenotypes() {
 		return possibleGenotypes;
 	}
+
+	@Override
+	public byte getFatherAllele(int index) {
+		return get(index)[0];
+	}
+
+	@Override
+	public byte getMotherAllele(int index) {
+		return get(index)[1];
+	}
+
+	@Override
+	public void copyAlleles(byte[] dst) {
+
+		int alleleIndex = 0;
+		for (final byte[] genotype : this) {
+			dst[alleleIndex++] = genotype[0];
+			dst[alleleIndex++] = genotype[1];
+		}
+	}
+
+	@Override
+	public int getGenotypeCode(int index) {
+
+		final byte[] genotype = get(index);
+		return codeTable.encode(genotype[0], genotype[1]);
+	}
+
+	@Override
+	public byte[][] getGenotypeDecodingTable() {
+		return codeTable.getDecodingTable();
+	}
 }
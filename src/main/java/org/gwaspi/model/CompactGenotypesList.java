@@ -288,6 +288,41 @@ public class CompactGenotypesList extends AbstractList<byte[]> implements Genoty
 
 	@Override
 	public byte[] get(int index) {
+		return Arrays.copyOf(decodingTable[getGenotypeCode(index)], 2);
+	}
+
+	@Override
+	public byte getFatherAllele(int index) {
+		return decodingTable[getGenotypeCode(index)][0];
+	}
+
+	@Override
+	public byte getMotherAllele(int index) {
+		return decodingTable[getGenotypeCode(index)][1];
+	}
+
+	@Override
+	public void copyAlleles(byte[] dst) {
+
+		for (int gti = 0; gti < size; gti++) {
+			final byte[] genotype = decodingTable[getGenotypeCode(gti)];
+			dst[gti * 2] = genotype[0];
+			dst[gti * 2 + 1] = genotype[1];
+		}
+	}
+
+	@Override
+	public byte[][] getGenotypeDecodingTable() {
+		return decodingTable;
+	}
+
+	@Override
+	public int getGenotypeCode(int index) {
+
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("Tried to access index " + index
+					+ " in list of size " + size);
+		}
 
 //long firstBitIndex = -1;
 //int firstByteIndex = -1;
@@ -307,7 +342,7 @@ public class CompactGenotypesList extends AbstractList<byte[]> implements Genoty
 		compactValue &= compactGenotypeMask;
 //		LOG.debug("{}\t{} {}", index, byteToBitString(compactValue), firstBitLocalIndex);
 
-		return Arrays.copyOf(decodingTable[compactValue], 2);
+		return compactValue;
 //} catch (Exception ex) {
 //	LOG.error("failed to get element {} from list of size {}", index, size);
 //	LOG.debug("firstBitIndex {}", firstBitIndex);
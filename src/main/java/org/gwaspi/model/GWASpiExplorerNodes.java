@@ -419,6 +419,11 @@ public class GWASpiExplorerNodes {
 				// GET ALL REPORTS UNDER THIS OPERATION
 				List<Report> reports = getReportService().getReports(new DataSetKey(parentOpKey));
 				for (Report report : reports) {
+					// skip the ones already shown
+					final int reportNodeId = NodeElementInfo.createUniqueId(NodeElementInfo.NodeType.REPORT, ReportKey.valueOf(report));
+					if (findTreeNode(reportNodeId) != null) {
+						continue;
+					}
 //					// DON'T SHOW SUPERFLUOUS OPEARATION INFO
 //					if (!parentOP.getOperationType().equals(OPType.HARDY_WEINBERG)
 //							&& !parentOP.getOperationType().equals(OPType.SAMPLE_QA)
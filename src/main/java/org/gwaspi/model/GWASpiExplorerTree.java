@@ -54,7 +54,9 @@ import org.gwaspi.gui.reports.ChartDefaultDisplay;
 import org.gwaspi.gui.reports.ManhattanChartDisplay;
 import org.gwaspi.gui.reports.Report_AnalysisAllelicTestImpl;
 import org.gwaspi.gui.reports.Report_AnalysisGenotypicTestImpl;
+import org.gwaspi.gui.reports.Report_AnalysisFisherExactTestImpl;
 import org.gwaspi.gui.reports.Report_AnalysisPanel;
+import org.gwaspi.gui.reports.Report_AnalysisPermutationTestImpl;
 import org.gwaspi.gui.reports.Report_AnalysisTrendTestImpl;
 import org.gwaspi.gui.reports.Report_HardyWeinbergSummary;
 import org.gwaspi.gui.reports.Report_QAMarkersSummary;
@@ -316,6 +318,14 @@ public class GWASpiExplorerTree {
 								// Display Trend Test Report
 								newContent = new Report_AnalysisPanel(currentOPKey.getParentMatrixKey(), currentOPKey, null);
 								break;
+							case FISHEREXACTTEST:
+								// Display Fisher Exact Test Report
+								newContent = new Report_AnalysisPanel(currentOPKey.getParentMatrixKey(), currentOPKey, null);
+								break;
+							case PERMUTATIONTEST:
+								// Display Permutation Test Report
+								newContent = new Report_AnalysisPanel(currentOPKey.getParentMatrixKey(), currentOPKey, null);
+								break;
 							case MARKER_QA:
 								// Display MarkerQA panel
 								newContent = new MatrixMarkerQAPanel(new MatrixKey(currentOP.getStudyKey(), currentOP.getParentMatrixId()), currentOP.getId());
@@ -357,6 +367,12 @@ public class GWASpiExplorerTree {
 							case TRENDTEST:
 								newContent = new Report_AnalysisTrendTestImpl(rp.getParentOperationKey(), reportFile, null);
 								break;
+							case FISHEREXACTTEST:
+								newContent = new Report_AnalysisFisherExactTestImpl(rp.getParentOperationKey(), reportFile, null);
+								break;
+							case PERMUTATIONTEST:
+								newContent = new Report_AnalysisPermutationTestImpl(rp.getParentOperationKey(), reportFile, null);
+								break;
 							case QQPLOT:
 								newContent = new ChartDefaultDisplay(reportFile, rp.getParentOperationKey());
 								break;
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.model;
+
+import java.util.Arrays;
+
+/**
+ * Stores the genotypes of a single marker as bit-planes,
+ * one bit-set per genotype code, with one bit per sample.
+ * This allows to count the genotypes of any group of samples
+ * by AND-ing the planes with a mask of the group,
+ * and counting the set bits, 64 samples at a time.
+ * Instances are meant to be reused for one marker after the other,
+ * and are therefore not thread-safe.
+ * @see GenotypesList#getGenotypeCode(int)
+ */
+public class GenotypeBitPlanes {
+
+	private static final int WORD_SHIFT = 6;
+	private static final long[][] NO_PLANES = new long[0][];
+
+	private final int numSamples;
+	private final int numWords;
+	private byte[][] genotypeDecodingTable;
+	/** Indexed by genotype code; <code>null</code> for codes with no sample */
+	private long[][] planes;
+
+	public GenotypeBitPlanes(final int numSamples) {
+
+		this.numSamples = numSamples;
+		this.numWords = getNumWords(numSamples);
+		this.genotypeDecodingTable = new byte[0][];
+		this.planes = NO_PLANES;
+	}
+
+	private GenotypeBitPlanes(final GenotypeBitPlanes original) {
+
+		this.numSamples = original.numSamples;
+		this.numWords = original.numWords;
+		this.genotypeDecodingTable = original.genotypeDecodingTable;
+		this.planes = new long[original.planes.length][];
+		for (int code = 0; code < planes.length; code++) {
+			if (original.planes[code] != null) {
+				planes[code] = original.planes[code].clone();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of 64bit words needed to store one bit per sample
+	 */
+	public static int getNumWords(final int numSamples) {
+		return (numSamples + Long.SIZE - 1) >>> WORD_SHIFT;
+	}
+
+	/**
+	 * Replaces the current content with the genotypes of a marker.
+	 * @param genotypes has to contain exactly one genotype per sample
+	 */
+	public void load(final GenotypesList genotypes) {
+		load(genotypes, null);
+	}
+
+	/**
+	 * Replaces the current content with the genotypes of a selection
+	 * of the samples of a marker.
+	 * @param genotypes the genotypes of all the samples of the marker
+	 * @param sampleIndices the indices into <code>genotypes</code>
+	 *   of the samples to load, in order, exactly one per sample,
+	 *   or <code>null</code> to load all of <code>genotypes</code>
+	 */
+	public void load(final GenotypesList genotypes, final int[] sampleIndices) {
+
+		final int numGivenSamples = (sampleIndices == null) ? genotypes.size() : sampleIndices.length;
+		if (numGivenSamples != numSamples) {
+			throw new IllegalArgumentException("Expected genotypes of "
+					+ numSamples + " samples, but got " + numGivenSamples);
+		}
+
+		genotypeDecodingTable = genotypes.getGenotypeDecodingTable();
+		final int numCodes = genotypeDecodingTable.length;
+		if (planes.length < numCodes) {
+			planes = Arrays.copyOf(planes, numCodes);
+		}
+		for (int code = 0; code < planes.length; code++) {
+			if (planes[code] != null) {
+				Arrays.fill(planes[code], 0L);
+			}
+		}
+
+		for (int si = 0; si < numSamples; si++) {
+			final int code = genotypes.getGenotypeCode((sampleIndices == null) ? si : sampleIndices[si]);
+			long[] plane = planes[code];
+			if (plane == null) {
+				plane = new long[numWords];
+				planes[code] = plane;
+			}
+			// the shift distance is implicitly taken modulo 64
+			plane[si >>> WORD_SHIFT] |= 1L << si;
+		}
+	}
+
+	/**
+	 * Creates an independent copy of the current content,
+	 * which only keeps the planes of the codes that occur.
+	 */
+	public GenotypeBitPlanes copy() {
+
+		final GenotypeBitPlanes copy = new GenotypeBitPlanes(this);
+		copy.planes = Arrays.copyOf(copy.planes, genotypeDecodingTable.length);
+		for (int code = 0; code < copy.planes.length; code++) {
+			if ((copy.planes[code] != null) && isEmpty(copy.planes[code])) {
+				copy.planes[code] = null;
+			}
+		}
+
+		return copy;
+	}
+
+	private static boolean isEmpty(final long[] words) {
+
+		for (final long word : words) {
+			if (word != 0L) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public int getNumSamples() {
+		return numSamples;
+	}
+
+	/**
+	 * Returns the table translating from a genotype code
+	 * to the genotype itself, as of the last loaded marker.
+	 * @see GenotypesList#getGenotypeDecodingTable()
+	 */
+	public byte[][] getGenotypeDecodingTable() {
+		return genotypeDecodingTable;
+	}
+
+	/**
+	 * Returns the samples with the given genotype code, one bit per sample.
+	 * @return the plane, which must not be modified,
+	 *   or <code>null</code> if no sample has this genotype
+	 */
+	public long[] getPlane(final int code) {
+		return (code < planes.length) ? planes[code] : null;
+	}
+
+	/**
+	 * Counts the samples with the given genotype code,
+	 * that are within the given group.
+	 * @param code the genotype code
+	 * @param mask one bit per sample, of length {@link #getNumWords(int)},
+	 *   or <code>null</code> for all samples
+	 */
+	public int count(final int code, final long[] mask) {
+
+		final long[] plane = (code < planes.length) ? planes[code] : null;
+		if (plane == null) {
+			return 0;
+		}
+
+		int count = 0;
+		if (mask == null) {
+			for (int wi = 0; wi < numWords; wi++) {
+				count += Long.bitCount(plane[wi]);
+			}
+		} else {
+			for (int wi = 0; wi < numWords; wi++) {
+				count += Long.bitCount(plane[wi] & mask[wi]);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Counts the samples of each genotype code,
+	 * that are within the given group.
+	 * @param mask one bit per sample, of length {@link #getNumWords(int)},
+	 *   or <code>null</code> for all samples
+	 * @param codeCounts will receive the count of each genotype code;
+	 *   has to be at least as long as the decoding table
+	 */
+	public void countCodes(final long[] mask, final int[] codeCounts) {
+
+		for (int code = 0; code < genotypeDecodingTable.length; code++) {
+			codeCounts[code] = count(code, mask);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.model;
+
+import java.util.Collection;
+
+/**
+ * Translates between genotypes and their codes,
+ * for genotypes-lists that do not store codes internally.
+ * The code of a genotype is its index in the collection of
+ * possible genotypes this table was created from.
+ * @see GenotypesList#getGenotypeCode(int)
+ */
+class GenotypeCodeTable {
+
+	private final byte[][] decodingTable;
+	/** Both alleles of each genotype, combined into a single value */
+	private final int[] encodingKeys;
+
+	GenotypeCodeTable(final Collection<byte[]> possibleGenotypes) {
+
+		this.decodingTable = possibleGenotypes.toArray(new byte[possibleGenotypes.size()][]);
+		this.encodingKeys = new int[decodingTable.length];
+		for (int code = 0; code < decodingTable.length; code++) {
+			encodingKeys[code] = toKey(decodingTable[code][0], decodingTable[code][1]);
+		}
+	}
+
+	private static int toKey(final byte fatherAllele, final byte motherAllele) {
+		return ((fatherAllele & 0xFF) << 8) | (motherAllele & 0xFF);
+	}
+
+	/**
+	 * @return the code of the given genotype
+	 * @throws IllegalArgumentException if the genotype is not one
+	 *   of the possible genotypes
+	 */
+	int encode(final byte fatherAllele, final byte motherAllele) {
+
+		// there are very few possible genotypes,
+		// so a linear search is faster then hashing
+		final int key = toKey(fatherAllele, motherAllele);
+		for (int code = 0; code < encodingKeys.length; code++) {
+			if (encodingKeys[code] == key) {
+				return code;
+			}
+		}
+
+		throw new IllegalArgumentException("Not a possible genotype: "
+				+ (char) fatherAllele + (char) motherAllele);
+	}
+
+	byte[][] getDecodingTable() {
+		return decodingTable;
+	}
+}
@@ -30,4 +30,39 @@ public interface GenotypesList extends List<byte[]> {
 	 * in this list of genotypes.
 	 */
 	Set<byte[]> getPossibleGenotypes();
+
+	/**
+	 * Returns the first allele of the genotype at the given index.
+	 * Unlike <code>get(index)[0]</code>, this does not create an array.
+	 */
+	byte getFatherAllele(int index);
+
+	/**
+	 * Returns the second allele of the genotype at the given index.
+	 * Unlike <code>get(index)[1]</code>, this does not create an array.
+	 */
+	byte getMotherAllele(int index);
+
+	/**
+	 * Copies all the alleles of this list into the given array,
+	 * in the order father allele, mother allele, father allele, ...
+	 * @param dst has to have room for at least <code>2 * size()</code> alleles
+	 */
+	void copyAlleles(byte[] dst);
+
+	/**
+	 * Returns the code of the genotype at the given index,
+	 * which is its index within {@link #getPossibleGenotypes()}.
+	 * @see #getGenotypeDecodingTable()
+	 */
+	int getGenotypeCode(int index);
+
+	/**
+	 * Returns a table translating from a genotype code
+	 * to the genotype itself.
+	 * It has the same order as {@link #getPossibleGenotypes()},
+	 * and must not be modified.
+	 * @see #getGenotypeCode(int)
+	 */
+	byte[][] getGenotypeDecodingTable();
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An immutable genotypes-list that is a view onto a part
+ * of a flat array of alleles, as for example the backing array
+ * of a genotypes hyperslab read from a NetCDF file.
+ * No data is copied on creation, and the single alleles
+ * can be accessed without creating any objects.
+ * As it shares the backing array, that array must not be modified
+ * after creating the view.
+ * @see CompactGenotypesList
+ */
+public class HyperSlabGenotypesList extends AbstractGenotypesList {
+
+	/**
+	 * Usually a list contains no more distinct genotypes than this;
+	 * if it does, the buffer is grown.
+	 */
+	private static final int INITIAL_MAX_DISTINCT_GENOTYPES = 16;
+
+	private final byte[] alleles;
+	/** Index of the father allele of the first genotype */
+	private final int offset;
+	/** Distance between the father alleles of two consecutive genotypes */
+	private final int stride;
+	private final int size;
+	private volatile Set<byte[]> possibleGenotypes;
+
+	/**
+	 * @param alleles the backing array; each genotype consists of
+	 *   the father allele, directly followed by the mother allele
+	 * @param offset index of the father allele of the first genotype
+	 * @param stride distance between the father alleles of two consecutive genotypes
+	 * @param size number of genotypes in this list
+	 */
+	public HyperSlabGenotypesList(
+			final byte[] alleles,
+			final int offset,
+			final int stride,
+			final int size)
+	{
+		if ((size > 0) && ((offset < 0) || ((offset + (long) (size - 1) * stride + 1) >= alleles.length))) {
+			throw new IndexOutOfBoundsException("View (offset " + offset + ", stride " + stride
+					+ ", size " + size + ") does not fit into array of length " + alleles.length);
+		}
+		this.alleles = alleles;
+		this.offset = offset;
+		this.stride = stride;
+		this.size = size;
+		this.possibleGenotypes = null;
+	}
+
+	private int fatherAlleleIndex(final int index) {
+
+		if ((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException("Tried to access index " + index
+					+ " in list of size " + size);
+		}
+
+		return offset + index * stride;
+	}
+
+	@Override
+	public byte getFatherAllele(final int index) {
+		return alleles[fatherAlleleIndex(index)];
+	}
+
+	@Override
+	public byte getMotherAllele(final int index) {
+		return alleles[fatherAlleleIndex(index) + 1];
+	}
+
+	@Override
+	public void copyAlleles(byte[] dst) {
+
+		if (stride == 2) {
+			// the alleles are stored consecutively
+			System.arraycopy(alleles, offset, dst, 0, size * 2);
+		} else {
+			int fatherAlleleIndex = offset;
+			for (int gti = 0; gti < size; gti++) {
+				dst[gti * 2] = alleles[fatherAlleleIndex];
+				dst[gti * 2 + 1] = alleles[fatherAlleleIndex + 1];
+				fatherAlleleIndex += stride;
+			}
+		}
+	}
+
+	@Override
+	public byte[] get(int index) {
+
+		final int fatherAlleleIndex = fatherAlleleIndex(index);
+		return new byte[] {alleles[fatherAlleleIndex], alleles[fatherAlleleIndex + 1]};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<byte[]> getPossibleGenotypes() {
+
+		// NOTE This may get calculated concurrently by multiple threads,
+		//   which is harmless, as the result is always the same.
+		Set<byte[]> curPossibleGenotypes = possibleGenotypes;
+		if (curPossibleGenotypes == null) {
+			curPossibleGenotypes = Collections.unmodifiableSet(extractPossibleGenotypes());
+			possibleGenotypes = curPossibleGenotypes;
+		}
+
+		return curPossibleGenotypes;
+	}
+
+	/**
+	 * Collects the distinct genotypes by scanning the backing array directly,
+	 * so only one array per distinct genotype is created.
+	 * They are ordered like in
+	 * {@link org.gwaspi.operations.NetCdfUtils#extractUniqueGenotypesOrdered(java.util.Collection)}.
+	 */
+	private Set<byte[]> extractPossibleGenotypes() {
+
+		int[] distinctHashes = new int[INITIAL_MAX_DISTINCT_GENOTYPES];
+		int numDistinct = 0;
+		int fatherAlleleIndex = offset;
+		for (int gti = 0; gti < size; gti++) {
+			final int hash = Genotype.hashCode(alleles[fatherAlleleIndex], alleles[fatherAlleleIndex + 1]);
+			fatherAlleleIndex += stride;
+			int di = 0;
+			while ((di < numDistinct) && (distinctHashes[di] != hash)) {
+				di++;
+			}
+			if (di == numDistinct) {
+				if (numDistinct == distinctHashes.length) {
+					distinctHashes = Arrays.copyOf(distinctHashes, numDistinct * 2);
+				}
+				distinctHashes[numDistinct++] = hash;
+			}
+		}
+
+		Arrays.sort(distinctHashes, 0, numDistinct);
+		final Set<byte[]> distinctGenotypes = new LinkedHashSet<byte[]>(numDistinct * 2);
+		for (int di = 0; di < numDistinct; di++) {
+			// NOTE We can not use Genotype#unhash(int), as it fails for negative alleles.
+			final byte motherAllele = (byte) distinctHashes[di];
+			final byte fatherAllele = (byte) ((distinctHashes[di] - motherAllele) / 256);
+			distinctGenotypes.add(new byte[] {fatherAllele, motherAllele});
+		}
+
+		return distinctGenotypes;
+	}
+}
@@ -700,4 +700,28 @@ public class MatrixMetadata implements DataSetMetadata, Serializable {
 		String genotypesFolder = Study.constructGTPath(matrix.getStudyKey());
 		return new File(genotypesFolder, matrix.getSimpleName() + ".nc");
 	}
+
+	/**
+	 * Returns the location of the file storing the genotypes
+	 * in the packed format, if the matrix uses it.
+	 * All other data of the matrix is stored in the NetCDF file.
+	 * @see #generatePathToNetCdfFile(MatrixMetadata)
+	 */
+	public static File generatePathToPackedGenotypesFile(MatrixMetadata matrix) throws IOException {
+
+		String genotypesFolder = Study.constructGTPath(matrix.getStudyKey());
+		return new File(genotypesFolder, matrix.getSimpleName() + ".gtp");
+	}
+
+	/**
+	 * Returns the location of the optional, marker-major copy
+	 * of the genotypes of a matrix stored in NetCDF.
+	 * It uses the packed format, and is only ever read marker-wise.
+	 * @see org.gwaspi.datasource.packed.MarkerMajorGenotypesBuilder
+	 */
+	public static File generatePathToMarkerMajorGenotypesFile(MatrixMetadata matrix) throws IOException {
+
+		String genotypesFolder = Study.constructGTPath(matrix.getStudyKey());
+		return new File(genotypesFolder, matrix.getSimpleName() + ".mgtp");
+	}
 }
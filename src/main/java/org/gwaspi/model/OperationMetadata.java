@@ -62,7 +62,13 @@ import org.gwaspi.operations.OperationManager;
 		query = "SELECT om FROM OperationMetadata om WHERE om.studyId = :studyId AND om.parentMatrixId = :parentMatrixId AND om.parentOperationId = :parentOperationId AND om.genotypeCode = :operationType"),
 	@NamedQuery(
 		name = "operationMetadata_getTypeByStudyIdParentMatrixIdOperationId",
-		query = "SELECT om.genotypeCode, om.parentOperationId FROM OperationMetadata om WHERE om.studyId = :studyId AND om.parentMatrixId = :parentMatrixId AND om.id = :id")
+		query = "SELECT om.genotypeCode, om.parentOperationId FROM OperationMetadata om WHERE om.studyId = :studyId AND om.parentMatrixId = :parentMatrixId AND om.id = :id"),
+	@NamedQuery(
+		name = "operationMetadata_updateResultCacheKeyByStudyIdParentMatrixIdOperationId",
+		query = "UPDATE OperationMetadata om SET om.resultCacheKey = :resultCacheKey WHERE om.studyId = :studyId AND om.parentMatrixId = :parentMatrixId AND om.id = :operationId"),
+	@NamedQuery(
+		name = "operationMetadata_clearResultCacheKeysByStudyId",
+		query = "UPDATE OperationMetadata om SET om.resultCacheKey = NULL WHERE om.studyId = :studyId")
 })
 public class OperationMetadata implements DataSetMetadata, Serializable {
 
@@ -80,6 +86,7 @@ public class OperationMetadata implements DataSetMetadata, Serializable {
 	private boolean opSetMarkers;
 	private Date creationDate;
 	private boolean hidden;
+	private String resultCacheKey;
 
 	protected OperationMetadata() {
 
@@ -94,6 +101,7 @@ public class OperationMetadata implements DataSetMetadata, Serializable {
 		this.opSetMarkers = true;
 		this.creationDate = new Date();
 		this.hidden = false;
+		this.resultCacheKey = null;
 	}
 
 //	/**
@@ -151,6 +159,7 @@ public class OperationMetadata implements DataSetMetadata, Serializable {
 		this.creationDate = new Date();
 		this.simpleName = gtCode.name() + "_" + MatrixFactory.generateMatrixNetCDFNameByDate(creationDate);
 		this.hidden = hidden;
+		this.resultCacheKey = null;
 	}
 
 	public OperationMetadata(
@@ -546,6 +555,27 @@ public class OperationMetadata implements DataSetMetadata, Serializable {
 		this.hidden = hidden;
 	}
 
+	/**
+	 * Identifies the parameters this operation was run with,
+	 * if it completed successfully and its result may be reused.
+	 * @see org.gwaspi.operations.OperationResultCache
+	 */
+	@Column(
+		name       = "resultCacheKey",
+		length     = 64,
+		unique     = false,
+		nullable   = true,
+		insertable = true,
+		updatable  = true
+		)
+	public String getResultCacheKey() {
+		return resultCacheKey;
+	}
+
+	protected void setResultCacheKey(String resultCacheKey) {
+		this.resultCacheKey = resultCacheKey;
+	}
+
 	public static File generatePathToNetCdfFile(OperationMetadata operation) throws IOException {
 
 		String genotypesFolder = Study.constructGTPath(operation.getStudyKey());
@@ -17,7 +17,6 @@
 
 package org.gwaspi.model;
 
-import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
@@ -34,7 +33,7 @@ public class TransposedGenotypesListList extends ArrayList<GenotypesList> {
 
 	private final List<GenotypesList> originalView;
 
-	private class InnerTransposedGenotypesList extends AbstractList<byte[]> implements GenotypesList {
+	private class InnerTransposedGenotypesList extends AbstractGenotypesList {
 
 		private final int index;
 		private Set<byte[]> possibleGenotypes;
@@ -50,6 +49,16 @@ public class TransposedGenotypesListList extends ArrayList<GenotypesList> {
 			return originalView.get(innerIndex).get(index);
 		}
 
+		@Override
+		public byte getFatherAllele(int innerIndex) {
+			return originalView.get(innerIndex).getFatherAllele(index);
+		}
+
+		@Override
+		public byte getMotherAllele(int innerIndex) {
+			return originalView.get(innerIndex).getMotherAllele(index);
+		}
+
 		@Override
 		public int size() {
 			return originalView.size();
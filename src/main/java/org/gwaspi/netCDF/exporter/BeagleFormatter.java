@@ -206,11 +206,12 @@ class BeagleFormatter implements Formatter {
 				beagleBW.append("M" + sep + markerKey.toString());
 
 				// Iterate through sampleset
-				for (byte[] tempGT : markersGenotypesIt.next()) {
+				final GenotypesList genotypes = markersGenotypesIt.next();
+				for (int gti = 0; gti < genotypes.size(); gti++) {
 					beagleBW.append(sep);
-					beagleBW.append((char) tempGT[0]);
+					beagleBW.append((char) genotypes.getFatherAllele(gti));
 					beagleBW.append(sep);
-					beagleBW.append((char) tempGT[1]);
+					beagleBW.append((char) genotypes.getMotherAllele(gti));
 				}
 
 				beagleBW.append("\n");
@@ -152,6 +152,13 @@ public class GWASpiFormatter implements Formatter {
 			throw new IOException("Could not find internal markers storage file");
 		}
 		org.gwaspi.global.Utils.copyFile(origFile, newFile);
+		if (rdDataSetMetadata.getDataSetKey().isMatrix()) {
+			// the genotypes of a matrix might be stored in a separate file
+			final File origPackedFile = MatrixMetadata.generatePathToPackedGenotypesFile((MatrixMetadata) rdDataSetMetadata);
+			if (origPackedFile.exists()) {
+				org.gwaspi.global.Utils.copyFile(origPackedFile, new File(exportDir.getPath(), friendlyNameSanitized + ".gtp"));
+			}
+		}
 		exportMarkersPS.setNewStatus(ProcessStatus.COMPLEETED);
 		//</editor-fold>
 		exportPS.setNewStatus(ProcessStatus.COMPLEETED);
@@ -87,7 +87,7 @@ public class MatrixExporter extends AbstractOperation<MatrixExporterParams, Obje
 		final DataSetKey rdDataSetKey = params.getParent();
 		rdDataSetMetadata = MatricesList.getDataSetMetadata(rdDataSetKey);
 
-		rdDataSetSource = MatrixFactory.generateDataSetSource(rdDataSetKey);
+		rdDataSetSource = closeWhenFinished(MatrixFactory.generateDataSetSource(rdDataSetKey));
 		this.progressSource = new SuperProgressSource(PROCESS_INFO, subProgressSourcesAndWeights);
 	}
 
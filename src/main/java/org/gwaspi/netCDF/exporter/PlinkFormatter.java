@@ -122,11 +122,12 @@ public class PlinkFormatter implements Formatter {
 				pedBW.append(affection);
 
 				// Iterate through all markers
-				for (byte[] tempGT : samplesGenotypesIt.next()) {
+				final GenotypesList genotypes = samplesGenotypesIt.next();
+				for (int gti = 0; gti < genotypes.size(); gti++) {
 					pedBW.append(sepBig);
-					pedBW.append((char) tempGT[0]);
+					pedBW.append((char) genotypes.getFatherAllele(gti));
 					pedBW.append(sep);
-					pedBW.append((char) tempGT[1]);
+					pedBW.append((char) genotypes.getMotherAllele(gti));
 				}
 
 				pedBW.append("\n");
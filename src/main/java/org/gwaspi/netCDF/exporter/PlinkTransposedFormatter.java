@@ -105,11 +105,12 @@ public class PlinkTransposedFormatter implements Formatter {
 				tpedBW.write(Integer.toString(curMarkerMetadata.getPos())); // NOTE This conversion is required, because Writer#write(int) actually writes a char, not the int value.
 
 				// iterate through each samples genotype for the current marker
-				for (byte[] tempGT : markersGenotypesIt.next()) {
+				final GenotypesList genotypes = markersGenotypesIt.next();
+				for (int gti = 0; gti < genotypes.size(); gti++) {
 					tpedBW.write(sep);
-					tpedBW.write((char) tempGT[0]);
+					tpedBW.write((char) genotypes.getFatherAllele(gti));
 					tpedBW.write(sep);
-					tpedBW.write((char) tempGT[1]);
+					tpedBW.write((char) genotypes.getMotherAllele(gti));
 				}
 
 				tpedBW.write('\n');
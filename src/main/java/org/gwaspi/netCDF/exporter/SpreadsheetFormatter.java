@@ -110,10 +110,11 @@ public class SpreadsheetFormatter implements Formatter {
 
 				// Genotypes
 				// Iterate through all markers
-				for (byte[] tempGT : samplesGenotypesIt.next()) {
+				final GenotypesList genotypes = samplesGenotypesIt.next();
+				for (int gti = 0; gti < genotypes.size(); gti++) {
 					pedBW.append(sep);
-					pedBW.append((char) tempGT[0]);
-					pedBW.append((char) tempGT[1]);
+					pedBW.append((char) genotypes.getFatherAllele(gti));
+					pedBW.append((char) genotypes.getMotherAllele(gti));
 				}
 
 				pedBW.append("\n");
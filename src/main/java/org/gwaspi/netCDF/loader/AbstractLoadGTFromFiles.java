@@ -30,6 +30,7 @@ import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.MemoryBoundedTaskRunner;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -138,6 +139,18 @@ public abstract class AbstractLoadGTFromFiles implements GenotypesLoader {
 		} else {
 			gtFilesToImport = new File[] {new File(loadDescription.getGtDirPath())};
 		}
+
+		if (this instanceof SampleBlockLoader) {
+			loadGenotypesSinglePass(
+					(SampleBlockLoader) this,
+					loadDescription.getStudyKey(),
+					gtFilesToImport,
+					sampleInfos.keySet(),
+					markerKeys,
+					samplesReceiver);
+			return;
+		}
+
 		int sampleIndex = 0;
 		for (SampleInfo sampleInfo : sampleInfos2) {
 			// PURGE MarkerIdMap
@@ -177,6 +190,56 @@ public abstract class AbstractLoadGTFromFiles implements GenotypesLoader {
 		}
 	}
 
+	/**
+	 * Loads the genotypes in blocks of samples,
+	 * reading each file only once per block.
+	 * As many samples as fit into the memory budget are put into one block,
+	 * so usually, each file is read exactly once.
+	 */
+	private void loadGenotypesSinglePass(
+			SampleBlockLoader sampleBlockLoader,
+			StudyKey studyKey,
+			File[] gtFilesToImport,
+			Collection<SampleKey> sampleKeys,
+			Collection<MarkerKey> markerKeys,
+			DataSetDestination samplesReceiver)
+			throws IOException
+	{
+		final Map<SampleKey, Integer> sampleIndices = SampleBlockGenotypesBuffer.createIndices(sampleKeys);
+		final Map<MarkerKey, Integer> markerIndices = SampleBlockGenotypesBuffer.createIndices(markerKeys);
+		final int numSamples = sampleKeys.size();
+		final int maxBlockSamples = SampleBlockGenotypesBuffer.calculateMaxBlockSamples(
+				markerKeys.size(), MemoryBoundedTaskRunner.fetchMemoryBudgetBytes());
+		log.debug("loading genotypes of up to {} samples per pass over the files", maxBlockSamples);
+
+		for (int fromSampleIndex = 0; fromSampleIndex < numSamples; fromSampleIndex += maxBlockSamples) {
+			final SampleBlockGenotypesBuffer sampleBlock = new SampleBlockGenotypesBuffer(
+					sampleIndices,
+					markerIndices,
+					fromSampleIndex,
+					Math.min(numSamples, fromSampleIndex + maxBlockSamples));
+
+			for (File gtFileToImport : gtFilesToImport) {
+				try {
+					sampleBlockLoader.loadSampleBlock(studyKey, gtFileToImport, sampleBlock);
+
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+				} catch (IOException ex) {
+					log.warn(null, ex);
+				} catch (InterruptedException ex) {
+					log.warn(null, ex);
+					// TODO Write some cleanup code for when thread has been interrupted
+				}
+			}
+
+			// WRITING GENOTYPE DATA INTO netCDF FILE
+			sampleBlock.write(samplesReceiver);
+			log.info("Done processing sample {} / {}", sampleBlock.getToSampleIndex(), numSamples);
+		}
+	}
+
 	static <K, V> Map<K, V> fillMap(Collection<K> keys, V value) {
 
 		Map<K, V> result = new LinkedHashMap<K, V>(keys.size());
@@ -42,7 +42,6 @@ import org.gwaspi.model.SampleKey;
 import org.gwaspi.operations.NetCdfUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import ucar.ma2.ArrayByte;
 import ucar.ma2.ArrayChar;
 import ucar.ma2.ArrayInt;
 import ucar.ma2.DataType;
@@ -58,23 +57,27 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 
 	private static final boolean saveSamplesMetadata = true;
 
+	/**
+	 * Whether the genotypes are stored in the NetCDF file,
+	 * or taken care of by a sub-class.
+	 */
+	private final boolean genotypesInNetCdf;
 	private MatrixKey resultMatrixKey;
-//	private int curAlleleSampleIndex;
-	private int curAllelesMarkerIndex;
 	private MatrixMetadata matrixMetadata;
 	private NetcdfFileWriteable ncfile;
 	private Boolean alleleLoadPerSample;
-	/** This is only used when alleleLoadPerSample == FALSE */
-	private List<byte[]> genotypesHyperslabs;
-	private int hyperSlabRows;
+	/** This is only used when genotypesInNetCdf == TRUE */
+	private GenotypesHyperslabWriter genotypesWriter;
 
-	public AbstractNetCDFDataSetDestination() {
+	protected AbstractNetCDFDataSetDestination(final boolean genotypesInNetCdf) {
 
-//		this.curAlleleSampleIndex = -1;
-		this.curAllelesMarkerIndex = -1;
+		this.genotypesInNetCdf = genotypesInNetCdf;
 		this.alleleLoadPerSample = null;
-		this.genotypesHyperslabs = null;
-		this.hyperSlabRows = -1;
+		this.genotypesWriter = null;
+	}
+
+	public AbstractNetCDFDataSetDestination() {
+		this(true);
 	}
 
 	private MatrixService getMatrixService() {
@@ -116,6 +119,16 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 
 	public static NetcdfFileWriteable generateNetcdfHandler(MatrixMetadata matrixMetadata)
 			throws InvalidRangeException, IOException
+	{
+		return generateNetcdfHandler(matrixMetadata, true);
+	}
+
+	/**
+	 * @param withGenotypes whether to define the genotypes variable;
+	 *   if not, they have to be stored elsewhere
+	 */
+	public static NetcdfFileWriteable generateNetcdfHandler(MatrixMetadata matrixMetadata, boolean withGenotypes)
+			throws InvalidRangeException, IOException
 	{
 		int gtStride = NetCDFConstants.Strides.STRIDE_GT;
 		int markerStride = NetCDFConstants.Strides.STRIDE_MARKER_NAME;
@@ -240,8 +253,10 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 		}
 
 		// Define Genotype Variables
-		ncfile.addVariable(NetCDFConstants.Variables.VAR_GENOTYPES, DataType.BYTE, genotypeSpace);
-		ncfile.addVariableAttribute(NetCDFConstants.Variables.VAR_GENOTYPES, NetCDFConstants.Attributes.GLOB_STRAND, StrandType.UNKNOWN.toString());
+		if (withGenotypes) {
+			ncfile.addVariable(NetCDFConstants.Variables.VAR_GENOTYPES, DataType.BYTE, genotypeSpace);
+			ncfile.addVariableAttribute(NetCDFConstants.Variables.VAR_GENOTYPES, NetCDFConstants.Attributes.GLOB_STRAND, StrandType.UNKNOWN.toString());
+		}
 		ncfile.addVariable(NetCDFConstants.Variables.VAR_GT_STRAND, DataType.CHAR, markerPropertySpace4);
 
 		// ENCODING VARIABLE
@@ -271,7 +286,7 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 
 			resultMatrixKey = getMatrixService().insertMatrix(matrixMetadata);
 			try {
-				ncfile = generateNetcdfHandler(matrixMetadata);
+				ncfile = generateNetcdfHandler(matrixMetadata, genotypesInNetCdf);
 			} catch (InvalidRangeException ex) {
 				throw new IOException(ex);
 			}
@@ -415,23 +430,15 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 
 		alleleLoadPerSample = perSample;
 
-		if (alleleLoadPerSample) {
-//			curAlleleSampleIndex = 0;
-		} else {
-//			curAllelesMarkerIndex = 0;
-
-			final int maxProcessMarkers = Config.getSingleton().getInteger(
-					Config.PROPERTY_MAX_PROCESS_MARKERS, -1);
-			// PLAYING IT SAFE WITH HALF THE maxProcessMarkers
-			// This number specifies, how many markers (lines in hte file)
-			// are read into memory, before writing them to the NetCDF-file
-			hyperSlabRows = (int) Math.round(
-					(double) maxProcessMarkers / (getDataSet().getSampleInfos().size() * 2));
-			if (getDataSet().getMarkerMetadatas().size() < hyperSlabRows) {
-				hyperSlabRows = getDataSet().getMarkerMetadatas().size();
-			}
-
-			genotypesHyperslabs = new ArrayList<byte[]>(hyperSlabRows);
+		if (genotypesInNetCdf) {
+			// Many samples or markers are collected before writing them
+			// to the NetCDF file at once, in the background
+			genotypesWriter = new GenotypesHyperslabWriter(
+					ncfile,
+					perSample,
+					matrixMetadata.getNumSamples(),
+					matrixMetadata.getNumMarkers(),
+					GenotypesHyperslabWriter.fetchMaxBufferBytes());
 		}
 
 		String savingBy = (perSample ? "sample" : "marker");
@@ -446,12 +453,11 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 			throw new IllegalStateException("You can not mix loading per sample and loading per marker");
 		}
 
-		NetCdfUtils.saveSingleSampleGTsToMatrix(ncfile, sampleAlleles, sampleIndex);
-
-		final int numSamples = matrixMetadata.getNumSamples();
-		if ((sampleIndex == 0) || ((sampleIndex + 1 % 100) == 0) || ((sampleIndex  + 1) == numSamples)) {
-			log.info("Stored sample genotype-lists: {} / {}", sampleIndex + 1, numSamples);
+		if (!genotypesInNetCdf) {
+			return;
 		}
+
+		genotypesWriter.addRow(sampleIndex, sampleAlleles);
 	}
 
 	@Override
@@ -462,42 +468,21 @@ public abstract class AbstractNetCDFDataSetDestination extends AbstractDataSetDe
 			throw new IllegalStateException("You can not mix loading per sample and loading per marker");
 		}
 
-		genotypesHyperslabs.addAll(markerAlleles);
-		curAllelesMarkerIndex = markerIndex;
-
-		if (curAllelesMarkerIndex != 1 && curAllelesMarkerIndex % (hyperSlabRows) == 0) {
-			// WRITING HYPERSLABS AT A TIME
-			ArrayByte.D3 genotypesArray = NetCdfUtils.writeListValuesToSamplesHyperSlabArrayByteD3(genotypesHyperslabs, getDataSet().getSampleInfos().size(), NetCDFConstants.Strides.STRIDE_GT);
-			int[] origin = new int[] {0, (curAllelesMarkerIndex - hyperSlabRows), 0}; // 0, 0, 0 for 1st marker; 0, 1, 0 for 2nd marker ...
-			try {
-				ncfile.write(NetCDFConstants.Variables.VAR_GENOTYPES, origin, genotypesArray);
-				log.info("Stored marker genotype-lists: {} / {}", curAllelesMarkerIndex + 1, matrixMetadata.getNumMarkers());
-			} catch (InvalidRangeException ex) {
-				throw new IOException("Bad origin at rowCount " + curAllelesMarkerIndex + ": " + origin[0] + "|" + origin[1] + "|" + origin[2], ex);
-			}
-
-			genotypesHyperslabs.clear();
+		if (!genotypesInNetCdf) {
+			return;
 		}
+
+		genotypesWriter.addRow(markerIndex, markerAlleles);
 	}
 
 	@Override
 	public void finishedLoadingAlleles() throws IOException {
 		super.finishedLoadingAlleles();
 
-		if (!alleleLoadPerSample) {
-//			int markerNb = bimSamples.size();
-			int markerNb = curAllelesMarkerIndex;
+		if (genotypesWriter != null) {
 			// WRITING LAST HYPERSLAB
-			int lastHyperSlabRows = markerNb - (genotypesHyperslabs.size() / getDataSet().getSampleInfos().size());
-			ArrayByte.D3 genotypesArray = NetCdfUtils.writeListValuesToSamplesHyperSlabArrayByteD3(genotypesHyperslabs, getDataSet().getSampleInfos().size(), NetCDFConstants.Strides.STRIDE_GT);
-			int[] origin = new int[] {0, lastHyperSlabRows, 0}; //0, 0, 0 for 1st marker; 0, 1, 0 for 2nd marker....
-//			log.info("Last origin at rowCount "+rowCounter+": "+origin[0]+"|"+origin[1]+"|"+origin[2]);
-			try {
-				ncfile.write(NetCDFConstants.Variables.VAR_GENOTYPES, origin, genotypesArray);
-				log.info("Stored marker genotype-lists: {} / {}", curAllelesMarkerIndex + 1, matrixMetadata.getNumMarkers());
-			} catch (InvalidRangeException ex) {
-				throw new IOException("Bad origin at rowCount " + curAllelesMarkerIndex + ": " + origin[0] + "|" + origin[1] + "|" + origin[2], ex);
-			}
+			genotypesWriter.close();
+			genotypesWriter = null;
 		}
 
 //		//<editor-fold defaultstate="expanded" desc="MATRIX GENOTYPES LOAD ">
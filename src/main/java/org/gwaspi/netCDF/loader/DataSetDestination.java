@@ -61,6 +61,10 @@ public interface DataSetDestination {
 	void startLoadingAlleles(boolean perSample) throws IOException;
 	/**
 	 * Adds all the GTs/SNPs for a single sample (one GT per marker).
+	 * The caller may reuse the list after this method returns,
+	 * so implementations have to copy it if they need it later on.
+	 * The genotypes themselves must not be modified,
+	 * as they may be shared between samples.
 	 * @param sampleIndex  index in relation to the samples infos
 	 *   (as in, the index of a list created in the order they were added)
 	 * @param sampleAlleles
@@ -70,6 +74,10 @@ public interface DataSetDestination {
 	void addSampleGTAlleles(int sampleIndex, List<byte[]> sampleAlleles) throws IOException;
 	/**
 	 * Adds all the GTs/SNPs for a single marker (one GT per sample).
+	 * The caller may reuse the list after this method returns,
+	 * so implementations have to copy it if they need it later on.
+	 * The genotypes themselves must not be modified,
+	 * as they may be shared between markers.
 	 * @param markerIndex  index in relation to the markers meta-data
 	 *   (as in, the index of a list created in the order they were added)
 	 * @param markerAlleles
@@ -19,6 +19,7 @@ package org.gwaspi.netCDF.loader;
 
 import org.gwaspi.progress.IntegerProgressHandler;
 import org.gwaspi.progress.ProcessInfo;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
 import org.gwaspi.progress.SubProcessInfo;
 import org.gwaspi.progress.SuperProgressSource;
 import org.gwaspi.progress.UnknownIntervalsProgressHandler;
@@ -41,7 +42,7 @@ public class DataSetDestinationProgressHandler extends SuperProgressSource {
 				new SubProcessInfo(processInfo, "MarkerInfos", "Storing marker infos"));
 		chromosomeInfosPH = new UnknownIntervalsProgressHandler(
 				new SubProcessInfo(processInfo, "ChromosomeInfos", "Storing chromosome infos"));
-		genotypesPH = new IntegerProgressHandler(
+		genotypesPH = new SampledIntegerProgressHandler(
 				new SubProcessInfo(processInfo, "Genotypes", "Storing genotypes"), -1, -1);
 
 		addSubProgressSource(sampleInfosPH, 0.002);
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.netCDF.loader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.global.Config;
+import org.gwaspi.global.OrderedBlockProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFileWriteable;
+
+/**
+ * Writes the genotypes of a NetCDF matrix in large hyperslabs,
+ * each covering many samples or many markers (rows).
+ * Rows are collected in a reusable buffer,
+ * which is written on a background thread once it is full,
+ * while the next buffer gets filled.
+ * Rows should be added in increasing index order;
+ * a gap in the indices ends the current hyperslab early.
+ * While this writer is open, nothing else may write to the NetCDF file.
+ * This class is not thread-safe.
+ */
+class GenotypesHyperslabWriter {
+
+	private static final Logger log
+			= LoggerFactory.getLogger(GenotypesHyperslabWriter.class);
+
+	/** One buffer is filled while the other one is written. */
+	static final int NUM_BUFFERS = 2;
+	private static final int DEFAULT_MAX_BUFFER_MB = 64;
+
+	private final NetcdfFileWriteable ncfile;
+	private final boolean perSample;
+	private final int numRows;
+	private final int rowLength;
+	private final int rowBytes;
+	private final int rowsPerSlab;
+	private final BlockingQueue<byte[]> freeBuffers;
+	private final ExecutorService writerThread;
+	private final Queue<Future<Void>> pendingWrites;
+	private byte[] buffer;
+	private int firstRowIndex;
+	private int numBufferedRows;
+
+	/**
+	 * @param perSample whether rows are samples or markers
+	 * @param maxBufferBytes memory to be used by all the buffers together
+	 */
+	GenotypesHyperslabWriter(
+			final NetcdfFileWriteable ncfile,
+			final boolean perSample,
+			final int numSamples,
+			final int numMarkers,
+			final long maxBufferBytes)
+	{
+		this.ncfile = ncfile;
+		this.perSample = perSample;
+		this.numRows = perSample ? numSamples : numMarkers;
+		this.rowLength = perSample ? numMarkers : numSamples;
+		this.rowBytes = rowLength * NetCDFConstants.Strides.STRIDE_GT;
+		this.rowsPerSlab = calculateRowsPerSlab(numRows, rowBytes, maxBufferBytes);
+		this.freeBuffers = new ArrayBlockingQueue<byte[]>(NUM_BUFFERS);
+		for (int bi = 0; bi < NUM_BUFFERS; bi++) {
+			freeBuffers.add(new byte[rowsPerSlab * rowBytes]);
+		}
+		this.writerThread = OrderedBlockProcessor.createWorkerPool("GenotypesWriter", 1);
+		this.pendingWrites = new LinkedList<Future<Void>>();
+		this.buffer = null;
+		this.firstRowIndex = -1;
+		this.numBufferedRows = 0;
+	}
+
+	static int calculateRowsPerSlab(final int numRows, final int rowBytes, final long maxBufferBytes) {
+
+		final long maxSlabBytes = Math.min(maxBufferBytes / NUM_BUFFERS, Integer.MAX_VALUE);
+		final long rowsFitting = maxSlabBytes / Math.max(1, rowBytes);
+		return (int) Math.max(1, Math.min(Math.max(1, numRows), rowsFitting));
+	}
+
+	/**
+	 * Returns the configured memory to be used for buffering genotypes.
+	 * @see Config#PROPERTY_WRITE_BUFFER_MAX_MB
+	 */
+	static long fetchMaxBufferBytes() {
+
+		final Config config = Config.getSingleton();
+		final int configuredMB = (config == null) ? -1
+				: config.getInteger(Config.PROPERTY_WRITE_BUFFER_MAX_MB, -1);
+		final int maxBufferMB = (configuredMB > 0) ? configuredMB : DEFAULT_MAX_BUFFER_MB;
+		return maxBufferMB * 1024L * 1024L;
+	}
+
+	int getRowsPerSlab() {
+		return rowsPerSlab;
+	}
+
+	/**
+	 * Adds the genotypes of a single sample or marker,
+	 * depending on the mode of this writer.
+	 * The genotypes are copied, so the list may be reused by the caller.
+	 */
+	void addRow(final int rowIndex, final List<byte[]> genotypes) throws IOException {
+
+		if (genotypes.size() != rowLength) {
+			throw new IllegalArgumentException("Expected " + rowLength
+					+ " genotypes for row " + rowIndex + ", got " + genotypes.size());
+		}
+		if ((numBufferedRows > 0) && (rowIndex != (firstRowIndex + numBufferedRows))) {
+			flush();
+		}
+		if (buffer == null) {
+			buffer = takeFreeBuffer();
+			firstRowIndex = rowIndex;
+		}
+
+		int pos = numBufferedRows * rowBytes;
+		for (final byte[] genotype : genotypes) {
+			buffer[pos++] = genotype[0];
+			buffer[pos++] = genotype[1];
+		}
+		numBufferedRows++;
+
+		if (numBufferedRows == rowsPerSlab) {
+			flush();
+		}
+	}
+
+	private byte[] takeFreeBuffer() throws IOException {
+
+		checkFinishedWrites();
+		try {
+			return freeBuffers.take();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the genotypes writer");
+		}
+	}
+
+	/**
+	 * Throws the failure of any finished write.
+	 */
+	private void checkFinishedWrites() throws IOException {
+
+		while (!pendingWrites.isEmpty() && pendingWrites.peek().isDone()) {
+			OrderedBlockProcessor.waitFor(pendingWrites.poll());
+		}
+	}
+
+	/**
+	 * Hands the buffered rows to the writer thread.
+	 */
+	void flush() throws IOException {
+
+		if (numBufferedRows == 0) {
+			return;
+		}
+
+		final byte[] slab = buffer;
+		final int slabFirstRowIndex = firstRowIndex;
+		final int slabRows = numBufferedRows;
+		buffer = null;
+		numBufferedRows = 0;
+
+		pendingWrites.add(writerThread.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException {
+
+				try {
+					writeSlab(slab, slabFirstRowIndex, slabRows);
+				} finally {
+					freeBuffers.add(slab);
+				}
+				return null;
+			}
+		}));
+	}
+
+	private void writeSlab(final byte[] slab, final int slabFirstRowIndex, final int slabRows)
+			throws IOException
+	{
+		// the rows are stored one after the other in the buffer
+		final int[] shape = new int[] {slabRows, rowLength, NetCDFConstants.Strides.STRIDE_GT};
+		Array slabArray = Array.factory(DataType.BYTE, shape, slab);
+		final int[] origin;
+		if (perSample) {
+			origin = new int[] {slabFirstRowIndex, 0, 0};
+		} else {
+			// the NetCDF layout is samplesDim, markersDim, gtStrideDim
+			slabArray = slabArray.transpose(0, 1);
+			origin = new int[] {0, slabFirstRowIndex, 0};
+		}
+
+		try {
+			ncfile.write(NetCDFConstants.Variables.VAR_GENOTYPES, origin, slabArray);
+		} catch (final InvalidRangeException ex) {
+			throw new IOException("Bad origin at row " + slabFirstRowIndex + ": "
+					+ origin[0] + "|" + origin[1] + "|" + origin[2], ex);
+		}
+		log.info("Stored {} genotype-lists: {} / {}",
+				perSample ? "sample" : "marker", slabFirstRowIndex + slabRows, numRows);
+	}
+
+	/**
+	 * Writes all remaining rows, and waits for all writes to finish.
+	 * The NetCDF file itself is not closed.
+	 */
+	void close() throws IOException {
+
+		try {
+			flush();
+			while (!pendingWrites.isEmpty()) {
+				OrderedBlockProcessor.waitFor(pendingWrites.poll());
+			}
+		} finally {
+			writerThread.shutdown();
+		}
+	}
+}
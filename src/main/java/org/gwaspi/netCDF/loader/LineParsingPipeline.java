@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import org.gwaspi.global.OrderedBlockProcessor;
+
+/**
+ * Parses the lines of a text file through a pipeline of three stages:
+ * a reader thread reading blocks of lines,
+ * worker threads parsing them,
+ * and the calling thread receiving the parsed lines in file order,
+ * usually to write them to a {@link DataSetDestination}.
+ * All the queues between the stages are bounded,
+ * so the memory usage stays constant, independent of the file size.
+ * With a single worker, everything is done on the calling thread.
+ * @param <O> parsed line type
+ * @see OrderedBlockProcessor
+ */
+public class LineParsingPipeline<O> {
+
+	public static final int DEFAULT_BLOCK_SIZE = OrderedBlockProcessor.DEFAULT_BLOCK_SIZE;
+
+	/**
+	 * Parses a single line.
+	 * Lines are parsed concurrently,
+	 * so implementations must not modify shared state.
+	 * @param <O> parsed line type
+	 */
+	public interface LineParser<O> {
+
+		/**
+		 * @return the parsed line,
+		 *   or <code>null</code> if the line should be skipped
+		 */
+		O parse(String line) throws IOException;
+	}
+
+	/**
+	 * Receives the parsed lines, always on the calling thread and in file order.
+	 * Skipped lines are not received.
+	 * @param <O> parsed line type
+	 */
+	public interface ParsedLineConsumer<O> {
+
+		void consume(O parsed) throws IOException;
+	}
+
+	/**
+	 * Iterates over the lines of a reader, reading them on the calling thread.
+	 * A read failure ends the iteration, and is reported afterwards.
+	 */
+	private static class LineIterator implements Iterator<String> {
+
+		private final BufferedReader reader;
+		private String next;
+		private boolean finished;
+		private IOException failure;
+
+		LineIterator(final BufferedReader reader) {
+
+			this.reader = reader;
+			this.next = null;
+			this.finished = false;
+			this.failure = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			if ((next == null) && !finished) {
+				try {
+					next = reader.readLine();
+				} catch (final IOException ex) {
+					failure = ex;
+				}
+				finished = (next == null);
+			}
+
+			return (next != null);
+		}
+
+		@Override
+		public String next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final String current = next;
+			next = null;
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		IOException getFailure() {
+			return failure;
+		}
+	}
+
+	/**
+	 * Iterates over the lines of a reader,
+	 * which are read in blocks by a separate thread, ahead of time.
+	 * Any failure of the reader ends the iteration, and is reported afterwards.
+	 */
+	private static class PrefetchingLineIterator implements Iterator<String> {
+
+		/** Marks the end of the input; only the end yields an empty block. */
+		private static final List<String> END = Collections.emptyList();
+
+		private final BlockingQueue<List<String>> blocks;
+		private Iterator<String> currentBlock;
+		private boolean finished;
+		private volatile Throwable failure;
+
+		PrefetchingLineIterator(
+				final ExecutorService readerThread,
+				final BufferedReader reader,
+				final int blockSize,
+				final int maxBlocksAhead)
+		{
+			this.blocks = new ArrayBlockingQueue<List<String>>(maxBlocksAhead);
+			this.currentBlock = Collections.<String>emptyList().iterator();
+			this.finished = false;
+			this.failure = null;
+
+			readerThread.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws InterruptedException {
+
+					boolean stopped = false;
+					try {
+						List<String> block;
+						do {
+							block = new ArrayList<String>(blockSize);
+							String line;
+							while ((block.size() < blockSize) && ((line = reader.readLine()) != null)) {
+								block.add(line);
+							}
+							if (!block.isEmpty()) {
+								blocks.put(block);
+							}
+						} while (block.size() == blockSize);
+					} catch (final InterruptedException ex) {
+						// process() is done already, and does not wait for the end anymore
+						stopped = true;
+					} catch (final Throwable ex) {
+						failure = ex;
+					} finally {
+						if (!stopped) {
+							blocks.put(END);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			while (!currentBlock.hasNext() && !finished) {
+				try {
+					final List<String> block = blocks.take();
+					finished = block.isEmpty();
+					currentBlock = block.iterator();
+				} catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					failure = new IOException("Interrupted while waiting for the reader", ex);
+					finished = true;
+				}
+			}
+
+			return currentBlock.hasNext();
+		}
+
+		@Override
+		public String next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return currentBlock.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		Throwable getFailure() {
+			return failure;
+		}
+	}
+
+	private final String name;
+	private final int numWorkers;
+	private final int blockSize;
+
+	/**
+	 * @param name used for naming the threads
+	 * @param numWorkers how many threads parse lines concurrently
+	 * @param blockSize how many lines are read and parsed as a unit;
+	 *   should be small for files with very long lines
+	 */
+	public LineParsingPipeline(final String name, final int numWorkers, final int blockSize) {
+
+		this.name = name;
+		this.numWorkers = numWorkers;
+		this.blockSize = blockSize;
+	}
+
+	public LineParsingPipeline(final String name, final int blockSize) {
+		this(name, OrderedBlockProcessor.fetchNumWorkerThreads(), blockSize);
+	}
+
+	public LineParsingPipeline(final String name) {
+		this(name, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Parses all the remaining lines of the reader.
+	 * The reader is not closed.
+	 */
+	public void process(
+			final BufferedReader reader,
+			final LineParser<O> lineParser,
+			final ParsedLineConsumer<O> parsedLineConsumer)
+			throws IOException
+	{
+		final OrderedBlockProcessor<String, O> blockProcessor
+				= new OrderedBlockProcessor<String, O>(name, numWorkers, blockSize);
+		final OrderedBlockProcessor.BlockProcessor<String, O> blockParser
+				= new OrderedBlockProcessor.BlockProcessor<String, O>() {
+					@Override
+					public List<O> processBlock(int firstIndex, List<String> block) throws IOException {
+
+						final List<O> parsedLines = new ArrayList<O>(block.size());
+						for (final String line : block) {
+							parsedLines.add(lineParser.parse(line));
+						}
+						return parsedLines;
+					}
+				};
+		final OrderedBlockProcessor.ResultConsumer<O> resultConsumer
+				= new OrderedBlockProcessor.ResultConsumer<O>() {
+					@Override
+					public void consume(int index, O parsed) throws IOException {
+
+						if (parsed != null) {
+							parsedLineConsumer.consume(parsed);
+						}
+					}
+				};
+
+		final Throwable failure;
+		if (numWorkers == 1) {
+			final LineIterator lines = new LineIterator(reader);
+			blockProcessor.process(lines, blockParser, resultConsumer);
+			failure = lines.getFailure();
+		} else {
+			final ExecutorService readerThread = OrderedBlockProcessor.createWorkerPool(name + " reader", 1);
+			try {
+				final PrefetchingLineIterator lines
+						= new PrefetchingLineIterator(readerThread, reader, blockSize, numWorkers);
+				blockProcessor.process(lines, blockParser, resultConsumer);
+				failure = lines.getFailure();
+			} finally {
+				// this stops the reader, in case we did not read everything
+				readerThread.shutdownNow();
+			}
+		}
+		if (failure != null) {
+			throw OrderedBlockProcessor.rethrowUnchecked(failure);
+		}
+	}
+}
@@ -19,19 +19,17 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
-import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -85,10 +83,8 @@ public class LoadGTFromAffyFiles extends AbstractLoadGTFromFiles implements Geno
 			DataSetDestination samplesReceiver)
 			throws IOException
 	{
-		final Set<MarkerKey> markerKeys = markerInfos.keySet();
-
-		// PURGE alleles
-		Map<MarkerKey, byte[]> alleles = AbstractLoadGTFromFiles.fillMap(markerKeys, NetCDFConstants.Defaults.DEFAULT_GT);
+		final Map<MarkerKey, Integer> markerIndices = SampleBlockGenotypesBuffer.createIndices(markerInfos.keySet());
+		final SharedGenotypes sharedGenotypes = new SharedGenotypes();
 
 		File[] gtFilesToImport = org.gwaspi.global.Utils.listFiles(loadDescription.getGtDirPath());
 
@@ -119,7 +115,8 @@ public class LoadGTFromAffyFiles extends AbstractLoadGTFromFiles implements Geno
 					loadDescription,
 					samplesReceiver,
 					gtFileToImport,
-					alleles,
+					markerIndices,
+					sharedGenotypes,
 					sampleKeys);
 		}
 	}
@@ -128,73 +125,95 @@ public class LoadGTFromAffyFiles extends AbstractLoadGTFromFiles implements Geno
 	 * @see AbstractLoadGTFromFiles#loadIndividualFiles
 	 */
 	private void loadIndividualFiles(
-			GenotypesLoadDescription loadDescription,
+			final GenotypesLoadDescription loadDescription,
 			DataSetDestination samplesReceiver,
 			File file,
-			Map<MarkerKey, byte[]> sortedAlleles,
+			final Map<MarkerKey, Integer> markerIndices,
+			SharedGenotypes sharedGenotypes,
 			List<SampleKey> samples)
 			throws IOException
 	{
 		// LOAD INPUT FILE
 		// GET SAMPLEID
 		SampleKey sampleKey = getAffySampleId(loadDescription.getStudyKey(), file);
-
-		FileReader inputFileReader = new FileReader(file);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
-
-		// Skip header rows
-		String header = null;
-		while (header == null) {
-			header = inputBufferReader.readLine();
-			if (header.startsWith("#")) {
-				header = null;
-			}
+		int sampleIndex = samples.indexOf(sampleKey);
+		if (sampleIndex == -1) { // CHECK IF CURRENT FILE IS NOT PRESENT IN SAMPLEINFO FILE!!
+			return;
 		}
 
-		// GET ALLELES
-		Map<MarkerKey, byte[]> tempMarkerSet = new HashMap<MarkerKey, byte[]>();
-		String l;
-		while ((l = inputBufferReader.readLine()) != null) {
-			String[] cVals = l.split(ImportConstants.Separators.separators_CommaTab_rgxp);
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
 
-			byte[] alleles;
-			switch (loadDescription.getFormat()) {
-				case Affymetrix_GenomeWide6:
-					if (cVals[Standard.alleles].equals(Standard.missing)) {
-						alleles = NetCDFConstants.Defaults.DEFAULT_GT;
-					} else {
-						alleles = new byte[] {
-							(byte) (cVals[Standard.alleles].charAt(0)),
-							(byte) (cVals[Standard.alleles].charAt(1))};
-					}
-					break;
-				default:
-					alleles = new byte[NetCDFConstants.Strides.STRIDE_GT];
-					break;
+		// PURGE alleles
+		final byte[] sortedAlleles = new byte[markerIndices.size() * 2];
+		Arrays.fill(sortedAlleles, NetCDFConstants.Defaults.AlleleByte._0_VALUE);
+
+		try {
+			// Skip header rows
+			String header = null;
+			while (header == null) {
+				header = inputBufferReader.readLine();
+				if (header.startsWith("#")) {
+					header = null;
+				}
 			}
 
-			tempMarkerSet.put(MarkerKey.valueOf(cVals[Standard.markerId]), alleles);
+			// GET ALLELES
+			new LineParsingPipeline<ParsedGenotypes>("Affymetrix import").process(
+					inputBufferReader,
+					new LineParsingPipeline.LineParser<ParsedGenotypes>() {
+						@Override
+						public ParsedGenotypes parse(String line) {
+							return parseLine(loadDescription.getFormat(), markerIndices, line);
+						}
+					},
+					new LineParsingPipeline.ParsedLineConsumer<ParsedGenotypes>() {
+						@Override
+						public void consume(ParsedGenotypes parsed) {
+
+							final int pos = parsed.getMarkerIndex() * 2;
+							sortedAlleles[pos] = parsed.getAlleles()[0];
+							sortedAlleles[pos + 1] = parsed.getAlleles()[1];
+						}
+					});
+		} finally {
+			inputBufferReader.close();
 		}
-		inputBufferReader.close();
 
-		for (MarkerKey key : sortedAlleles.keySet()) {
-			byte[] value = tempMarkerSet.containsKey(key) ? tempMarkerSet.get(key) : NetCDFConstants.Defaults.DEFAULT_GT;
-			sortedAlleles.put(key, value);
-		}
-		tempMarkerSet.clear();
+		// WRITING GENOTYPE DATA INTO netCDF FILE
+		samplesReceiver.addSampleGTAlleles(sampleIndex, sharedGenotypes.toGenotypes(sortedAlleles));
+	}
 
-		GenotypeEncoding guessedGTCode = getGuessedGTCode();
-		if (guessedGTCode.equals(GenotypeEncoding.UNKNOWN)
-				|| guessedGTCode.equals(GenotypeEncoding.O12))
-		{
-			guessedGTCode = Utils.detectGTEncoding(sortedAlleles.values());
+	/**
+	 * @return the parsed genotype, or <code>null</code>, if the marker is unknown
+	 */
+	private static ParsedGenotypes parseLine(
+			final ImportFormat format,
+			final Map<MarkerKey, Integer> markerIndices,
+			final String line)
+	{
+		String[] cVals = line.split(ImportConstants.Separators.separators_CommaTab_rgxp);
+		final Integer markerIndex = markerIndices.get(MarkerKey.valueOf(cVals[Standard.markerId]));
+		if (markerIndex == null) {
+			return null;
 		}
 
-		// WRITING GENOTYPE DATA INTO netCDF FILE
-		int sampleIndex = samples.indexOf(sampleKey);
-		if (sampleIndex != -1) { // CHECK IF CURRENT FILE IS NOT PRESENT IN SAMPLEINFO FILE!!
-			samplesReceiver.addSampleGTAlleles(sampleIndex, new ArrayList<byte[]>(sortedAlleles.values()));
+		byte[] alleles;
+		switch (format) {
+			case Affymetrix_GenomeWide6:
+				if (cVals[Standard.alleles].equals(Standard.missing)) {
+					alleles = NetCDFConstants.Defaults.DEFAULT_GT;
+				} else {
+					alleles = new byte[] {
+						(byte) (cVals[Standard.alleles].charAt(0)),
+						(byte) (cVals[Standard.alleles].charAt(1))};
+				}
+				break;
+			default:
+				alleles = new byte[NetCDFConstants.Strides.STRIDE_GT];
+				break;
 		}
+
+		return new ParsedGenotypes(-1, markerIndex, alleles);
 	}
 
 	private static SampleKey getAffySampleId(StudyKey studyKey, File fileToScan) throws IOException {
@@ -19,23 +19,20 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.SampleKey;
 import org.gwaspi.model.StudyKey;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-public class LoadGTFromBeagleFiles extends AbstractLoadGTFromFiles {
+public class LoadGTFromBeagleFiles extends AbstractLoadGTFromFiles implements SampleBlockLoader {
 
 //	private final Logger log
 //			= LoggerFactory.getLogger(LoadGTFromBeagleFiles.class);
@@ -58,165 +55,121 @@ public class LoadGTFromBeagleFiles extends AbstractLoadGTFromFiles {
 			File file)
 			throws IOException
 	{
-		return new BeagleParseIterator(studyKey, file, sampleKey);
+		// NOTE As we are a SampleBlockLoader, samples are never loaded one by one.
+		throw new UnsupportedOperationException("This method of this class should never be called!");
 	}
 
 	@Override
-	protected void addAdditionalBigDescriptionProperties(StringBuilder description, GenotypesLoadDescription loadDescription) {
-		super.addAdditionalBigDescriptionProperties(description, loadDescription);
-
-		description
-				.append(loadDescription.getGtDirPath())
-				.append(" (Genotype file)\n")
-				.append(loadDescription.getAnnotationFilePath())
-				.append(" (Marker file)\n");
-	}
-
-	private static class BeagleParseIterator implements Iterator<Map.Entry<MarkerKey, byte[]>> {
-
-		private final Logger log
-				= LoggerFactory.getLogger(BeagleParseIterator.class);
-
-		private final StudyKey studyKey;
-		private final SampleKey sampleKey;
-		private final File file;
-		private final Map<SampleKey, Integer> sampleOrder;
-		private BufferedReader inputBufferReader;
-		private Map.Entry<MarkerKey, byte[]> next;
-
-		BeagleParseIterator(
-				StudyKey studyKey,
-				File file,
-				SampleKey sampleKey)
-				throws IOException
-		{
-			this.studyKey = studyKey;
-			this.sampleKey = sampleKey;
-			this.file = file;
-			this.sampleOrder = new LinkedHashMap<SampleKey, Integer>();
-
-			BufferedReader tmpInputBufferReader;
-//			try {
-				FileReader inputFileReader = new FileReader(file);
-				tmpInputBufferReader = new BufferedReader(inputFileReader);
-//			} catch (IOException ex) {
-//				tmpInputBufferReader = null;
-//				log.info("Failed to open a stream to read from " + file.getAbsolutePath(), ex);
-//			}
-			this.inputBufferReader = tmpInputBufferReader;
-
-//			int gtStride = cNetCDF.Strides.STRIDE_GT;
-//			StringBuilder sb = new StringBuilder(gtStride);
-//			for (int i = 0; i < sb.capacity(); i++) {
-//				sb.append('0');
-//			}
-
-			this.next = null;
-		}
-
-		@Override
-		public boolean hasNext() {
-
-			boolean hasNext = (next != null);
-
-			if (!hasNext) {
-				// try to read, until we have a next or reach the end of the stream
-				String line;
-				Map.Entry<MarkerKey, byte[]> markerGT;
-				do {
-					line = readLine();
-					if (line == null) {
-						break;
+	public void loadSampleBlock(
+			StudyKey studyKey,
+			File file,
+			final SampleBlockGenotypesBuffer sampleBlock)
+			throws IOException
+	{
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
+		try {
+			// only the columns of samples in the block
+			final List<Integer> columns = new ArrayList<Integer>();
+			final List<Integer> sampleIndices = new ArrayList<Integer>();
+			String line;
+			while ((line = inputBufferReader.readLine()) != null) {
+				if (line.startsWith("I")) { // Found the sample header row!
+					String[] headerFields = line.split(ImportConstants.Separators.separators_SpaceTab_rgxp);
+					for (int i = Standard.genotypes; i < headerFields.length; i = i + 2) {
+						// NOTE The Beagle format does not have a family-ID
+						final int sampleIndex = sampleBlock.getBlockSampleIndex(
+								new SampleKey(studyKey, headerFields[i], SampleKey.FAMILY_ID_NONE));
+						if (sampleIndex != -1) {
+							columns.add(i);
+							sampleIndices.add(sampleIndex);
+						}
 					}
-					markerGT = parseLine(line);
-				} while  (markerGT == null);
-
-//				wrMarkerSetMap.putAll(tempMarkerIdMap);
-
-		//		GenotypeEncoding guessedGTCode = GenotypeEncoding.UNKNOWN;
-		//		if (guessedGTCode.equals(GenotypeEncoding.UNKNOWN)) {
-		//			guessedGTCode = Utils.detectGTEncoding(wrMarkerSetMap);
-		//		} else if (guessedGTCode.equals(GenotypeEncoding.O12)) {
-		//			guessedGTCode = Utils.detectGTEncoding(wrMarkerSetMap);
-		//		}
+					break;
+				}
 			}
-
-			return hasNext;
+			final int[] blockColumns = toIntArray(columns);
+			final int[] blockSampleIndices = toIntArray(sampleIndices);
+
+			// The marker rows follow the header,
+			// and can be parsed independently of each other.
+			new LineParsingPipeline<ParsedGenotypes>("Beagle import").process(
+					inputBufferReader,
+					new LineParsingPipeline.LineParser<ParsedGenotypes>() {
+						@Override
+						public ParsedGenotypes parse(String line) {
+							return parseMarkerLine(sampleBlock, blockColumns, line);
+						}
+					},
+					new LineParsingPipeline.ParsedLineConsumer<ParsedGenotypes>() {
+						@Override
+						public void consume(ParsedGenotypes parsed) {
+
+							final byte[] alleles = parsed.getAlleles();
+							for (int bsi = 0; bsi < blockSampleIndices.length; bsi++) {
+								sampleBlock.put(
+										blockSampleIndices[bsi],
+										parsed.getMarkerIndex(),
+										alleles[bsi * 2],
+										alleles[bsi * 2 + 1]);
+							}
+						}
+					});
+		} finally {
+			inputBufferReader.close();
 		}
+	}
 
-		@Override
-		public Map.Entry<MarkerKey, byte[]> next() {
-
-			if (!hasNext()) {
-				throw new NoSuchElementException();
-			}
-
-			Map.Entry<MarkerKey, byte[]> current = next;
-			next = null;
-
-			return current;
+	/**
+	 * @return the genotypes of the samples in the block,
+	 *   or <code>null</code>, if this is not a row of a known marker
+	 */
+	private static ParsedGenotypes parseMarkerLine(
+			final SampleBlockGenotypesBuffer sampleBlock,
+			final int[] blockColumns,
+			final String line)
+	{
+		if (!line.startsWith("M")) {
+			return null;
 		}
 
-		@Override
-		public void remove() {
-			throw new UnsupportedOperationException("Removing is not allowed");
+		// GET ALLELES FROM MARKER ROWS
+		String[] cVals = line.split(ImportConstants.Separators.separators_SpaceTab_rgxp);
+		final int markerIndex = sampleBlock.getMarkerIndex(MarkerKey.valueOf(cVals[Standard.markerId]));
+		if (markerIndex == -1) {
+			return null;
+		}
+		final byte[] alleles = new byte[blockColumns.length * 2];
+		for (int bsi = 0; bsi < blockColumns.length; bsi++) {
+			final String fatherAlleles = cVals[blockColumns[bsi]];
+			final char motherAllele = (fatherAlleles.length() > 1)
+					? fatherAlleles.charAt(1)
+					: cVals[blockColumns[bsi] + 1].charAt(0);
+			alleles[bsi * 2] = (byte) fatherAlleles.charAt(0);
+			alleles[bsi * 2 + 1] = (byte) motherAllele;
 		}
 
-		private String readLine() {
-
-			String line = null;
+		return new ParsedGenotypes(-1, markerIndex, alleles);
+	}
 
-			if (inputBufferReader != null) {
-				try {
-					line = inputBufferReader.readLine();
-				} catch (IOException ex) {
-					line = null;
-					log.info("Failed to read a line from " + file.getAbsolutePath(), ex);
-				}
-				if (line == null) {
-					try {
-						inputBufferReader.close();
-					} catch (IOException ex) {
-						line = null;
-						log.info("Failed to close stream to " + file.getAbsolutePath(), ex);
-					}
-					inputBufferReader = null;
-				}
-			}
+	private static int[] toIntArray(final List<Integer> values) {
 
-			return line;
+		final int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
 		}
 
-		private Map.Entry<MarkerKey, byte[]> parseLine(String line) {
-
-			Map.Entry<MarkerKey, byte[]> markerGt = null;
-
-			if (line.startsWith("I")) { // Found first marker row!
-				String sampleHeader = line;
-				String[] headerFields = sampleHeader.split(ImportConstants.Separators.separators_SpaceTab_rgxp);
-				for (int i = Standard.genotypes; i < headerFields.length; i = i + 2) {
-					String sampleId = headerFields[i];
-					// NOTE The Beagle format does not have a family-ID
-					sampleOrder.put(new SampleKey(studyKey, sampleId, SampleKey.FAMILY_ID_NONE), i);
-				}
-			} else if (line.startsWith("M")) { // Found first marker row!
-				// GET ALLELES FROM MARKER ROWS
-				String[] cVals = line.split(ImportConstants.Separators.separators_SpaceTab_rgxp);
-				MarkerKey markerKey = MarkerKey.valueOf(cVals[Standard.markerId]);
+		return array;
+	}
 
-				Integer columnNb = sampleOrder.get(sampleKey);
-				if (columnNb != null) {
-					// XXX this seems like it could be optimized to not do concatenation and char extraction, but use the chars from the orig strings directly
-					String strAlleles = cVals[columnNb] + cVals[columnNb + 1];
-					byte[] tmpAlleles = new byte[] {
-						(byte) strAlleles.charAt(0),
-						(byte) strAlleles.charAt(1)};
-					markerGt = new AbstractMap.SimpleImmutableEntry(markerKey, tmpAlleles);
-				}
-			}
+	@Override
+	protected void addAdditionalBigDescriptionProperties(StringBuilder description, GenotypesLoadDescription loadDescription) {
+		super.addAdditionalBigDescriptionProperties(description, loadDescription);
 
-			return markerGt;
-		}
+		description
+				.append(loadDescription.getGtDirPath())
+				.append(" (Genotype file)\n")
+				.append(loadDescription.getAnnotationFilePath())
+				.append(" (Marker file)\n");
 	}
 
 //	@Override
@@ -27,7 +27,6 @@ import org.gwaspi.dao.MatrixService;
 import org.gwaspi.global.Config;
 import org.gwaspi.global.Text;
 import org.gwaspi.gui.utils.Dialogs;
-import org.gwaspi.model.DataSetSource;
 import org.gwaspi.model.GenotypesList;
 import org.gwaspi.model.MatricesList;
 import org.gwaspi.model.MatrixKey;
@@ -40,6 +39,7 @@ import org.gwaspi.model.Study;
 import org.gwaspi.model.StudyKey;
 import org.gwaspi.datasource.netcdf.NetCDFDataSetSource;
 import org.gwaspi.datasource.netcdf.NetCdfSamplesKeysSource;
+import org.gwaspi.datasource.packed.PackedDataSetSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.nc2.NetcdfFile;
@@ -173,6 +173,15 @@ public final class LoadGTFromGWASpiFiles implements GenotypesLoader {
 					loadDescription.getStudyKey(),
 					loadDescription.getGtDirPath(),
 					MatrixMetadata.generatePathToNetCdfFile(importMatrixMetadata));
+			// the genotypes of an exported packed matrix are stored next to it
+			final File importPackedGenotypesFile = PackedDataSetSource.findSiblingPackedGenotypesFile(
+					new File(loadDescription.getGtDirPath()));
+			if (importPackedGenotypesFile != null) {
+				copyMatrixToGenotypesFolder(
+						loadDescription.getStudyKey(),
+						importPackedGenotypesFile.getPath(),
+						MatrixMetadata.generatePathToPackedGenotypesFile(importMatrixMetadata));
+			}
 		} else {
 			// if the source has a different GWASpi-DB version
 			// then what we currently run/use,
@@ -192,7 +201,12 @@ public final class LoadGTFromGWASpiFiles implements GenotypesLoader {
 
 		//<editor-fold defaultstate="expanded" desc="CREATE MARKERSET & NETCDF">
 //		MatrixKey importMatrixKey = MatrixKey.valueOf(importMatrixMetadata);
-		DataSetSource dataSetSource = new NetCDFDataSetSource(new File(loadDescription.getGtDirPath()), loadDescription.getStudyKey());
+		final File importNetCdfFile = new File(loadDescription.getGtDirPath());
+		// the genotypes of an exported packed matrix are stored next to it
+		final File importPackedGenotypesFile = PackedDataSetSource.findSiblingPackedGenotypesFile(importNetCdfFile);
+		final NetCDFDataSetSource dataSetSource = (importPackedGenotypesFile == null)
+				? new NetCDFDataSetSource(importNetCdfFile, loadDescription.getStudyKey())
+				: new PackedDataSetSource(importNetCdfFile, importPackedGenotypesFile, loadDescription.getStudyKey());
 //		MarkerSet rdMarkerSet = new MarkerSet(importMatrixMetadata);
 //		rdMarkerSet.initFullMarkerIdSetMap();
 //		rdMarkerSet.fillMarkerSetMapWithChrAndPos();
@@ -276,18 +290,22 @@ public final class LoadGTFromGWASpiFiles implements GenotypesLoader {
 
 		//<editor-fold defaultstate="expanded" desc="GENOTYPES WRITER">
 		//Iterate through rdSampleSetMap, use item position to read correct sample GTs into rdMarkerIdSetMap.
-		SamplesGenotypesSource rdSamplesGenotypesSource = dataSetSource.getSamplesGenotypesSource();
-//		Iterator<GenotypesList> rdSamplesGenotypesSourceIt = rdSamplesGenotypesSource.iterator();
-//		for (int sampleWrIndex = 0; sampleWrIndex < rdSampleSetMap.size(); sampleWrIndex++) {
-		int sampleWrIndex = 0;
-		for (GenotypesList genotypesList : rdSamplesGenotypesSource) {
-//			rdMarkerSet.fillGTsForCurrentSampleIntoInitMap(sampleWrIndex);
+		try {
+			SamplesGenotypesSource rdSamplesGenotypesSource = dataSetSource.getSamplesGenotypesSource();
+//			Iterator<GenotypesList> rdSamplesGenotypesSourceIt = rdSamplesGenotypesSource.iterator();
+//			for (int sampleWrIndex = 0; sampleWrIndex < rdSampleSetMap.size(); sampleWrIndex++) {
+			int sampleWrIndex = 0;
+			for (GenotypesList genotypesList : rdSamplesGenotypesSource) {
+//				rdMarkerSet.fillGTsForCurrentSampleIntoInitMap(sampleWrIndex);
 
-			// Write MarkerIdSetMap to A3 ArrayChar and save to wrMatrix
-//			NetCdfUtils.saveSingleSampleGTsToMatrix(ncfile, rdMarkerSet.getMarkerIdSetMapByteArray().values(), sampleWrIndex);
-//			samplesReceiver.addSampleGTAlleles(sampleWrIndex, rdMarkerSet.getMarkerIdSetMapByteArray().values());
-			samplesReceiver.addSampleGTAlleles(sampleWrIndex, genotypesList);
-			sampleWrIndex++;
+				// Write MarkerIdSetMap to A3 ArrayChar and save to wrMatrix
+//				NetCdfUtils.saveSingleSampleGTsToMatrix(ncfile, rdMarkerSet.getMarkerIdSetMapByteArray().values(), sampleWrIndex);
+//				samplesReceiver.addSampleGTAlleles(sampleWrIndex, rdMarkerSet.getMarkerIdSetMapByteArray().values());
+				samplesReceiver.addSampleGTAlleles(sampleWrIndex, genotypesList);
+				sampleWrIndex++;
+			}
+		} finally {
+			dataSetSource.close();
 		}
 		//</editor-fold>
 
@@ -19,7 +19,6 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -32,6 +31,7 @@ import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -122,8 +122,7 @@ public class LoadGTFromHGDP1Files extends AbstractLoadGTFromFiles implements Gen
 			GenotypeEncoding guessedGTCode)
 			throws IOException
 	{
-		FileReader inputFileReader = new FileReader(file);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
 
 //		int gtStride = NetCDFConstants.Strides.STRIDE_GT;
 //		StringBuilder sb = new StringBuilder(gtStride);
@@ -19,8 +19,8 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -34,6 +34,7 @@ import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -145,12 +146,11 @@ public class LoadGTFromHapmapFiles extends AbstractLoadGTFromFiles implements Ge
 			StudyKey studyKey,
 			File file,
 			SampleKey sampleKey,
-			Map<MarkerKey, byte[]> alleles,
+			final Map<MarkerKey, byte[]> alleles,
 			GenotypeEncoding guessedGTCode)
 			throws IOException
 	{
-		FileReader inputFileReader = new FileReader(file);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
 
 		final String header = inputBufferReader.readLine();
 		final String[] headerFields = header.split(ImportConstants.Separators.separators_SpaceTab_rgxp);
@@ -159,41 +159,29 @@ public class LoadGTFromHapmapFiles extends AbstractLoadGTFromFiles implements Ge
 		for (int i = Standard.sampleId; i < headerFields.length; i++) {
 			sampleOrderMap.put(SampleKey.valueOf(studyKey, headerFields[i]), i); // FIXME this is only the sampleID, without familyID. does hapMap have a familyId? seems so! one field before the sampleID, see: https://www.broadinstitute.org/science/programs/medical-and-population-genetics/haploview/input-file-formats-0
 		}
-		Object sampleColumnNb = sampleOrderMap.get(sampleKey);
+		final Object sampleColumnNb = sampleOrderMap.get(sampleKey);
 
 		// GET ALLELES
-		String l;
-		while ((l = inputBufferReader.readLine()) != null) {
-
-			// MEMORY LEAN METHOD
+		try {
 			if (sampleColumnNb != null) {
-				StringTokenizer st = new StringTokenizer(l, ImportConstants.Separators.separators_SpaceTab_rgxp);
-				String markerId = st.nextToken();
-
-				//read genotypes from this point on
-				int k = 1;
-				byte[] tmpAlleles = NetCDFConstants.Defaults.DEFAULT_GT;
-				while (k <= (Integer) sampleColumnNb) {
-					if (k < (Integer) sampleColumnNb) {
-						st.nextToken();
-						k++;
-					}
-					if (k == (Integer) sampleColumnNb) {
-						String strAlleles = st.nextToken();
-						if (strAlleles.equals(Standard.missing)) {
-							tmpAlleles = NetCDFConstants.Defaults.DEFAULT_GT;
-						} else {
-							tmpAlleles = new byte[] {
-								(byte) strAlleles.charAt(0),
-								(byte) strAlleles.charAt(1)};
-						}
-						k++;
-					}
-				}
-				alleles.put(MarkerKey.valueOf(markerId), tmpAlleles);
+				new LineParsingPipeline<Map.Entry<MarkerKey, byte[]>>("HapMap import").process(
+						inputBufferReader,
+						new LineParsingPipeline.LineParser<Map.Entry<MarkerKey, byte[]>>() {
+							@Override
+							public Map.Entry<MarkerKey, byte[]> parse(String line) {
+								return parseLine((Integer) sampleColumnNb, line);
+							}
+						},
+						new LineParsingPipeline.ParsedLineConsumer<Map.Entry<MarkerKey, byte[]>>() {
+							@Override
+							public void consume(Map.Entry<MarkerKey, byte[]> markerAlleles) {
+								alleles.put(markerAlleles.getKey(), markerAlleles.getValue());
+							}
+						});
 			}
+		} finally {
+			inputBufferReader.close();
 		}
-		inputBufferReader.close();
 
 		if (guessedGTCode.equals(NetCDFConstants.Defaults.GenotypeEncoding.UNKNOWN)
 				|| guessedGTCode.equals(NetCDFConstants.Defaults.GenotypeEncoding.O12))
@@ -203,13 +191,47 @@ public class LoadGTFromHapmapFiles extends AbstractLoadGTFromFiles implements Ge
 	}
 	//</editor-fold>
 
+	/**
+	 * Extracts the genotype of a single sample from a marker line.
+	 * @param sampleColumnNb the column of the sample
+	 */
+	private static Map.Entry<MarkerKey, byte[]> parseLine(final int sampleColumnNb, final String line) {
+
+		// MEMORY LEAN METHOD
+		StringTokenizer st = new StringTokenizer(line, ImportConstants.Separators.separators_SpaceTab_rgxp);
+		String markerId = st.nextToken();
+
+		//read genotypes from this point on
+		int k = 1;
+		byte[] tmpAlleles = NetCDFConstants.Defaults.DEFAULT_GT;
+		while (k <= sampleColumnNb) {
+			if (k < sampleColumnNb) {
+				st.nextToken();
+				k++;
+			}
+			if (k == sampleColumnNb) {
+				String strAlleles = st.nextToken();
+				if (strAlleles.equals(Standard.missing)) {
+					tmpAlleles = NetCDFConstants.Defaults.DEFAULT_GT;
+				} else {
+					tmpAlleles = new byte[] {
+						(byte) strAlleles.charAt(0),
+						(byte) strAlleles.charAt(1)};
+				}
+				k++;
+			}
+		}
+
+		return new AbstractMap.SimpleImmutableEntry<MarkerKey, byte[]>(MarkerKey.valueOf(markerId), tmpAlleles);
+	}
+	//</editor-fold>
+
 	//<editor-fold defaultstate="expanded" desc="HELPER METHODS">
 	private Collection<SampleInfo> getHapmapSampleIds(StudyKey studyKey, File hapmapGTFile) throws IOException {
 
 		Collection<SampleInfo> uniqueSamples = new LinkedList<SampleInfo>();
 
-		FileReader fr = new FileReader(hapmapGTFile.getPath());
-		BufferedReader inputAnnotationBr = new BufferedReader(fr);
+		BufferedReader inputAnnotationBr = InputFiles.openReader(hapmapGTFile.getPath());
 		String header = inputAnnotationBr.readLine();
 		inputAnnotationBr.close();
 
@@ -19,19 +19,15 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
-import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -86,124 +82,147 @@ public class LoadGTFromIlluminaLGENFiles extends AbstractLoadGTFromFiles impleme
 	{
 		File[] gtFilesToImport = org.gwaspi.global.Utils.listFiles(loadDescription.getGtDirPath());
 
+		final Map<SampleKey, Integer> sampleIndices = SampleBlockGenotypesBuffer.createIndices(sampleInfos.keySet());
+		final Map<MarkerKey, Integer> markerIndices = SampleBlockGenotypesBuffer.createIndices(markerInfos.keySet());
 		for (File gtFileToImport : gtFilesToImport) {
 			loadIndividualFiles(
-					loadDescription,
-					sampleInfos,
-					markerInfos,
+					loadDescription.getStudyKey(),
+					sampleIndices,
+					markerIndices,
 					samplesReceiver,
 					gtFileToImport);
 		}
 	}
 
+	/**
+	 * Collects the genotypes of one sample after the other,
+	 * as they appear in the file,
+	 * and writes each sample as soon as all its genotypes are collected.
+	 */
+	private static class SampleGenotypesCollector
+			implements LineParsingPipeline.ParsedLineConsumer<ParsedGenotypes>
+	{
+		private final DataSetDestination samplesReceiver;
+		private final int numMarkers;
+		private final SharedGenotypes sharedGenotypes;
+		private int currentSampleIndex;
+		private byte[] currentSampleAlleles;
+
+		SampleGenotypesCollector(final DataSetDestination samplesReceiver, final int numMarkers) {
+
+			this.samplesReceiver = samplesReceiver;
+			this.numMarkers = numMarkers;
+			this.sharedGenotypes = new SharedGenotypes();
+			this.currentSampleIndex = -1;
+			this.currentSampleAlleles = null;
+		}
+
+		@Override
+		public void consume(ParsedGenotypes parsed) throws IOException {
+
+			if (parsed.getSampleIndex() != currentSampleIndex) {
+				finish();
+				// INIT AND PURGE SORTEDMARKERSET
+				currentSampleIndex = parsed.getSampleIndex();
+				currentSampleAlleles = new byte[numMarkers * 2];
+				Arrays.fill(currentSampleAlleles, NetCDFConstants.Defaults.AlleleByte._0_VALUE);
+			}
+			final int pos = parsed.getMarkerIndex() * 2;
+			currentSampleAlleles[pos] = parsed.getAlleles()[0];
+			currentSampleAlleles[pos + 1] = parsed.getAlleles()[1];
+		}
+
+		/**
+		 * Writes the current sample, if any.
+		 */
+		void finish() throws IOException {
+
+			if (currentSampleAlleles != null) {
+				// WRITING GENOTYPE DATA INTO netCDF FILE
+				samplesReceiver.addSampleGTAlleles(
+						currentSampleIndex,
+						sharedGenotypes.toGenotypes(currentSampleAlleles));
+				currentSampleAlleles = null;
+				currentSampleIndex = -1;
+			}
+		}
+	}
+
 	/**
 	 * @see AbstractLoadGTFromFiles#loadIndividualFiles
 	 */
 	private void loadIndividualFiles(
-			GenotypesLoadDescription loadDescription,
-			Map<SampleKey, SampleInfo> sampleInfos,
-			Map<MarkerKey, MarkerMetadata> markerInfos,
+			final StudyKey studyKey,
+			final Map<SampleKey, Integer> sampleIndices,
+			final Map<MarkerKey, Integer> markerIndices,
 			DataSetDestination samplesReceiver,
 			File file)
-//			NetcdfFileWriteable ncfile,
-//			Map<MarkerKey, ?> sortedMetadata,
-//			List<String> samplesAL,
-//			GenotypeEncoding guessedGTCode)
 			throws IOException
 	{
-		final List<SampleKey> sampleKeys = new ArrayList<SampleKey>(sampleInfos.keySet());
-		final Set<MarkerKey> markerKeys = markerInfos.keySet();
-
 		// LOAD INPUT FILE
-		FileReader inputFileReader = new FileReader(file);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
-
-		//Skip header rows
-		String header = null;
-		while ((header == null) && inputBufferReader.ready()) {
-			final String line = inputBufferReader.readLine();
-			if (line.startsWith("[Data]")) {
-				header = inputBufferReader.readLine(); // get the real header
-			}
-		}
-
-//		int gtStride = NetCDFConstants.Strides.STRIDE_GT;
-//		StringBuilder sb = new StringBuilder(gtStride);
-//		for (int i = 0; i < sb.capacity(); i++) {
-//			sb.append('0');
-//		}
-
-		//GET ALLELES
-		String l;
-		Map<MarkerKey, byte[]> tempMarkerSet = new LinkedHashMap<MarkerKey, byte[]>();
-		SampleKey currentSampleKey = new SampleKey(loadDescription.getStudyKey(), "", SampleKey.FAMILY_ID_NONE);
-		while ((l = inputBufferReader.readLine()) != null) {
-			String[] cVals = l.split(ImportConstants.Separators.separators_CommaTab_rgxp);
-			String tmpSampleId = cVals[1];
-
-			if (tmpSampleId.equals(currentSampleKey.getSampleId())) {
-				byte[] tmpAlleles = new byte[] {
-						(byte) cVals[Standard.allele1].charAt(0),
-						(byte) cVals[Standard.allele2].charAt(0)};
-				tempMarkerSet.put(MarkerKey.valueOf(cVals[Standard.markerId]), tmpAlleles);
-			} else {
-				if (!currentSampleKey.getSampleId().isEmpty()) { // EXCEPT FIRST TIME ROUND
-					// INIT AND PURGE SORTEDMARKERSET Map
-					Map<MarkerKey, byte[]> sortedAlleles = AbstractLoadGTFromFiles.fillMap(markerKeys, NetCDFConstants.Defaults.DEFAULT_GT);
-
-					// WRITE Map TO MATRIX
-					for (Map.Entry<MarkerKey, byte[]> entry : sortedAlleles.entrySet()) {
-						MarkerKey markerKey = entry.getKey();
-						byte[] value = (tempMarkerSet.get(markerKey) != null) ? tempMarkerSet.get(markerKey) : NetCDFConstants.Defaults.DEFAULT_GT;
-						entry.setValue(value);
-					}
-					tempMarkerSet.clear();
-
-					// WRITING GENOTYPE DATA INTO netCDF FILE
-					int sampleIndex = sampleKeys.indexOf(currentSampleKey);
-					if (sampleIndex != -1) {  //CHECK IF CURRENT FILE IS NOT PRESENT IN SAMPLEINFO FILE!!
-						samplesReceiver.addSampleGTAlleles(sampleIndex, new ArrayList<byte[]>(sortedAlleles.values()));
-					}
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
+
+		try {
+			//Skip header rows
+			String header = null;
+			while ((header == null) && inputBufferReader.ready()) {
+				final String line = inputBufferReader.readLine();
+				if (line.startsWith("[Data]")) {
+					header = inputBufferReader.readLine(); // get the real header
 				}
+			}
 
-				currentSampleKey = new SampleKey(loadDescription.getStudyKey(), tmpSampleId, SampleKey.FAMILY_ID_NONE);
+			//GET ALLELES
+			final SampleGenotypesCollector sampleGenotypesCollector
+					= new SampleGenotypesCollector(samplesReceiver, markerIndices.size());
+			new LineParsingPipeline<ParsedGenotypes>("Illumina LGEN import").process(
+					inputBufferReader,
+					new LineParsingPipeline.LineParser<ParsedGenotypes>() {
+						@Override
+						public ParsedGenotypes parse(String line) {
+							return parseLine(studyKey, sampleIndices, markerIndices, line);
+						}
+					},
+					sampleGenotypesCollector);
+			// WRITE LAST SAMPLE TO MATRIX
+			sampleGenotypesCollector.finish();
+		} finally {
+			inputBufferReader.close();
+		}
+	}
 
-				byte[] tmpAlleles;
-				if (cVals[Standard.allele1].equals(Standard.missing)
-						&& cVals[Standard.allele2].equals(Standard.missing)) {
-					tmpAlleles = NetCDFConstants.Defaults.DEFAULT_GT;
-				} else {
-					tmpAlleles = new byte[] {
-							(byte) (cVals[Standard.allele1].charAt(0)),
-							(byte) (cVals[Standard.allele2].charAt(0))};
-				}
-				tempMarkerSet.put(MarkerKey.valueOf(cVals[Standard.markerId]), tmpAlleles);
-			}
+	/**
+	 * @return the parsed genotype, or <code>null</code>,
+	 *   if the sample is not present in the sample-info, or the marker is unknown
+	 */
+	private static ParsedGenotypes parseLine(
+			final StudyKey studyKey,
+			final Map<SampleKey, Integer> sampleIndices,
+			final Map<MarkerKey, Integer> markerIndices,
+			final String line)
+	{
+		String[] cVals = line.split(ImportConstants.Separators.separators_CommaTab_rgxp);
+		final Integer sampleIndex = sampleIndices.get(
+				new SampleKey(studyKey, cVals[Standard.sampleId], SampleKey.FAMILY_ID_NONE));
+		if (sampleIndex == null) { //CHECK IF CURRENT SAMPLE IS NOT PRESENT IN SAMPLEINFO FILE!!
+			return null;
 		}
-		inputBufferReader.close();
-
-		// WRITE LAST SAMPLE Map TO MATRIX
-		// INIT AND PURGE SORTEDMARKERSET Map
-		Map<MarkerKey, byte[]> sortedAlleles = AbstractLoadGTFromFiles.fillMap(markerKeys, NetCDFConstants.Defaults.DEFAULT_GT);
-		for (Map.Entry<MarkerKey, byte[]> entry : sortedAlleles.entrySet()) {
-			MarkerKey markerKey = entry.getKey();
-			byte[] value = (tempMarkerSet.get(markerKey) != null) ? tempMarkerSet.get(markerKey) : NetCDFConstants.Defaults.DEFAULT_GT;
-			entry.setValue(value);
+		final Integer markerIndex = markerIndices.get(MarkerKey.valueOf(cVals[Standard.markerId]));
+		if (markerIndex == null) {
+			return null;
 		}
-		tempMarkerSet.clear();
 
-		GenotypeEncoding guessedGTCode = getGuessedGTCode();
-		if (guessedGTCode.equals(NetCDFConstants.Defaults.GenotypeEncoding.UNKNOWN)
-				|| guessedGTCode.equals(NetCDFConstants.Defaults.GenotypeEncoding.O12))
-		{
-			guessedGTCode = Utils.detectGTEncoding(sortedAlleles.values());
+		byte[] tmpAlleles;
+		if (cVals[Standard.allele1].equals(Standard.missing)
+				&& cVals[Standard.allele2].equals(Standard.missing)) {
+			tmpAlleles = NetCDFConstants.Defaults.DEFAULT_GT;
+		} else {
+			tmpAlleles = new byte[] {
+					(byte) (cVals[Standard.allele1].charAt(0)),
+					(byte) (cVals[Standard.allele2].charAt(0))};
 		}
 
-		// WRITING GENOTYPE DATA INTO netCDF FILE
-		int sampleIndex = sampleKeys.indexOf(currentSampleKey);
-		if (sampleIndex != -1) {  //CHECK IF CURRENT FILE IS NOT PRESENT IN SAMPLEINFO FILE!!
-			samplesReceiver.addSampleGTAlleles(sampleIndex, new ArrayList<byte[]>(sortedAlleles.values()));
-		}
+		return new ParsedGenotypes(sampleIndex, markerIndex, tmpAlleles);
 	}
 
 	private static String getAffySampleId(File fileToScan) throws IOException {
@@ -17,19 +17,19 @@
 
 package org.gwaspi.netCDF.loader;
 
-import java.io.DataInputStream;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.GenotypeEncoding;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -43,6 +43,12 @@ public class LoadGTFromPlinkBinaryFiles extends AbstractLoadGTFromFiles implemen
 	private final Logger log
 			= LoggerFactory.getLogger(LoadGTFromPlinkBinaryFiles.class);
 
+	private static final int BED_HEADER_BYTES = 3;
+	private static final int BED_CODES = 4;
+	private static final int GENOTYPES_PER_BYTE = 4;
+	/** How many bytes of the .bed file to read at once, at most */
+	private static final int READ_BLOCK_BYTES = 1 << 23;
+
 	public LoadGTFromPlinkBinaryFiles() {
 		super(new MetadataLoaderPlinkBinary(), ImportFormat.PLINK_Binary, null, true);
 
@@ -75,6 +81,90 @@ public class LoadGTFromPlinkBinaryFiles extends AbstractLoadGTFromFiles implemen
 		return false;
 	}
 
+	/**
+	 * Creates a table which translates each byte of a .bed file
+	 * into the 4 genotypes it contains.
+	 * The genotypes are stored in 2 bits each, the first sample in the lowest bits.
+	 * @param allele1 usually the minor allele
+	 * @param allele2 usually the major allele
+	 * @return 4 genotypes per possible byte value,
+	 *   the genotype of sample <code>k</code> (0 to 3) of byte <code>b</code>
+	 *   being at index <code>(b &amp; 0xFF) * 4 + k</code>;
+	 *   equal genotypes share the same instance
+	 */
+	static byte[][] createDecodingTable(final byte allele1, final byte allele2) {
+
+		final byte[][] codesGenotypes = new byte[BED_CODES][];
+		codesGenotypes[0] = new byte[] {allele1, allele1}; // 00 Homozygote "1"/"1" - Minor allele
+		codesGenotypes[1] = NetCDFConstants.Defaults.DEFAULT_GT; // 10 Missing genotype
+		codesGenotypes[2] = new byte[] {allele1, allele2}; // 01 Heterozygote
+		codesGenotypes[3] = new byte[] {allele2, allele2}; // 11 Homozygote "2"/"2" - Major allele
+
+		final byte[][] decodingTable = new byte[256 * GENOTYPES_PER_BYTE][];
+		for (int byteValue = 0; byteValue < 256; byteValue++) {
+			for (int k = 0; k < GENOTYPES_PER_BYTE; k++) {
+				decodingTable[byteValue * GENOTYPES_PER_BYTE + k] = codesGenotypes[(byteValue >> (k * 2)) & 0x03];
+			}
+		}
+
+		return decodingTable;
+	}
+
+	/**
+	 * Decodes the genotypes of a single marker.
+	 * @param decodingTable as created by {@link #createDecodingTable(byte, byte)}
+	 * @param bedBytes contains the packed genotypes
+	 * @param offset where the markers genotypes start within <code>bedBytes</code>
+	 * @param markerGenotypes receives the genotypes, one per sample;
+	 *   its size defines the number of samples
+	 */
+	static void decodeMarker(
+			final byte[][] decodingTable,
+			final byte[] bedBytes,
+			final int offset,
+			final List<byte[]> markerGenotypes)
+	{
+		final int numSamples = markerGenotypes.size();
+		int bytePos = offset;
+		for (int si = 0; si < numSamples; bytePos++) {
+			final int tableIndex = (bedBytes[bytePos] & 0xFF) * GENOTYPES_PER_BYTE;
+			// the excess bits of the last byte of the marker are skipped
+			final int toSampleIndex = Math.min(numSamples, si + GENOTYPES_PER_BYTE);
+			for (int k = 0; si < toSampleIndex; k++) {
+				markerGenotypes.set(si++, decodingTable[tableIndex + k]);
+			}
+		}
+	}
+
+	private static byte[][] getDecodingTable(
+			final Map<Integer, byte[][]> decodingTables,
+			final String[] alleles)
+	{
+		final byte allele1 = (byte) alleles[0].charAt(0);
+		final byte allele2 = (byte) alleles[1].charAt(0);
+		final Integer allelesKey = ((allele1 & 0xFF) << 8) | (allele2 & 0xFF);
+		byte[][] decodingTable = decodingTables.get(allelesKey);
+		if (decodingTable == null) {
+			decodingTable = createDecodingTable(allele1, allele2);
+			decodingTables.put(allelesKey, decodingTable);
+		}
+
+		return decodingTable;
+	}
+
+	/**
+	 * Reads as many bytes as possible into the buffer,
+	 * up to its limit.
+	 */
+	private static void readFully(final ReadableByteChannel channel, final ByteBuffer buffer) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+	}
+
 	@Override
 	protected void loadGenotypes(
 			GenotypesLoadDescription loadDescription,
@@ -83,123 +173,61 @@ public class LoadGTFromPlinkBinaryFiles extends AbstractLoadGTFromFiles implemen
 			DataSetDestination samplesReceiver)
 			throws IOException
 	{
-		final Collection<SampleInfo> sampleInfos2 = sampleInfos.values();
-
 		Map<MarkerKey, String[]> bimSamples = MetadataLoaderPlinkBinary.parseOrigBimFile(
 				loadDescription.getAnnotationFilePath(),
 				loadDescription.getStudyKey()
 				); // key = markerId, values{allele1 (minor), allele2 (major)}
 
-		File file = new File(loadDescription.getGtDirPath());
-		FileInputStream bedFS = new FileInputStream(file);
-		DataInputStream bedIS = new DataInputStream(bedFS);
-
-		int sampleNb = sampleInfos2.size();
-//		int markerNb = bimSamples.size();
-		int bytesPerSNP;
-		if (sampleNb % 4 == 0) { // Nb OF BYTES IN EACH ROW
-			bytesPerSNP = sampleNb / 4;
-		} else {
-			bytesPerSNP = (sampleNb / 4) + 1;
-		}
+		final int sampleNb = sampleInfos.size();
+		final int markerNb = bimSamples.size();
+		final int bytesPerSNP = (sampleNb + GENOTYPES_PER_BYTE - 1) / GENOTYPES_PER_BYTE; // Nb OF BYTES IN EACH ROW
+		final int markersPerBlock = Math.max(1, READ_BLOCK_BYTES / Math.max(1, bytesPerSNP));
+
+		final ReadableByteChannel bedChannel = InputFiles.openChannel(new File(loadDescription.getGtDirPath()));
+		try {
+			// SKIP HEADER
+			final ByteBuffer header = ByteBuffer.allocate(BED_HEADER_BYTES);
+			readFully(bedChannel, header);
+			if (header.position() < BED_HEADER_BYTES) {
+				throw new IOException("Binary PLINK file is too short: " + loadDescription.getGtDirPath());
+			}
+			final byte mode = header.get(BED_HEADER_BYTES - 1);
+			if (mode != 1) {
+				log.warn("Binary PLINK file must be in SNP-major mode!");
+				return;
+			}
 
-		Iterator<String[]> itMarkerSet = bimSamples.values().iterator();
-		Iterator<SampleInfo> itSampleSet = sampleInfos2.iterator();
-
-		// SKIP HEADER
-		bedIS.readByte();
-		bedIS.readByte();
-		byte mode = bedIS.readByte();
-
-		// INIT VARS
-		String[] alleles;
-		byte[] rowBytes = new byte[bytesPerSNP];
-		byte byteData;
-		boolean allele1;
-		boolean allele2;
-		if (mode == 1) {
-			// GET GENOTYPES
+			// This list is reused for all the markers,
+			// and only ever contains shared genotype instances.
+			final List<byte[]> markerGenotypes = Arrays.asList(new byte[sampleNb][]);
+			final Map<Integer, byte[][]> decodingTables = new HashMap<Integer, byte[][]>();
+			final ByteBuffer block = ByteBuffer.allocate(markersPerBlock * bytesPerSNP);
+			final Iterator<String[]> itMarkerSet = bimSamples.values().iterator();
 			int rowCounter = 0;
-//			List<byte[]> genotypes = new ArrayList<byte[]>();
-			while (itMarkerSet.hasNext()) {
-				try {
-					// NEW SNP
-					// Load genotyes map with defaults
-					Map<SampleKey, byte[]> mappedGenotypes = new LinkedHashMap<SampleKey, byte[]>();
-					while (itSampleSet.hasNext()) {
-						SampleKey sampleKey = SampleKey.valueOf(itSampleSet.next());
-						mappedGenotypes.put(sampleKey, NetCDFConstants.Defaults.DEFAULT_GT);
-					}
-
-					alleles = itMarkerSet.next(); // key = markerId, values{allele1 (minor), allele2 (major)}
-
-					// READ ALL SAMPLE GTs FOR CURRENT SNP
-					int check = bedIS.read(rowBytes, 0, bytesPerSNP);
-					int bitsPerRow = 1;
-					itSampleSet = sampleInfos2.iterator();
-					for (int j = 0; j < bytesPerSNP; j++) { // ITERATE THROUGH ROWS (READING BYTES PER ROW)
-						byteData = rowBytes[j];
-						for (int i = 0; i < 8; i = i + 2) { // FOR EACH BYTE IN ROW, EAT 2 BITS AT A TIME
-							if (bitsPerRow <= (sampleNb * 2)) { // SKIP EXCESS BITS
-								allele1 = getBit(byteData, i);
-								allele2 = getBit(byteData, i + 1);
-								SampleKey sampleKey = SampleKey.valueOf(itSampleSet.next());
-								if (!allele1 && !allele2) { // 00 Homozygote "1"/"1" - Minor allele
-									mappedGenotypes.put(sampleKey, new byte[] {
-											(byte) alleles[0].charAt(0),
-											(byte) alleles[0].charAt(0)});
-								} else if (allele1 && allele2) { // 11 Homozygote "2"/"2" - Major allele
-									mappedGenotypes.put(sampleKey, new byte[] {
-											(byte) alleles[1].charAt(0),
-											(byte) alleles[1].charAt(0)});
-								} else if (!allele1 && allele2) { // 01 Heterozygote
-									mappedGenotypes.put(sampleKey, new byte[] {
-											(byte) alleles[0].charAt(0),
-											(byte) alleles[1].charAt(0)});
-								} else if (allele1 && !allele2) { // 10 Missing genotype
-									mappedGenotypes.put(sampleKey, NetCDFConstants.Defaults.DEFAULT_GT);
-								}
-
-								bitsPerRow = bitsPerRow + 2;
-							}
-						}
-					}
+			while (rowCounter < markerNb) {
+				// READ A BLOCK OF SNPs AT ONCE
+				final int blockMarkers = Math.min(markersPerBlock, markerNb - rowCounter);
+				block.clear();
+				block.limit(blockMarkers * bytesPerSNP);
+				readFully(bedChannel, block);
+				final int readMarkers = block.position() / bytesPerSNP;
+
+				for (int bmi = 0; bmi < readMarkers; bmi++) {
+					final String[] alleles = itMarkerSet.next(); // key = markerId, values{allele1 (minor), allele2 (major)}
+					decodeMarker(getDecodingTable(decodingTables, alleles), block.array(), bmi * bytesPerSNP, markerGenotypes);
 
 					// WRITING GENOTYPE DATA INTO netCDF FILE
-//					if (guessedGTCode.equals(GenotypeEncoding.UNKNOWN)
-//							|| guessedGTCode.equals(GenotypeEncoding.O12))
-//					{
-//						guessedGTCode = Utils.detectGTEncoding(sampleSetMap); // FIXME ???
-//					}
-
-					samplesReceiver.addMarkerGTAlleles(rowCounter, new ArrayList<byte[]>(mappedGenotypes.values()));
-				} catch (EOFException ex) {
-					log.info("End of File", ex);
+					samplesReceiver.addMarkerGTAlleles(rowCounter, markerGenotypes);
+					rowCounter++;
+				}
+
+				if (readMarkers < blockMarkers) {
+					log.info("End of File after {} of {} markers", rowCounter, markerNb);
 					break;
 				}
-				rowCounter++;
 			}
-		} else {
-			log.warn("Binary PLINK file must be in SNP-major mode!");
-		}
-
-		bedIS.close();
-		bedFS.close();
-	}
-
-	private static int translateBitSet(byte b, int bit) {
-		int result;
-		boolean by = (b & (1 << bit)) != 0;
-		if (by) {
-			result = 1;
-		} else {
-			result = 0;
+		} finally {
+			bedChannel.close();
 		}
-		return result;
-	}
-
-	private static boolean getBit(byte b, int pos) {
-		boolean by = (b & (1 << pos)) != 0;
-		return by;
 	}
 }
@@ -19,16 +19,14 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.Annotation.Plink_Standard;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.SampleInfo;
@@ -70,73 +68,89 @@ public class LoadGTFromPlinkFlatFiles extends AbstractLoadGTFromFiles implements
 
 	@Override
 	protected void loadGenotypes(
-			GenotypesLoadDescription loadDescription,
+			final GenotypesLoadDescription loadDescription,
 			Map<SampleKey, SampleInfo> sampleInfos,
 			Map<MarkerKey, MarkerMetadata> markerInfos,
-			DataSetDestination samplesReceiver)
+			final DataSetDestination samplesReceiver)
 			throws IOException
 	{
 		File file = new File(loadDescription.getAnnotationFilePath());
-		FileReader inputFileReader = new FileReader(file);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
 
-		final List<SampleKey> sampleKeys = new ArrayList<SampleKey>(sampleInfos.keySet());
+		final Map<SampleKey, Integer> sampleIndices = SampleBlockGenotypesBuffer.createIndices(sampleInfos.keySet());
 		final int numMarkers = markerInfos.size();
+		final SharedGenotypes sharedGenotypes = new SharedGenotypes();
 
 		// GET ALLELES
-		String l;
-		while ((l = inputBufferReader.readLine()) != null) {
-			// PURGE WRITE MARKER SET
-			List<byte[]> markerAlleles = new ArrayList<byte[]>(numMarkers);
-
-			StringTokenizer st = new StringTokenizer(l, ImportConstants.Separators.separators_CommaSpaceTab_rgxp);
-
-			// skip to genotype data
-			String familyId = "";
-			String sampleId = "";
-			int i = 0;
-			while (i < Plink_Standard.ped_genotypes) {
-				if (i == Plink_Standard.ped_sampleId) {
-					sampleId = st.nextToken();
-				} else if (i == Plink_Standard.ped_familyId) {
-					familyId = st.nextToken();
-				} else {
-					st.nextToken();
-				}
-				i++;
-			}
+		// each line contains all the genotypes of a sample,
+		// so we parse them one by one
+		try {
+			new LineParsingPipeline<ParsedGenotypes>("PLINK import", 1).process(
+					inputBufferReader,
+					new LineParsingPipeline.LineParser<ParsedGenotypes>() {
+						@Override
+						public ParsedGenotypes parse(String line) {
+							return parseSampleLine(loadDescription.getStudyKey(), sampleIndices, numMarkers, line);
+						}
+					},
+					new LineParsingPipeline.ParsedLineConsumer<ParsedGenotypes>() {
+						@Override
+						public void consume(ParsedGenotypes parsed) throws IOException {
+
+							// WRITING GENOTYPE DATA INTO netCDF FILE
+							samplesReceiver.addSampleGTAlleles(
+									parsed.getSampleIndex(),
+									sharedGenotypes.toGenotypes(parsed.getAlleles()));
+						}
+					});
+		} finally {
+			inputBufferReader.close();
+		}
+	}
 
-			// Parse genotypes from this point on
-
-			// This would require to parse the line two times,
-			// and if things are in order,
-			// it should be the same like numMarkers.
-//			final int numAvailableMarkers = st.countTokens() / 2;
-			for (int mi = 0; mi < numMarkers; mi++) {
-				byte[] alleles = new byte[] {
-						(byte) (st.nextToken().charAt(0)),
-						(byte) (st.nextToken().charAt(0))};
-				markerAlleles.add(alleles);
-			}
-			// This would only possibly happen if we woudl allow an incompleete
-			// list of genotypes in the step above.
-//			if (markerAlleles.size() < numMarkers) {
-//				markerAlleles.addAll(Collections.nCopies(numMarkers - markerAlleles.size(), cNetCDF.Defaults.DEFAULT_GT));
-//			}
-
-//			GenotypeEncoding guessedGTCode = getGuessedGTCode();
-//			if (guessedGTCode.equals(cNetCDF.Defaults.GenotypeEncoding.UNKNOWN)
-//					|| guessedGTCode.equals(cNetCDF.Defaults.GenotypeEncoding.O12))
-//			{
-//				guessedGTCode = Utils.detectGTEncoding(allelesMap);
-//			}
-
-			// WRITING GENOTYPE DATA INTO netCDF FILE
-			int sampleIndex = sampleKeys.indexOf(new SampleKey(loadDescription.getStudyKey(), sampleId, familyId));
-			if (sampleIndex != -1) { // CHECK IF CURRENT SAMPLE IS KNOWN IN SAMPLEINFO FILE!!
-				samplesReceiver.addSampleGTAlleles(sampleIndex, markerAlleles);
+	/**
+	 * @return the parsed genotypes,
+	 *   or <code>null</code>, if the sample is not known in the sample-info
+	 */
+	private static ParsedGenotypes parseSampleLine(
+			final StudyKey studyKey,
+			final Map<SampleKey, Integer> sampleIndices,
+			final int numMarkers,
+			final String line)
+	{
+		StringTokenizer st = new StringTokenizer(line, ImportConstants.Separators.separators_CommaSpaceTab_rgxp);
+
+		// skip to genotype data
+		String familyId = "";
+		String sampleId = "";
+		int i = 0;
+		while (i < Plink_Standard.ped_genotypes) {
+			if (i == Plink_Standard.ped_sampleId) {
+				sampleId = st.nextToken();
+			} else if (i == Plink_Standard.ped_familyId) {
+				familyId = st.nextToken();
+			} else {
+				st.nextToken();
 			}
+			i++;
 		}
-		inputBufferReader.close();
+
+		final Integer sampleIndex = sampleIndices.get(new SampleKey(studyKey, sampleId, familyId));
+		if (sampleIndex == null) { // CHECK IF CURRENT SAMPLE IS KNOWN IN SAMPLEINFO FILE!!
+			return null;
+		}
+
+		// Parse genotypes from this point on
+
+		// This would require to parse the line two times,
+		// and if things are in order,
+		// it should be the same like numMarkers.
+//		final int numAvailableMarkers = st.countTokens() / 2;
+		final byte[] alleles = new byte[numMarkers * 2];
+		for (int ai = 0; ai < alleles.length; ai++) {
+			alleles[ai] = (byte) st.nextToken().charAt(0);
+		}
+
+		return new ParsedGenotypes(sampleIndex, -1, alleles);
 	}
 }
@@ -19,24 +19,20 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Map;
 import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
-import org.gwaspi.constants.NetCDFConstants.Defaults;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
-import org.gwaspi.model.MarkerMetadata;
-import org.gwaspi.model.SampleInfo;
 import org.gwaspi.model.SampleKey;
 import org.gwaspi.model.StudyKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LoadGTFromSequenomFiles extends AbstractLoadGTFromFiles implements GenotypesLoader {
+public class LoadGTFromSequenomFiles extends AbstractLoadGTFromFiles implements GenotypesLoader, SampleBlockLoader {
 
 	private final Logger log
 			= LoggerFactory.getLogger(LoadGTFromSequenomFiles.class);
@@ -78,92 +74,79 @@ public class LoadGTFromSequenomFiles extends AbstractLoadGTFromFiles implements
 	}
 
 	@Override
-	protected void loadGenotypes(
-			GenotypesLoadDescription loadDescription,
-			Map<SampleKey, SampleInfo> sampleInfos,
-			Map<MarkerKey, MarkerMetadata> markerInfos,
-			DataSetDestination samplesReceiver)
+	public void loadSampleBlock(
+			final StudyKey studyKey,
+			File file,
+			final SampleBlockGenotypesBuffer sampleBlock)
 			throws IOException
 	{
-		File[] gtFilesToImport = org.gwaspi.global.Utils.listFiles(loadDescription.getGtDirPath());
-//		File gtFileToImport = new File(gtDirPath);
-
-		// INIT AND PURGE SORTEDMARKERSET Map
-		int sampleIndex = 0;
-		for (SampleInfo sampleInfo : sampleInfos.values()) {
-			// PURGE MarkerIdMap on current sample
-			Map<MarkerKey, byte[]> alleles = AbstractLoadGTFromFiles.fillMap(markerInfos.keySet(), Defaults.DEFAULT_GT);
-
-			// PARSE ALL FILES FOR ANY DATA ON CURRENT SAMPLE
-			for (final File gtFileToImport : gtFilesToImport) {
-				//log.info("Input file: "+i);
-				loadIndividualFiles(
-						loadDescription.getStudyKey(),
-						gtFileToImport,
-						sampleInfo.getKey(),
-						alleles);
-			}
-
-//			GenotypeEncoding guessedGTCode = getGuessedGTCode();
-//			if (guessedGTCode.equals(cNetCDF.Defaults.GenotypeEncoding.UNKNOWN)
-//					|| guessedGTCode.equals(cNetCDF.Defaults.GenotypeEncoding.O12))
-//			{
-//				guessedGTCode = Utils.detectGTEncoding(alleles);
-//			}
-
-			// SAVING GENOTYPE DATA
-			try {
-				samplesReceiver.addSampleGTAlleles(sampleIndex, new ArrayList<byte[]>(alleles.values()));
-			} catch (IOException ex) {
-				log.error("Failed writing file", ex);
-			}
-
-			sampleIndex++;
+		BufferedReader inputBufferReader = InputFiles.openReader(file);
+
+		// GET ALLELES
+		try {
+			new LineParsingPipeline<ParsedGenotypes>("Sequenom import").process(
+					inputBufferReader,
+					new LineParsingPipeline.LineParser<ParsedGenotypes>() {
+						@Override
+						public ParsedGenotypes parse(String line) {
+							return parseLine(studyKey, sampleBlock, line);
+						}
+					},
+					new LineParsingPipeline.ParsedLineConsumer<ParsedGenotypes>() {
+						@Override
+						public void consume(ParsedGenotypes parsed) {
+
+							final byte[] alleles = parsed.getAlleles();
+							sampleBlock.put(parsed.getSampleIndex(), parsed.getMarkerIndex(), alleles[0], alleles[1]);
+						}
+					});
+		} finally {
+			inputBufferReader.close();
 		}
 	}
 
 	/**
-	 * @see AbstractLoadGTFromFiles#loadIndividualFiles
+	 * @return the parsed genotype, or <code>null</code>,
+	 *   if the line is a header line or the genotype is not part of the block
 	 */
-	public void loadIndividualFiles(
-			StudyKey studyKey,
-			File file,
-			SampleKey sampleKey,
-			Map<MarkerKey, byte[]> alleles)
-			throws IOException
+	private ParsedGenotypes parseLine(
+			final StudyKey studyKey,
+			final SampleBlockGenotypesBuffer sampleBlock,
+			final String l)
 	{
-		FileReader inputFileReader = new FileReader(file);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
+		if (l.contains("SAMPLE_ID")) { // SKIP ALL HEADER LINES
+			return null;
+		}
 
-		// GET ALLELES
-		String l;
-		while ((l = inputBufferReader.readLine()) != null) {
-			if (!l.contains("SAMPLE_ID")) { // SKIP ALL HEADER LINES
-				String[] cVals = l.split(ImportConstants.Separators.separators_Tab_rgxp);
-				String currSampleId = cVals[Standard.sampleId];
-				// NOTE The Sequenom format does not have a family-ID
-				SampleKey currSampleKey = new SampleKey(studyKey, currSampleId, SampleKey.FAMILY_ID_NONE);
-				if (currSampleKey.equals(sampleKey)) {
-					// ONLY PROCESS CURRENT SAMPLEID DATA
-					String markerId = cVals[Standard.markerId].trim();
-					try {
-						Long.parseLong(markerId);
-						markerId = "rs" + markerId;
-					} catch (Exception ex) {
-						log.warn(null, ex); // XXX maybe this is not a problem, but an OK thing?
-					}
-
-					String sAlleles = cVals[Standard.alleles];
-					if (sAlleles.length() == 0) {
-						sAlleles = "00";
-					} else if (sAlleles.length() == 1) {
-						sAlleles = sAlleles + sAlleles;
-					}
-					byte[] tmpAlleles = new byte[]{(byte) sAlleles.charAt(0), (byte) sAlleles.charAt(1)};
-					alleles.put(MarkerKey.valueOf(markerId), tmpAlleles);
-				}
-			}
+		String[] cVals = l.split(ImportConstants.Separators.separators_Tab_rgxp);
+		String currSampleId = cVals[Standard.sampleId];
+		// NOTE The Sequenom format does not have a family-ID
+		SampleKey currSampleKey = new SampleKey(studyKey, currSampleId, SampleKey.FAMILY_ID_NONE);
+		final int sampleIndex = sampleBlock.getBlockSampleIndex(currSampleKey);
+		if (sampleIndex == -1) {
+			// ONLY PROCESS DATA OF SAMPLES IN THE CURRENT BLOCK
+			return null;
+		}
+
+		String markerId = cVals[Standard.markerId].trim();
+		try {
+			Long.parseLong(markerId);
+			markerId = "rs" + markerId;
+		} catch (Exception ex) {
+			log.warn(null, ex); // XXX maybe this is not a problem, but an OK thing?
+		}
+		final int markerIndex = sampleBlock.getMarkerIndex(MarkerKey.valueOf(markerId));
+		if (markerIndex == -1) {
+			return null;
 		}
-		inputBufferReader.close();
+
+		String sAlleles = cVals[Standard.alleles];
+		if (sAlleles.length() == 0) {
+			sAlleles = "00";
+		} else if (sAlleles.length() == 1) {
+			sAlleles = sAlleles + sAlleles;
+		}
+
+		return new ParsedGenotypes(sampleIndex, markerIndex, new byte[] {(byte) sAlleles.charAt(0), (byte) sAlleles.charAt(1)});
 	}
 }
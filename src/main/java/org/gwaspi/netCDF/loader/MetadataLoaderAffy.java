@@ -18,7 +18,6 @@
 package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
 import java.util.SortedMap;
@@ -27,6 +26,7 @@ import org.gwaspi.constants.ImportConstants.Annotation.Affymetrix_GenomeWide6;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.StudyKey;
 import org.slf4j.Logger;
@@ -96,8 +96,7 @@ public class MetadataLoaderAffy implements MetadataLoader {
 	}
 
 	private SortedMap<String, String> parseAnnotationBRFile(String annotationPath) throws IOException {
-		FileReader fr = new FileReader(annotationPath);
-		BufferedReader inputAnnotationBr = new BufferedReader(fr);
+		BufferedReader inputAnnotationBr = InputFiles.openReader(annotationPath);
 		SortedMap<String, String> sortedMetadataTM = new TreeMap<String, String>(new ComparatorChrAutPosMarkerIdAsc());
 
 		String header = "";
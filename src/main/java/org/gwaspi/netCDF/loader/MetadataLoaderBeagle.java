@@ -18,7 +18,6 @@
 package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
 import java.util.SortedMap;
@@ -27,6 +26,7 @@ import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.Annotation.Beagle_Standard;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.StudyKey;
 import org.slf4j.Logger;
@@ -87,8 +87,7 @@ public class MetadataLoaderBeagle implements MetadataLoader {
 	}
 
 	private SortedMap<String, String> parseAndSortMarkerFile(String markerFilePath, String chr) throws IOException {
-		FileReader fr = new FileReader(markerFilePath);
-		BufferedReader inputMapBR = new BufferedReader(fr);
+		BufferedReader inputMapBR = InputFiles.openReader(markerFilePath);
 		SortedMap<String, String> sortedMetadataTM = new TreeMap<String, String>(new ComparatorChrAutPosMarkerIdAsc());
 
 		String l;
@@ -19,7 +19,6 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
 import java.util.SortedMap;
@@ -29,6 +28,7 @@ import org.gwaspi.constants.ImportConstants.Annotation.HapmapGT_Standard;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.StudyKey;
 import org.slf4j.Logger;
@@ -96,8 +96,7 @@ public class MetadataLoaderHapmap implements MetadataLoader {
 
 	private SortedMap<String, String> parseAnnotationBRFile(String hapmapPath) throws IOException {
 
-		FileReader fr = new FileReader(hapmapPath);
-		BufferedReader inputAnnotationBr = new BufferedReader(fr);
+		BufferedReader inputAnnotationBr = InputFiles.openReader(hapmapPath);
 		SortedMap<String, String> sortedMetadataTM = new TreeMap<String, String>(new ComparatorChrAutPosMarkerIdAsc());
 
 		String header = inputAnnotationBr.readLine();
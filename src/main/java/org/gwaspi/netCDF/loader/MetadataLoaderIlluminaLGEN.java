@@ -18,7 +18,6 @@
 package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Map;
 import java.util.SortedMap;
@@ -27,6 +26,7 @@ import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.Annotation.Plink_LGEN;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.StudyKey;
 import org.slf4j.Logger;
@@ -88,8 +88,7 @@ public class MetadataLoaderIlluminaLGEN implements MetadataLoader {
 
 	private SortedMap<String, String> parseAndSortMapFile(String mapPath) throws IOException {
 
-		FileReader fr = new FileReader(mapPath);
-		BufferedReader inputMapBR = new BufferedReader(fr);
+		BufferedReader inputMapBR = InputFiles.openReader(mapPath);
 		SortedMap<String, String> sortedMetadataTM = new TreeMap<String, String>(new ComparatorChrAutPosMarkerIdAsc());
 
 		String header;
@@ -18,7 +18,6 @@
 package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -28,6 +27,7 @@ import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.Annotation.Plink_Standard;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.StudyKey;
@@ -111,8 +111,7 @@ public class MetadataLoaderPlink implements MetadataLoader {
 
 	private SortedMap<String, String> parseAndSortMapFile(String mapPath) throws IOException {
 
-		FileReader fr = new FileReader(mapPath);
-		BufferedReader inputMapBR = new BufferedReader(fr);
+		BufferedReader inputMapBR = InputFiles.openReader(mapPath);
 		SortedMap<String, String> sortedMetadataTM = new TreeMap<String, String>(new ComparatorChrAutPosMarkerIdAsc());
 
 		String l;
@@ -156,8 +155,7 @@ public class MetadataLoaderPlink implements MetadataLoader {
 	}
 
 	public static Map<MarkerKey, byte[]> parseOrigMapFile(String path) throws IOException {
-		FileReader fr = new FileReader(path);
-		BufferedReader inputMapBR = new BufferedReader(fr);
+		BufferedReader inputMapBR = InputFiles.openReader(path);
 		Map<MarkerKey, byte[]> origMarkerIdSetMap = new LinkedHashMap<MarkerKey, byte[]>();
 
 		String l;
@@ -18,7 +18,6 @@
 package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -28,6 +27,7 @@ import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.Annotation.Plink_Binary;
 import org.gwaspi.constants.NetCDFConstants;
 import org.gwaspi.constants.NetCDFConstants.Defaults.StrandType;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.StudyKey;
@@ -94,8 +94,7 @@ public class MetadataLoaderPlinkBinary implements MetadataLoader {
 
 	private SortedMap<String, String> parseAndSortBimFile(String bimPath) throws IOException {
 
-		FileReader fr = new FileReader(bimPath);
-		BufferedReader inputMapBR = new BufferedReader(fr);
+		BufferedReader inputMapBR = InputFiles.openReader(bimPath);
 		SortedMap<String, String> sortedMetadataTM = new TreeMap<String, String>(new ComparatorChrAutPosMarkerIdAsc());
 
 		String l;
@@ -142,8 +141,7 @@ public class MetadataLoaderPlinkBinary implements MetadataLoader {
 
 	public static Map<MarkerKey, String[]> parseOrigBimFile(String path, StudyKey studyKey) throws IOException {
 
-		FileReader fr = new FileReader(path);
-		BufferedReader inputMapBR = new BufferedReader(fr);
+		BufferedReader inputMapBR = InputFiles.openReader(path);
 		Map<MarkerKey, String[]> origMarkerIdSetMap = new LinkedHashMap<MarkerKey, String[]>();
 
 		String l;
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+/**
+ * The genotypes parsed from a single line of a genotypes text file,
+ * stored as primitive alleles, two per genotype.
+ * Depending on the format, a line contains a single genotype,
+ * the genotypes of one sample over many markers,
+ * or those of one marker over many samples.
+ * @see LineParsingPipeline
+ */
+class ParsedGenotypes {
+
+	private final int sampleIndex;
+	private final int markerIndex;
+	private final byte[] alleles;
+
+	/**
+	 * @param sampleIndex the index of the sample in the matrix,
+	 *   or <code>-1</code>, if the line contains many samples
+	 * @param markerIndex the index of the marker in the matrix,
+	 *   or <code>-1</code>, if the line contains many markers
+	 * @param alleles two alleles per genotype, father first
+	 */
+	ParsedGenotypes(final int sampleIndex, final int markerIndex, final byte[] alleles) {
+
+		this.sampleIndex = sampleIndex;
+		this.markerIndex = markerIndex;
+		this.alleles = alleles;
+	}
+
+	public int getSampleIndex() {
+		return sampleIndex;
+	}
+
+	public int getMarkerIndex() {
+		return markerIndex;
+	}
+
+	public byte[] getAlleles() {
+		return alleles;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.model.SampleKey;
+
+/**
+ * Collects the genotypes of a block of consecutive samples,
+ * while they are read in arbitrary order from genotype files,
+ * each containing many samples and markers.
+ * This allows to read each file only once per block of samples,
+ * instead of once per sample.
+ * Genotypes of samples outside the block, or of unknown markers,
+ * are ignored, and genotypes not received stay missing.
+ * This class is not thread-safe.
+ */
+public class SampleBlockGenotypesBuffer {
+
+	/** Each genotype takes two bytes, one per allele. */
+	private static final int BYTES_PER_GENOTYPE = 2;
+
+	private final Map<SampleKey, Integer> sampleIndices;
+	private final Map<MarkerKey, Integer> markerIndices;
+	private final int fromSampleIndex;
+	private final int toSampleIndex;
+	/** (sample index - fromSampleIndex) -> 2 bytes per marker */
+	private final byte[][] blockAlleles;
+	private final SharedGenotypes sharedGenotypes;
+
+	/**
+	 * @param sampleIndices sample key -> index of the sample in the matrix,
+	 *   as created by {@link #createIndices(Collection)}
+	 * @param markerIndices marker key -> index of the marker in the matrix,
+	 *   as created by {@link #createIndices(Collection)}
+	 * @param fromSampleIndex first sample of the block
+	 * @param toSampleIndex one past the last sample of the block
+	 */
+	SampleBlockGenotypesBuffer(
+			final Map<SampleKey, Integer> sampleIndices,
+			final Map<MarkerKey, Integer> markerIndices,
+			final int fromSampleIndex,
+			final int toSampleIndex)
+	{
+		this.sampleIndices = sampleIndices;
+		this.markerIndices = markerIndices;
+		this.fromSampleIndex = fromSampleIndex;
+		this.toSampleIndex = toSampleIndex;
+		this.blockAlleles = new byte[toSampleIndex - fromSampleIndex][];
+		for (int bsi = 0; bsi < blockAlleles.length; bsi++) {
+			// all genotypes are missing, until received
+			final byte[] sampleAlleles = new byte[markerIndices.size() * BYTES_PER_GENOTYPE];
+			Arrays.fill(sampleAlleles, NetCDFConstants.Defaults.AlleleByte._0_VALUE);
+			blockAlleles[bsi] = sampleAlleles;
+		}
+		this.sharedGenotypes = new SharedGenotypes();
+	}
+
+	/**
+	 * Creates a key to index map, which retains the order of the keys.
+	 */
+	static <K> Map<K, Integer> createIndices(final Collection<K> keys) {
+
+		final Map<K, Integer> indices = new HashMap<K, Integer>(keys.size() * 4 / 3 + 1);
+		int index = 0;
+		for (final K key : keys) {
+			indices.put(key, index++);
+		}
+
+		return indices;
+	}
+
+	/**
+	 * Calculates how many samples fit into a single block.
+	 * @param numMarkers number of markers of each sample
+	 * @param maxBytes how much memory all the samples of a block may use
+	 */
+	static int calculateMaxBlockSamples(final int numMarkers, final long maxBytes) {
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+				maxBytes / Math.max(1L, (long) numMarkers * BYTES_PER_GENOTYPE)));
+	}
+
+	public int getFromSampleIndex() {
+		return fromSampleIndex;
+	}
+
+	public int getToSampleIndex() {
+		return toSampleIndex;
+	}
+
+	/**
+	 * @return the index of the sample in the matrix,
+	 *   if it is contained in this block, or else <code>-1</code>
+	 */
+	public int getBlockSampleIndex(final SampleKey sampleKey) {
+
+		final Integer sampleIndex = sampleIndices.get(sampleKey);
+		if ((sampleIndex == null)
+				|| (sampleIndex < fromSampleIndex)
+				|| (sampleIndex >= toSampleIndex))
+		{
+			return -1;
+		}
+
+		return sampleIndex;
+	}
+
+	/**
+	 * @return the index of the marker in the matrix,
+	 *   or <code>-1</code>, if it is unknown
+	 */
+	public int getMarkerIndex(final MarkerKey markerKey) {
+
+		final Integer markerIndex = markerIndices.get(markerKey);
+		return (markerIndex == null) ? -1 : markerIndex;
+	}
+
+	/**
+	 * Stores a single genotype.
+	 * @param sampleIndex as returned by {@link #getBlockSampleIndex(SampleKey)};
+	 *   has to be within this block
+	 * @param markerIndex as returned by {@link #getMarkerIndex(MarkerKey)}
+	 */
+	public void put(final int sampleIndex, final int markerIndex, final byte fatherAllele, final byte motherAllele) {
+
+		final byte[] sampleAlleles = blockAlleles[sampleIndex - fromSampleIndex];
+		final int pos = markerIndex * BYTES_PER_GENOTYPE;
+		sampleAlleles[pos] = fatherAllele;
+		sampleAlleles[pos + 1] = motherAllele;
+	}
+
+	/**
+	 * Stores a single genotype, if it belongs to this block
+	 * and to a known marker.
+	 */
+	public void put(final SampleKey sampleKey, final MarkerKey markerKey, final byte fatherAllele, final byte motherAllele) {
+
+		final int sampleIndex = getBlockSampleIndex(sampleKey);
+		if (sampleIndex == -1) {
+			return;
+		}
+		final int markerIndex = getMarkerIndex(markerKey);
+		if (markerIndex == -1) {
+			return;
+		}
+		put(sampleIndex, markerIndex, fatherAllele, motherAllele);
+	}
+
+	/**
+	 * Returns the genotypes of a single sample of this block.
+	 * Equal genotypes share the same instance,
+	 * which therefore must not be modified.
+	 */
+	List<byte[]> getSampleAlleles(final int sampleIndex) {
+
+		return sharedGenotypes.toGenotypes(blockAlleles[sampleIndex - fromSampleIndex]);
+	}
+
+	/**
+	 * Writes the genotypes of all the samples of this block,
+	 * sample by sample.
+	 */
+	void write(final DataSetDestination samplesReceiver) throws IOException {
+
+		for (int sampleIndex = fromSampleIndex; sampleIndex < toSampleIndex; sampleIndex++) {
+			samplesReceiver.addSampleGTAlleles(sampleIndex, getSampleAlleles(sampleIndex));
+			// free the memory as soon as possible
+			blockAlleles[sampleIndex - fromSampleIndex] = null;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.io.File;
+import java.io.IOException;
+import org.gwaspi.model.StudyKey;
+
+/**
+ * Loads the genotypes of a whole block of samples from a single file,
+ * which allows to read each genotype file only once per block,
+ * instead of once per sample.
+ * Loaders extending {@link AbstractLoadGTFromFiles} that implement this,
+ * are used in single-pass mode.
+ */
+interface SampleBlockLoader {
+
+	/**
+	 * Loads the alleles of all the samples of a block
+	 * from a single file.
+	 * @param studyKey the samples are going to be stored in this study
+	 * @param file to load the samples from
+	 * @param sampleBlock receives the alleles
+	 * @throws IOException
+	 */
+	void loadSampleBlock(
+			StudyKey studyKey,
+			File file,
+			SampleBlockGenotypesBuffer sampleBlock)
+			throws IOException;
+}
@@ -19,11 +19,11 @@ package org.gwaspi.netCDF.loader;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Collection;
 import org.gwaspi.constants.ImportConstants;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.global.Text;
 import org.gwaspi.model.SampleInfo;
 import org.gwaspi.model.StudyKey;
@@ -57,8 +57,7 @@ public class SampleInfoCollectorSwitch {
 	private static boolean checkIsPlinkFAMFile(String sampleInfoPath)
 			throws IOException
 	{
-		FileReader inputFileReader = new FileReader(new File(sampleInfoPath));
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
+		BufferedReader inputBufferReader = InputFiles.openReader(new File(sampleInfoPath));
 		String header = inputBufferReader.readLine();
 		inputBufferReader.close();
 		String[] cVals = header.split(ImportConstants.Separators.separators_CommaSpaceTab_rgxp);
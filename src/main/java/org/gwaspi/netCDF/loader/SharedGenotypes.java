@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Provides shared instances of genotypes,
+ * so the few different genotypes that occur millions of times
+ * are only allocated once.
+ * The returned genotypes therefore must not be modified.
+ * This class is not thread-safe.
+ */
+class SharedGenotypes {
+
+	private final byte[][] genotypes;
+
+	SharedGenotypes() {
+		// one slot for each possible pair of alleles, filled lazily
+		this.genotypes = new byte[1 << (Byte.SIZE * 2)][];
+	}
+
+	byte[] get(final byte fatherAllele, final byte motherAllele) {
+
+		final int genotypeIndex = ((fatherAllele & 0xFF) << Byte.SIZE) | (motherAllele & 0xFF);
+		byte[] genotype = genotypes[genotypeIndex];
+		if (genotype == null) {
+			genotype = new byte[] {fatherAllele, motherAllele};
+			genotypes[genotypeIndex] = genotype;
+		}
+
+		return genotype;
+	}
+
+	/**
+	 * @param alleles 2 alleles per genotype, father first
+	 * @return one shared genotype instance per pair of alleles
+	 */
+	List<byte[]> toGenotypes(final byte[] alleles) {
+
+		final List<byte[]> genotypesList = new ArrayList<byte[]>(alleles.length / 2);
+		for (int pos = 0; pos < alleles.length; pos += 2) {
+			genotypesList.add(get(alleles[pos], alleles[pos + 1]));
+		}
+
+		return genotypesList;
+	}
+}
@@ -21,8 +21,11 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.Map;
 import org.gwaspi.datasource.inmemory.MatrixInMemoryDataSetSource;
+import org.gwaspi.datasource.packed.PackedDataSetSource;
 import org.gwaspi.model.DataSetSource;
+import org.gwaspi.model.MatricesList;
 import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.MatrixMetadata;
 import org.gwaspi.datasource.netcdf.NetCDFDataSetSource;
 import org.gwaspi.model.DataSet;
 import org.gwaspi.model.DataSetKey;
@@ -30,6 +33,7 @@ import org.gwaspi.netCDF.loader.DataSetDestination;
 import org.gwaspi.netCDF.loader.InMemorySamplesReceiver;
 import org.gwaspi.operations.AbstractDefaultTypesOperationFactory;
 import org.gwaspi.operations.MatrixCreatingNetCDFDataSetDestination;
+import org.gwaspi.operations.MatrixCreatingPackedDataSetDestination;
 import org.gwaspi.operations.MatrixCreatingOperationParams;
 import org.gwaspi.operations.MatrixMetadataFactory;
 import org.gwaspi.operations.OperationFactory;
@@ -98,6 +102,8 @@ public class MatrixFactory {
 			return new MatrixCreatingNetCDFDataSetDestination<PT>(params, metadataFactory);
 		} else if (storageType.equals(AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_MEMORY)) {
 			return new InMemorySamplesReceiver<PT>(params, metadataFactory); // TODO somehow give it the params nad metadataFactory too?
+		} else if (storageType.equals(AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_PACKED)) {
+			return new MatrixCreatingPackedDataSetDestination<PT>(params, metadataFactory);
 		} else {
 			throw new IllegalArgumentException("Storage type not suported: " + storageType);
 		}
@@ -114,8 +120,17 @@ public class MatrixFactory {
 					properties,
 					OperationFactory.PROPERTY_NAME_TYPE,
 					AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_NETCDF);
-			if (storageType.equals(AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_NETCDF)) {
-				return new NetCDFDataSetSource(matrixKey);
+			if (storageType.equals(AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_NETCDF)
+					|| storageType.equals(AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_PACKED))
+			{
+				// Whether the genotypes are packed is a property of each matrix,
+				// not of the current settings.
+				final MatrixMetadata matrixMetadata = MatricesList.getMatrixService().getMatrix(matrixKey);
+				if (PackedDataSetSource.isPacked(matrixMetadata)) {
+					return new PackedDataSetSource(matrixKey);
+				} else {
+					return new NetCDFDataSetSource(matrixKey);
+				}
 			} else if (storageType.equals(AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_MEMORY)) {
 				return new MatrixInMemoryDataSetSource(matrixKey);
 			} else {
@@ -29,6 +29,13 @@ public abstract class AbstractDefaultTypesOperationFactory<D extends OperationDa
 
 	public static final String PROPERTY_VALUE_TYPE_NETCDF = "netcdf";
 	public static final String PROPERTY_VALUE_TYPE_MEMORY = "memory";
+	/**
+	 * Like {@link #PROPERTY_VALUE_TYPE_NETCDF}, but matrices store their genotypes
+	 * in a separate, 2-bit packed file.
+	 * As operations do not store genotypes,
+	 * they are stored in NetCDF files in this case.
+	 */
+	public static final String PROPERTY_VALUE_TYPE_PACKED = "packed";
 
 	private final OperationKeyListener operationKeyRegisterer;
 	private final Map<OperationKey, D> operationKeyToDataSet;
@@ -55,7 +62,7 @@ public abstract class AbstractDefaultTypesOperationFactory<D extends OperationDa
 	public final D generateReadOperationDataSet(OperationKey operationKey, DataSetKey parent, Map<String, Object> properties) throws IOException {
 
 		final Object type = properties.get(OperationFactory.PROPERTY_NAME_TYPE);
-		if ((type == null) || type.equals(PROPERTY_VALUE_TYPE_NETCDF)) {
+		if ((type == null) || type.equals(PROPERTY_VALUE_TYPE_NETCDF) || type.equals(PROPERTY_VALUE_TYPE_PACKED)) {
 			return generateReadOperationDataSetNetCdf(operationKey, parent, properties);
 		} else if (type.equals(PROPERTY_VALUE_TYPE_MEMORY)) {
 			return generateReadOperationDataSetMemory(operationKey, parent, properties);
@@ -91,7 +98,7 @@ public abstract class AbstractDefaultTypesOperationFactory<D extends OperationDa
 	public final D generateWriteOperationDataSet(DataSetKey parent, Map<String, Object> properties) throws IOException {
 
 		final Object type = properties.get(OperationFactory.PROPERTY_NAME_TYPE);
-		if ((type == null) || type.equals(PROPERTY_VALUE_TYPE_NETCDF)) {
+		if ((type == null) || type.equals(PROPERTY_VALUE_TYPE_NETCDF) || type.equals(PROPERTY_VALUE_TYPE_PACKED)) {
 			return generateWriteOperationDataSetNetCdf(parent, properties);
 		} else if (type.equals(PROPERTY_VALUE_TYPE_MEMORY)) {
 			return generateWriteOperationDataSetMemory(parent, properties);
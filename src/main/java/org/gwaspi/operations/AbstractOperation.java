@@ -17,22 +17,36 @@
 
 package org.gwaspi.operations;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import org.gwaspi.model.DataSetSource;
 import org.gwaspi.netCDF.loader.DataSetDestination;
 import org.gwaspi.progress.ProcessInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Base class for operations.
+ * {@link #close()} has to be called once the operation finished,
+ * which {@link OperationManager#performOperation(MatrixOperation)} does.
+ */
 public abstract class AbstractOperation<P extends OperationParams, R>
-		implements MatrixOperation<P, R>
+		implements MatrixOperation<P, R>, Closeable
 {
+	private static final Logger log
+			= LoggerFactory.getLogger(AbstractOperation.class);
+
 	private final List<OperationListener> operationListeners;
 	private final DataSetDestination dataSetDestination;
+	private final List<Closeable> openedDataSetSources;
 
 	public AbstractOperation(DataSetDestination dataSetDestination) {
 
 		this.operationListeners = new ArrayList<OperationListener>();
 		this.dataSetDestination = dataSetDestination;
+		this.openedDataSetSources = new ArrayList<Closeable>();
 	}
 
 	public AbstractOperation() {
@@ -76,4 +90,42 @@ public abstract class AbstractOperation<P extends OperationParams, R>
 	public DataSetDestination getDataSetDestination() {
 		return dataSetDestination;
 	}
+
+	/**
+	 * Registers a data-set source opened by this operation,
+	 * so it gets closed by {@link #close()}.
+	 * @return the given source
+	 */
+	protected DataSetSource closeWhenFinished(final DataSetSource dataSetSource) {
+
+		if (dataSetSource instanceof Closeable) {
+			synchronized (openedDataSetSources) {
+				openedDataSetSources.add((Closeable) dataSetSource);
+			}
+		}
+
+		return dataSetSource;
+	}
+
+	/**
+	 * Closes all the data-set sources opened by this operation.
+	 * @see #closeWhenFinished(DataSetSource)
+	 */
+	@Override
+	public void close() {
+
+		final List<Closeable> toClose;
+		synchronized (openedDataSetSources) {
+			toClose = new ArrayList<Closeable>(openedDataSetSources);
+			openedDataSetSources.clear();
+		}
+
+		for (final Closeable dataSetSource : toClose) {
+			try {
+				dataSetSource.close();
+			} catch (IOException ex) {
+				log.warn("Failed to close a data-set source", ex);
+			}
+		}
+	}
 }
@@ -26,9 +26,9 @@ import org.gwaspi.model.MatrixKey;
 import org.gwaspi.model.MatrixMetadata;
 import org.gwaspi.model.OperationKey;
 import org.gwaspi.netCDF.matrices.MatrixFactory;
-import org.gwaspi.progress.IntegerProgressHandler;
 import org.gwaspi.progress.ProgressHandler;
 import org.gwaspi.progress.ProgressSource;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
 
 public abstract class AbstractOperationCreatingOperation<D extends OperationDataSet,
 		P extends OperationParams>
@@ -93,7 +93,7 @@ public abstract class AbstractOperationCreatingOperation<D extends OperationData
 		if (operationPH == null) {
 			final int numItems = getNumItems();
 
-			operationPH =  new IntegerProgressHandler(
+			operationPH =  new SampledIntegerProgressHandler(
 					getProcessInfo(),
 					0, // start state, first marker/sample
 					numItems - 1); // end state, last marker/sample
@@ -120,7 +120,7 @@ public abstract class AbstractOperationCreatingOperation<D extends OperationData
 
 		final DataSetSource parentDataSetSource;
 		if (parent.isMatrix()) {
-			parentDataSetSource = MatrixFactory.generateMatrixDataSetSource(parent.getMatrixParent());
+			parentDataSetSource = closeWhenFinished(MatrixFactory.generateMatrixDataSetSource(parent.getMatrixParent()));
 		} else {
 			parentDataSetSource = OperationManager.generateOperationDataSet(parent.getOperationParent());
 		}
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.gwaspi.global.ParallelRanges;
 import org.gwaspi.global.Text;
 import org.gwaspi.model.Census;
 import org.gwaspi.model.DataSetSource;
@@ -37,12 +38,13 @@ import org.gwaspi.operations.hardyweinberg.HardyWeinbergOperationEntry.Category;
 import org.gwaspi.operations.markercensus.MarkerCensusOperationDataSet;
 import org.gwaspi.operations.trendtest.CommonTestOperationDataSet;
 import org.gwaspi.operations.trendtest.TrendTestOperationParams;
-import org.gwaspi.progress.IntegerProgressHandler;
 import org.gwaspi.progress.ProcessStatus;
 import org.gwaspi.progress.ProgressHandler;
 import org.gwaspi.progress.ProgressSource;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
 import org.gwaspi.progress.SubProcessInfo;
 import org.gwaspi.progress.SuperProgressSource;
+import org.gwaspi.statistics.GenotypeCounts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +55,11 @@ public abstract class AbstractTestMatrixOperation<D extends CommonTestOperationD
 	private final Logger log
 			= LoggerFactory.getLogger(AbstractTestMatrixOperation.class);
 
+	/** Number of markers whose counts and results are held in memory at once. */
+	private static final int TEST_BLOCK_MARKERS = 1 << 16;
+	/** Number of markers tested by a single task. */
+	private static final int TEST_RANGE_MARKERS = 1 << 12;
+
 	private ProgressHandler filterPH;
 	private ProgressHandler testPH;
 	private ProgressHandler customProgressHandler;
@@ -70,10 +77,10 @@ public abstract class AbstractTestMatrixOperation<D extends CommonTestOperationD
 
 		if (customProgressHandler == null) {
 			final int numItems = getNumItems();
-			filterPH = new IntegerProgressHandler(
+			filterPH = new SampledIntegerProgressHandler(
 					new SubProcessInfo(getProcessInfo(), getParams().getName() + " filtering", null),
 					0, numItems - 1);
-			testPH = new IntegerProgressHandler(
+			testPH = new SampledIntegerProgressHandler(
 					new SubProcessInfo(getProcessInfo(), getParams().getName() + " testing", null),
 					0, numItems - 1);
 
@@ -114,7 +121,7 @@ public abstract class AbstractTestMatrixOperation<D extends CommonTestOperationD
 		progressHandler.setNewStatus(ProcessStatus.INITIALIZING);
 
 		final DataSetSource inputDataSet
-				= MatrixFactory.generateDataSetSource(getParams().getParent());
+				= closeWhenFinished(MatrixFactory.generateDataSetSource(getParams().getParent()));
 
 		// CHECK IF THERE IS ANY DATA LEFT TO PROCESS AFTER PICKING
 		if (!MatrixFactory.isDataLeft(inputDataSet)) {
@@ -231,14 +238,92 @@ public abstract class AbstractTestMatrixOperation<D extends CommonTestOperationD
 		return (excludeMarkerSetMap.size() < totalMarkerNb);
 	}
 
+	/**
+	 * Number of results (statistics) calculated per marker.
+	 */
+	protected abstract int getNumTestResults();
+
+	/**
+	 * Calculates the test results for the markers <code>[from, to)</code>
+	 * of a block.
+	 * This is called concurrently for disjoint ranges of the same block.
+	 * @param counts the genotype counts of the whole block
+	 * @param results one array per result (see {@link #getNumTestResults()}),
+	 *   which receives the values at the markers indices within the block
+	 */
+	protected abstract void calculateTests(GenotypeCounts counts, int from, int to, double[][] results);
+
+	/**
+	 * Stores the results of a single marker.
+	 * This is called for one marker after the other, in their original order.
+	 * @param index the index of the marker within the block
+	 */
+	protected abstract void addTestEntry(
+			OperationDataSet dataSet,
+			Integer markerOrigIndex,
+			MarkerKey markerKey,
+			double[][] results,
+			int index)
+			throws IOException;
+
 	/**
 	 * Performs the actual Test.
+	 * The census of a block of markers is copied into column arrays,
+	 * the tests are calculated on them concurrently,
+	 * and the results are then stored in the original marker order.
 	 */
-	protected abstract void performTest(
+	protected void performTest(
 			OperationDataSet dataSet,
 			Map<Integer, MarkerKey> markerOrigIndicesKeys,
 			List<Census> caseMarkersCensus,
 			List<Census> ctrlMarkersCensus,
 			ProgressHandler rawTestPH)
-			throws IOException;
+			throws IOException
+	{
+		rawTestPH.setNewStatus(ProcessStatus.INITIALIZING);
+		final int blockMarkers = Math.max(1, Math.min(TEST_BLOCK_MARKERS, markerOrigIndicesKeys.size()));
+		final GenotypeCounts counts = new GenotypeCounts(blockMarkers);
+		final double[][] results = new double[getNumTestResults()][blockMarkers];
+		final ParallelRanges parallelRanges = new ParallelRanges(getParams().getName(), TEST_RANGE_MARKERS);
+		final ParallelRanges.RangeProcessor testsCalculator = new ParallelRanges.RangeProcessor() {
+			@Override
+			public void process(int from, int to) {
+				calculateTests(counts, from, to, results);
+			}
+		};
+
+		final Iterator<Map.Entry<Integer, MarkerKey>> markersIt = markerOrigIndicesKeys.entrySet().iterator();
+		final Iterator<Census> caseMarkerCensusIt = caseMarkersCensus.iterator();
+		final Iterator<Census> ctrlMarkersCensusIt = ctrlMarkersCensus.iterator();
+		int localMarkerIndex = 0;
+		rawTestPH.setNewStatus(ProcessStatus.RUNNING);
+		try {
+			while (caseMarkerCensusIt.hasNext()) {
+				counts.clear();
+				while (!counts.isFull() && caseMarkerCensusIt.hasNext()) {
+					final Census caseCensus = caseMarkerCensusIt.next();
+					final Census ctrlCensus = ctrlMarkersCensusIt.next();
+					counts.add(
+							caseCensus.getAA(),
+							caseCensus.getAa(),
+							caseCensus.getaa(),
+							ctrlCensus.getAA(),
+							ctrlCensus.getAa(),
+							ctrlCensus.getaa());
+				}
+
+				parallelRanges.process(counts.size(), testsCalculator);
+
+				for (int bmi = 0; bmi < counts.size(); bmi++) {
+					final Map.Entry<Integer, MarkerKey> markerOrigIndexKey = markersIt.next();
+					addTestEntry(dataSet, markerOrigIndexKey.getKey(), markerOrigIndexKey.getValue(), results, bmi);
+					rawTestPH.setProgress(localMarkerIndex);
+					localMarkerIndex++;
+				}
+			}
+		} finally {
+			parallelRanges.close();
+		}
+		rawTestPH.setNewStatus(ProcessStatus.COMPLEETED);
+	}
 }
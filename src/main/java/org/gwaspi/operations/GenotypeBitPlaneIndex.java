@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.gwaspi.model.DataSetSource;
+import org.gwaspi.model.GenotypeBitPlanes;
+import org.gwaspi.model.SampleInfo.Affection;
+import org.gwaspi.model.SampleInfo.Sex;
+import org.gwaspi.model.SamplesInfosSource;
+
+/**
+ * Holds the genotypes of many markers as bit-planes,
+ * together with the sample group masks,
+ * so the genotypes of any sample group may be counted repeatedly,
+ * without re-reading or re-decoding the genotypes.
+ * Only the planes of genotypes that occur are stored,
+ * so the memory use is about <code>#markers * #genotypes-per-marker * #samples / 8</code> bytes.
+ * Once built, instances are thread-safe.
+ */
+public class GenotypeBitPlaneIndex {
+
+	private final SampleGroupMasks sampleGroupMasks;
+	private final List<String> chromosomes;
+	private final List<GenotypeBitPlanes> markersPlanes;
+
+	/**
+	 * Builds the index from the given markers.
+	 * @param sampleGroupMasks masks covering the same samples as the markers genotypes
+	 * @param markers the markers to index, each one with #samples genotypes
+	 */
+	public GenotypeBitPlaneIndex(
+			final SampleGroupMasks sampleGroupMasks,
+			final Iterator<MarkerGenotypesInput> markers)
+	{
+		this(sampleGroupMasks, null, markers);
+	}
+
+	/**
+	 * Builds the index from the given markers,
+	 * only using the genotypes of the selected samples.
+	 * @param sampleGroupMasks masks covering the selected samples,
+	 *   in the order of <code>sampleIndices</code>
+	 * @param sampleIndices the indices of the selected samples
+	 *   within the markers genotypes, or <code>null</code> for all of them
+	 * @param markers the markers to index
+	 */
+	public GenotypeBitPlaneIndex(
+			final SampleGroupMasks sampleGroupMasks,
+			final int[] sampleIndices,
+			final Iterator<MarkerGenotypesInput> markers)
+	{
+		this.sampleGroupMasks = sampleGroupMasks;
+		this.chromosomes = new ArrayList<String>();
+		this.markersPlanes = new ArrayList<GenotypeBitPlanes>();
+
+		final GenotypeBitPlanes scratch = new GenotypeBitPlanes(sampleGroupMasks.getNumSamples());
+		while (markers.hasNext()) {
+			final MarkerGenotypesInput marker = markers.next();
+			scratch.load(marker.getGenotypes(), sampleIndices);
+			chromosomes.add(marker.getChromosome());
+			markersPlanes.add(scratch.copy());
+		}
+	}
+
+	/**
+	 * Builds the index of all the markers of a data-set,
+	 * using the sexes and affections stored with its samples.
+	 */
+	public static GenotypeBitPlaneIndex build(final DataSetSource dataSetSource) throws IOException {
+		return build(dataSetSource, null);
+	}
+
+	/**
+	 * Builds the index of all the markers of a data-set,
+	 * only covering the selected samples, for example the ones that passed sample QA.
+	 * @param sampleIndices the indices of the selected samples within the data-set,
+	 *   or <code>null</code> for all of them
+	 */
+	public static GenotypeBitPlaneIndex build(final DataSetSource dataSetSource, final int[] sampleIndices)
+			throws IOException
+	{
+		final SamplesInfosSource samplesInfosSource = dataSetSource.getSamplesInfosSource();
+
+		return build(
+				samplesInfosSource.getSexes(),
+				samplesInfosSource.getAffections(),
+				sampleIndices,
+				MarkerGenotypesInput.iterator(dataSetSource));
+	}
+
+	/**
+	 * Builds the index of the given markers,
+	 * only covering the selected samples.
+	 * @param samplesSexes the sexes of all the samples
+	 * @param samplesAffections the affections of all the samples
+	 * @param sampleIndices the indices of the selected samples,
+	 *   or <code>null</code> for all of them
+	 * @param markers the markers to index, each one with genotypes of all the samples
+	 */
+	public static GenotypeBitPlaneIndex build(
+			final List<Sex> samplesSexes,
+			final List<Affection> samplesAffections,
+			final int[] sampleIndices,
+			final Iterator<MarkerGenotypesInput> markers)
+	{
+		final SampleGroupMasks sampleGroupMasks;
+		if (sampleIndices == null) {
+			sampleGroupMasks = new SampleGroupMasks(samplesSexes, samplesAffections);
+		} else {
+			final List<Sex> selectedSexes = new ArrayList<Sex>(sampleIndices.length);
+			final List<Affection> selectedAffections = new ArrayList<Affection>(sampleIndices.length);
+			for (final int sampleIndex : sampleIndices) {
+				selectedSexes.add(samplesSexes.get(sampleIndex));
+				selectedAffections.add(samplesAffections.get(sampleIndex));
+			}
+			sampleGroupMasks = new SampleGroupMasks(selectedSexes, selectedAffections);
+		}
+
+		return new GenotypeBitPlaneIndex(sampleGroupMasks, sampleIndices, markers);
+	}
+
+	public SampleGroupMasks getSampleGroupMasks() {
+		return sampleGroupMasks;
+	}
+
+	public int getNumMarkers() {
+		return markersPlanes.size();
+	}
+
+	public String getChromosome(final int markerIndex) {
+		return chromosomes.get(markerIndex);
+	}
+
+	/**
+	 * @return the planes of the marker, which must not be modified
+	 */
+	public GenotypeBitPlanes getPlanes(final int markerIndex) {
+		return markersPlanes.get(markerIndex);
+	}
+
+	/**
+	 * Counts the samples of each genotype code of a marker,
+	 * that are within the given group.
+	 * @see GenotypeBitPlanes#countCodes(long[], int[])
+	 */
+	public void countCodes(final int markerIndex, final long[] mask, final int[] codeCounts) {
+		markersPlanes.get(markerIndex).countCodes(mask, codeCounts);
+	}
+}
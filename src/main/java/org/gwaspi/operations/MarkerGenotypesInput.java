@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import org.gwaspi.model.DataSetSource;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.MarkerKey;
+
+/**
+ * Bundles everything a marker-wise operation reads about a single marker,
+ * so it can be read on one thread, and processed on an other.
+ */
+public class MarkerGenotypesInput {
+
+	private final int origIndex;
+	private final MarkerKey key;
+	private final String chromosome;
+	private final GenotypesList genotypes;
+
+	public MarkerGenotypesInput(
+			final int origIndex,
+			final MarkerKey key,
+			final String chromosome,
+			final GenotypesList genotypes)
+	{
+		this.origIndex = origIndex;
+		this.key = key;
+		this.chromosome = chromosome;
+		this.genotypes = genotypes;
+	}
+
+	public int getOrigIndex() {
+		return origIndex;
+	}
+
+	public MarkerKey getKey() {
+		return key;
+	}
+
+	public String getChromosome() {
+		return chromosome;
+	}
+
+	public GenotypesList getGenotypes() {
+		return genotypes;
+	}
+
+	/**
+	 * Iterates over all the markers of a data-set, in storage order.
+	 * The returned iterator is not thread-safe,
+	 * just like the underlying sources.
+	 */
+	public static Iterator<MarkerGenotypesInput> iterator(final DataSetSource dataSetSource)
+			throws IOException
+	{
+		final Iterator<Map.Entry<Integer, MarkerKey>> markersIt
+				= dataSetSource.getMarkersKeysSource().getIndicesMap().entrySet().iterator();
+		final Iterator<String> chromosomesIt
+				= dataSetSource.getMarkersMetadatasSource().getChromosomes().iterator();
+		final Iterator<GenotypesList> genotypesIt
+				= dataSetSource.getMarkersGenotypesSource().iterator();
+
+		return new Iterator<MarkerGenotypesInput>() {
+			@Override
+			public boolean hasNext() {
+				return markersIt.hasNext();
+			}
+
+			@Override
+			public MarkerGenotypesInput next() {
+
+				final Map.Entry<Integer, MarkerKey> marker = markersIt.next();
+				return new MarkerGenotypesInput(
+						marker.getKey(),
+						marker.getValue(),
+						chromosomesIt.next(),
+						genotypesIt.next());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
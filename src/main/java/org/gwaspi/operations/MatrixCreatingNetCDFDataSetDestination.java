@@ -29,14 +29,24 @@ public class MatrixCreatingNetCDFDataSetDestination<P extends MatrixCreatingOper
 	private final P params;
 	private final MatrixMetadataFactory<DataSet, P> metadataFactory;
 
-	public MatrixCreatingNetCDFDataSetDestination(
+	protected MatrixCreatingNetCDFDataSetDestination(
 			P params,
-			MatrixMetadataFactory<DataSet, P> metadataFactory)
+			MatrixMetadataFactory<DataSet, P> metadataFactory,
+			boolean genotypesInNetCdf)
 	{
+		super(genotypesInNetCdf);
+
 		this.params = params;
 		this.metadataFactory = metadataFactory;
 	}
 
+	public MatrixCreatingNetCDFDataSetDestination(
+			P params,
+			MatrixMetadataFactory<DataSet, P> metadataFactory)
+	{
+		this(params, metadataFactory, true);
+	}
+
 	@Override
 	protected MatrixMetadata createMatrixMetadata() throws IOException {
 		return metadataFactory.generateMetadata(this.getDataSet(), params);
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations;
+
+import java.io.IOException;
+import java.util.List;
+import org.gwaspi.datasource.packed.PackedGenotypesWriter;
+import org.gwaspi.model.DataSet;
+import org.gwaspi.model.MatrixMetadata;
+
+/**
+ * Stores the genotypes of the new matrix in a 2-bit packed file,
+ * and everything else in a NetCDF file.
+ * @see org.gwaspi.datasource.packed.PackedDataSetSource
+ */
+public class MatrixCreatingPackedDataSetDestination<P extends MatrixCreatingOperationParams>
+		extends MatrixCreatingNetCDFDataSetDestination<P>
+{
+	private PackedGenotypesWriter genotypesWriter;
+
+	public MatrixCreatingPackedDataSetDestination(
+			P params,
+			MatrixMetadataFactory<DataSet, P> metadataFactory)
+	{
+		super(params, metadataFactory, false);
+
+		this.genotypesWriter = null;
+	}
+
+	@Override
+	public void startLoadingAlleles(boolean perSample) throws IOException {
+		super.startLoadingAlleles(perSample);
+
+		final MatrixMetadata matrixMetadata = getDataSet().getMatrixMetadata();
+		genotypesWriter = new PackedGenotypesWriter(
+				MatrixMetadata.generatePathToPackedGenotypesFile(matrixMetadata),
+				matrixMetadata.getNumMarkers(),
+				matrixMetadata.getNumSamples());
+	}
+
+	@Override
+	public void addSampleGTAlleles(int sampleIndex, List<byte[]> sampleAlleles) throws IOException {
+		super.addSampleGTAlleles(sampleIndex, sampleAlleles);
+
+		genotypesWriter.setSampleGenotypes(sampleIndex, sampleAlleles);
+	}
+
+	@Override
+	public void addMarkerGTAlleles(int markerIndex, List<byte[]> markerAlleles) throws IOException {
+		super.addMarkerGTAlleles(markerIndex, markerAlleles);
+
+		genotypesWriter.setMarkerGenotypes(markerIndex, markerAlleles);
+	}
+
+	@Override
+	public void finishedLoadingAlleles() throws IOException {
+
+		genotypesWriter.close();
+		genotypesWriter = null;
+
+		super.finishedLoadingAlleles();
+	}
+}
@@ -36,6 +36,7 @@ import org.gwaspi.model.ChromosomeInfo;
 import org.gwaspi.model.Genotype;
 import org.gwaspi.model.GenotypesList;
 import org.gwaspi.model.GenotypesListFactory;
+import org.gwaspi.model.HyperSlabGenotypesList;
 import ucar.ma2.Array;
 import ucar.ma2.ArrayBoolean;
 import ucar.ma2.ArrayByte;
@@ -680,6 +681,46 @@ public class NetCdfUtils {
 		return genotypesLists;
 	}
 
+	/**
+	 * Like {@link #writeD3ArrayByteToGenotypeLists(ArrayByte.D3, GenotypesListFactory, boolean)},
+	 * but without copying any data.
+	 * The returned lists are views onto the backing array of the input,
+	 * which thus must not be modified anymore.
+	 * @param inputArray genotypes, with the shape [#samples][#markers][2]
+	 * @param markers whether to return one list per marker (or per sample)
+	 * @see HyperSlabGenotypesList
+	 */
+	public static List<GenotypesList> wrapD3ArrayByteToGenotypeLists(
+			final ArrayByte.D3 inputArray,
+			boolean markers)
+	{
+		final int[] shape = inputArray.getShape(); // [0]: #samples, [1]: #markers, [2]: #allelesPerGenotype(== 2)
+		if (shape[2] != 2) {
+			throw new IllegalArgumentException("Genotypes have to consist of 2 alleles, but have " + shape[2]);
+		}
+		// This only copies if the array is not backed by a single,
+		// canonically ordered java array, which is never the case
+		// for freshly read NetCDF data.
+		final byte[] alleles = (byte[]) inputArray.get1DJavaArray(byte.class);
+		final int numSamples = shape[0];
+		final int numMarkers = shape[1];
+
+		final List<GenotypesList> genotypesLists;
+		if (markers) {
+			genotypesLists = new ArrayList<GenotypesList>(numMarkers);
+			for (int mi = 0; mi < numMarkers; mi++) {
+				genotypesLists.add(new HyperSlabGenotypesList(alleles, mi * 2, numMarkers * 2, numSamples));
+			}
+		} else {
+			genotypesLists = new ArrayList<GenotypesList>(numSamples);
+			for (int si = 0; si < numSamples; si++) {
+				genotypesLists.add(new HyperSlabGenotypesList(alleles, si * numMarkers * 2, 2, numMarkers));
+			}
+		}
+
+		return genotypesLists;
+	}
+
 	public static <K, V> void writeD1ArrayToMapValues(Array from, Map<K, V> to) {
 
 		final Index index = from.getIndex();
@@ -17,6 +17,7 @@
 
 package org.gwaspi.operations;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -38,9 +39,12 @@ import org.gwaspi.model.MatrixKey;
 import org.gwaspi.model.OperationKey;
 import org.gwaspi.model.OperationMetadata;
 import org.gwaspi.model.OperationsList;
+import org.gwaspi.model.ReportsList;
 import org.gwaspi.netCDF.matrices.MatrixFactory;
 import org.gwaspi.operations.hardyweinberg.HardyWeinbergOperation;
 import org.gwaspi.operations.markercensus.MarkerCensusOperation;
+import org.gwaspi.operations.permutationtest.PermutationTestOperation;
+import org.gwaspi.operations.permutationtest.PermutationTestOperationParams;
 import org.gwaspi.operations.qamarkers.QAMarkersOperation;
 import org.gwaspi.operations.qasamples.QASamplesOperation;
 import org.gwaspi.operations.trendtest.TrendTestOperation;
@@ -50,10 +54,14 @@ import org.gwaspi.operations.combi.CombiTestOperation;
 import org.gwaspi.operations.hardyweinberg.ByHardyWeinbergThresholdFilterOperation;
 import org.gwaspi.operations.hardyweinberg.ByHardyWeinbergThresholdFilterOperationParams;
 import org.gwaspi.operations.filter.ByValidAffectionFilterOperation;
+import org.gwaspi.operations.fisherexacttest.FisherExactTestOperation;
 import org.gwaspi.operations.genotypicassociationtest.AssociationTestOperationParams;
 import org.gwaspi.operations.genotypicassociationtest.GenotypicAssociationTestOperation;
 import org.gwaspi.operations.markercensus.MarkerCensusOperationParams;
 import org.gwaspi.operations.trendtest.TrendTestOperationParams;
+import org.gwaspi.progress.ProcessStatus;
+import org.gwaspi.progress.ProgressHandler;
+import org.gwaspi.progress.ProgressSource;
 import org.gwaspi.progress.SuperProgressSource;
 import org.gwaspi.reports.OutputTest;
 import org.slf4j.Logger;
@@ -78,6 +86,8 @@ public class OperationManager {
 		TrendTestOperation.register();
 		AllelicAssociationTestOperation.register();
 		GenotypicAssociationTestOperation.register();
+		FisherExactTestOperation.register();
+		PermutationTestOperation.register();
 		ByHardyWeinbergThresholdFilterOperation.register();
 		ByValidAffectionFilterOperation.register();
 		ByCombiWeightsFilterOperation.register();
@@ -128,6 +138,8 @@ public class OperationManager {
 		final String storageType;
 		if (Config.getSingleton().getBoolean(Config.PROPERTY_STORAGE_IN_MEMORY, false)) {
 			storageType = AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_MEMORY;
+		} else if (Config.getSingleton().getBoolean(Config.PROPERTY_STORAGE_PACKED_GENOTYPES, false)) {
+			storageType = AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_PACKED;
 		} else {
 			storageType = AbstractDefaultTypesOperationFactory.PROPERTY_VALUE_TYPE_NETCDF;
 		}
@@ -236,11 +248,15 @@ public class OperationManager {
 		final MatrixOperation operation;
 		if (testType == OPType.TRENDTEST) {
 			operation = new TrendTestOperation(new TrendTestOperationParams(excludeOperationDataSetKey, censusOpKey));
+		} else if (testType == OPType.PERMUTATIONTEST) {
+			operation = new PermutationTestOperation(new PermutationTestOperationParams(excludeOperationDataSetKey, censusOpKey));
 		} else {
 			final AssociationTestOperationParams params
 					= new AssociationTestOperationParams(testType, excludeOperationDataSetKey, censusOpKey);
 			if (testType == OPType.ALLELICTEST) {
 				operation = new AllelicAssociationTestOperation(params);
+			} else if (testType == OPType.FISHEREXACTTEST) {
+				operation = new FisherExactTestOperation(params);
 			} else {
 				operation = new GenotypicAssociationTestOperation(params);
 			}
@@ -256,28 +272,97 @@ public class OperationManager {
 			throws IOException
 	{
 		final R result;
-		if (operation.isValid()) {
-			result = operation.call();
-		} else {
-			result = null;
-			log.error(
-					"Can not execute {} operation, because the given parameters are invalid: {}",
-					operation.getClass().getSimpleName(), // HACK should be getType(), but only Operation-Operations have this method
-					operation.getProblemDescription());
+		try {
+			if (operation.isValid()) {
+				result = operation.call();
+			} else {
+				result = null;
+				log.error(
+						"Can not execute {} operation, because the given parameters are invalid: {}",
+						operation.getClass().getSimpleName(), // HACK should be getType(), but only Operation-Operations have this method
+						operation.getProblemDescription());
+			}
+		} finally {
+			closeOperation(operation);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Runs an operation generating the reports of an other operation,
+	 * unless that one already has reports.
+	 * This is the case if its result was reused,
+	 * see {@link OperationResultCache}.
+	 * @param reportsOperation generates the reports
+	 * @param reportedOperationKey the operation to generate the reports of
+	 * @return whether the reports were generated
+	 */
+	public static boolean performReportsOperation(
+			final MatrixOperation<?, ?> reportsOperation,
+			final OperationKey reportedOperationKey)
+			throws IOException
+	{
+		if (!ReportsList.getReportService().getReports(new DataSetKey(reportedOperationKey)).isEmpty()) {
+			log.info("Not generating reports for operation {}, as it already has some",
+					reportedOperationKey.toRawIdString());
+			skipOperation(reportsOperation);
+			return false;
+		}
+
+		performOperation(reportsOperation);
+		return true;
+	}
+
+	/**
+	 * Marks an operation as done without running it.
+	 */
+	private static void skipOperation(final MatrixOperation<?, ?> operation) throws IOException {
+
+		final ProgressSource progressSource = operation.getProgressSource();
+		if (progressSource instanceof ProgressHandler) {
+			((ProgressHandler) progressSource).setNewStatus(ProcessStatus.COMPLEETED);
+		}
+		closeOperation(operation);
+	}
+
+	/**
+	 * Releases the resources an operation held while running,
+	 * most notably the data-set sources it read from.
+	 * Operations not run through {@link #performOperation(MatrixOperation)}
+	 * have to be passed to this method once they finished.
+	 */
+	public static void closeOperation(final MatrixOperation<?, ?> operation) throws IOException {
+
+		if (operation instanceof Closeable) {
+			((Closeable) operation).close();
+		}
+	}
+
 	public static OperationKey performOperationCreatingOperation(final MatrixOperation<?, OperationKey> operation)
 			throws IOException
 	{
-		final DataSetKey parent = operation.getParams().getParent();
+		final OperationParams params = operation.getParams();
+		final DataSetKey parent = params.getParent();
+
+		final boolean reuseResults = OperationResultCache.isEnabled();
+		if (reuseResults) {
+			final OperationKey cachedOperationKey = OperationResultCache.lookup(params);
+			if (cachedOperationKey != null) {
+				log.info("Reusing {} operation {}, which was run with the same parameters",
+						params.getType(), cachedOperationKey.toRawIdString());
+				skipOperation(operation);
+				return cachedOperationKey;
+			}
+		}
 
 		OperationKey resultOperationKey = performOperation(operation);
 		if (resultOperationKey == null) {
 			resultOperationKey = new OperationKey(parent.getOrigin(), OperationKey.NULL_ID);
 		} else {
+			if (reuseResults) {
+				OperationResultCache.store(resultOperationKey, params);
+			}
 			final boolean opHasResultView
 					= (getOperationService().getOperationMetadata(resultOperationKey) != null); // HACK maybe better add a getter to OperationType or so
 			if (opHasResultView) {
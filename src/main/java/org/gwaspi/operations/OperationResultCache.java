@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Comparator;
+import org.gwaspi.dao.OperationService;
+import org.gwaspi.global.Config;
+import org.gwaspi.model.Identifier;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.model.OperationMetadata;
+import org.gwaspi.model.OperationsList;
+import org.gwaspi.model.StudyKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Allows to reuse the result of an operation that was already run
+ * on the same parent, with the same parameters,
+ * instead of running it again.
+ * Each successfully completed operation is stored with a key,
+ * which is a hash over the canonical form of its parameters,
+ * including the parent and the type of the operation.
+ * This canonical form is created through reflection,
+ * and includes all fields of the parameters object,
+ * except its name and <code>transient</code> fields.
+ * Parameters that contain values of unknown types are not cached.
+ * Neither are hidden operations, as those are internal steps
+ * of an other operation.
+ * The cache has to be invalidated explicitly
+ * whenever the input of cached operations changes.
+ * Matrices and operations are never changed in place,
+ * and deleting one deletes all operations derived from it,
+ * so this is only necessary for data shared by a whole study.
+ * As a reused operation may already have reports,
+ * these should be generated through
+ * {@link OperationManager#performReportsOperation(MatrixOperation, OperationKey)}.
+ * @see Config#PROPERTY_REUSE_OPERATION_RESULTS
+ */
+public class OperationResultCache {
+
+	private static final Logger log = LoggerFactory.getLogger(OperationResultCache.class);
+
+	/**
+	 * Has to be changed whenever the canonical form changes,
+	 * to not reuse results of operations run with different parameters.
+	 */
+	private static final String CANONICAL_FORM_VERSION = "1";
+	private static final int MAX_DEPTH = 16;
+
+	private OperationResultCache() {
+	}
+
+	private static OperationService getOperationService() {
+		return OperationsList.getOperationService();
+	}
+
+	public static boolean isEnabled() {
+
+		final Config config = Config.getSingleton();
+		return (config != null) && config.getBoolean(Config.PROPERTY_REUSE_OPERATION_RESULTS, true);
+	}
+
+	/**
+	 * Creates the key identifying the result of an operation
+	 * run with the given parameters.
+	 * @param params of the operation
+	 * @return hex string of a SHA-256 hash, or <code>null</code>,
+	 *   if the result of this operation may not be cached
+	 */
+	public static String createKey(final OperationParams params) {
+
+		if (params.isHidden()) {
+			return null;
+		}
+
+		final StringBuilder canonical = new StringBuilder();
+		canonical.append(CANONICAL_FORM_VERSION).append(';');
+		try {
+			appendCanonical(canonical, params, 0);
+		} catch (final IllegalArgumentException ex) {
+			log.debug("Results of operations with these parameters are not cached: {}", ex.getMessage());
+			return null;
+		}
+
+		return hash(canonical.toString());
+	}
+
+	private static String hash(final String canonical) {
+
+		final byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes("UTF-8"));
+		} catch (final NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		} catch (final UnsupportedEncodingException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		final StringBuilder hex = new StringBuilder(digest.length * 2);
+		for (final byte digestByte : digest) {
+			hex.append(Character.forDigit((digestByte >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(digestByte & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+
+	private static void appendCanonical(final StringBuilder canonical, final Object value, final int depth) {
+
+		if (depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("value nested too deeply");
+		}
+
+		if (value == null) {
+			canonical.append("null");
+		} else if (value instanceof String) {
+			final String str = (String) value;
+			canonical.append('"').append(str.length()).append(':').append(str).append('"');
+		} else if ((value instanceof Number) || (value instanceof Boolean) || (value instanceof Character)) {
+			canonical.append(value.getClass().getSimpleName()).append('(').append(value).append(')');
+		} else if (value instanceof Enum) {
+			final Enum<?> enumValue = (Enum<?>) value;
+			canonical.append(enumValue.getDeclaringClass().getName()).append('.').append(enumValue.name());
+		} else if (value instanceof Identifier) {
+			canonical.append(((Identifier<?>) value).toIdString());
+		} else if (value instanceof File) {
+			// a changed file yields a different key
+			final File file = (File) value;
+			canonical.append("File(").append(file.getAbsolutePath())
+					.append(',').append(file.length())
+					.append(',').append(file.lastModified()).append(')');
+		} else if (value instanceof List) {
+			canonical.append('[');
+			for (final Object element : (List<?>) value) {
+				appendCanonical(canonical, element, depth + 1);
+				canonical.append(',');
+			}
+			canonical.append(']');
+		} else if (value instanceof Collection) {
+			// the iteration order of other collections is not defined
+			canonical.append('{');
+			for (final String element : toSortedCanonicals((Collection<?>) value, depth)) {
+				canonical.append(element).append(',');
+			}
+			canonical.append('}');
+		} else if (value instanceof Map) {
+			final List<String> entries = new ArrayList<String>();
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				final StringBuilder canonicalEntry = new StringBuilder();
+				appendCanonical(canonicalEntry, entry.getKey(), depth + 1);
+				canonicalEntry.append('=');
+				appendCanonical(canonicalEntry, entry.getValue(), depth + 1);
+				entries.add(canonicalEntry.toString());
+			}
+			Collections.sort(entries);
+			canonical.append('{');
+			for (final String entry : entries) {
+				canonical.append(entry).append(',');
+			}
+			canonical.append('}');
+		} else if (value.getClass().isArray()) {
+			canonical.append('[');
+			final int length = Array.getLength(value);
+			for (int ai = 0; ai < length; ai++) {
+				appendCanonical(canonical, Array.get(value, ai), depth + 1);
+				canonical.append(',');
+			}
+			canonical.append(']');
+		} else if (value.getClass().getName().startsWith("org.gwaspi.")) {
+			appendCanonicalFields(canonical, value, depth);
+		} else {
+			throw new IllegalArgumentException("value of unsupported type " + value.getClass().getName());
+		}
+	}
+
+	private static List<String> toSortedCanonicals(final Collection<?> values, final int depth) {
+
+		final List<String> canonicals = new ArrayList<String>(values.size());
+		for (final Object element : values) {
+			final StringBuilder canonicalElement = new StringBuilder();
+			appendCanonical(canonicalElement, element, depth + 1);
+			canonicals.add(canonicalElement.toString());
+		}
+		Collections.sort(canonicals);
+
+		return canonicals;
+	}
+
+	private static void appendCanonicalFields(final StringBuilder canonical, final Object value, final int depth) {
+
+		canonical.append(value.getClass().getName()).append('{');
+		for (Class<?> type = value.getClass(); type != Object.class; type = type.getSuperclass()) {
+			final List<Field> fields = new ArrayList<Field>();
+			for (final Field field : type.getDeclaredFields()) {
+				final int modifiers = field.getModifiers();
+				if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()
+						&& !((type == AbstractOperationParams.class) && field.getName().equals("name")))
+				{
+					fields.add(field);
+				}
+			}
+			// the order of declared fields is not defined
+			Collections.sort(fields, new Comparator<Field>() {
+				@Override
+				public int compare(final Field field1, final Field field2) {
+					return field1.getName().compareTo(field2.getName());
+				}
+			});
+			for (final Field field : fields) {
+				field.setAccessible(true);
+				final Object fieldValue;
+				try {
+					fieldValue = field.get(value);
+				} catch (final IllegalAccessException ex) {
+					throw new IllegalArgumentException("inaccessible field " + field, ex);
+				}
+				canonical.append(type.getSimpleName()).append('.').append(field.getName()).append('=');
+				appendCanonical(canonical, fieldValue, depth + 1);
+				canonical.append(';');
+			}
+		}
+		canonical.append('}');
+	}
+
+	/**
+	 * Looks for the result of an earlier run of an operation
+	 * with the given parameters.
+	 * @param params of the operation about to be run
+	 * @return the most recently created matching operation,
+	 *   or <code>null</code> if there is none
+	 */
+	public static OperationKey lookup(final OperationParams params) throws IOException {
+
+		final String key = createKey(params);
+		if (key == null) {
+			return null;
+		}
+
+		OperationMetadata match = null;
+		final List<OperationMetadata> candidates
+				= getOperationService().getChildrenOperationsMetadata(params.getParent(), params.getType());
+		for (final OperationMetadata candidate : candidates) {
+			if (key.equals(candidate.getResultCacheKey())
+					&& ((match == null) || candidate.getCreationDate().after(match.getCreationDate())))
+			{
+				match = candidate;
+			}
+		}
+
+		return (match == null) ? null : OperationKey.valueOf(match);
+	}
+
+	/**
+	 * Marks an operation as a reusable result
+	 * of running it with the given parameters.
+	 * This must only be called after the operation completed successfully.
+	 * @param operationKey of the completed operation
+	 * @param params the operation was run with
+	 */
+	public static void store(final OperationKey operationKey, final OperationParams params) throws IOException {
+
+		final String key = createKey(params);
+		if (key != null) {
+			getOperationService().setResultCacheKey(operationKey, key);
+		}
+	}
+
+	/**
+	 * Makes sure that no operation within the given study is reused.
+	 * Call this whenever data shared by the whole study changes,
+	 * for example the sample info.
+	 * @param studyKey all operations of matrices in this study are affected
+	 */
+	public static void invalidate(final StudyKey studyKey) throws IOException {
+		getOperationService().clearResultCacheKeys(studyKey);
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.gwaspi.model.GenotypeBitPlanes;
+import org.gwaspi.model.SampleInfo.Affection;
+import org.gwaspi.model.SampleInfo.Sex;
+
+/**
+ * Bit-masks of the sample groups of a data-set,
+ * with one bit per sample, as used with {@link GenotypeBitPlanes}.
+ * The masks must not be modified.
+ * Instances are thread-safe.
+ */
+public class SampleGroupMasks {
+
+	private final List<Sex> samplesSexes;
+	private final long[] allMask;
+	private final long[] caseMask;
+	private final long[] controlMask;
+	private final long[] maleMask;
+	private final long[] femaleMask;
+	/** Controls counted autosomally, by chromosome */
+	private final ConcurrentMap<String, long[]> hardyWeinbergMasks;
+
+	public SampleGroupMasks(final List<Sex> samplesSexes, final List<Affection> samplesAffections) {
+
+		if (samplesSexes.size() != samplesAffections.size()) {
+			throw new IllegalArgumentException("Got " + samplesSexes.size()
+					+ " sexes, but " + samplesAffections.size() + " affections");
+		}
+
+		final int numSamples = samplesSexes.size();
+		final int numWords = GenotypeBitPlanes.getNumWords(numSamples);
+		this.samplesSexes = samplesSexes;
+		this.allMask = new long[numWords];
+		this.caseMask = new long[numWords];
+		this.controlMask = new long[numWords];
+		this.maleMask = new long[numWords];
+		this.femaleMask = new long[numWords];
+		this.hardyWeinbergMasks = new ConcurrentHashMap<String, long[]>();
+
+		for (int si = 0; si < numSamples; si++) {
+			final int wi = si >>> 6;
+			final long bit = 1L << si;
+			allMask[wi] |= bit;
+
+			final Affection affection = samplesAffections.get(si);
+			if (affection == Affection.AFFECTED) {
+				caseMask[wi] |= bit;
+			} else if (affection == Affection.UNAFFECTED) {
+				controlMask[wi] |= bit;
+			}
+
+			final Sex sex = samplesSexes.get(si);
+			if (sex == Sex.MALE) {
+				maleMask[wi] |= bit;
+			} else if (sex == Sex.FEMALE) {
+				femaleMask[wi] |= bit;
+			}
+		}
+	}
+
+	public int getNumSamples() {
+		return samplesSexes.size();
+	}
+
+	public long[] getAllMask() {
+		return allMask;
+	}
+
+	public long[] getCaseMask() {
+		return caseMask;
+	}
+
+	public long[] getControlMask() {
+		return controlMask;
+	}
+
+	public long[] getMaleMask() {
+		return maleMask;
+	}
+
+	public long[] getFemaleMask() {
+		return femaleMask;
+	}
+
+	/**
+	 * Returns the mask of the control samples,
+	 * which are counted autosomally on the given chromosome,
+	 * and therefore take part in the Hardy & Weinberg calculation.
+	 * @see CensusDecision#getDecisionByChrAndSex(String, Sex)
+	 */
+	public long[] getHardyWeinbergMask(final String chromosome) {
+
+		long[] mask = hardyWeinbergMasks.get(chromosome);
+		if (mask == null) {
+			mask = controlMask.clone();
+			final int numSamples = samplesSexes.size();
+			for (int si = 0; si < numSamples; si++) {
+				final CensusDecision decision = CensusDecision.getDecisionByChrAndSex(chromosome, samplesSexes.get(si));
+				if (decision != CensusDecision.CountAutosomally) {
+					mask[si >>> 6] &= ~(1L << si);
+				}
+			}
+			final long[] previous = hardyWeinbergMasks.putIfAbsent(chromosome, mask);
+			if (previous != null) {
+				mask = previous;
+			}
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Creates the intersection of two masks.
+	 */
+	public static long[] and(final long[] mask1, final long[] mask2) {
+
+		final long[] intersection = new long[mask1.length];
+		for (int wi = 0; wi < intersection.length; wi++) {
+			intersection[wi] = mask1[wi] & mask2[wi];
+		}
+
+		return intersection;
+	}
+}
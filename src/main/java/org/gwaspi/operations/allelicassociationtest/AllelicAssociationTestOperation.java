@@ -21,6 +21,7 @@ import java.io.IOException;
 import org.gwaspi.global.Text;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.operations.AbstractAssociationTestsOperation;
+import org.gwaspi.operations.OperationDataSet;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.OperationTypeInfo;
 import org.gwaspi.operations.genotypicassociationtest.AssociationTestOperationParams;
@@ -30,6 +31,7 @@ import org.gwaspi.progress.ProcessInfo;
 import org.gwaspi.progress.ProgressSource;
 import org.gwaspi.progress.SubProcessInfo;
 import org.gwaspi.statistics.Associations;
+import org.gwaspi.statistics.GenotypeCounts;
 import org.gwaspi.statistics.Pvalue;
 
 public class AllelicAssociationTestOperation extends AbstractAssociationTestsOperation<AllelicAssociationTestsOperationDataSet> {
@@ -62,40 +64,56 @@ public class AllelicAssociationTestOperation extends AbstractAssociationTestsOpe
 	}
 
 	@Override
-	protected void associationTest(
-			final AllelicAssociationTestsOperationDataSet dataSet,
+	protected int getNumTestResults() {
+		return 3;
+	}
+
+	@Override
+	protected void calculateTests(
+			final GenotypeCounts counts,
+			final int from,
+			final int to,
+			final double[][] results)
+	{
+		final double[] chiSqrs = results[0];
+		Associations.calculateAssociationChiSquares(
+				counts.getCaseAA(),
+				counts.getCaseAa(),
+				counts.getCaseaa(),
+				counts.getCtrlAA(),
+				counts.getCtrlAa(),
+				counts.getCtrlaa(),
+				false,
+				from,
+				to,
+				chiSqrs);
+		Pvalue.calculatePvaluesFromChiSqrs(chiSqrs, 1, from, to, results[1]);
+		Associations.calculateAllelicAssociationORs(
+				counts.getCaseAA(),
+				counts.getCaseAa(),
+				counts.getCaseaa(),
+				counts.getCtrlAA(),
+				counts.getCtrlAa(),
+				counts.getCtrlaa(),
+				from,
+				to,
+				results[2]);
+	}
+
+	@Override
+	protected void addTestEntry(
+			final OperationDataSet dataSet,
 			final Integer markerOrigIndex,
 			final MarkerKey markerKey,
-			final int caseAA,
-			final int caseAa,
-			final int caseaa,
-			final int ctrlAA,
-			final int ctrlAa,
-			final int ctrlaa)
+			final double[][] results,
+			final int index)
 			throws IOException
 	{
-		final double chiSqr = Associations.calculateAssociationChiSquare(
-				caseAA,
-				caseAa,
-				caseaa,
-				ctrlAA,
-				ctrlAa,
-				ctrlaa,
-				false);
-		final double pVal = Pvalue.calculatePvalueFromChiSqr(chiSqr, 1);
-		final double oddsRatio = Associations.calculateAllelicAssociationOR(
-				caseAA,
-				caseAa,
-				caseaa,
-				ctrlAA,
-				ctrlAa,
-				ctrlaa);
-
-		dataSet.addEntry(new DefaultAllelicAssociationOperationEntry(
+		((AllelicAssociationTestsOperationDataSet) dataSet).addEntry(new DefaultAllelicAssociationOperationEntry(
 				markerKey,
 				markerOrigIndex,
-				chiSqr,
-				pVal,
-				oddsRatio));
+				results[0][index],
+				results[1][index],
+				results[2][index]));
 	}
 }
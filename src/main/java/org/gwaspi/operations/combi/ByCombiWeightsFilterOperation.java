@@ -186,16 +186,8 @@ public class ByCombiWeightsFilterOperation extends AbstractFilterOperation<ByCom
 		}
 //		LOG.debug("filtered weights: {}", weightsFiltered); // this is way too verbose
 
-		List<Double> weightsAbsolute = new ArrayList<Double>(weightsFiltered.size());
-		for (Double wFiltered : weightsFiltered) {
-			weightsAbsolute.add(Math.abs(wFiltered));
-		}
-
-		final List<Double> combiWeightsSorted = new ArrayList<Double>(weightsAbsolute);
-		// sorts in ascending order -> biggest values are at the end
-		Collections.sort(combiWeightsSorted);
-		// use the n'th biggest value as threshold
-		final double thresholdWeight = combiWeightsSorted.get(Math.max(0, combiWeightsSorted.size() - markersToKeep - 1));
+		final List<Double> weightsAbsolute = toAbsolute(weightsFiltered);
+		final double thresholdWeight = calculateThresholdWeight(weightsAbsolute, markersToKeep);
 //		LOG.debug("thresholdWeight: {}", thresholdWeight);
 //		LOG.debug("rawWeights: {}", rawWeights);
 //		LOG.debug("weightsFiltered: {}", weightsFiltered);
@@ -227,6 +219,54 @@ public class ByCombiWeightsFilterOperation extends AbstractFilterOperation<ByCom
 		}
 	}
 
+	private static List<Double> toAbsolute(final List<Double> weights) {
+
+		final List<Double> weightsAbsolute = new ArrayList<Double>(weights.size());
+		for (final Double weight : weights) {
+			weightsAbsolute.add(Math.abs(weight));
+		}
+
+		return weightsAbsolute;
+	}
+
+	/**
+	 * Returns the smallest absolute weight a marker may have to be kept.
+	 */
+	private static double calculateThresholdWeight(final List<Double> weightsAbsolute, final int markersToKeep) {
+
+		final List<Double> combiWeightsSorted = new ArrayList<Double>(weightsAbsolute);
+		// sorts in ascending order -> biggest values are at the end
+		Collections.sort(combiWeightsSorted);
+		// use the n'th biggest value as threshold
+		return combiWeightsSorted.get(Math.max(0, combiWeightsSorted.size() - markersToKeep - 1));
+	}
+
+	/**
+	 * Selects the markers to keep, the same way this operation does,
+	 * but without reading or writing any data-sets.
+	 * @param rawWeights the COMBI weights of all the markers of one part
+	 *   (chromosome or whole genome)
+	 * @param weightsFilterWidth
+	 * @param markersToKeep maximum number of markers to select
+	 * @return for each marker, whether it is kept
+	 */
+	static boolean[] selectMarkers(final List<Double> rawWeights, final int weightsFilterWidth, final int markersToKeep) {
+
+		final List<Double> weightsAbsolute = toAbsolute(applyMovingAverageFilter(rawWeights, weightsFilterWidth));
+		final double thresholdWeight = calculateThresholdWeight(weightsAbsolute, markersToKeep);
+
+		final boolean[] kept = new boolean[weightsAbsolute.size()];
+		int numKept = 0;
+		for (int mi = 0; (mi < kept.length) && (numKept < markersToKeep); mi++) {
+			if (weightsAbsolute.get(mi) >= thresholdWeight) {
+				kept[mi] = true;
+				numKept++;
+			}
+		}
+
+		return kept;
+	}
+
 	/**
 	 * Apply a moving average filter (p-norm filter).
 	 * Basically "smoothes out the landscape".
@@ -28,7 +28,8 @@ public class ByCombiWeightsFilterOperationParams extends AbstractOperationParams
 	/**
 	 * The number of total markers in the matrix we operate on, unfiltered.
 	 */
-	private Integer totalMarkers;
+	/** Lazily fetched from the parent, and thus not part of the parameters as such. */
+	private transient Integer totalMarkers;
 	/**
 	 * Whether to run the filtering once per chromosome, or rather over the whole genome at once.
 	 */
@@ -0,0 +1,682 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations.combi;
+
+import de.bwaldvogel.liblinear.Linear;
+import de.bwaldvogel.liblinear.Parameter;
+import de.bwaldvogel.liblinear.Problem;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import libsvm.svm;
+import libsvm.svm_parameter;
+import libsvm.svm_problem;
+import org.gwaspi.global.Generator;
+import org.gwaspi.global.IndicesList;
+import org.gwaspi.global.IndicesSubList;
+import org.gwaspi.global.MemoryBoundedTaskRunner;
+import org.gwaspi.global.OrderedBlockProcessor;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.SampleInfo.Affection;
+import org.gwaspi.operations.OperationDataSet;
+import org.gwaspi.operations.OperationManager;
+import org.gwaspi.operations.markercensus.MarkerCensusOperationParams;
+import org.gwaspi.operations.qamarkers.QAMarkersOperationDataSet;
+import org.gwaspi.progress.NullProgressHandler;
+import org.gwaspi.statistics.Associations;
+import org.gwaspi.statistics.Pvalue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calculates the statistics required for the COMBI threshold calibration,
+ * for many random sample affections (permutations), all in memory.
+ * Instead of creating and storing a full set of operations per permutation,
+ * only the largest trend-test statistic per permutation and part
+ * (chromosome, or the whole genome) is kept,
+ * which corresponds to the smallest p-value.
+ * As only the affections change between the permutations,
+ * the genotypes are read, and the kernel matrix and the SVM problem
+ * are calculated only once per part.
+ * The SVMs of the permutations are trained concurrently,
+ * within a memory budget.
+ * As in the actual COMBI run, the trend-test only considers the markers
+ * that pass the default marker census QA criteria.
+ */
+public class CombiPermutationCalibrator {
+
+	private static final Logger LOG
+			= LoggerFactory.getLogger(CombiPermutationCalibrator.class);
+
+	private static final String GENOME_WIDE_PART = "genome";
+	private static final int TREND_TEST_BLOCK_SIZE = 256;
+	/** Genotype classes, as used by the trend test. */
+	private static final int CLASS_AA = 0;
+	private static final int CLASS_AA_MIXED = 1;
+	private static final int CLASS_AA_MINOR = 2;
+	private static final int NUM_CLASSES = 3;
+
+	private final CombiTestOperationParams testParams;
+	private final ByCombiWeightsFilterOperationParams filterParams;
+	private final int numWorkers;
+
+	/**
+	 * @param testParams defines the input data-set and the SVM settings
+	 * @param filterParams defines which markers are selected by their COMBI weights;
+	 *   may be <code>null</code>, if only
+	 *   {@link #calculateSmallestTrendTestPValues(int)} is used
+	 */
+	public CombiPermutationCalibrator(
+			final CombiTestOperationParams testParams,
+			final ByCombiWeightsFilterOperationParams filterParams)
+	{
+		this.testParams = testParams;
+		this.filterParams = filterParams;
+		this.numWorkers = OrderedBlockProcessor.fetchNumWorkerThreads();
+	}
+
+	/**
+	 * Runs the trend-test on all markers, once per permutation.
+	 * @return per part, the smallest p-value of each permutation
+	 */
+	public List<List<Double>> calculateSmallestTrendTestPValues(final int numPermutations) throws IOException {
+		return calculateSmallestPValues(numPermutations, false);
+	}
+
+	/**
+	 * Runs the COMBI method once per permutation:
+	 * SVM training, selection of the markers by their weights,
+	 * and the trend-test on the selected markers.
+	 * @return per part, the smallest p-value of each permutation
+	 */
+	public List<List<Double>> calculateSmallestCombiPValues(final int numPermutations) throws IOException {
+		return calculateSmallestPValues(numPermutations, true);
+	}
+
+	private List<List<Double>> calculateSmallestPValues(final int numPermutations, final boolean selectByCombi)
+			throws IOException
+	{
+		final OperationDataSet qaDataSet = OperationManager.generateOperationDataSet(testParams.getQAMarkerOperationKey());
+		final QAMarkersOperationDataSet qaMarkersDataSet = (QAMarkersOperationDataSet) qaDataSet;
+		final int n = qaDataSet.getNumSamples();
+
+		final Map<String, List<Integer>> partsMarkerIndices;
+		if (testParams.isPerChromosome()) {
+			partsMarkerIndices = CombiTestOperation.extractChromToIndicesMap(qaDataSet);
+		} else {
+			partsMarkerIndices = Collections.<String, List<Integer>>singletonMap(
+					GENOME_WIDE_PART, new IndicesList(qaDataSet.getNumMarkers()));
+		}
+
+		final List<long[]> permutationsCases = createRandomCases(n, numPermutations);
+		final List<Byte> majorAllelesSource = qaMarkersDataSet.getKnownMajorAllele();
+		final List<Byte> minorAllelesSource = qaMarkersDataSet.getKnownMinorAllele();
+		final List<int[]> genotypeCountsSource = qaMarkersDataSet.getGenotypeCounts();
+		final List<GenotypesList> genotypesSource = qaDataSet.getMarkersGenotypesSource();
+		final List<Boolean> mismatchStatesSource = qaMarkersDataSet.getMismatchStates();
+		final List<Double> missingRatiosSource = qaMarkersDataSet.getMissingRatio();
+
+		final List<List<Double>> smallestPs = new ArrayList<List<Double>>(partsMarkerIndices.size());
+		for (final Map.Entry<String, List<Integer>> partMarkerIndices : partsMarkerIndices.entrySet()) {
+			final List<Integer> markerIndices = partMarkerIndices.getValue();
+			LOG.info("calibrating part {} ({} markers) with {} permutations",
+					new Object[] {partMarkerIndices.getKey(), markerIndices.size(), numPermutations});
+
+			final List<Byte> majorAlleles = new ArrayList<Byte>(new IndicesSubList<Byte>(majorAllelesSource, markerIndices));
+			final List<Byte> minorAlleles = new ArrayList<Byte>(new IndicesSubList<Byte>(minorAllelesSource, markerIndices));
+			final boolean[] qaPassed = selectQAPassedMarkers(
+					new IndicesSubList<Boolean>(mismatchStatesSource, markerIndices),
+					new IndicesSubList<Double>(missingRatiosSource, markerIndices));
+			final double[] maxStatistics;
+			if (selectByCombi) {
+				// the genotypes are read multiple times, so we keep them in memory
+				final List<GenotypesList> genotypes = new ArrayList<GenotypesList>(
+						new IndicesSubList<GenotypesList>(genotypesSource, markerIndices));
+				final List<int[]> genotypeCounts = new ArrayList<int[]>(
+						new IndicesSubList<int[]>(genotypeCountsSource, markerIndices));
+				maxStatistics = calculateMaxCombiStatistics(
+						genotypes, majorAlleles, minorAlleles, genotypeCounts, qaPassed, n, permutationsCases);
+			} else {
+				maxStatistics = calculateMaxTrendStatistics(
+						new IndicesSubList<GenotypesList>(genotypesSource, markerIndices),
+						majorAlleles, minorAlleles, qaPassed, n, permutationsCases, null);
+			}
+
+			final List<Double> partSmallestPs = new ArrayList<Double>(numPermutations);
+			for (final double maxStatistic : maxStatistics) {
+				partSmallestPs.add(Double.isInfinite(maxStatistic)
+						? 1.0 // no informative marker
+						: Pvalue.calculatePvalueFromChiSqr(maxStatistic, 1));
+			}
+			smallestPs.add(partSmallestPs);
+		}
+
+		return smallestPs;
+	}
+
+	/**
+	 * Selects the markers that the marker census would not exclude
+	 * with its default criteria, as used in the actual COMBI run.
+	 * @see MarkerCensusOperationParams#DEFAULT_DISCARD_MISMATCHES
+	 * @see MarkerCensusOperationParams#DEFAULT_MARKER_MISSING_RATIO
+	 * @return for each marker, whether it passes the QA
+	 */
+	static boolean[] selectQAPassedMarkers(final List<Boolean> mismatchStates, final List<Double> missingRatios) {
+
+		final boolean[] qaPassed = new boolean[mismatchStates.size()];
+		final Iterator<Double> missingRatiosIt = missingRatios.iterator();
+		int markerIndex = 0;
+		for (final Boolean mismatchState : mismatchStates) {
+			final double missingRatio = missingRatiosIt.next();
+			qaPassed[markerIndex++]
+					= !(MarkerCensusOperationParams.DEFAULT_DISCARD_MISMATCHES && mismatchState)
+					&& !(missingRatio > MarkerCensusOperationParams.DEFAULT_MARKER_MISSING_RATIO);
+		}
+
+		return qaPassed;
+	}
+
+	/**
+	 * Creates random affections for each permutation,
+	 * the same way as {@link CombiTestOperation} does,
+	 * but with a different seed for each permutation.
+	 * @return for each permutation, a bit-set of the affected samples
+	 */
+	static List<long[]> createRandomCases(final int n, final int numPermutations) {
+
+		final List<long[]> permutationsCases = new ArrayList<long[]>(numPermutations);
+		for (int pi = 0; pi < numPermutations; pi++) {
+			// each sample of each permutation gets its own seed
+			final Generator<Affection> affectionGenerator = new Generator.EnumRandomGenerator<Affection>(
+					(long) pi * n,
+					Arrays.asList(new Double[] {0.0, 0.5, 0.5}),
+					Affection.class);
+			final long[] cases = new long[calcNumWords(n)];
+			for (int si = 0; si < n; si++) {
+				if (affectionGenerator.generate(si) == Affection.AFFECTED) {
+					cases[si >>> 6] |= 1L << si;
+				}
+			}
+			permutationsCases.add(cases);
+		}
+
+		return permutationsCases;
+	}
+
+	private static int calcNumWords(final int numBits) {
+		return (numBits + Long.SIZE - 1) / Long.SIZE;
+	}
+
+	private static int countCases(final long[] cases) {
+
+		int numCases = 0;
+		for (final long word : cases) {
+			numCases += Long.bitCount(word);
+		}
+
+		return numCases;
+	}
+
+	private static List<Double> toLabels(final long[] cases, final int n) {
+
+		final List<Double> labels = new ArrayList<Double>(n);
+		for (int si = 0; si < n; si++) {
+			labels.add(((cases[si >>> 6] & (1L << si)) != 0) ? 1.0 : -1.0);
+		}
+
+		return labels;
+	}
+
+	private static double[] toLabelsArray(final long[] cases, final int n) {
+
+		final double[] labels = new double[n];
+		for (int si = 0; si < n; si++) {
+			labels[si] = ((cases[si >>> 6] & (1L << si)) != 0) ? 1.0 : -1.0;
+		}
+
+		return labels;
+	}
+
+	/**
+	 * Calculates the trend-test statistic of a single marker for many permutations.
+	 * The genotype classes of the samples are stored as bit-sets,
+	 * so the case counts of each permutation are just a few bit-counts.
+	 * This class is not thread-safe; use one instance per thread.
+	 */
+	static class TrendStatisticsCalculator {
+
+		private final int n;
+		private final long[][] classesSamples;
+		private final int[] classesCounts;
+
+		TrendStatisticsCalculator(final int n) {
+
+			this.n = n;
+			this.classesSamples = new long[NUM_CLASSES][calcNumWords(n)];
+			this.classesCounts = new int[NUM_CLASSES];
+		}
+
+		/**
+		 * @param kept per permutation, which markers to consider;
+		 *   <code>null</code> to consider all
+		 * @return per permutation, the trend-test statistic;
+		 *   NaN if the marker is not considered
+		 */
+		double[] calculate(
+				final GenotypesList genotypes,
+				final byte majorAllele,
+				final byte minorAllele,
+				final int markerIndex,
+				final List<long[]> permutationsCases,
+				final List<boolean[]> kept)
+		{
+			for (final long[] classSamples : classesSamples) {
+				Arrays.fill(classSamples, 0L);
+			}
+			Arrays.fill(classesCounts, 0);
+			for (int si = 0; si < n; si++) {
+				final byte father = genotypes.getFatherAllele(si);
+				final byte mother = genotypes.getMotherAllele(si);
+				final int genotypeClass;
+				if ((father == majorAllele) && (mother == majorAllele)) {
+					genotypeClass = CLASS_AA;
+				} else if ((father == minorAllele) && (mother == minorAllele)) {
+					genotypeClass = CLASS_AA_MINOR;
+				} else if (((father == majorAllele) && (mother == minorAllele))
+						|| ((father == minorAllele) && (mother == majorAllele)))
+				{
+					genotypeClass = CLASS_AA_MIXED;
+				} else {
+					// missing or mismatching
+					continue;
+				}
+				classesSamples[genotypeClass][si >>> 6] |= 1L << si;
+				classesCounts[genotypeClass]++;
+			}
+
+			final double[] statistics = new double[permutationsCases.size()];
+			for (int pi = 0; pi < statistics.length; pi++) {
+				if ((kept != null) && !kept.get(pi)[markerIndex]) {
+					statistics[pi] = Double.NaN;
+					continue;
+				}
+				final long[] cases = permutationsCases.get(pi);
+				final int[] caseCounts = new int[NUM_CLASSES];
+				for (int gci = 0; gci < NUM_CLASSES; gci++) {
+					final long[] classSamples = classesSamples[gci];
+					int caseCount = 0;
+					for (int wi = 0; wi < cases.length; wi++) {
+						caseCount += Long.bitCount(classSamples[wi] & cases[wi]);
+					}
+					caseCounts[gci] = caseCount;
+				}
+				statistics[pi] = Associations.calculateChocranArmitageTrendTest(
+						caseCounts[CLASS_AA],
+						caseCounts[CLASS_AA_MIXED],
+						caseCounts[CLASS_AA_MINOR],
+						classesCounts[CLASS_AA] - caseCounts[CLASS_AA],
+						classesCounts[CLASS_AA_MIXED] - caseCounts[CLASS_AA_MIXED],
+						classesCounts[CLASS_AA_MINOR] - caseCounts[CLASS_AA_MINOR],
+						Associations.ChocranArmitageTrendTestModel.CODOMINANT);
+			}
+
+			return statistics;
+		}
+	}
+
+	/**
+	 * Runs the trend-test on all markers of one part, for many permutations,
+	 * with a single pass over the genotypes.
+	 * The genotypes are read on the calling thread,
+	 * and processed in blocks on the worker threads.
+	 * @param qaPassed which markers passed the QA; the others are never considered
+	 * @param kept per permutation, which markers to consider;
+	 *   <code>null</code> to consider all
+	 * @return per permutation, the largest trend-test statistic,
+	 *   or negative infinity if no marker was informative
+	 */
+	private double[] calculateMaxTrendStatistics(
+			final List<GenotypesList> genotypes,
+			final List<Byte> majorAlleles,
+			final List<Byte> minorAlleles,
+			final boolean[] qaPassed,
+			final int n,
+			final List<long[]> permutationsCases,
+			final List<boolean[]> kept)
+			throws IOException
+	{
+		final double[] maxStatistics = new double[permutationsCases.size()];
+		Arrays.fill(maxStatistics, Double.NEGATIVE_INFINITY);
+		final double[] excludedStatistics = new double[permutationsCases.size()];
+		Arrays.fill(excludedStatistics, Double.NaN);
+
+		new OrderedBlockProcessor<GenotypesList, double[]>("COMBI calibration", numWorkers, TREND_TEST_BLOCK_SIZE).process(
+				genotypes.iterator(),
+				new OrderedBlockProcessor.BlockProcessor<GenotypesList, double[]>() {
+					@Override
+					public List<double[]> processBlock(int firstIndex, List<GenotypesList> block) {
+
+						final TrendStatisticsCalculator calculator = new TrendStatisticsCalculator(n);
+						final List<double[]> blockStatistics = new ArrayList<double[]>(block.size());
+						int markerIndex = firstIndex;
+						for (final GenotypesList markerGenotypes : block) {
+							if (!qaPassed[markerIndex]) {
+								blockStatistics.add(excludedStatistics);
+								markerIndex++;
+								continue;
+							}
+							blockStatistics.add(calculator.calculate(
+									markerGenotypes,
+									majorAlleles.get(markerIndex),
+									minorAlleles.get(markerIndex),
+									markerIndex,
+									permutationsCases,
+									kept));
+							markerIndex++;
+						}
+						return blockStatistics;
+					}
+				},
+				new OrderedBlockProcessor.ResultConsumer<double[]>() {
+					@Override
+					public void consume(int index, double[] statistics) {
+
+						for (int pi = 0; pi < statistics.length; pi++) {
+							// NOTE NaN is never bigger, so it gets ignored
+							if (statistics[pi] > maxStatistics[pi]) {
+								maxStatistics[pi] = statistics[pi];
+							}
+						}
+					}
+				});
+
+		return maxStatistics;
+	}
+
+	/**
+	 * The outcome of training the SVM of a single permutation.
+	 * Either the alphas (libSVM) or the encoded weights (libLinear)
+	 * are set, or none of them, if all samples have the same affection.
+	 */
+	private static class TrainedPermutation {
+
+		private final Map<Integer, Double> nonZeroAlphas;
+		private final List<Double> encodedWeights;
+
+		TrainedPermutation(final Map<Integer, Double> nonZeroAlphas, final List<Double> encodedWeights) {
+
+			this.nonZeroAlphas = nonZeroAlphas;
+			this.encodedWeights = encodedWeights;
+		}
+	}
+
+	/**
+	 * Runs the COMBI method on one part, for many permutations.
+	 * @return per permutation, the largest trend-test statistic
+	 *   of the markers selected by their COMBI weights
+	 */
+	private double[] calculateMaxCombiStatistics(
+			final List<GenotypesList> genotypes,
+			final List<Byte> majorAlleles,
+			final List<Byte> minorAlleles,
+			final List<int[]> genotypeCounts,
+			final boolean[] qaPassed,
+			final int n,
+			final List<long[]> permutationsCases)
+			throws IOException
+	{
+		final int dSamples = genotypes.size();
+		final GenotypeEncoder genotypeEncoder = testParams.getEncoder();
+		final int maxChunkSize = MarkerGenotypesEncoder.calculateMaxChunkSize(genotypeEncoder, dSamples, n, null);
+		final MarkerGenotypesEncoder markerGenotypesEncoder = CombiTestOperation.createMarkerGenotypesEncoder(
+				genotypes,
+				majorAlleles,
+				minorAlleles,
+				genotypeCounts,
+				genotypeEncoder,
+				testParams.getEncodingParams(),
+				dSamples,
+				n,
+				maxChunkSize);
+		final int dEncoded = markerGenotypesEncoder.getNumFeatures();
+
+		final boolean useLibSvm = (testParams.getSolverLibrary() == SolverLibrary.LIB_SVM);
+		final svm_parameter libSvmParameters = useLibSvm
+				? CombiTestOperation.createLibSvmParameters(testParams.getSolverParams())
+				: null;
+		final Parameter libLinearParameters = useLibSvm
+				? null
+				: CombiTestOperation.createLibLinearParameters(testParams.getSolverParams());
+
+		// The kernel and the SVM problem do not depend on the affections,
+		// so we calculate them only once.
+		final SymmetricKernelMatrix kernelMatrix = useLibSvm
+				? CombiTestOperation.encodeFeaturesAndCalculateKernel(
+						markerGenotypesEncoder, null, new NullProgressHandler<Integer>(null))
+				: null;
+		final Object sharedProblem = CombiTestOperation.createLibSvmOrLinearProblem(
+				markerGenotypesEncoder,
+				kernelMatrix,
+				toLabels(permutationsCases.get(0), n),
+				libSvmParameters,
+				libLinearParameters,
+				null,
+				null,
+				new NullProgressHandler<Integer>(null),
+				useLibSvm);
+
+		// NOTE liblinear uses a single, static random number generator,
+		//   so its results would depend on the interleaving of the threads.
+		final int numTrainingWorkers = useLibSvm ? numWorkers : 1;
+		final long memoryBudgetBytes = MemoryBoundedTaskRunner.fetchMemoryBudgetBytes();
+		final MemoryBoundedTaskRunner<TrainedPermutation> trainingRunner
+				= new MemoryBoundedTaskRunner<TrainedPermutation>(
+						"COMBI calibration SVM", numTrainingWorkers, memoryBudgetBytes / 2);
+		final long trainingBytes = useLibSvm
+				? (1024L * 1024L * (long) libSvmParameters.cache_size) + 16L * 8L * n
+				: 8L * (dEncoded + 4L * n);
+		// the encoded weights, the decoded weights and the selection
+		// of all the permutations of a batch are kept in memory at once
+		final long permutationBytes = 8L * dEncoded + 32L * dSamples + dSamples;
+		final int batchSize = (int) Math.max(1, Math.min(permutationsCases.size(),
+				(memoryBudgetBytes / 2) / permutationBytes));
+		LOG.debug("calibrating {} permutations per batch, training up to {} SVMs concurrently",
+				batchSize, numTrainingWorkers);
+
+		final double[] maxStatistics = new double[permutationsCases.size()];
+		for (int fromPermutation = 0; fromPermutation < permutationsCases.size(); fromPermutation += batchSize) {
+			final List<long[]> batchCases = permutationsCases.subList(
+					fromPermutation, Math.min(permutationsCases.size(), fromPermutation + batchSize));
+
+			final List<MemoryBoundedTaskRunner.Task<TrainedPermutation>> trainingTasks
+					= new ArrayList<MemoryBoundedTaskRunner.Task<TrainedPermutation>>(batchCases.size());
+			for (final long[] cases : batchCases) {
+				trainingTasks.add(new MemoryBoundedTaskRunner.Task<TrainedPermutation>() {
+					@Override
+					public long estimateMemoryBytes() {
+						return trainingBytes;
+					}
+
+					@Override
+					public Callable<TrainedPermutation> prepare() {
+
+						return new Callable<TrainedPermutation>() {
+							@Override
+							public TrainedPermutation call() {
+								return train(sharedProblem, libSvmParameters, libLinearParameters, cases, n);
+							}
+						};
+					}
+				});
+			}
+			final List<TrainedPermutation> trainedPermutations = trainingRunner.run(trainingTasks);
+
+			final List<double[]> batchEncodedWeights = calculateOriginalSpaceWeights(trainedPermutations, markerGenotypesEncoder);
+			final List<boolean[]> batchKept = new ArrayList<boolean[]>(batchCases.size());
+			for (int bpi = 0; bpi < batchCases.size(); bpi++) {
+				final List<Double> weights = decodeWeights(
+						trainedPermutations.get(bpi), batchEncodedWeights.get(bpi), dSamples);
+				batchKept.add(ByCombiWeightsFilterOperation.selectMarkers(
+						weights,
+						filterParams.getWeightsFilterWidth(),
+						filterParams.getMarkersToKeep(dSamples)));
+				// free the memory as soon as possible
+				batchEncodedWeights.set(bpi, null);
+			}
+
+			final double[] batchMaxStatistics = calculateMaxTrendStatistics(
+					genotypes, majorAlleles, minorAlleles, qaPassed, n, batchCases, batchKept);
+			System.arraycopy(batchMaxStatistics, 0, maxStatistics, fromPermutation, batchMaxStatistics.length);
+		}
+
+		return maxStatistics;
+	}
+
+	/**
+	 * Trains the SVM of a single permutation.
+	 * The features, respectively the kernel, are shared with
+	 * the other permutations; only the labels are specific.
+	 */
+	private static TrainedPermutation train(
+			final Object sharedProblem,
+			final svm_parameter libSvmParameters,
+			final Parameter libLinearParameters,
+			final long[] cases,
+			final int n)
+	{
+		final int numCases = countCases(cases);
+		if ((numCases == 0) || (numCases == n)) {
+			// We have only 1 class, so we can not learn anything usefull
+			return new TrainedPermutation(null, null);
+		}
+
+		try {
+			if (libSvmParameters != null) {
+				final svm_problem shared = (svm_problem) sharedProblem;
+				final svm_problem problem = new svm_problem();
+				problem.l = shared.l;
+				problem.x = shared.x;
+				problem.y = toLabelsArray(cases, n);
+				return new TrainedPermutation(
+						CombiTestOperation.extractNonZeroAlphas(svm.svm_train(problem, libSvmParameters)),
+						null);
+			} else {
+				final Problem shared = (Problem) sharedProblem;
+				final Problem problem = new Problem();
+				problem.l = shared.l;
+				problem.n = shared.n;
+				problem.x = shared.x;
+				problem.bias = shared.bias;
+				problem.y = toLabelsArray(cases, n);
+				return new TrainedPermutation(
+						null,
+						CombiTestOperation.extractFeatureWeights(Linear.train(problem, libLinearParameters)));
+			}
+		} catch (final RuntimeException ex) {
+			throw ex;
+		} catch (final Throwable thr) {
+			throw new RuntimeException(thr);
+		}
+	}
+
+	/**
+	 * Calculates the weights in the encoded feature space
+	 * of all the libSVM trained permutations at once,
+	 * so each chunk of features is encoded only once.
+	 * @see CombiTestOperation#calculateOriginalSpaceWeights
+	 * @return per permutation, the encoded weights,
+	 *   or <code>null</code> if not trained with libSVM
+	 */
+	private static List<double[]> calculateOriginalSpaceWeights(
+			final List<TrainedPermutation> trainedPermutations,
+			final MarkerGenotypesEncoder xs)
+	{
+		final List<double[]> encodedWeights = new ArrayList<double[]>(trainedPermutations.size());
+		boolean anyAlphas = false;
+		for (final TrainedPermutation trainedPermutation : trainedPermutations) {
+			if (trainedPermutation.nonZeroAlphas == null) {
+				encodedWeights.add(null);
+			} else {
+				encodedWeights.add(new double[xs.getNumFeatures()]);
+				anyAlphas = true;
+			}
+		}
+		if (!anyAlphas) {
+			return encodedWeights;
+		}
+
+		for (int ci = 0; ci < xs.size(); ci++) {
+			final Float[][] featuresChunk = xs.get(ci);
+			final int chunkSize = xs.getChunkSize(ci);
+			final int firstFeatureIndex = ci * xs.getMaxChunkSize();
+			for (int pi = 0; pi < trainedPermutations.size(); pi++) {
+				final Map<Integer, Double> nonZeroAlphas = trainedPermutations.get(pi).nonZeroAlphas;
+				if (nonZeroAlphas == null) {
+					continue;
+				}
+				final double[] weights = encodedWeights.get(pi);
+				for (final Map.Entry<Integer, Double> nonZeroAlpha : nonZeroAlphas.entrySet()) {
+					final Float[] supportVector = featuresChunk[nonZeroAlpha.getKey()];
+					final double alpha = nonZeroAlpha.getValue();
+					for (int cldi = 0; cldi < chunkSize; cldi++) {
+						weights[firstFeatureIndex + cldi] += alpha * supportVector[cldi];
+					}
+				}
+			}
+		}
+
+		return encodedWeights;
+	}
+
+	private List<Double> decodeWeights(
+			final TrainedPermutation trainedPermutation,
+			final double[] libSvmEncodedWeights,
+			final int dSamples)
+	{
+		final List<Double> encodedWeights;
+		if (trainedPermutation.encodedWeights != null) {
+			encodedWeights = trainedPermutation.encodedWeights;
+		} else if (libSvmEncodedWeights != null) {
+			encodedWeights = new AbstractList<Double>() {
+				@Override
+				public Double get(int index) {
+					return libSvmEncodedWeights[index];
+				}
+
+				@Override
+				public int size() {
+					return libSvmEncodedWeights.length;
+				}
+			};
+		} else {
+			// all samples have the same affection
+			return Collections.nCopies(dSamples, 1.0 / dSamples);
+		}
+
+		final List<Double> weights = new ArrayList<Double>(dSamples);
+		testParams.getEncoder().decodeWeights(encodedWeights, testParams.getEncodingParams(), weights);
+
+		return weights;
+	}
+}
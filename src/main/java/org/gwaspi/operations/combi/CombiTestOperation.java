@@ -37,6 +37,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import libsvm.svm;
 import libsvm.svm_model;
 import libsvm.svm_node;
@@ -48,6 +49,8 @@ import org.gwaspi.dao.OperationService;
 import org.gwaspi.global.GeneratedList;
 import org.gwaspi.global.Generator;
 import org.gwaspi.global.IndicesSubList;
+import org.gwaspi.global.MemoryBoundedTaskRunner;
+import org.gwaspi.global.OrderedBlockProcessor;
 import org.gwaspi.global.RuntimeAnalyzer;
 import org.gwaspi.model.DataSetSource;
 import org.gwaspi.model.GenotypesList;
@@ -93,7 +96,11 @@ public class CombiTestOperation
 
 	private static final boolean REQUIRE_ONLY_VALID_AFFECTION = false;
 
-	public static int KERNEL_CALCULATION_ALGORTIHM = 5;
+	/**
+	 * Number of threads used to calculate the kernel matrix;
+	 * a value <= 0 means: use the configured number of worker threads.
+	 */
+	public static int KERNEL_CALCULATION_THREADS = -1;
 
 	public static CombiTestOperationSpy spy = null;
 
@@ -120,12 +127,12 @@ public class CombiTestOperation
 
 	public static class Kernel {
 
-		private final float[][] recyclableKernelMatrix;
+		private final SymmetricKernelMatrix recyclableKernelMatrix;
 		private final svm_problem recyclableProblem;
 		private final Problem recyclableProblemLinear;
 
 		public Kernel(
-			final float[][] recyclableKernelMatrix,
+			final SymmetricKernelMatrix recyclableKernelMatrix,
 			final svm_problem recyclableProblem,
 			final Problem recyclableProblemLinear)
 		{
@@ -134,7 +141,7 @@ public class CombiTestOperation
 			this.recyclableProblemLinear = recyclableProblemLinear;
 		}
 
-		public float[][] getRecyclableKernelMatrix() {
+		public SymmetricKernelMatrix getRecyclableKernelMatrix() {
 			return recyclableKernelMatrix;
 		}
 
@@ -247,7 +254,7 @@ public class CombiTestOperation
 		}
 	}
 
-	private static Map<String, List<Integer>> extractChromToIndicesMap(
+	static Map<String, List<Integer>> extractChromToIndicesMap(
 			final DataSetSource dataSetSource)
 			throws IOException
 	{
@@ -381,69 +388,121 @@ public class CombiTestOperation
 			final Map<String, List<Integer>> markersChromosomeToIndices // TODO maybe store it from getProgressHandler()?
 					= extractChromToIndicesMap(parentDataSetSource);
 
-			final List<SampleKey> validSamplesKeys = parentDataSetSource.getSamplesKeysSource();
+			final int n = parentDataSetSource.getNumSamples();
+			final boolean useLibSvm = (getParams().getSolverLibrary() == SolverLibrary.LIB_SVM);
+
+			// NOTE liblinear uses a single, static random number generator,
+			//   so its results would depend on the interleaving of the threads.
+			//   The spy expects to see one chromosome after the other.
+			final int numConcurrentChromosomes = (useLibSvm && (spy == null))
+					? Math.max(1, Math.min(OrderedBlockProcessor.fetchNumWorkerThreads(), markersChromosomeToIndices.size()))
+					: 1;
+			// The sources are not thread-safe, so when training concurrently,
+			// all input is copied on this thread, before handing it to the workers.
+			final boolean copyInput = (numConcurrentChromosomes > 1);
+
+			final List<SampleKey> validSamplesKeys = detach(parentDataSetSource.getSamplesKeysSource(), copyInput);
 			final List<Affection> validSampleAffections;
 			if (getParams().isUsingRandomSampleAffections()) {
-				validSampleAffections = new GeneratedList<Affection>(
+				validSampleAffections = detach(new GeneratedList<Affection>(
 						validSamplesKeys.size(),
 						new Generator.EnumRandomGenerator<Affection>(
 								0L, // HACK introduce an application-wide unique random genereator/seed, for reproducible runs
 								Arrays.asList(new Double[] {0.0, 0.5, 0.5}),
-								Affection.class));
+								Affection.class)), copyInput);
 			} else {
-				validSampleAffections = parentDataSetSource.getSamplesInfosSource().getAffections();
+				validSampleAffections = detach(parentDataSetSource.getSamplesInfosSource().getAffections(), copyInput);
 			}
 
-			weights = new ArrayList<Double>(Collections.nCopies(parentDataSetSource.getNumMarkers(), -1.0));
-//			float[][] recyclableKernelMatrix = null;
-//			svm_problem recyclableProblem = null;
-//			Problem recyclableProblemLinear = null;
-			progressHandler.setNewStatus(ProcessStatus.RUNNING);
+			final List<MarkerKey> markersKeysSource = parentDataSetSource.getMarkersKeysSource();
+			final List<Byte> knownMajorAlleles = parentQAMarkersOperationDataSet.getKnownMajorAllele();
+			final List<Byte> knownMinorAlleles = parentQAMarkersOperationDataSet.getKnownMinorAllele();
+			final List<int[]> genotypeCounts = parentQAMarkersOperationDataSet.getGenotypeCounts();
+			final MarkersGenotypesSource markersGenotypesSource = parentDataSetSource.getMarkersGenotypesSource();
+			// share the processors among the concurrently trained chromosomes
+			final int kernelThreads = (numConcurrentChromosomes == 1)
+					? KERNEL_CALCULATION_THREADS
+					: Math.max(1, OrderedBlockProcessor.fetchNumWorkerThreads() / numConcurrentChromosomes);
+
+			final List<MemoryBoundedTaskRunner.Task<RunSVMResults>> chromosomeTasks
+					= new ArrayList<MemoryBoundedTaskRunner.Task<RunSVMResults>>(markersChromosomeToIndices.size());
 			int chromoIndex = 0;
 			for (final Map.Entry<String, List<Integer>> markerChromosomeIndices : markersChromosomeToIndices.entrySet()) {
-//				final String chromosome = markerChromosomeIndices.getKey();
-				final SvmProgressHandler phSvmChromosome = svmPHs.get(chromoIndex);
+				final String chromosome = markerChromosomeIndices.getKey();
+				final int curChromoIndex = chromoIndex++;
+				final SvmProgressHandler phSvmChromosome = svmPHs.get(curChromoIndex);
 				final List<Integer> markerIndices = markerChromosomeIndices.getValue();
+				chromosomeTasks.add(new MemoryBoundedTaskRunner.Task<RunSVMResults>() {
+					@Override
+					public long estimateMemoryBytes() {
+						final int dSamples = markerIndices.size();
+						final int dEncoded = dSamples * getParams().getEncoder().getEncodingFactor();
+						return estimateSvmMemoryBytes(n, dSamples, dEncoded, useLibSvm);
+					}
 
-				phSvmChromosome.setNewStatus(ProcessStatus.INITIALIZING);
-				// run SVM only once, genome-wide
-				final int dSamples = markerIndices.size();
-				final int dEncoded = dSamples * getParams().getEncoder().getEncodingFactor();
-				final int n = parentDataSetSource.getNumSamples();
-
-				final List<MarkerKey> markerKeys = new IndicesSubList<MarkerKey>(parentDataSetSource.getMarkersKeysSource(), markerIndices);
-
-				LOG.debug("Combi Association Test: #samples: " + n);
-				LOG.debug("Combi Association Test: #markers: " + dSamples);
-				LOG.debug("Combi Association Test: encoding factor: " + getParams().getEncoder().getEncodingFactor());
-				LOG.debug("Combi Association Test: #SVM-dimensions: " + dEncoded);
-
-				final List<Byte> majorAlleles = new IndicesSubList<Byte>(parentQAMarkersOperationDataSet.getKnownMajorAllele(), markerIndices);
-				final List<Byte> minorAlleles = new IndicesSubList<Byte>(parentQAMarkersOperationDataSet.getKnownMinorAllele(), markerIndices);
-				final List<int[]> markerGenotypesCounts = new IndicesSubList<int[]>(parentQAMarkersOperationDataSet.getGenotypeCounts(), markerIndices);
-				final List<GenotypesList> markersGenotypesSource = new IndicesSubList<GenotypesList>(parentDataSetSource.getMarkersGenotypesSource(), markerIndices);
-
-				phSvmChromosome.setNewStatus(ProcessStatus.RUNNING);
-				RuntimeAnalyzer.getInstance().log("SVM-training-narrow-perChromosome", true);
-				final RunSVMResults svmResults = runEncodingAndSVM(
-						markerKeys,
-						majorAlleles,
-						minorAlleles,
-						markerGenotypesCounts,
-						validSamplesKeys,
-						validSampleAffections,
-						markersGenotypesSource,
-						getParams().getEncoder(),
-						getParams().getEncodingParams(),
-						getParams().getSolverLibrary(),
-						getParams().getSolverParams(),
-						kernel == null ? null : kernel.get(chromoIndex),
-						phSvmChromosome);
+					@Override
+					public Callable<RunSVMResults> prepare() throws IOException {
+
+						phSvmChromosome.setNewStatus(ProcessStatus.INITIALIZING);
+						final int dSamples = markerIndices.size();
+						final int dEncoded = dSamples * getParams().getEncoder().getEncodingFactor();
+
+						LOG.debug("Combi Association Test: #samples: " + n);
+						LOG.debug("Combi Association Test: #markers: " + dSamples);
+						LOG.debug("Combi Association Test: encoding factor: " + getParams().getEncoder().getEncodingFactor());
+						LOG.debug("Combi Association Test: #SVM-dimensions: " + dEncoded);
+
+						final List<MarkerKey> markerKeys = detach(new IndicesSubList<MarkerKey>(markersKeysSource, markerIndices), copyInput);
+						final List<Byte> majorAlleles = detach(new IndicesSubList<Byte>(knownMajorAlleles, markerIndices), copyInput);
+						final List<Byte> minorAlleles = detach(new IndicesSubList<Byte>(knownMinorAlleles, markerIndices), copyInput);
+						final List<int[]> markerGenotypesCounts = detach(new IndicesSubList<int[]>(genotypeCounts, markerIndices), copyInput);
+						final List<GenotypesList> markersGenotypes = detach(new IndicesSubList<GenotypesList>(markersGenotypesSource, markerIndices), copyInput);
+						final Kernel recyclableKernel = (kernel == null) ? null : kernel.get(curChromoIndex);
+
+						return new Callable<RunSVMResults>() {
+							@Override
+							public RunSVMResults call() throws IOException {
+
+								phSvmChromosome.setNewStatus(ProcessStatus.RUNNING);
+								RuntimeAnalyzer.getInstance().log("SVM-training-narrow-perChromosome-" + chromosome, true);
+								final RunSVMResults svmResults = runEncodingAndSVM(
+										markerKeys,
+										majorAlleles,
+										minorAlleles,
+										markerGenotypesCounts,
+										validSamplesKeys,
+										validSampleAffections,
+										markersGenotypes,
+										getParams().getEncoder(),
+										getParams().getEncodingParams(),
+										getParams().getSolverLibrary(),
+										getParams().getSolverParams(),
+										recyclableKernel,
+										phSvmChromosome,
+										kernelThreads);
+								RuntimeAnalyzer.getInstance().log("SVM-training-narrow-perChromosome-" + chromosome, false);
+								phSvmChromosome.setNewStatus(ProcessStatus.FINALIZING);
+								return svmResults;
+							}
+						};
+					}
+				});
+			}
+
+			weights = new ArrayList<Double>(Collections.nCopies(parentDataSetSource.getNumMarkers(), -1.0));
+			progressHandler.setNewStatus(ProcessStatus.RUNNING);
+			final MemoryBoundedTaskRunner<RunSVMResults> svmRunner = new MemoryBoundedTaskRunner<RunSVMResults>(
+					"COMBI SVM", numConcurrentChromosomes, MemoryBoundedTaskRunner.fetchMemoryBudgetBytes());
+			LOG.debug("training up to {} chromosomes concurrently, within {}",
+					numConcurrentChromosomes, Util.bytes2humanReadable(svmRunner.getMemoryBudgetBytes()));
+			final List<RunSVMResults> chromosomesSvmResults = svmRunner.run(chromosomeTasks);
+
+			chromoIndex = 0;
+			for (final List<Integer> markerIndices : markersChromosomeToIndices.values()) {
+				final RunSVMResults svmResults = chromosomesSvmResults.get(chromoIndex);
 				if (kernel != null) {
 					kernel.set(chromoIndex, svmResults.getRecyclableKernel());
 				}
-				RuntimeAnalyzer.getInstance().log("SVM-training-narrow-perChromosome", false);
-				phSvmChromosome.setNewStatus(ProcessStatus.FINALIZING);
 				final List<Double> chromosomeWeights = svmResults.getWeights();
 
 				int chromosomeMarkerIndex = 0;
@@ -451,7 +510,7 @@ public class CombiTestOperation
 					weights.set(genomeMarkerIndex, chromosomeWeights.get(chromosomeMarkerIndex++));
 				}
 
-				phSvmChromosome.setNewStatus(ProcessStatus.COMPLEETED);
+				svmPHs.get(chromoIndex).setNewStatus(ProcessStatus.COMPLEETED);
 				chromoIndex++;
 			}
 			progressHandler.setNewStatus(ProcessStatus.FINALIZING);
@@ -526,6 +585,41 @@ public class CombiTestOperation
 		return dataSet.getOperationKey();
 	}
 
+	/**
+	 * Returns an in-memory copy of the given list if required,
+	 * or the (possibly lazy) list itself otherwise.
+	 * @param list to be detached from its backing source
+	 * @param copy whether to create a copy
+	 */
+	private static <T> List<T> detach(final List<T> list, final boolean copy) {
+		return copy ? new ArrayList<T>(list) : list;
+	}
+
+	/**
+	 * Estimates the memory required to train a single SVM,
+	 * which is dominated by the kernel matrix and the lib{SVM, Linear} problem.
+	 * @param n #samples
+	 * @param dSamples #markers
+	 * @param dEncoded #SVM-dimensions
+	 * @param useLibSvm whether a precomputed kernel is used
+	 */
+	static long estimateSvmMemoryBytes(final int n, final int dSamples, final int dEncoded, final boolean useLibSvm) {
+
+		// the genotypes of all the markers, as read from the storage
+		long bytes = (long) n * dSamples * 2;
+		if (useLibSvm) {
+			if (SymmetricKernelMatrix.isStoredOnHeap(n)) {
+				bytes += SymmetricKernelMatrix.calcNumBytes(n);
+			}
+			bytes += Util.calcKernelBytes(n);
+		} else {
+			// the features, stored as libLinear nodes
+			bytes += (long) n * dEncoded * (8 + 4 + 8);
+		}
+
+		return bytes;
+	}
+
 	private static Map<SampleKey, Double> encodeAffectionStates(final List<SampleKey> sampleKeys, final List<Affection> sampleAffections) {
 
 		// we use LinkedHashMap to preserve the input order
@@ -627,17 +721,37 @@ public class CombiTestOperation
 		return sysState.toString();
 	}
 
-	static float[][] encodeFeaturesAndCalculateKernel(
+	static SymmetricKernelMatrix encodeFeaturesAndCalculateKernel(
 			final MarkerGenotypesEncoder markerGenotypesEncoder,
-			final float[][] recyclableKernelMatrix,
+			final SymmetricKernelMatrix recyclableKernelMatrix,
 			final ProgressHandler<Integer> creatingKernelMatrixPH)
 			throws IOException
+	{
+		return encodeFeaturesAndCalculateKernel(
+				markerGenotypesEncoder,
+				recyclableKernelMatrix,
+				creatingKernelMatrixPH,
+				KERNEL_CALCULATION_THREADS);
+	}
+
+	/**
+	 * @param kernelThreads number of threads used to calculate the kernel matrix;
+	 *   a value <= 0 means: use the configured number of worker threads
+	 */
+	static SymmetricKernelMatrix encodeFeaturesAndCalculateKernel(
+			final MarkerGenotypesEncoder markerGenotypesEncoder,
+			final SymmetricKernelMatrix recyclableKernelMatrix,
+			final ProgressHandler<Integer> creatingKernelMatrixPH,
+			final int kernelThreads)
+			throws IOException
 	{
 		final int n = markerGenotypesEncoder.getNumSamples();
 
-		final float[][] kernelMatrix;
+		final SymmetricKernelMatrix kernelMatrix;
 		final boolean recycleKernel;
-		if (recyclableKernelMatrix != null && (recyclableKernelMatrix.length >= n)) {
+		// NOTE The packed upper triangle layout depends on the number of samples,
+		//   so only a kernel matrix of exactly the same size can be recycled.
+		if (recyclableKernelMatrix != null && (recyclableKernelMatrix.getNumSamples() == n)) {
 			kernelMatrix = recyclableKernelMatrix;
 			recycleKernel = true;
 		} else {
@@ -647,11 +761,17 @@ public class CombiTestOperation
 				//   We use float instead of double to half the memory,
 				//   this might be subject to change, as in:
 				//   change to use double.
-				LOG.info("allocating kernel-matrix memory: {}", Util.bytes2humanReadable(4L * n * n));
+				//   As the kernel is symmetric, we only store the upper triangle.
+				//   Large kernels are stored in a memory mapped scratch file.
+				LOG.info("allocating kernel-matrix memory: {} ({})",
+						Util.bytes2humanReadable(SymmetricKernelMatrix.calcNumBytes(n)),
+						SymmetricKernelMatrix.isStoredOnHeap(n) ? "heap" : "memory mapped file");
 				LOG.debug(fetchSystemState());
-				kernelMatrix = new float[n][n];
+				kernelMatrix = SymmetricKernelMatrix.create(n);
 			} catch (final OutOfMemoryError er) {
 				throw new IOException(er);
+			} catch (final IllegalArgumentException ex) {
+				throw new IOException(ex);
 			}
 		}
 
@@ -659,7 +779,8 @@ public class CombiTestOperation
 			encodeFeaturesAndCreateKernelMatrix(
 					markerGenotypesEncoder,
 					kernelMatrix,
-					creatingKernelMatrixPH);
+					creatingKernelMatrixPH,
+					kernelThreads);
 		}
 
 		return kernelMatrix;
@@ -717,6 +838,44 @@ public class CombiTestOperation
 			final Kernel recyclableKernel,
 			final SvmProgressHandler svmPH)
 			throws IOException
+	{
+		return runEncodingAndSVM(
+				markerKeys,
+				majorAlleles,
+				minorAlleles,
+				markerGenotypesCounts,
+				sampleKeys,
+				sampleAffections,
+				markerGTs,
+				genotypeEncoder,
+				genotypeEncodingParams,
+				solverLibrary,
+				solverParams,
+				recyclableKernel,
+				svmPH,
+				KERNEL_CALCULATION_THREADS);
+	}
+
+	/**
+	 * @param kernelThreads number of threads used to calculate the kernel matrix;
+	 *   a value <= 0 means: use the configured number of worker threads
+	 */
+	static RunSVMResults runEncodingAndSVM(
+			List<MarkerKey> markerKeys,
+			final List<Byte> majorAlleles,
+			final List<Byte> minorAlleles,
+			final List<int[]> markerGenotypesCounts,
+			List<SampleKey> sampleKeys,
+			List<Affection> sampleAffections,
+			List<GenotypesList> markerGTs,
+			GenotypeEncoder genotypeEncoder,
+			final GenotypeEncodingParams genotypeEncodingParams,
+			final SolverLibrary solverLibrary,
+			final SolverParams solverParams,
+			final Kernel recyclableKernel,
+			final SvmProgressHandler svmPH,
+			final int kernelThreads)
+			throws IOException
 	{
 		final int dSamples = markerKeys.size();
 		final int n = sampleKeys.size();
@@ -768,9 +927,9 @@ public class CombiTestOperation
 			spy.initializing(markerKeys, majorAlleles, minorAlleles, markerGenotypesCounts, sampleKeys, sampleAffections, markerGTs, genotypeEncoder, markerGenotypesEncoder);
 		}
 
-		final float[][] kernelMatrix;
+		final SymmetricKernelMatrix kernelMatrix;
 		if (useLibSvm) {
-			kernelMatrix = encodeFeaturesAndCalculateKernel(markerGenotypesEncoder, recyclableKernel == null ? null : recyclableKernel.getRecyclableKernelMatrix(), svmPH.getCreatingKernelMatrixPH());
+			kernelMatrix = encodeFeaturesAndCalculateKernel(markerGenotypesEncoder, recyclableKernel == null ? null : recyclableKernel.getRecyclableKernelMatrix(), svmPH.getCreatingKernelMatrixPH(), kernelThreads);
 
 			if (spy != null) {
 				spy.kernelCalculated(kernelMatrix);
@@ -856,156 +1015,59 @@ public class CombiTestOperation
 	/**
 	 * Doing all of this in one method, allows us to balance max memory usage
 	 * vs back-end storage (usually the hard-disc) reads.
-	 * NOTE XXX We could save more memory by storing only half of the kernel matrix,
-	 * as it is symmetric.
+	 * Each chunk of features is copied into a primitive, row-major block,
+	 * which is then added to the kernel matrix by a {@link KernelCalculator}.
 	 * @param markerGenotypesEncoder
 	 * @param kernelMatrix
 	 * @param creatingKernelMatrixProgressSource
+	 * @param kernelThreads
 	 * @throws IOException
 	 */
 	private static void encodeFeaturesAndCreateKernelMatrix(
 			final MarkerGenotypesEncoder markerGenotypesEncoder,
-			final float[][] kernelMatrix,
-			final ProgressHandler<Integer> creatingKernelMatrixProgressSource)
+			final SymmetricKernelMatrix kernelMatrix,
+			final ProgressHandler<Integer> creatingKernelMatrixProgressSource,
+			final int kernelThreads)
 			throws IOException
 	{
-		final int n = markerGenotypesEncoder.getNumSamples();
-
 		// initialize the kernelMatrix
 		// this should not be required, if the array was just created,
 		// but who knows who will call this function in what way in the future!?
 		LOG.info("initialize kernel-matrix values to 0.0 ...");
 		creatingKernelMatrixProgressSource.setNewStatus(ProcessStatus.INITIALIZING);
-		for (int kernelRowIndex = 0; kernelRowIndex < n; kernelRowIndex++) {
-			Arrays.fill(kernelMatrix[kernelRowIndex], 0.0f);
-
-		}
+		kernelMatrix.clear();
 
 		LOG.info("calculate the kernel-matrix ...");
 		creatingKernelMatrixProgressSource.setNewStatus(ProcessStatus.RUNNING);
-		// XXX this loop uses lots of time!
-		for (int fci = 0; fci < markerGenotypesEncoder.size(); fci++) {
-			final Float[][] featuresChunk = markerGenotypesEncoder.get(fci);
-			final int numFeaturesInChunk = markerGenotypesEncoder.getChunkSize(fci);
-			// assert
-			for (int row = 0; row < featuresChunk.length; row++) {
-				for (int col = 0; col < featuresChunk[row].length; col++) {
-					if (Double.isNaN(featuresChunk[row][col])) {
+		final KernelCalculator kernelCalculator = (kernelThreads > 0)
+				? new KernelCalculator(kernelThreads)
+				: new KernelCalculator();
+		try {
+			float[] featuresBlock = null;
+			for (int fci = 0; fci < markerGenotypesEncoder.size(); fci++) {
+				featuresBlock = markerGenotypesEncoder.getFeaturesBlock(fci, featuresBlock);
+				final int numFeaturesInChunk = markerGenotypesEncoder.getChunkSize(fci);
+				// assert
+				final int numValues = markerGenotypesEncoder.getNumSamples() * numFeaturesInChunk;
+				for (int vi = 0; vi < numValues; vi++) {
+					if (Float.isNaN(featuresBlock[vi])) {
 						throw new IllegalStateException("feature matrix part is NaN:"
 								+ " fci="  + fci
-								+ " row=" + row
-								+ " col=" + col);
+								+ " row=" + (vi / numFeaturesInChunk)
+								+ " col=" + (vi % numFeaturesInChunk));
 					}
 				}
-			}
 
-			calculateKernelMatrixPart(n, kernelMatrix, featuresChunk, numFeaturesInChunk);
-			creatingKernelMatrixProgressSource.setProgress(fci);
+				kernelCalculator.addFeatures(kernelMatrix, featuresBlock, numFeaturesInChunk);
+				creatingKernelMatrixProgressSource.setProgress(fci);
+			}
+		} finally {
+			kernelCalculator.close();
 		}
 		creatingKernelMatrixProgressSource.setNewStatus(ProcessStatus.FINALIZING);
 		creatingKernelMatrixProgressSource.setNewStatus(ProcessStatus.COMPLEETED);
 	}
 
-	/**
-	 * Calculates the part of the kernel matrix defined by
-	 * the supplied chunk of the feature matrix.
-	 * @param n #samples == kernel size
-	 * @param kernelMatrix n*n matrix (though the actual 2D array might be bigger, do not use additional elements!)
-	 * @param featuresChunk
-	 * @param numFeaturesInChunk
-	 */
-	private static void calculateKernelMatrixPart(
-			final int n,
-			final float[][] kernelMatrix,
-			final Float[][] featuresChunk,
-			final int numFeaturesInChunk)
-	{
-		// Test data-set: ~ 22'000 markers, ~ 1'200 samples
-
-		switch (KERNEL_CALCULATION_ALGORTIHM) {
-			case 0:
-				// With this version, encoding of the whole feature-matrix takes ~ 3'200s (73 markers chunks)
-				for (int smi = 0; smi < numFeaturesInChunk; smi++) {
-					for (int krci = 0; krci < n; krci++) { // kernel column sample index
-						final float curColValue = featuresChunk[krci][smi];
-						for (int krsi = 0; krsi < n; krsi++) { // kernel row sample index
-							final float curRowValue = featuresChunk[krsi][smi];
-							kernelMatrix[krsi][krci] += curRowValue * curColValue;
-						}
-					}
-				}
-				break;
-
-			case 1:
-				// With this version, encoding of the whole feature-matrix takes ~ 3'000s (73 markers chunks)
-				for (int krci = 0; krci < n; krci++) { // kernel column sample index
-					for (int smi = 0; smi < numFeaturesInChunk; smi++) {
-						for (int krsi = 0; krsi < n; krsi++) { // kernel row sample index
-							kernelMatrix[krsi][krci] += featuresChunk[krsi][smi] * featuresChunk[krci][smi];
-						}
-					}
-				}
-				break;
-
-			case 2:
-				// With this version, encoding of the whole feature-matrix takes ~ 1'900s (73 markers chunks)
-				for (int krsi = 0; krsi < n; krsi++) { // kernel row sample index
-					for (int smi = 0; smi < numFeaturesInChunk; smi++) {
-						for (int krci = 0; krci < n; krci++) { // kernel column sample index
-							kernelMatrix[krsi][krci] += featuresChunk[krsi][smi] * featuresChunk[krci][smi];
-						}
-					}
-				}
-				break;
-
-			case 3:
-				// With this version, encoding of the whole feature-matrix takes ~ 900s (73 markers chunks)
-				for (int smi = 0; smi < numFeaturesInChunk; smi++) {
-					for (int krsi = 0; krsi < n; krsi++) { // kernel row sample index
-						for (int krci = 0; krci < n; krci++) { // kernel column sample index
-							kernelMatrix[krsi][krci] += featuresChunk[krsi][smi] * featuresChunk[krci][smi];
-						}
-					}
-				}
-				break;
-
-			case 4:
-				// With this version, encoding of the whole feature-matrix takes ~ 430s (73 markers chunks)
-				for (int krci = 0; krci < n; krci++) { // kernel column sample index
-					for (int krsi = 0; krsi < n; krsi++) { // kernel row sample index
-						for (int smi = 0; smi < numFeaturesInChunk; smi++) {
-							kernelMatrix[krsi][krci] += featuresChunk[krsi][smi] * featuresChunk[krci][smi];
-						}
-					}
-				}
-				break;
-
-			case 5:
-				// With this version, encoding of the whole feature-matrix takes ~ 400s (73 markers chunks)
-				for (int krsi = 0; krsi < n; krsi++) { // kernel row sample index
-					for (int krci = 0; krci < n; krci++) { // kernel column sample index
-						for (int smi = 0; smi < numFeaturesInChunk; smi++) {
-							kernelMatrix[krsi][krci] += featuresChunk[krsi][smi] * featuresChunk[krci][smi];
-
-							// assert
-//							if (Double.isNaN(kernelMatrix[krsi][krci])) {
-//								throw new IllegalStateException("kernel matrix is NaN:"
-//										+ " krsi=" + krsi
-//										+ " krci=" + krci
-//										+ " smi=" + smi
-//										+ " featuresChunk[krsi][smi]=" + featuresChunk[krsi][smi]
-//										+ " featuresChunk[krci][smi]=" + featuresChunk[krci][smi]);
-//							}
-						}
-					}
-				}
-				break;
-
-			default:
-				throw new UnsupportedOperationException("KERNEL_CALCULATION_ALGORTIHM has to have a value in [0, 5], is: " + KERNEL_CALCULATION_ALGORTIHM);
-		}
-	}
-
 	private static void createAndAddKernelNode(
 			final svm_problem probSvm,
 			final Problem probLinear,
@@ -1025,9 +1087,9 @@ public class CombiTestOperation
 		}
 	}
 
-	private static Object createLibSvmOrLinearProblem(
+	static Object createLibSvmOrLinearProblem(
 			final MarkerGenotypesEncoder markerGenotypesEncoder,
-			final float[][] kernelMatrix,
+			final SymmetricKernelMatrix kernelMatrix,
 			final Collection<Double> labels,
 			final svm_parameter libSvmParameters,
 			final Parameter libLinearParameters,
@@ -1068,7 +1130,7 @@ public class CombiTestOperation
 			throw new IllegalStateException("unsupported lib{SVM, Linear} kernel type: " + libSvmParameters.kernel_type);
 		}
 		// transfer the kernel
-		final int libSvmProblemBytes = (n * 8) + (n * n * (8 + 4 + 8));
+		final long libSvmProblemBytes = Util.calcKernelBytes(n);
 		final String humanReadableLibSvmProblemMemory = Util.bytes2humanReadable(libSvmProblemBytes);
 		LOG.debug("lib{SVM, Linear} preparation: required memory: ~ {} (on a 64bit system)", humanReadableLibSvmProblemMemory);
 
@@ -1114,11 +1176,12 @@ public class CombiTestOperation
 					createAndAddKernelNode(probSvm, probLinear, si, 0, si + 1, useLibSvm);
 
 					for (int s2i = si; s2i < n; s2i++) {
-						final double kernelValue = kernelMatrix[s2i][si]; // XXX or indices other way around?
+						final double kernelValue = kernelMatrix.get(s2i, si);
 
 						createAndAddKernelNode(probSvm, probLinear, si, 1 + s2i, kernelValue, useLibSvm);
 						if (si != s2i) {
-							// because the matrix is symmetric
+							// because the matrix is symmetric,
+							// the other half gets the same value, with its own index
 							createAndAddKernelNode(probSvm, probLinear, s2i, 1 + si, kernelValue, useLibSvm);
 						}
 					}
@@ -1180,12 +1243,12 @@ public class CombiTestOperation
 		return prob;
 	}
 
-	private static Parameter createLibLinearParameters(final SolverParams solverParams) {
+	static Parameter createLibLinearParameters(final SolverParams solverParams) {
 
 		return new Parameter(SolverType.L2R_L1LOSS_SVC_DUAL, solverParams.getC(), solverParams.getEps()/*, p*/);
 	}
 
-	private static svm_parameter createLibSvmParameters(final SolverParams solverParams) {
+	static svm_parameter createLibSvmParameters(final SolverParams solverParams) {
 
 		svm_parameter svmParams = new svm_parameter();
 
@@ -44,7 +44,8 @@ public class CombiTestOperationParams extends AbstractOperationParams {
 	/**
 	 * The number of total markers in the matrix we operate on, unfiltered.
 	 */
-	private Integer totalMarkers;
+	/** Lazily fetched from the parent, and thus not part of the parameters as such. */
+	private transient Integer totalMarkers;
 	/**
 	 * Whether to use a directly specified threshold calibration alpha value,
 	 * or evaluate one based on a P-Value target.
@@ -38,7 +38,7 @@ public interface CombiTestOperationSpy {
 			GenotypeEncoder genotypeEncoder,
 			MarkerGenotypesEncoder markerGenotypesEncoder);
 
-	void kernelCalculated(float[][] K);
+	void kernelCalculated(SymmetricKernelMatrix K);
 
 	void svmModelTrained(svm_model svmModel, Model svmModelLinear);
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations.combi;
+
+import java.util.Arrays;
+
+/**
+ * A symmetric kernel matrix stored in a single array on the heap.
+ */
+public class HeapSymmetricKernelMatrix extends SymmetricKernelMatrix {
+
+	/**
+	 * The maximum number of samples supported,
+	 * so the packed triangle still fits into a single Java array.
+	 */
+	public static final int MAX_SAMPLES = 65535;
+
+	private final float[] values;
+
+	public HeapSymmetricKernelMatrix(final int n) {
+		super(n);
+
+		if (n > MAX_SAMPLES) {
+			throw new IllegalArgumentException("The number of samples has to be in [0, "
+					+ MAX_SAMPLES + "], but is " + n);
+		}
+		this.values = new float[(int) calcNumValues(n)];
+	}
+
+	@Override
+	protected float getPacked(final long index) {
+		return values[(int) index];
+	}
+
+	@Override
+	void addToBand(final int fromRow, final int toRow, final float[] bandValues) {
+
+		final int bandStart = (int) calcRowStart(getNumSamples(), fromRow);
+		final int bandLength = (int) (calcRowStart(getNumSamples(), toRow) - bandStart);
+		for (int vi = 0; vi < bandLength; vi++) {
+			values[bandStart + vi] += bandValues[vi];
+		}
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(values, 0.0f);
+	}
+}
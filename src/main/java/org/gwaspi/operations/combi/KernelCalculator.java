@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.combi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.gwaspi.global.OrderedBlockProcessor;
+
+/**
+ * Accumulates the linear kernel <code>K += X * X^T</code>
+ * of blocks of the feature matrix <code>X</code>.
+ * Only the upper triangle of the kernel is calculated,
+ * in tiles of {@link #TILE_SIZE} x {@link #TILE_SIZE} samples,
+ * so the features of both tiles stay in the CPU cache.
+ * Each band of rows is calculated by a single task into a local buffer,
+ * which is then added to the kernel matrix in one go;
+ * this keeps the accesses to a memory mapped matrix sequential.
+ * The bands are distributed over a pool of worker threads.
+ * Call {@link #close()} when done, to stop the worker threads.
+ */
+class KernelCalculator {
+
+	/** Number of samples per side of a tile. */
+	static final int TILE_SIZE = 64;
+
+	private final int numThreads;
+	private ExecutorService workers;
+	/** Reused per thread, to not allocate a whole kernel worth of garbage per features block. */
+	private final ThreadLocal<float[]> bandBuffers;
+
+	KernelCalculator(final int numThreads) {
+
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Number of threads has to be at least 1, but is " + numThreads);
+		}
+		this.numThreads = numThreads;
+		this.workers = null;
+		this.bandBuffers = new ThreadLocal<float[]>();
+	}
+
+	KernelCalculator() {
+		this(OrderedBlockProcessor.fetchNumWorkerThreads());
+	}
+
+	/**
+	 * Adds the kernel of a block of features to the given kernel matrix.
+	 * @param kernel the kernel matrix to add to
+	 * @param features row-major <code>n x numFeatures</code> matrix,
+	 *   one row per sample
+	 * @param numFeatures the number of features (columns) in the block
+	 */
+	void addFeatures(
+			final SymmetricKernelMatrix kernel,
+			final float[] features,
+			final int numFeatures)
+			throws IOException
+	{
+		final int n = kernel.getNumSamples();
+		if (features.length < (long) n * numFeatures) {
+			throw new IllegalArgumentException("Features block too small: "
+					+ features.length + " < " + n + " * " + numFeatures);
+		}
+
+		if ((numThreads == 1) || (n <= TILE_SIZE)) {
+			for (int fromRow = 0; fromRow < n; fromRow += TILE_SIZE) {
+				addFeaturesBand(kernel, features, numFeatures, fromRow, Math.min(n, fromRow + TILE_SIZE));
+			}
+			return;
+		}
+
+		if (workers == null) {
+			workers = OrderedBlockProcessor.createWorkerPool("kernel", numThreads);
+		}
+		// The first bands contain the most tiles,
+		// so submitting them first balances the load.
+		final List<Future<Void>> bandResults = new ArrayList<Future<Void>>(n / TILE_SIZE + 1);
+		for (int fromRow = 0; fromRow < n; fromRow += TILE_SIZE) {
+			final int bandFromRow = fromRow;
+			final int bandToRow = Math.min(n, fromRow + TILE_SIZE);
+			bandResults.add(workers.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					addFeaturesBand(kernel, features, numFeatures, bandFromRow, bandToRow);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (final Future<Void> bandResult : bandResults) {
+				bandResult.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while calculating the kernel", ex);
+		} catch (ExecutionException ex) {
+			throw new IOException("Failed to calculate the kernel", ex.getCause());
+		}
+	}
+
+	private void addFeaturesBand(
+			final SymmetricKernelMatrix kernel,
+			final float[] features,
+			final int numFeatures,
+			final int fromRow,
+			final int toRow)
+	{
+		final int n = kernel.getNumSamples();
+		final int bandLength = (int) (SymmetricKernelMatrix.calcRowStart(n, toRow)
+				- SymmetricKernelMatrix.calcRowStart(n, fromRow));
+		float[] bandValues = bandBuffers.get();
+		if ((bandValues == null) || (bandValues.length < bandLength)) {
+			bandValues = new float[bandLength];
+			bandBuffers.set(bandValues);
+		} else {
+			Arrays.fill(bandValues, 0, bandLength, 0.0f);
+		}
+		calculateBand(bandValues, n, features, numFeatures, fromRow, toRow);
+		kernel.addToBand(fromRow, toRow, bandValues);
+	}
+
+	/**
+	 * Calculates the upper triangle part of a band of rows of the kernel.
+	 * @param bandValues where to add the packed values of the band to,
+	 *   starting with the diagonal value of <code>fromRow</code>
+	 * @param fromRow first row of the band
+	 * @param toRow last row of the band (exclusive)
+	 */
+	static void calculateBand(
+			final float[] bandValues,
+			final int n,
+			final float[] features,
+			final int numFeatures,
+			final int fromRow,
+			final int toRow)
+	{
+		final long bandStart = SymmetricKernelMatrix.calcRowStart(n, fromRow);
+		for (int fromCol = fromRow; fromCol < n; fromCol += TILE_SIZE) {
+			final int toCol = Math.min(n, fromCol + TILE_SIZE);
+			for (int row = fromRow; row < toRow; row++) {
+				final int rowFeatures = row * numFeatures;
+				final int rowStart = (int) (SymmetricKernelMatrix.calcRowStart(n, row) - bandStart) - row;
+				for (int col = Math.max(row, fromCol); col < toCol; col++) {
+					bandValues[rowStart + col] += dot(features, rowFeatures, col * numFeatures, numFeatures);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Uses multiple independent sums,
+	 * which allows the JIT to pipeline or vectorize the loop.
+	 */
+	private static float dot(final float[] values, final int offsetA, final int offsetB, final int length) {
+
+		float sum0 = 0.0f;
+		float sum1 = 0.0f;
+		float sum2 = 0.0f;
+		float sum3 = 0.0f;
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			sum0 += values[offsetA + i] * values[offsetB + i];
+			sum1 += values[offsetA + i + 1] * values[offsetB + i + 1];
+			sum2 += values[offsetA + i + 2] * values[offsetB + i + 2];
+			sum3 += values[offsetA + i + 3] * values[offsetB + i + 3];
+		}
+		for (; i < length; i++) {
+			sum0 += values[offsetA + i] * values[offsetB + i];
+		}
+
+		return (sum0 + sum1) + (sum2 + sum3);
+	}
+
+	void close() {
+
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+	}
+}
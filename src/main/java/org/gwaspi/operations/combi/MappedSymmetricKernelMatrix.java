@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations.combi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A symmetric kernel matrix stored in a memory mapped scratch file,
+ * which allows to handle more samples then would fit into the heap.
+ * The operating system pages the parts of the matrix in and out as required.
+ * The scratch file is removed as soon as possible:
+ * right after mapping it where the OS allows this,
+ * or else when the JVM exits.
+ */
+public class MappedSymmetricKernelMatrix extends SymmetricKernelMatrix {
+
+	private static final Logger LOG
+			= LoggerFactory.getLogger(MappedSymmetricKernelMatrix.class);
+
+	/**
+	 * Number of values per memory mapped segment.
+	 * Java can not map more then 2GB at once.
+	 */
+	private static final int SEGMENT_VALUES_BITS = 28;
+	private static final long SEGMENT_VALUES = 1L << SEGMENT_VALUES_BITS;
+	private static final long SEGMENT_VALUES_MASK = SEGMENT_VALUES - 1;
+	private static final int CLEAR_BLOCK_VALUES = 64 * 1024;
+
+	private final FloatBuffer[] segments;
+
+	public MappedSymmetricKernelMatrix(final int n, final File scratchFile) throws IOException {
+		super(n);
+
+		final long numValues = calcNumValues(n);
+		final int numSegments = (int) ((numValues + SEGMENT_VALUES - 1) >>> SEGMENT_VALUES_BITS);
+		this.segments = new FloatBuffer[numSegments];
+		final RandomAccessFile raFile = new RandomAccessFile(scratchFile, "rw");
+		try {
+			// the new file content is all zeros
+			raFile.setLength(4L * numValues);
+			final FileChannel channel = raFile.getChannel();
+			for (int si = 0; si < numSegments; si++) {
+				final long segmentStart = si * SEGMENT_VALUES;
+				final long segmentValues = Math.min(SEGMENT_VALUES, numValues - segmentStart);
+				segments[si] = channel.map(FileChannel.MapMode.READ_WRITE, 4L * segmentStart, 4L * segmentValues).asFloatBuffer();
+			}
+		} finally {
+			// the memory mapped segments stay valid after closing
+			raFile.close();
+		}
+		if (!scratchFile.delete()) {
+			scratchFile.deleteOnExit();
+		}
+	}
+
+	public MappedSymmetricKernelMatrix(final int n) throws IOException {
+		this(n, createScratchFile(n));
+	}
+
+	private static File createScratchFile(final int n) throws IOException {
+
+		final File scratchFile = File.createTempFile("gwaspiKernel", ".bin");
+		LOG.info("storing the {} x {} kernel-matrix in the scratch file {}",
+				new Object[] {n, n, scratchFile.getAbsolutePath()});
+
+		return scratchFile;
+	}
+
+	@Override
+	protected float getPacked(final long index) {
+		return segments[(int) (index >>> SEGMENT_VALUES_BITS)].get((int) (index & SEGMENT_VALUES_MASK));
+	}
+
+	@Override
+	void addToBand(final int fromRow, final int toRow, final float[] bandValues) {
+
+		final long bandStart = calcRowStart(getNumSamples(), fromRow);
+		final int bandLength = (int) (calcRowStart(getNumSamples(), toRow) - bandStart);
+		// only absolute accesses are used,
+		// so concurrent calls for different bands do not interfere
+		for (int vi = 0; vi < bandLength; vi++) {
+			final long index = bandStart + vi;
+			final FloatBuffer segment = segments[(int) (index >>> SEGMENT_VALUES_BITS)];
+			final int segmentIndex = (int) (index & SEGMENT_VALUES_MASK);
+			segment.put(segmentIndex, segment.get(segmentIndex) + bandValues[vi]);
+		}
+	}
+
+	@Override
+	public void clear() {
+
+		final float[] zeros = new float[CLEAR_BLOCK_VALUES];
+		for (final FloatBuffer segment : segments) {
+			final FloatBuffer segmentWriter = segment.duplicate();
+			segmentWriter.clear();
+			while (segmentWriter.hasRemaining()) {
+				segmentWriter.put(zeros, 0, Math.min(zeros.length, segmentWriter.remaining()));
+			}
+		}
+	}
+}
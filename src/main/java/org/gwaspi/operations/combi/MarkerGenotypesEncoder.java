@@ -234,6 +234,36 @@ public class MarkerGenotypesEncoder extends AbstractList<Float[][]> {
 		}
 	}
 
+	/**
+	 * Encodes a chunk, and copies it into a primitive, row-major array,
+	 * with one row of {@link #getChunkSize(int)} features per sample.
+	 * @param index the chunk index
+	 * @param target where to store the features;
+	 *   if <code>null</code> or too small, a new array is allocated
+	 * @return the array containing the features
+	 */
+	public float[] getFeaturesBlock(int index, float[] target) {
+
+		final Float[][] featuresChunk = get(index);
+		final int numFeaturesInChunk = getChunkSize(index);
+		final float[] featuresBlock;
+		if ((target == null) || (target.length < n * numFeaturesInChunk)) {
+			featuresBlock = new float[n * maxFeaturesChunkSize];
+		} else {
+			featuresBlock = target;
+		}
+
+		for (int si = 0; si < n; si++) {
+			final Float[] sampleFeatures = featuresChunk[si];
+			final int rowOffset = si * numFeaturesInChunk;
+			for (int fi = 0; fi < numFeaturesInChunk; fi++) {
+				featuresBlock[rowOffset + fi] = sampleFeatures[fi];
+			}
+		}
+
+		return featuresBlock;
+	}
+
 	public int getChunkSize(int index) {
 		return Math.min(dEncoded - (index * maxFeaturesChunkSize), maxFeaturesChunkSize);
 	}
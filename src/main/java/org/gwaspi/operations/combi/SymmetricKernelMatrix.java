@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations.combi;
+
+import java.io.IOException;
+import org.gwaspi.global.Config;
+
+/**
+ * A symmetric n*n kernel matrix,
+ * of which only the upper triangle (including the diagonal) is stored,
+ * row by row.
+ * This uses about half the memory of a full <code>float[n][n]</code>.
+ * Depending on its size, the matrix is either stored on the heap,
+ * or in a memory mapped scratch file.
+ * Different bands of rows may be modified concurrently.
+ * @see HeapSymmetricKernelMatrix
+ * @see MappedSymmetricKernelMatrix
+ */
+public abstract class SymmetricKernelMatrix {
+
+	private static final int DEFAULT_MAX_HEAP_DIVISOR = 4;
+
+	private final int n;
+
+	protected SymmetricKernelMatrix(final int n) {
+
+		if (n < 0) {
+			throw new IllegalArgumentException("The number of samples can not be negative, but is " + n);
+		}
+		this.n = n;
+	}
+
+	/**
+	 * Creates a kernel matrix on the heap if it fits,
+	 * or in a memory mapped scratch file otherwise.
+	 * @see #isStoredOnHeap(int)
+	 */
+	public static SymmetricKernelMatrix create(final int n) throws IOException {
+
+		if (isStoredOnHeap(n)) {
+			return new HeapSymmetricKernelMatrix(n);
+		} else {
+			return new MappedSymmetricKernelMatrix(n);
+		}
+	}
+
+	/**
+	 * Whether {@link #create(int)} stores a matrix of the given size on the heap.
+	 * @see Config#PROPERTY_COMBI_KERNEL_MAX_HEAP_MB
+	 */
+	public static boolean isStoredOnHeap(final int n) {
+
+		final Config config = Config.getSingleton();
+		final int configuredMB = (config == null) ? -1
+				: config.getInteger(Config.PROPERTY_COMBI_KERNEL_MAX_HEAP_MB, -1);
+		final long maxHeapBytes = (configuredMB >= 0)
+				? 1024L * 1024L * configuredMB
+				: Runtime.getRuntime().maxMemory() / DEFAULT_MAX_HEAP_DIVISOR;
+
+		return (n <= HeapSymmetricKernelMatrix.MAX_SAMPLES)
+				&& (calcNumBytes(n) <= maxHeapBytes);
+	}
+
+	/**
+	 * Returns the number of values stored for a matrix with n rows.
+	 */
+	public static long calcNumValues(final int n) {
+		return (long) n * (n + 1) / 2;
+	}
+
+	/**
+	 * Returns the number of bytes required to store a matrix with n rows.
+	 */
+	public static long calcNumBytes(final int n) {
+		return 4L * calcNumValues(n);
+	}
+
+	/**
+	 * Returns the position of the first stored value of a row,
+	 * which is the one on the diagonal.
+	 * The values of the row follow this one,
+	 * up to and including column <code>n - 1</code>.
+	 */
+	static long calcRowStart(final int n, final int row) {
+		return (long) row * n - ((long) row * (row - 1)) / 2;
+	}
+
+	public int getNumSamples() {
+		return n;
+	}
+
+	/**
+	 * Returns the value at the given position in the packed storage.
+	 * @see #calcRowStart(int, int)
+	 */
+	protected abstract float getPacked(long index);
+
+	public float get(final int row, final int col) {
+
+		if (row <= col) {
+			return getPacked(calcRowStart(n, row) + (col - row));
+		} else {
+			return getPacked(calcRowStart(n, col) + (row - col));
+		}
+	}
+
+	/**
+	 * Adds values to the stored values of a band of rows.
+	 * @param fromRow first row of the band
+	 * @param toRow last row of the band (exclusive)
+	 * @param bandValues the packed values of the band,
+	 *   starting with the diagonal value of <code>fromRow</code>
+	 */
+	abstract void addToBand(int fromRow, int toRow, float[] bandValues);
+
+	public abstract void clear();
+}
@@ -51,15 +51,16 @@ public class Util {
 		return calcFeatureBytes(samples, markers * encoder.getEncodingFactor(), baseStorageTypeBytes);
 	}
 
-	static int calcKernelBytes(int samples) {
+	static long calcKernelBytes(int samples) {
 
 		boolean precomputed = true;
-		final int n = samples;
+		final long n = samples;
 
-		int bytes;
+		long bytes;
 		if (precomputed) {
-			// kernel
-			bytes = (n * 8) + (n * n * (8 + 4 + 8));
+			// kernel: one reference per value,
+			// but the nodes are shared between the two halves of the matrix
+			bytes = (n * 8) + (n * n * 8) + (SymmetricKernelMatrix.calcNumValues((int) n) * (4 + 8));
 		} else {
 			// features
 //			bytes = (n * 8) + ((n * (dSamples + dEncoded)) * 8) + (n * n * (8 + 4 + 8));
@@ -69,7 +70,7 @@ public class Util {
 		return bytes;
 	}
 
-	static double bytes2gigaBytes(int bytes) {
+	static double bytes2gigaBytes(long bytes) {
 		return bytes / (1024.0 * 1024.0 * 1024.0);
 	}
 
@@ -171,6 +172,37 @@ public class Util {
 		}
 	}
 
+	public static class DoubleMatrixWrapperSymmetricKernelMatrix extends AbstractList<List<Double>> {
+
+		private final SymmetricKernelMatrix innerMatrix;
+
+		public DoubleMatrixWrapperSymmetricKernelMatrix(final SymmetricKernelMatrix innerMatrix) {
+
+			this.innerMatrix = innerMatrix;
+		}
+
+		@Override
+		public List<Double> get(final int rowIndex) {
+
+			return new AbstractList<Double>() {
+				@Override
+				public Double get(int colIndex) {
+					return (double) innerMatrix.get(rowIndex, colIndex);
+				}
+
+				@Override
+				public int size() {
+					return innerMatrix.getNumSamples();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return innerMatrix.getNumSamples();
+		}
+	}
+
 	public static void compareMatrices(
 			List<List<Double>> matrixA,
 			List<List<Double>> matrixB)
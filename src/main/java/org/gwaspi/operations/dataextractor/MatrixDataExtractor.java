@@ -453,7 +453,7 @@ public class MatrixDataExtractor extends AbstractMatrixCreatingOperation {
 
 		MatrixKey resultMatrixKey = null;
 
-		final DataSetSource dataSetSource = MatrixFactory.generateDataSetSource(params.getParent());
+		final DataSetSource dataSetSource = closeWhenFinished(MatrixFactory.generateDataSetSource(params.getParent()));
 
 		final DataSetDestination dataSetDestination = getDataSetDestination();
 
@@ -138,7 +138,7 @@ public abstract class AbstractFilterOperation<P extends OperationParams>
 		final Map<Integer, ChromosomeKey> filteredChromosomeOrigIndicesAndKeys
 					= ChromosomeUtils.aggregateChromosomeIndicesAndKeys(
 							parentDataSetSource.getChromosomesKeysSource().getIndicesMap(),
-							ChromosomeUtils.aggregateChromosomeKeys(new IndicesFilteredList<String>(MatrixFactory.generateMatrixDataSetSource(getParentKey().getOrigin()).getMarkersMetadatasSource().getChromosomes(), filteredMarkersOriginalIndices)));
+							ChromosomeUtils.aggregateChromosomeKeys(new IndicesFilteredList<String>(closeWhenFinished(MatrixFactory.generateMatrixDataSetSource(getParentKey().getOrigin())).getMarkersMetadatasSource().getChromosomes(), filteredMarkersOriginalIndices)));
 		final List<Integer> filteredChromosomesOriginalIndices = new ArrayList<Integer>(filteredChromosomeOrigIndicesAndKeys.keySet());
 		final List<ChromosomeKey> filteredChromosomesKeys = new ArrayList<ChromosomeKey>(filteredChromosomeOrigIndicesAndKeys.values());
 
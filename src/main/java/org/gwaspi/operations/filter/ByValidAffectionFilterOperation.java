@@ -31,11 +31,11 @@ import org.gwaspi.operations.DefaultOperationTypeInfo;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.OperationTypeInfo;
 import org.gwaspi.progress.DefaultProcessInfo;
-import org.gwaspi.progress.IntegerProgressHandler;
 import org.gwaspi.progress.ProcessInfo;
 import org.gwaspi.progress.ProcessStatus;
 import org.gwaspi.progress.ProgressHandler;
 import org.gwaspi.progress.ProgressSource;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
 import org.gwaspi.progress.SubProcessInfo;
 
 public class ByValidAffectionFilterOperation extends AbstractFilterOperation<ByValidAffectionFilterOperationParams> {
@@ -81,7 +81,7 @@ public class ByValidAffectionFilterOperation extends AbstractFilterOperation<ByV
 
 		if (filterPH == null) {
 			final int numItems = getNumItems();
-			filterPH = new IntegerProgressHandler(
+			filterPH = new SampledIntegerProgressHandler(
 					new SubProcessInfo(getProcessInfo(), getParams().getName() + " filtering", null),
 					0, numItems - 1);
 		}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.fisherexacttest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.gwaspi.global.Text;
+import org.gwaspi.model.Census;
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.operations.AbstractTestMatrixOperation;
+import org.gwaspi.operations.OperationDataSet;
+import org.gwaspi.operations.OperationManager;
+import org.gwaspi.operations.OperationTypeInfo;
+import org.gwaspi.operations.genotypicassociationtest.AssociationTestOperationParams;
+import org.gwaspi.progress.DefaultProcessInfo;
+import org.gwaspi.progress.ProcessInfo;
+import org.gwaspi.progress.ProgressHandler;
+import org.gwaspi.statistics.FisherExactTest;
+import org.gwaspi.statistics.GenotypeCounts;
+import org.gwaspi.statistics.Pvalue;
+
+/**
+ * Performs Fisher's exact test,
+ * both on the 2x3 table of genotype counts and on the 2x2 table of allele counts.
+ * As the exact test has no statistic comparable to the ones of the other tests,
+ * the genotypic P-value is also stored as the X^2 value (2 df)
+ * with the same P-value, which is what the QQ-plot shows.
+ */
+public class FisherExactTestOperation extends AbstractTestMatrixOperation<FisherExactTestOperationDataSet, AssociationTestOperationParams> {
+
+	private static final ProcessInfo PROCESS_INFO = new DefaultProcessInfo(
+			Text.Operation.fisherExactTest,
+			Text.Operation.fisherExactTestDescription);
+
+	private FisherExactTest fisherExactTest;
+
+	public static void register() {
+		// NOTE When converting to OSGi, this would be done in bundle init,
+		//   or by annotations.
+		OperationManager.registerOperationFactory(new FisherExactTestOperationFactory());
+	}
+
+	public FisherExactTestOperation(final AssociationTestOperationParams params) {
+		super(params);
+	}
+
+	@Override
+	public OperationTypeInfo getTypeInfo() {
+		return FisherExactTestOperationFactory.OPERATION_TYPE_INFO;
+	}
+
+	@Override
+	public ProcessInfo getProcessInfo() {
+		return PROCESS_INFO;
+	}
+
+	@Override
+	protected void performTest(
+			OperationDataSet dataSet,
+			Map<Integer, MarkerKey> markerOrigIndicesKeys,
+			List<Census> caseMarkersCensus,
+			List<Census> ctrlMarkersCensus,
+			ProgressHandler rawTestPH)
+			throws IOException
+	{
+		// the allele tables are the largest ones, with up to two alleles per sample
+		fisherExactTest = new FisherExactTest(2 * dataSet.getNumSamples());
+		super.performTest(dataSet, markerOrigIndicesKeys, caseMarkersCensus, ctrlMarkersCensus, rawTestPH);
+	}
+
+	@Override
+	protected int getNumTestResults() {
+		return 3;
+	}
+
+	@Override
+	protected void calculateTests(
+			final GenotypeCounts counts,
+			final int from,
+			final int to,
+			final double[][] results)
+	{
+		final int[] caseAA = counts.getCaseAA();
+		final int[] caseAa = counts.getCaseAa();
+		final int[] caseaa = counts.getCaseaa();
+		final int[] ctrlAA = counts.getCtrlAA();
+		final int[] ctrlAa = counts.getCtrlAa();
+		final int[] ctrlaa = counts.getCtrlaa();
+		for (int mi = from; mi < to; mi++) {
+			results[1][mi] = fisherExactTest.calculateGenotypicPvalue(
+					caseAA[mi], caseAa[mi], caseaa[mi], ctrlAA[mi], ctrlAa[mi], ctrlaa[mi]);
+			results[0][mi] = Pvalue.calculateChiSqrDf2FromPvalue(results[1][mi]);
+			results[2][mi] = fisherExactTest.calculateAllelicPvalue(
+					2 * caseAA[mi] + caseAa[mi],
+					2 * caseaa[mi] + caseAa[mi],
+					2 * ctrlAA[mi] + ctrlAa[mi],
+					2 * ctrlaa[mi] + ctrlAa[mi]);
+		}
+	}
+
+	@Override
+	protected void addTestEntry(
+			final OperationDataSet dataSet,
+			final Integer markerOrigIndex,
+			final MarkerKey markerKey,
+			final double[][] results,
+			final int index)
+			throws IOException
+	{
+		((FisherExactTestOperationDataSet) dataSet).addEntry(new DefaultFisherExactTestOperationEntry(
+				markerKey,
+				markerOrigIndex,
+				results[0][index],
+				results[1][index],
+				results[2][index]));
+	}
+}
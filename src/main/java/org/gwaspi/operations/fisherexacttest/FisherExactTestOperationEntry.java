@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.fisherexacttest;
+
+import org.gwaspi.global.Extractor;
+import org.gwaspi.operations.trendtest.TrendTestOperationEntry;
+
+/**
+ * The results of Fisher's exact test of a single marker.
+ * {@link #getP()} is the P value of the exact test on the 2x3 table
+ * of genotype counts, and {@link #getT()} the X^2 value with two degrees of freedom
+ * that has the same P value, so it may be compared to the X^2 distribution.
+ */
+public interface FisherExactTestOperationEntry extends TrendTestOperationEntry {
+
+	Extractor<FisherExactTestOperationEntry, Double> TO_ALLELIC_P
+			= new Extractor<FisherExactTestOperationEntry, Double>()
+	{
+		@Override
+		public Double extract(FisherExactTestOperationEntry from) {
+			return from.getAllelicP();
+		}
+	};
+
+	/**
+	 * @return the markers P value of the exact test on the 2x2 table of allele counts
+	 * NetCDF variable:
+	 * - Association.VAR_OP_MARKERS_P_ALLELIC
+	 */
+	double getAllelicP();
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.fisherexacttest;
+
+import java.io.IOException;
+import java.util.Map;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.global.Text;
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.operations.OperationTypeInfo;
+import org.gwaspi.operations.DefaultOperationTypeInfo;
+import org.gwaspi.operations.genotypicassociationtest.AssociationTestOperationParams;
+import org.gwaspi.operations.trendtest.AbstractTestOperationFactory;
+
+public class FisherExactTestOperationFactory
+		extends AbstractTestOperationFactory<FisherExactTestOperationDataSet, AssociationTestOperationParams>
+{
+	static final OperationTypeInfo OPERATION_TYPE_INFO
+			= new DefaultOperationTypeInfo(
+					false,
+					Text.Operation.fisherExactTest,
+					Text.Operation.fisherExactTestDescription,
+					NetCDFConstants.Defaults.OPType.FISHEREXACTTEST,
+					true,
+					false);
+
+	public FisherExactTestOperationFactory() {
+		super(FisherExactTestOperation.class, OPERATION_TYPE_INFO);
+	}
+
+	@Override
+	protected FisherExactTestOperationDataSet generateReadOperationDataSetNetCdf(
+			OperationKey operationKey, DataSetKey parent, Map<String, Object> properties)
+			throws IOException
+	{
+
+		return new NetCdfFisherExactTestOperationDataSet(
+				parent.getOrigin(), parent, operationKey);
+	}
+
+	@Override
+	protected FisherExactTestOperationDataSet generateSpecificWriteOperationDataSetMemory(
+			DataSetKey parent, Map<String, Object> properties)
+			throws IOException
+	{
+		return new InMemoryFisherExactTestOperationDataSet(
+				parent.getOrigin(), parent);
+	}
+}
@@ -162,7 +162,7 @@ public class MatrixGenotypesFlipper extends AbstractMatrixCreatingOperation {
 
 		MatrixKey resultMatrixKey;
 
-		final DataSetSource dataSetSource = MatrixFactory.generateDataSetSource(params.getParent());
+		final DataSetSource dataSetSource = closeWhenFinished(MatrixFactory.generateDataSetSource(params.getParent()));
 
 		final DataSetDestination dataSetDestination = getDataSetDestination();
 
@@ -299,7 +299,7 @@ public class MatrixTranslator extends AbstractMatrixCreatingOperation {
 
 		MatrixKey resultMatrixKey;
 
-		final DataSetSource dataSetSource = MatrixFactory.generateDataSetSource(params.getParent());
+		final DataSetSource dataSetSource = closeWhenFinished(MatrixFactory.generateDataSetSource(params.getParent()));
 
 		final GenotypeEncoding gtEncoding = dataSetSource.getMatrixMetadata().getGenotypeEncoding();
 
@@ -21,11 +21,13 @@ import java.io.IOException;
 import org.gwaspi.global.Text;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.operations.AbstractAssociationTestsOperation;
+import org.gwaspi.operations.OperationDataSet;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.OperationTypeInfo;
 import org.gwaspi.progress.DefaultProcessInfo;
 import org.gwaspi.progress.ProcessInfo;
 import org.gwaspi.statistics.Associations;
+import org.gwaspi.statistics.GenotypeCounts;
 import org.gwaspi.statistics.Pvalue;
 
 public class GenotypicAssociationTestOperation extends AbstractAssociationTestsOperation<GenotypicAssociationTestsOperationDataSet> {
@@ -55,41 +57,58 @@ public class GenotypicAssociationTestOperation extends AbstractAssociationTestsO
 	}
 
 	@Override
-	protected void associationTest(
-			final GenotypicAssociationTestsOperationDataSet dataSet,
+	protected int getNumTestResults() {
+		return 4;
+	}
+
+	@Override
+	protected void calculateTests(
+			final GenotypeCounts counts,
+			final int from,
+			final int to,
+			final double[][] results)
+	{
+		final double[] chiSqrs = results[0];
+		Associations.calculateAssociationChiSquares(
+				counts.getCaseAA(),
+				counts.getCaseAa(),
+				counts.getCaseaa(),
+				counts.getCtrlAA(),
+				counts.getCtrlAa(),
+				counts.getCtrlaa(),
+				true,
+				from,
+				to,
+				chiSqrs);
+		Pvalue.calculatePvaluesFromChiSqrs(chiSqrs, 2, from, to, results[1]);
+		Associations.calculateGenotypicAssociationORs(
+				counts.getCaseAA(),
+				counts.getCaseAa(),
+				counts.getCaseaa(),
+				counts.getCtrlAA(),
+				counts.getCtrlAa(),
+				counts.getCtrlaa(),
+				from,
+				to,
+				results[2],
+				results[3]);
+	}
+
+	@Override
+	protected void addTestEntry(
+			final OperationDataSet dataSet,
 			final Integer markerOrigIndex,
 			final MarkerKey markerKey,
-			final int caseAA,
-			final int caseAa,
-			final int caseaa,
-			final int ctrlAA,
-			final int ctrlAa,
-			final int ctrlaa)
+			final double[][] results,
+			final int index)
 			throws IOException
 	{
-		final double chiSqr = Associations.calculateAssociationChiSquare(
-				caseAA,
-				caseAa,
-				caseaa,
-				ctrlAA,
-				ctrlAa,
-				ctrlaa,
-				true);
-		final double pVal = Pvalue.calculatePvalueFromChiSqr(chiSqr, 2);
-		final double[] oddsRatio = Associations.calculateGenotypicAssociationOR(
-				caseAA,
-				caseAa,
-				caseaa,
-				ctrlAA,
-				ctrlAa,
-				ctrlaa);
-
-		dataSet.addEntry(new DefaultGenotypicAssociationOperationEntry(
+		((GenotypicAssociationTestsOperationDataSet) dataSet).addEntry(new DefaultGenotypicAssociationOperationEntry(
 				markerKey,
 				markerOrigIndex,
-				chiSqr,
-				pVal,
-				oddsRatio[0],
-				oddsRatio[1]));
+				results[0][index],
+				results[1][index],
+				results[2][index],
+				results[3][index]));
 	}
 }
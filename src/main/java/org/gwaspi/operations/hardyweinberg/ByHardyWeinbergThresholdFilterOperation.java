@@ -33,12 +33,12 @@ import org.gwaspi.operations.filter.AbstractFilterOperation;
 import org.gwaspi.operations.filter.SimpleFilterOperationMetadataFactory;
 import org.gwaspi.operations.filter.SimpleOperationFactory;
 import org.gwaspi.progress.DefaultProcessInfo;
-import org.gwaspi.progress.IntegerProgressHandler;
 import org.gwaspi.progress.NullProgressHandler;
 import org.gwaspi.progress.ProcessInfo;
 import org.gwaspi.progress.ProcessStatus;
 import org.gwaspi.progress.ProgressHandler;
 import org.gwaspi.progress.ProgressSource;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
 import org.gwaspi.progress.SubProcessInfo;
 
 public class ByHardyWeinbergThresholdFilterOperation
@@ -88,7 +88,7 @@ public class ByHardyWeinbergThresholdFilterOperation
 
 		if (filterPH == null) {
 			final int numItems = getNumItems();
-			filterPH = new IntegerProgressHandler(
+			filterPH = new SampledIntegerProgressHandler(
 					new SubProcessInfo(getProcessInfo(), getParams().getName() + " filtering", null),
 					0, numItems - 1);
 		}
@@ -32,11 +32,11 @@ import org.gwaspi.operations.hardyweinberg.HardyWeinbergOperationEntry.Category;
 import org.gwaspi.operations.markercensus.MarkerCensusOperationDataSet;
 import org.gwaspi.operations.markercensus.MarkerCensusOperationEntry;
 import org.gwaspi.progress.DefaultProcessInfo;
-import org.gwaspi.progress.IntegerProgressHandler;
 import org.gwaspi.progress.ProcessInfo;
 import org.gwaspi.progress.ProcessStatus;
 import org.gwaspi.progress.ProgressHandler;
 import org.gwaspi.progress.ProgressSource;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
 import org.gwaspi.progress.SubProcessInfo;
 import org.gwaspi.progress.SuperProgressSource;
 import org.gwaspi.statistics.StatisticsUtils;
@@ -89,10 +89,10 @@ public class HardyWeinbergOperation extends AbstractOperationCreatingOperation<H
 //			this.hwCasePH = new IntegerProgressHandler(
 //					new SubProcessInfo(PROCESS_INFO, "H&W case", "Run the Hardy & Weinberg test over the 'case' category"),
 //					0, numItems - 1);
-			this.hwControlPH = new IntegerProgressHandler(
+			this.hwControlPH = new SampledIntegerProgressHandler(
 					new SubProcessInfo(PROCESS_INFO, "H&W control", "Run the Hardy & Weinberg test over the 'control' category"),
 					0, numItems - 1);
-			this.hwAlternatePH = new IntegerProgressHandler(
+			this.hwAlternatePH = new SampledIntegerProgressHandler(
 					new SubProcessInfo(PROCESS_INFO, "H&W alternate", "Run the Hardy & Weinberg test over the 'alternate' category"),
 					0, numItems - 1);
 
@@ -33,11 +33,12 @@ import org.gwaspi.constants.NetCDFConstants.Defaults.AlleleByte;
 import org.gwaspi.datasource.filter.SampleIndicesFilterDataSetSource;
 import org.gwaspi.global.GeneratedList;
 import org.gwaspi.global.Generator;
+import org.gwaspi.global.OrderedBlockProcessor;
 import org.gwaspi.global.Text;
 import org.gwaspi.model.Census;
 import org.gwaspi.model.CensusFull;
 import org.gwaspi.model.DataSetSource;
-import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.GenotypeBitPlanes;
 import org.gwaspi.model.MarkerKey;
 import org.gwaspi.model.OperationKey;
 import org.gwaspi.model.SampleInfo;
@@ -47,9 +48,10 @@ import org.gwaspi.model.SampleKey;
 import org.gwaspi.model.SamplesInfosSource;
 import org.gwaspi.model.StudyKey;
 import org.gwaspi.operations.AbstractOperationCreatingOperation;
-import org.gwaspi.operations.CensusDecision;
+import org.gwaspi.operations.MarkerGenotypesInput;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.OperationTypeInfo;
+import org.gwaspi.operations.SampleGroupMasks;
 import org.gwaspi.operations.qamarkers.MarkerAlleleAndGTStatistics;
 import org.gwaspi.operations.qamarkers.QAMarkersOperation;
 import org.gwaspi.operations.qamarkers.QAMarkersOperationDataSet;
@@ -162,22 +164,122 @@ public class MarkerCensusOperation extends AbstractOperationCreatingOperation<Ma
 
 		final int[] alleleValueToOrdinalLookupTable = AlleleByte.createAlleleValueToOrdinalLookupTable();
 
-		RawMarkerCensusStatistics rawMarkerCensusStatistics = new RawMarkerCensusStatistics(alleleValueToOrdinalLookupTable);
+		// the masks are only read, and may therefore be shared by the workers
+		final SampleGroupMasks sampleGroupMasks = new SampleGroupMasks(
+				new ArrayList<Sex>(samplesSex),
+				new ArrayList<Affection>(samplesAffection));
+		// The markers genotypes contain all the parents samples,
+		// while the masks only cover the ones that passed QA,
+		// so we load only the genotypes of those.
+		final int[] genotypesSampleIndices;
+		if (numMySamples == samplesIndicesMap.size()) {
+			genotypesSampleIndices = null;
+		} else {
+			genotypesSampleIndices = new int[numMySamples];
+			for (int si = 0; si < numMySamples; si++) {
+				genotypesSampleIndices[si] = filtereSamplesOriginalIndices.get(si);
+			}
+		}
 
-		Iterator<GenotypesList> markersGTsIt = dataSetSource.getMarkersGenotypesSource().iterator();
-		Iterator<String> markerChromosomesIt = dataSetSource.getMarkersMetadatasSource().getChromosomes().iterator();
-		int localMarkerIndex = 0;
+		// The markers are split into consecutive index ranges,
+		// which are processed concurrently, each with its own scratch space.
+		// The entries are added to the data-set in the original order.
+		final OrderedBlockProcessor<MarkerGenotypesInput, MarkerCensusOperationEntry> blockProcessor
+				= new OrderedBlockProcessor<MarkerGenotypesInput, MarkerCensusOperationEntry>(PROCESS_INFO.getShortName());
+		final MarkerCensusOperationDataSet resultDataSet = dataSet;
 		progressHandler.setNewStatus(ProcessStatus.RUNNING);
-		for (final Map.Entry<Integer, MarkerKey> markerEntry : dataSetSource.getMarkersKeysSource().getIndicesMap().entrySet()) {
-			final int markerOrigIndex = markerEntry.getKey();
-			final MarkerKey markerKey = markerEntry.getValue();
-			final String markerChr = markerChromosomesIt.next();
-			final GenotypesList markerGTs = markersGTsIt.next();
+		blockProcessor.process(
+				MarkerGenotypesInput.iterator(dataSetSource),
+				new OrderedBlockProcessor.BlockProcessor<MarkerGenotypesInput, MarkerCensusOperationEntry>() {
+					@Override
+					public List<MarkerCensusOperationEntry> processBlock(int firstIndex, List<MarkerGenotypesInput> block) throws IOException {
+
+						final MarkerCensusCalculator calculator = new MarkerCensusCalculator(
+								alleleValueToOrdinalLookupTable,
+								sampleGroupMasks,
+								genotypesSampleIndices);
+						final List<MarkerCensusOperationEntry> entries = new ArrayList<MarkerCensusOperationEntry>(block.size());
+						for (final MarkerGenotypesInput marker : block) {
+							entries.add(calculator.calculate(marker));
+						}
+						return entries;
+					}
+				},
+				new OrderedBlockProcessor.ResultConsumer<MarkerCensusOperationEntry>() {
+					@Override
+					public void consume(int index, MarkerCensusOperationEntry entry) throws IOException {
+
+						resultDataSet.addEntry(entry);
+						progressHandler.setProgress(index);
+					}
+				});
+		progressHandler.setNewStatus(ProcessStatus.FINALIZING);
+		//</editor-fold>
+
+		dataSet.finnishWriting();
+		resultOpKey = dataSet.getOperationKey();
+
+		org.gwaspi.global.Utils.sysoutCompleted("Genotype Frequency Count");
+		progressHandler.setNewStatus(ProcessStatus.COMPLEETED);
+
+		return resultOpKey;
+	}
+
+	/**
+	 * Calculates the census of one marker after the other.
+	 * It reuses its scratch statistics objects for each marker,
+	 * and is therefore not thread-safe;
+	 * use one instance per thread.
+	 */
+	private static class MarkerCensusCalculator {
+
+		private final int[] alleleValueToOrdinalLookupTable;
+		private final SampleGroupMasks sampleGroupMasks;
+		/** may be <code>null</code>, meaning all samples */
+		private final int[] genotypesSampleIndices;
+		private final GenotypeBitPlanes genotypeBitPlanes;
+		private final RawMarkerCensusStatistics rawMarkerCensusStatistics;
+		private final MarkerAlleleAndGTStatistics allSamplesStatistics;
+		private final MarkerAlleleAndGTStatistics caseSamplesStatistics;
+		private final MarkerAlleleAndGTStatistics ctrlSamplesStatistics;
+		private final MarkerAlleleAndGTStatistics hwSamplesStatistics;
+
+		MarkerCensusCalculator(
+				final int[] alleleValueToOrdinalLookupTable,
+				final SampleGroupMasks sampleGroupMasks,
+				final int[] genotypesSampleIndices)
+		{
+			this.alleleValueToOrdinalLookupTable = alleleValueToOrdinalLookupTable;
+			this.sampleGroupMasks = sampleGroupMasks;
+			this.genotypesSampleIndices = genotypesSampleIndices;
+			this.genotypeBitPlanes = new GenotypeBitPlanes(sampleGroupMasks.getNumSamples());
+			this.rawMarkerCensusStatistics = new RawMarkerCensusStatistics(alleleValueToOrdinalLookupTable);
+			this.allSamplesStatistics = new MarkerAlleleAndGTStatistics();
+			this.caseSamplesStatistics = new MarkerAlleleAndGTStatistics();
+			this.ctrlSamplesStatistics = new MarkerAlleleAndGTStatistics();
+			this.hwSamplesStatistics = new MarkerAlleleAndGTStatistics();
+		}
+
+		/**
+		 * Prepares a scratch statistics object the same way
+		 * a clone of the all-samples statistics would look like,
+		 * so it uses the same major and minor alleles.
+		 */
+		private void copyAlleles(final MarkerAlleleAndGTStatistics target) {
+
+			target.clear();
+			target.setMajorAllele(allSamplesStatistics.getMajorAllele());
+			target.setMinorAllele(allSamplesStatistics.getMinorAllele());
+			target.setMajorAlleleFreq(allSamplesStatistics.getMajorAlleleFreq());
+		}
+
+		public MarkerCensusOperationEntry calculate(final MarkerGenotypesInput marker) throws IOException {
 
 			// This is the very expensive task, as we have to read all GTs
-			gatherRawMarkerAlleleAndGTStatistics(rawMarkerCensusStatistics, markerChr, samplesSex, samplesAffection, markerGTs);
+			genotypeBitPlanes.load(marker.getGenotypes(), genotypesSampleIndices);
+			gatherRawMarkerAlleleAndGTStatistics(rawMarkerCensusStatistics, marker.getChromosome(), sampleGroupMasks, genotypeBitPlanes);
 
-			MarkerAlleleAndGTStatistics allSamplesStatistics = new MarkerAlleleAndGTStatistics();
+			allSamplesStatistics.clear();
 
 			// transcribe ordinal tables into value maps
 			final Map<Byte, Float> alleleCounts = rawMarkerCensusStatistics.extractAllelesCounts();
@@ -196,11 +298,10 @@ public class MarkerCensusOperation extends AbstractOperationCreatingOperation<Ma
 			} else {
 				QAMarkersOperation.extractMajorAndMinorAllele(alleleCounts, allSamplesStatistics);
 
-				// We clone here, as we want to use the same major
-				// and minor alleles already extracted.
-				MarkerAlleleAndGTStatistics caseSamplesStatistics = allSamplesStatistics.clone();
-				MarkerAlleleAndGTStatistics ctrlSamplesStatistics = allSamplesStatistics.clone();
-				MarkerAlleleAndGTStatistics hwSamplesStatistics = allSamplesStatistics.clone();
+				// We use the same major and minor alleles already extracted.
+				copyAlleles(caseSamplesStatistics);
+				copyAlleles(ctrlSamplesStatistics);
+				copyAlleles(hwSamplesStatistics);
 
 				// all samples
 				QAMarkersOperation.extractContingency(
@@ -256,24 +357,12 @@ public class MarkerCensusOperation extends AbstractOperationCreatingOperation<Ma
 				allSamplesStatistics.getMajorAllele(),
 				allSamplesStatistics.getMinorAllele()};
 
-			dataSet.addEntry(new DefaultMarkerCensusOperationEntry(
-					markerKey,
-					markerOrigIndex,
+			return new DefaultMarkerCensusOperationEntry(
+					marker.getKey(),
+					marker.getOrigIndex(),
 					majorAndMinorAlleles,
-					censusFull));
-			progressHandler.setProgress(localMarkerIndex);
-			localMarkerIndex++;
+					censusFull);
 		}
-		progressHandler.setNewStatus(ProcessStatus.FINALIZING);
-		//</editor-fold>
-
-		dataSet.finnishWriting();
-		resultOpKey = dataSet.getOperationKey();
-
-		org.gwaspi.global.Utils.sysoutCompleted("Genotype Frequency Count");
-		progressHandler.setNewStatus(ProcessStatus.COMPLEETED);
-
-		return resultOpKey;
 	}
 
 	/**
@@ -379,20 +468,20 @@ public class MarkerCensusOperation extends AbstractOperationCreatingOperation<Ma
 	 * With genotype statistics, we look at the two allele as an ordered pair
 	 * (fatherAllele_motherAllele).
 	 *
+	 * The genotypes of each sample group are counted on the bit-planes
+	 * of the marker, and only then decoded into alleles and genotypes.
+	 *
 	 * @param rawMarkerCensusStatistics
 	 * @param chromosome
-	 * @param samplesSexes
-	 * @param samplesAffections
-	 * @param markerGenotypes
-	 * @throws IOException
+	 * @param sampleGroupMasks
+	 * @param markerGenotypes the bit-planes of the marker,
+	 *   over the same samples as the masks
 	 */
 	public static void gatherRawMarkerAlleleAndGTStatistics(
 			final RawMarkerCensusStatistics rawMarkerCensusStatistics,
 			final String chromosome,
-			final List<Sex> samplesSexes,
-			final List<Affection> samplesAffections,
-			final GenotypesList markerGenotypes)
-			throws IOException
+			final SampleGroupMasks sampleGroupMasks,
+			final GenotypeBitPlanes markerGenotypes)
 	{
 		rawMarkerCensusStatistics.clear();
 
@@ -405,41 +494,27 @@ public class MarkerCensusOperation extends AbstractOperationCreatingOperation<Ma
 		final float[][] ctrlSamplesGtOrdinalCounts = rawMarkerCensusStatistics.getControlGtOrdinalCounts();
 		final float[][] hwSamplesGtOrdinalCounts = rawMarkerCensusStatistics.getHardyWeinbergGtOrdinalCounts();
 
-		Iterator<byte[]> markerGenotypesIt = markerGenotypes.iterator();
-		Iterator<Affection> samplesAffectionIt = samplesAffections.iterator();
-		for (Sex sex : samplesSexes) {
-			Affection affection = samplesAffectionIt.next();
-			byte[] genotype = markerGenotypesIt.next();
-
-			final float counter;
-			//<editor-fold defaultstate="expanded" desc="THE DECIDER">
-			final CensusDecision decision = CensusDecision.getDecisionByChrAndSex(chromosome, sex);
-
-//			if (decision == CensusDecision.CountMalesNonAutosomally) {
-//				counter = 0.5f;
-//			} else {
-				counter = 1.0f;
-//			}
-			//</editor-fold>
+		// HARDY WEINBERG COUNTER: only controls counted autosomally
+		final long[] hwSamplesMask = sampleGroupMasks.getHardyWeinbergMask(chromosome);
 
-			final int allele1Ordinal = alleleValueToOrdinalLookupTable[genotype[0]];
-			final int allele2Ordinal = alleleValueToOrdinalLookupTable[genotype[1]];
-
-			alleleOrdinalCounts[allele1Ordinal] += counter;
-			alleleOrdinalCounts[allele2Ordinal] += counter;
-
-			allSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += counter;
+		// NOTE Each sample counts as 1, also males non-autosomally
+		//   (CensusDecision.CountMalesNonAutosomally).
+		final byte[][] genotypeDecodingTable = markerGenotypes.getGenotypeDecodingTable();
+		for (int code = 0; code < genotypeDecodingTable.length; code++) {
+			final int allSamplesCodeCount = markerGenotypes.count(code, null);
+			if (allSamplesCodeCount == 0) {
+				continue;
+			}
+			final int allele1Ordinal = alleleValueToOrdinalLookupTable[genotypeDecodingTable[code][0]];
+			final int allele2Ordinal = alleleValueToOrdinalLookupTable[genotypeDecodingTable[code][1]];
 
-			if (affection == Affection.AFFECTED) {
-				caseSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += counter;
-			} else if (affection == Affection.UNAFFECTED) {
-				ctrlSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += counter;
+			alleleOrdinalCounts[allele1Ordinal] += allSamplesCodeCount;
+			alleleOrdinalCounts[allele2Ordinal] += allSamplesCodeCount;
 
-				// HARDY WEINBERG COUNTER
-				if (decision == CensusDecision.CountAutosomally) {
-					hwSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += counter;
-				}
-			}
+			allSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += allSamplesCodeCount;
+			caseSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += markerGenotypes.count(code, sampleGroupMasks.getCaseMask());
+			ctrlSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += markerGenotypes.count(code, sampleGroupMasks.getControlMask());
+			hwSamplesGtOrdinalCounts[allele1Ordinal][allele2Ordinal] += markerGenotypes.count(code, hwSamplesMask);
 		}
 		final int missingCount = Math.round(allSamplesGtOrdinalCounts[AlleleByte._0_ORDINAL][AlleleByte._0_ORDINAL]);
 		rawMarkerCensusStatistics.setMissingCount(missingCount);
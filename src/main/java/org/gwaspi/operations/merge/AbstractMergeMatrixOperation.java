@@ -60,8 +60,8 @@ public abstract class AbstractMergeMatrixOperation extends AbstractMatrixCreatin
 		super(dataSetDestination);
 
 		this.params = params;
-		this.dataSetSource1 = MatrixFactory.generateMatrixDataSetSource(params.getParent().getMatrixParent());
-		this.dataSetSource2 = MatrixFactory.generateMatrixDataSetSource(params.getSource2().getMatrixParent());
+		this.dataSetSource1 = closeWhenFinished(MatrixFactory.generateMatrixDataSetSource(params.getParent().getMatrixParent()));
+		this.dataSetSource2 = closeWhenFinished(MatrixFactory.generateMatrixDataSetSource(params.getSource2().getMatrixParent()));
 	}
 
 	@Override
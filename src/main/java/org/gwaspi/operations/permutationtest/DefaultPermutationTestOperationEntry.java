@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.operations.trendtest.DefaultTrendTestOperationEntry;
+
+public class DefaultPermutationTestOperationEntry extends DefaultTrendTestOperationEntry implements PermutationTestOperationEntry {
+
+	private final double correctedP;
+
+	public DefaultPermutationTestOperationEntry(MarkerKey key, int index, double t, double p, double correctedP) {
+		super(key, index, t, p);
+
+		this.correctedP = correctedP;
+	}
+
+	@Override
+	public double getCorrectedP() {
+		return correctedP;
+	}
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.gwaspi.constants.NetCDFConstants.Defaults.AlleleByte;
+import org.gwaspi.global.ParallelRanges;
+import org.gwaspi.model.GenotypeBitPlanes;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.SampleInfo.Affection;
+
+/**
+ * Calculates empirical P-values of an association statistic,
+ * by shuffling the affection labels of the samples many times,
+ * and recounting the case genotypes of each marker for each permutation.
+ * Both the point-wise P-value of each marker
+ * and the family-wise corrected P-value (max(T), Westfall &amp; Young)
+ * are calculated.
+ * All permutations are drawn up-front as bit-masks of the cases,
+ * so markers may be fed block by block, in a single pass over the genotypes.
+ * The genotypes of a marker are stored as bit-planes (see {@link GenotypeBitPlanes}),
+ * interleaved word by word,
+ * so counting the cases costs one <code>Long.bitCount</code> per 64 samples
+ * and genotype class, in a single pass over the case mask.
+ * The permutations of each block are processed concurrently,
+ * by worker threads that are kept until {@link #close()} is called.
+ * Only samples with a known affection (case or control) take part.
+ */
+public class MaxTPermutations {
+
+	/** Genotype classes of the 2x3 tables */
+	private static final int AA = 0;
+	private static final int Aa = 1;
+	private static final int aa = 2;
+	private static final int NUM_CLASSES = 3;
+	/**
+	 * Number of permutations processed by a single task.
+	 * Their case masks should fit into the L1 cache, for a few thousand samples.
+	 */
+	private static final int RANGE_PERMUTATIONS = 32;
+	/**
+	 * Permuted statistics at most this much (relative) smaller then the observed one
+	 * are still counted as at least as extreme, to be robust against rounding.
+	 */
+	private static final double TIE_TOLERANCE = 1E-9;
+
+	private final PermutationTestStatistic statistic;
+	private final int numPermutations;
+	private final int numSamples;
+	private final int numWords;
+	private final int numKnown;
+	private final int numCases;
+	private final long[] knownMask;
+	private final long[] caseMask;
+	/** The cases of all the permutations, <code>numWords</code> words each */
+	private final long[] permutedCaseMasks;
+	private final ParallelRanges parallelRanges;
+	private final GenotypeBitPlanes scratchPlanes;
+
+	private final double[] observedStatistics;
+	private final int[] numAtLeastAsExtreme;
+	/** The maximal statistic over all markers, per permutation */
+	private final double[] maxStatistics;
+	private double[] sortedMaxStatistics;
+	private int numMarkersAdded;
+
+	/**
+	 * @param name used to name the worker threads
+	 * @param numMarkers the total number of markers that will be added
+	 * @param samplesAffections the affection of each sample
+	 * @param statistic the association statistic to be calculated
+	 * @param numPermutations how many times the affection labels are shuffled
+	 * @param seed of the random number generator, for reproducible results
+	 */
+	public MaxTPermutations(
+			final String name,
+			final int numMarkers,
+			final List<Affection> samplesAffections,
+			final PermutationTestStatistic statistic,
+			final int numPermutations,
+			final long seed)
+	{
+		if (numPermutations < 1) {
+			throw new IllegalArgumentException("Number of permutations has to be at least 1, but is " + numPermutations);
+		}
+
+		this.statistic = statistic;
+		this.numPermutations = numPermutations;
+		this.numSamples = samplesAffections.size();
+		this.numWords = GenotypeBitPlanes.getNumWords(numSamples);
+
+		this.caseMask = new long[numWords];
+		this.knownMask = new long[numWords];
+		final int[] knownSamples = new int[numSamples];
+		int tmpNumKnown = 0;
+		int tmpNumCases = 0;
+		for (int si = 0; si < numSamples; si++) {
+			final Affection affection = samplesAffections.get(si);
+			if ((affection == Affection.AFFECTED) || (affection == Affection.UNAFFECTED)) {
+				knownMask[si >>> 6] |= 1L << si;
+				knownSamples[tmpNumKnown++] = si;
+				if (affection == Affection.AFFECTED) {
+					caseMask[si >>> 6] |= 1L << si;
+					tmpNumCases++;
+				}
+			}
+		}
+		this.numKnown = tmpNumKnown;
+		this.numCases = tmpNumCases;
+		this.permutedCaseMasks = createPermutedCaseMasks(knownSamples, seed);
+
+		this.parallelRanges = new ParallelRanges(name, RANGE_PERMUTATIONS);
+		this.scratchPlanes = new GenotypeBitPlanes(numSamples);
+		this.observedStatistics = new double[numMarkers];
+		this.numAtLeastAsExtreme = new int[numMarkers];
+		this.maxStatistics = new double[numPermutations];
+		Arrays.fill(maxStatistics, Double.NEGATIVE_INFINITY);
+		this.sortedMaxStatistics = null;
+		this.numMarkersAdded = 0;
+	}
+
+	/**
+	 * Draws the cases of each permutation,
+	 * by partially shuffling the samples with known affection.
+	 */
+	private long[] createPermutedCaseMasks(final int[] knownSamples, final long seed) {
+
+		final Random random = new Random(seed);
+		final int[] shuffled = Arrays.copyOf(knownSamples, numKnown);
+		final long[] masks = new long[numPermutations * numWords];
+		for (int pi = 0; pi < numPermutations; pi++) {
+			final int maskOffset = pi * numWords;
+			// only the first numCases positions need to be drawn
+			for (int ki = 0; ki < numCases; ki++) {
+				final int swapIndex = ki + random.nextInt(numKnown - ki);
+				final int sample = shuffled[swapIndex];
+				shuffled[swapIndex] = shuffled[ki];
+				shuffled[ki] = sample;
+				masks[maskOffset + (sample >>> 6)] |= 1L << sample;
+			}
+		}
+
+		return masks;
+	}
+
+	public int getNumPermutations() {
+		return numPermutations;
+	}
+
+	public int getNumMarkersAdded() {
+		return numMarkersAdded;
+	}
+
+	/**
+	 * Adds the next block of markers, and runs all permutations on them.
+	 * This must not be called concurrently.
+	 * @param markersGenotypes one list of genotypes per marker,
+	 *   each one of <code>#samples</code> length
+	 */
+	public void addMarkers(final List<GenotypesList> markersGenotypes) throws IOException {
+
+		final int numBlockMarkers = markersGenotypes.size();
+		if (numMarkersAdded + numBlockMarkers > observedStatistics.length) {
+			throw new IllegalStateException("More markers added then announced ("
+					+ observedStatistics.length + ")");
+		}
+		final int markerPlanesWords = NUM_CLASSES * numWords;
+		final long[] planes = new long[numBlockMarkers * markerPlanesWords];
+		final int[] totals = new int[numBlockMarkers * NUM_CLASSES];
+		final boolean[] testable = new boolean[numBlockMarkers];
+		final boolean[] complete = new boolean[numBlockMarkers];
+		final double[] thresholds = new double[numBlockMarkers];
+		final int[] caseCounts = new int[NUM_CLASSES];
+
+		for (int bmi = 0; bmi < numBlockMarkers; bmi++) {
+			testable[bmi] = loadClassPlanes(markersGenotypes.get(bmi), planes, bmi * markerPlanesWords);
+			if (!testable[bmi]) {
+				observedStatistics[numMarkersAdded + bmi] = Double.NaN;
+				continue;
+			}
+			final int planesOffset = bmi * markerPlanesWords;
+			final int totalsOffset = bmi * NUM_CLASSES;
+			countClasses(planes, planesOffset, knownMask, totals, totalsOffset);
+			// without missing genotypes, the aa cases need not be counted
+			complete[bmi] = (totals[totalsOffset + AA] + totals[totalsOffset + Aa] + totals[totalsOffset + aa] == numKnown);
+
+			countClasses(planes, planesOffset, caseMask, caseCounts, 0);
+			final double observed = statistic.calculate(
+					caseCounts[AA], caseCounts[Aa], caseCounts[aa],
+					totals[totalsOffset + AA] - caseCounts[AA],
+					totals[totalsOffset + Aa] - caseCounts[Aa],
+					totals[totalsOffset + aa] - caseCounts[aa]);
+			observedStatistics[numMarkersAdded + bmi] = observed;
+			thresholds[bmi] = observed - TIE_TOLERANCE * Math.abs(observed);
+		}
+
+		final int firstMarker = numMarkersAdded;
+		parallelRanges.process(numPermutations, new ParallelRanges.RangeProcessor() {
+			@Override
+			public void process(int from, int to) {
+
+				final int[] localNumAtLeastAsExtreme = new int[numBlockMarkers];
+				for (int bmi = 0; bmi < numBlockMarkers; bmi++) {
+					if (!testable[bmi]) {
+						continue;
+					}
+					final int planesOffset = bmi * markerPlanesWords;
+					final int planesEnd = planesOffset + markerPlanesWords;
+					final boolean markerComplete = complete[bmi];
+					final int totalsOffset = bmi * NUM_CLASSES;
+					final int totAA = totals[totalsOffset + AA];
+					final int totAa = totals[totalsOffset + Aa];
+					final int totaa = totals[totalsOffset + aa];
+					final double threshold = thresholds[bmi];
+					int atLeastAsExtreme = 0;
+					for (int pi = from; pi < to; pi++) {
+						int caseAA = 0;
+						int caseAa = 0;
+						int caseaa = 0;
+						int maskIndex = pi * numWords;
+						if (markerComplete) {
+							for (int pw = planesOffset; pw < planesEnd; pw += NUM_CLASSES) {
+								final long mask = permutedCaseMasks[maskIndex++];
+								caseAA += Long.bitCount(planes[pw + AA] & mask);
+								caseAa += Long.bitCount(planes[pw + Aa] & mask);
+							}
+							caseaa = numCases - caseAA - caseAa;
+						} else {
+							for (int pw = planesOffset; pw < planesEnd; pw += NUM_CLASSES) {
+								final long mask = permutedCaseMasks[maskIndex++];
+								caseAA += Long.bitCount(planes[pw + AA] & mask);
+								caseAa += Long.bitCount(planes[pw + Aa] & mask);
+								caseaa += Long.bitCount(planes[pw + aa] & mask);
+							}
+						}
+						final double permuted = statistic.calculate(
+								caseAA, caseAa, caseaa,
+								totAA - caseAA, totAa - caseAa, totaa - caseaa);
+						// NaN compares false in both cases
+						if (permuted >= threshold) {
+							atLeastAsExtreme++;
+						}
+						if (permuted > maxStatistics[pi]) {
+							maxStatistics[pi] = permuted;
+						}
+					}
+					localNumAtLeastAsExtreme[bmi] = atLeastAsExtreme;
+				}
+
+				synchronized (numAtLeastAsExtreme) {
+					for (int bmi = 0; bmi < numBlockMarkers; bmi++) {
+						numAtLeastAsExtreme[firstMarker + bmi] += localNumAtLeastAsExtreme[bmi];
+					}
+				}
+			}
+		});
+
+		numMarkersAdded += numBlockMarkers;
+		sortedMaxStatistics = null;
+	}
+
+	/**
+	 * Sorts the samples genotypes into the homozygous first allele (AA),
+	 * heterozygous (Aa) and homozygous second allele (aa) planes.
+	 * Which allele comes first does not matter,
+	 * as all the statistics are symmetric.
+	 * Missing genotypes are in none of the planes.
+	 * @return false if the marker has more then two alleles
+	 */
+	private boolean loadClassPlanes(final GenotypesList genotypes, final long[] planes, final int planesOffset) {
+
+		scratchPlanes.load(genotypes);
+		final byte[][] genotypeDecodingTable = scratchPlanes.getGenotypeDecodingTable();
+
+		byte alleleA = AlleleByte._0_VALUE;
+		byte allelea = AlleleByte._0_VALUE;
+		final int[] codeClasses = new int[genotypeDecodingTable.length];
+		for (int code = 0; code < genotypeDecodingTable.length; code++) {
+			codeClasses[code] = -1;
+			final byte allele1 = genotypeDecodingTable[code][0];
+			final byte allele2 = genotypeDecodingTable[code][1];
+			if ((allele1 == AlleleByte._0_VALUE) || (allele2 == AlleleByte._0_VALUE)
+					|| (scratchPlanes.count(code, knownMask) == 0))
+			{
+				continue;
+			}
+			int numFirstAlleles = 0;
+			for (final byte allele : new byte[] {allele1, allele2}) {
+				if (alleleA == AlleleByte._0_VALUE) {
+					alleleA = allele;
+				} else if ((allele != alleleA) && (allelea == AlleleByte._0_VALUE)) {
+					allelea = allele;
+				}
+				if (allele == alleleA) {
+					numFirstAlleles++;
+				} else if (allele != allelea) {
+					// more then two alleles
+					return false;
+				}
+			}
+			codeClasses[code] = (numFirstAlleles == 2) ? AA : ((numFirstAlleles == 1) ? Aa : aa);
+		}
+
+		for (int code = 0; code < genotypeDecodingTable.length; code++) {
+			if (codeClasses[code] < 0) {
+				continue;
+			}
+			final int classOffset = planesOffset + codeClasses[code];
+			final long[] codePlane = scratchPlanes.getPlane(code);
+			for (int wi = 0; wi < numWords; wi++) {
+				planes[classOffset + wi * NUM_CLASSES] |= codePlane[wi] & knownMask[wi];
+			}
+		}
+
+		return true;
+	}
+
+	private void countClasses(final long[] planes, final int planesOffset, final long[] mask, final int[] counts, final int countsOffset) {
+
+		for (int gc = 0; gc < NUM_CLASSES; gc++) {
+			int count = 0;
+			for (int wi = 0; wi < numWords; wi++) {
+				count += Long.bitCount(planes[planesOffset + wi * NUM_CLASSES + gc] & mask[wi]);
+			}
+			counts[countsOffset + gc] = count;
+		}
+	}
+
+	/**
+	 * @return the statistic of the marker with the real affection labels
+	 */
+	public double getObservedStatistic(final int markerIndex) {
+		return observedStatistics[markerIndex];
+	}
+
+	/**
+	 * Returns the point-wise empirical P-value of a marker,
+	 * <code>(R + 1) / (N + 1)</code>, where <code>R</code> is the number
+	 * of permutations with a statistic at least as extreme as the observed one,
+	 * and <code>N</code> the number of permutations.
+	 * @return the empirical P-value, or <code>NaN</code>
+	 *   if the observed statistic is undefined
+	 */
+	public double getEmpiricalP(final int markerIndex) {
+
+		if (Double.isNaN(observedStatistics[markerIndex])) {
+			return Double.NaN;
+		}
+
+		return (numAtLeastAsExtreme[markerIndex] + 1.0) / (numPermutations + 1.0);
+	}
+
+	/**
+	 * Returns the family-wise corrected empirical P-value of a marker,
+	 * which uses the maximal statistic over all the markers of each permutation
+	 * instead of the markers own statistic.
+	 * This is only final after all the markers were added.
+	 * @return the corrected P-value, or <code>NaN</code>
+	 *   if the observed statistic is undefined
+	 */
+	public double getCorrectedP(final int markerIndex) {
+
+		final double observed = observedStatistics[markerIndex];
+		if (Double.isNaN(observed)) {
+			return Double.NaN;
+		}
+		if (sortedMaxStatistics == null) {
+			sortedMaxStatistics = maxStatistics.clone();
+			Arrays.sort(sortedMaxStatistics);
+		}
+
+		// index of the first maximum at least as extreme as the observed statistic
+		final double threshold = observed - TIE_TOLERANCE * Math.abs(observed);
+		int low = 0;
+		int high = sortedMaxStatistics.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (sortedMaxStatistics[mid] >= threshold) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		final int numAtLeastAsExtremeMaxima = sortedMaxStatistics.length - low;
+
+		return (numAtLeastAsExtremeMaxima + 1.0) / (numPermutations + 1.0);
+	}
+
+	/**
+	 * Stops the worker threads.
+	 * Call this after all markers were added.
+	 */
+	public void close() {
+		parallelRanges.close();
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.model.OperationMetadata;
+import org.gwaspi.operations.NetCdfUtils;
+import org.gwaspi.operations.OperationTypeInfo;
+import org.gwaspi.operations.trendtest.AbstractNetCdfTestOperationDataSet;
+import ucar.ma2.ArrayDouble;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFileWriteable;
+
+public class NetCdfPermutationTestOperationDataSet extends AbstractNetCdfTestOperationDataSet<PermutationTestOperationEntry> implements PermutationTestOperationDataSet {
+
+	// - Variables.VAR_OPSET: wrMarkerMetadata.keySet() [Collection<MarkerKey>]
+	// - Variables.VAR_MARKERS_RSID: markers RS ID from the rd marker census opertion, sorted by wrMarkerMetadata.keySet() [Collection<String>]
+	// - Variables.VAR_IMPLICITSET: "implicit set", rdSampleSetMap.keySet(), original sample keys [Collection<SampleKey>]
+	// - Variables.VAR_CHR_IN_MATRIX: chromosomeInfo.keySet() [Collection<ChromosomeKey>]
+	// - Variables.VAR_CHR_INFO: chromosomeInfo.values() [Collection<ChromosomeInfo>]
+	// - Association.VAR_OP_MARKERS_T, VAR_OP_MARKERS_P, VAR_OP_MARKERS_P_CORRECTED: {statistic, empirical P-Value, max(T) corrected P-Value} [Double[3]]
+	// - Attributes.GLOB_PERMUTATION_STATISTIC: the tested association statistic [String]
+
+	private PermutationTestStatistic statistic;
+	private ArrayDouble.D1 netCdfTs;
+	private ArrayDouble.D1 netCdfPs;
+	private ArrayDouble.D1 netCdfCorrectedPs;
+
+	public NetCdfPermutationTestOperationDataSet(MatrixKey origin, DataSetKey parent, OperationKey operationKey) {
+		super(origin, parent, operationKey);
+
+		this.statistic = null;
+	}
+
+	public NetCdfPermutationTestOperationDataSet(MatrixKey origin, DataSetKey parent) {
+		this(origin, parent, null);
+	}
+
+	@Override
+	public OperationTypeInfo getTypeInfo() {
+		return PermutationTestOperationFactory.OPERATION_TYPE_INFO;
+	}
+
+	@Override
+	protected void supplementNetCdfHandler(
+			NetcdfFileWriteable ncFile,
+			OperationMetadata operationMetadata,
+			List<Dimension> markersSpace,
+			List<Dimension> chromosomesSpace,
+			List<Dimension> samplesSpace)
+			throws IOException
+	{
+		super.supplementNetCdfHandler(ncFile, operationMetadata, markersSpace, chromosomesSpace, samplesSpace);
+
+		if (statistic == null) {
+			throw new IllegalStateException("The statistic has to be set before writing");
+		}
+		ncFile.addGlobalAttribute(NetCDFConstants.Attributes.GLOB_PERMUTATION_STATISTIC, statistic.name());
+	}
+
+	@Override
+	public void setStatistic(PermutationTestStatistic statistic) {
+		this.statistic = statistic;
+	}
+
+	@Override
+	public PermutationTestStatistic getStatistic() throws IOException {
+
+		if (statistic == null) {
+			final Attribute statisticAttribute = getNetCdfReadFile()
+					.findGlobalAttribute(NetCDFConstants.Attributes.GLOB_PERMUTATION_STATISTIC);
+			if (statisticAttribute == null) {
+				throw new IOException("The permutation test statistic is not stored in the operation");
+			}
+			statistic = PermutationTestStatistic.valueOf(statisticAttribute.getStringValue());
+		}
+
+		return statistic;
+	}
+
+	@Override
+	protected void writeEntries(int alreadyWritten, Queue<PermutationTestOperationEntry> writeBuffer) throws IOException {
+
+		int[] origin = new int[] {alreadyWritten};
+		if (netCdfTs == null) {
+			// only create once, and reuse later on
+			// NOTE This might be bad for multi-threading in a later stage
+			netCdfTs = new ArrayDouble.D1(writeBuffer.size());
+			netCdfPs = new ArrayDouble.D1(writeBuffer.size());
+			netCdfCorrectedPs = new ArrayDouble.D1(writeBuffer.size());
+		} else if (writeBuffer.size() < netCdfTs.getShape()[0]) {
+			// we end up here at the end of the processing, if, for example,
+			// we have a buffer size of 10, but only 7 items are left to be written
+			List<Range> reducedRange1D = new ArrayList<Range>(1);
+			reducedRange1D.add(new Range(writeBuffer.size()));
+			try {
+				netCdfTs = (ArrayDouble.D1) netCdfTs.sectionNoReduce(reducedRange1D);
+				netCdfPs = (ArrayDouble.D1) netCdfPs.sectionNoReduce(reducedRange1D);
+				netCdfCorrectedPs = (ArrayDouble.D1) netCdfCorrectedPs.sectionNoReduce(reducedRange1D);
+			} catch (InvalidRangeException ex) {
+				throw new IOException(ex);
+			}
+		}
+		int index = 0;
+		for (PermutationTestOperationEntry entry : writeBuffer) {
+			netCdfTs.setDouble(netCdfTs.getIndex().set(index), entry.getT());
+			netCdfPs.setDouble(netCdfPs.getIndex().set(index), entry.getP());
+			netCdfCorrectedPs.setDouble(netCdfCorrectedPs.getIndex().set(index), entry.getCorrectedP());
+			index++;
+		}
+		try {
+			getNetCdfWriteFile().write(NetCDFConstants.Association.VAR_OP_MARKERS_T, origin, netCdfTs);
+			getNetCdfWriteFile().write(NetCDFConstants.Association.VAR_OP_MARKERS_P, origin, netCdfPs);
+			getNetCdfWriteFile().write(NetCDFConstants.Association.VAR_OP_MARKERS_P_CORRECTED, origin, netCdfCorrectedPs);
+		} catch (InvalidRangeException ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	@Override
+	public List<Double> getTs(int from, int to) throws IOException {
+
+		List<Double> ts = new ArrayList<Double>(0);
+		NetCdfUtils.readVariable(getNetCdfReadFile(), NetCDFConstants.Association.VAR_OP_MARKERS_T, from, to, ts, null);
+
+		return ts;
+	}
+
+	@Override
+	public List<Double> getPs(int from, int to) throws IOException {
+
+		List<Double> ps = new ArrayList<Double>(0);
+		NetCdfUtils.readVariable(getNetCdfReadFile(), NetCDFConstants.Association.VAR_OP_MARKERS_P, from, to, ps, null);
+
+		return ps;
+	}
+
+	@Override
+	public List<Double> getCorrectedPs(int from, int to) throws IOException {
+
+		List<Double> correctedPs = new ArrayList<Double>(0);
+		NetCdfUtils.readVariable(getNetCdfReadFile(), NetCDFConstants.Association.VAR_OP_MARKERS_P_CORRECTED, from, to, correctedPs, null);
+
+		return correctedPs;
+	}
+
+	@Override
+	public List<PermutationTestOperationEntry> getEntries(int from, int to) throws IOException {
+
+		Map<Integer, MarkerKey> markersKeys = getMarkersKeysSource().getIndicesMap(from, to);
+
+		List<Double> ts = getTs(from, to);
+		List<Double> ps = getPs(from, to);
+		List<Double> correctedPs = getCorrectedPs(from, to);
+
+		List<PermutationTestOperationEntry> entries
+				= new ArrayList<PermutationTestOperationEntry>(ts.size());
+		Iterator<Double> tsIt = ts.iterator();
+		Iterator<Double> psIt = ps.iterator();
+		Iterator<Double> correctedPsIt = correctedPs.iterator();
+		for (Map.Entry<Integer, MarkerKey> origIndicesAndKey : markersKeys.entrySet()) {
+			entries.add(new DefaultPermutationTestOperationEntry(
+					origIndicesAndKey.getValue(),
+					origIndicesAndKey.getKey(),
+					tsIt.next(),
+					psIt.next(),
+					correctedPsIt.next()));
+		}
+
+		return entries;
+	}
+}
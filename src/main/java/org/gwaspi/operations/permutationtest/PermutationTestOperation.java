@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.gwaspi.global.Text;
+import org.gwaspi.model.DataSetSource;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.model.SampleInfo.Affection;
+import org.gwaspi.netCDF.matrices.MatrixFactory;
+import org.gwaspi.operations.AbstractOperationCreatingOperation;
+import org.gwaspi.operations.MarkerGenotypesInput;
+import org.gwaspi.operations.OperationManager;
+import org.gwaspi.operations.OperationTypeInfo;
+import org.gwaspi.progress.DefaultProcessInfo;
+import org.gwaspi.progress.ProcessInfo;
+import org.gwaspi.progress.ProcessStatus;
+import org.gwaspi.progress.ProgressHandler;
+import org.gwaspi.progress.SampledIntegerProgressHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calculates empirical P-values of an association test,
+ * by shuffling the affection labels of the samples many times.
+ * For each marker, it stores the observed statistic,
+ * the point-wise empirical P-value and the max(T) family-wise corrected one.
+ * Unlike the other tests, this reads the genotypes of the parent,
+ * instead of the census, as it has to recount them for each permutation.
+ * @see MaxTPermutations
+ */
+public class PermutationTestOperation extends AbstractOperationCreatingOperation<PermutationTestOperationDataSet, PermutationTestOperationParams> {
+
+	private final Logger log = LoggerFactory.getLogger(PermutationTestOperation.class);
+
+	/** Number of markers whose genotypes are held in memory at once. */
+	private static final int PERMUTATION_BLOCK_MARKERS = 1 << 12;
+
+	private static final ProcessInfo PROCESS_INFO = new DefaultProcessInfo(
+			Text.Operation.permutationTest,
+			Text.Operation.permutationTestDescription);
+
+	public static void register() {
+		// NOTE When converting to OSGi, this would be done in bundle init,
+		//   or by annotations.
+		OperationManager.registerOperationFactory(new PermutationTestOperationFactory());
+	}
+
+	private ProgressHandler<Integer> markersProgressHandler;
+
+	public PermutationTestOperation(final PermutationTestOperationParams params) {
+		super(params);
+
+		this.markersProgressHandler = null;
+	}
+
+	@Override
+	public OperationTypeInfo getTypeInfo() {
+		return PermutationTestOperationFactory.OPERATION_TYPE_INFO;
+	}
+
+	@Override
+	public ProcessInfo getProcessInfo() {
+		return PROCESS_INFO;
+	}
+
+	/**
+	 * Reports the index of the last marker that was permuted.
+	 */
+	@Override
+	protected ProgressHandler<Integer> getProgressHandler() throws IOException {
+
+		if (markersProgressHandler == null) {
+			markersProgressHandler = new SampledIntegerProgressHandler(
+					getProcessInfo(),
+					0, // first marker
+					getNumItems() - 1); // last marker
+		}
+
+		return markersProgressHandler;
+	}
+
+	@Override
+	public boolean isValid() {
+		return (getParams().getNumPermutations() > 0);
+	}
+
+	@Override
+	public String getProblemDescription() {
+		return isValid() ? null : "The number of permutations has to be positive";
+	}
+
+	@Override
+	public OperationKey call() throws IOException {
+
+		OperationKey resultOpKey = null;
+
+		final ProgressHandler<Integer> progressHandler = getProgressHandler();
+		progressHandler.setNewStatus(ProcessStatus.INITIALIZING);
+
+		final DataSetSource inputDataSet
+				= closeWhenFinished(MatrixFactory.generateDataSetSource(getParams().getParent()));
+
+		// CHECK IF THERE IS ANY DATA LEFT TO PROCESS AFTER PICKING
+		if (!MatrixFactory.isDataLeft(inputDataSet)) {
+			log.warn(Text.Operation.warnNoDataLeftAfterPicking);
+			return resultOpKey;
+		}
+
+		final PermutationTestOperationDataSet dataSet = generateFreshOperationDataSet();
+
+		final int numMarkers = inputDataSet.getNumMarkers();
+		dataSet.setNumMarkers(numMarkers);
+		dataSet.setNumSamples(inputDataSet.getNumSamples());
+		dataSet.setNumChromosomes(inputDataSet.getNumChromosomes());
+		dataSet.setStatistic(getParams().getStatistic());
+
+		final List<Affection> samplesAffections
+				= new ArrayList<Affection>(inputDataSet.getSamplesInfosSource().getAffections());
+		final MaxTPermutations permutations = new MaxTPermutations(
+				getParams().getName(),
+				numMarkers,
+				samplesAffections,
+				getParams().getStatistic(),
+				getParams().getNumPermutations(),
+				getParams().getSeed());
+
+		org.gwaspi.global.Utils.sysoutStart(getParams().getName());
+		log.info("Running {} permutations of the {} statistic on {} markers",
+				getParams().getNumPermutations(), getParams().getStatistic(), numMarkers);
+		progressHandler.setNewStatus(ProcessStatus.RUNNING);
+		final Iterator<MarkerGenotypesInput> markersIt = MarkerGenotypesInput.iterator(inputDataSet);
+		final List<GenotypesList> block = new ArrayList<GenotypesList>(Math.min(PERMUTATION_BLOCK_MARKERS, numMarkers));
+		try {
+			while (markersIt.hasNext()) {
+				block.clear();
+				while ((block.size() < PERMUTATION_BLOCK_MARKERS) && markersIt.hasNext()) {
+					block.add(markersIt.next().getGenotypes());
+				}
+				permutations.addMarkers(block);
+				progressHandler.setProgress(permutations.getNumMarkersAdded() - 1);
+			}
+		} finally {
+			permutations.close();
+		}
+
+		// the corrected P-values are only known after all markers were permuted
+		progressHandler.setNewStatus(ProcessStatus.FINALIZING);
+		int markerIndex = 0;
+		for (Map.Entry<Integer, MarkerKey> markerOrigIndexKey : inputDataSet.getMarkersKeysSource().getIndicesMap().entrySet()) {
+			dataSet.addEntry(new DefaultPermutationTestOperationEntry(
+					markerOrigIndexKey.getValue(),
+					markerOrigIndexKey.getKey(),
+					permutations.getObservedStatistic(markerIndex),
+					permutations.getEmpiricalP(markerIndex),
+					permutations.getCorrectedP(markerIndex)));
+			markerIndex++;
+		}
+		org.gwaspi.global.Utils.sysoutCompleted(getParams().getName());
+
+		dataSet.finnishWriting();
+		resultOpKey = dataSet.getOperationKey();
+		progressHandler.setNewStatus(ProcessStatus.COMPLEETED);
+
+		return resultOpKey;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import java.io.IOException;
+import java.util.List;
+import org.gwaspi.operations.trendtest.CommonTestOperationDataSet;
+
+public interface PermutationTestOperationDataSet extends CommonTestOperationDataSet<PermutationTestOperationEntry> {
+
+	List<Double> getCorrectedPs(int from, int to) throws IOException;
+
+	/**
+	 * Sets the association statistic that is tested;
+	 * this has to be done before adding any entries.
+	 */
+	void setStatistic(PermutationTestStatistic statistic);
+
+	PermutationTestStatistic getStatistic() throws IOException;
+}
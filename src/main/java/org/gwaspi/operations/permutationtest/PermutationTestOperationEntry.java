@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import org.gwaspi.global.Extractor;
+import org.gwaspi.operations.trendtest.TrendTestOperationEntry;
+
+/**
+ * The results of the permutation test of a single marker.
+ * {@link #getT()} is the observed association statistic,
+ * and {@link #getP()} its point-wise empirical P value.
+ */
+public interface PermutationTestOperationEntry extends TrendTestOperationEntry {
+
+	Extractor<PermutationTestOperationEntry, Double> TO_CORRECTED_P
+			= new Extractor<PermutationTestOperationEntry, Double>()
+	{
+		@Override
+		public Double extract(PermutationTestOperationEntry from) {
+			return from.getCorrectedP();
+		}
+	};
+
+	/**
+	 * @return the markers empirical P value, corrected for testing all markers
+	 *   with the max(T) method
+	 * NetCDF variable:
+	 * - Association.VAR_OP_MARKERS_P_CORRECTED
+	 */
+	double getCorrectedP();
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import org.gwaspi.constants.NetCDFConstants.Defaults.OPType;
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.operations.trendtest.TrendTestOperationParams;
+
+public class PermutationTestOperationParams extends TrendTestOperationParams {
+
+	public static final PermutationTestStatistic DEFAULT_STATISTIC = PermutationTestStatistic.ALLELIC;
+	public static final int DEFAULT_NUM_PERMUTATIONS = 10000;
+	public static final long DEFAULT_SEED = 0L;
+
+	private final PermutationTestStatistic statistic;
+	private final int numPermutations;
+	private final long seed;
+
+	/**
+	 * Creates parameters for a permutation test operation.
+	 * @param parent this is used as a source for the markers, the samples,
+	 *   their genotypes and affections
+	 * @param name
+	 * @param markerCensusOpKey the census the parent is based on
+	 * @param statistic the association statistic to test
+	 * @param numPermutations how many times the affection labels are shuffled
+	 * @param seed of the random number generator, for reproducible results
+	 */
+	public PermutationTestOperationParams(
+			final DataSetKey parent,
+			final String name,
+			final OperationKey markerCensusOpKey,
+			final PermutationTestStatistic statistic,
+			final int numPermutations,
+			final long seed)
+	{
+		super(OPType.PERMUTATIONTEST, parent, name, markerCensusOpKey);
+
+		this.statistic = statistic;
+		this.numPermutations = numPermutations;
+		this.seed = seed;
+	}
+
+	public PermutationTestOperationParams(
+			final DataSetKey parent,
+			final OperationKey markerCensusOpKey)
+	{
+		this(parent, null, markerCensusOpKey, DEFAULT_STATISTIC, DEFAULT_NUM_PERMUTATIONS, DEFAULT_SEED);
+	}
+
+	public PermutationTestStatistic getStatistic() {
+		return statistic;
+	}
+
+	public int getNumPermutations() {
+		return numPermutations;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	@Override
+	protected String getNameDefault() {
+		return "Max(T) permutation test operation";
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import org.gwaspi.statistics.Associations;
+
+/**
+ * The test statistics a permutation test may be based on.
+ * Each one is calculated from the 2x3 table of genotype counts,
+ * exactly like the corresponding association test does.
+ */
+public enum PermutationTestStatistic {
+
+	/** Allelic association chi-square, 1 degree of freedom */
+	ALLELIC(1) {
+		@Override
+		public double calculate(int caseAA, int caseAa, int caseaa, int ctrlAA, int ctrlAa, int ctrlaa) {
+			return Associations.calculateAssociationChiSquare(caseAA, caseAa, caseaa, ctrlAA, ctrlAa, ctrlaa, false);
+		}
+	},
+	/** Genotypic association chi-square, 2 degrees of freedom */
+	GENOTYPIC(2) {
+		@Override
+		public double calculate(int caseAA, int caseAa, int caseaa, int ctrlAA, int ctrlAa, int ctrlaa) {
+			return Associations.calculateAssociationChiSquare(caseAA, caseAa, caseaa, ctrlAA, ctrlAa, ctrlaa, true);
+		}
+	},
+	/** Cochran-Armitage trend test chi-square (co-dominant), 1 degree of freedom */
+	TREND(1) {
+		@Override
+		public double calculate(int caseAA, int caseAa, int caseaa, int ctrlAA, int ctrlAa, int ctrlaa) {
+			return Associations.calculateChocranArmitageTrendTest(caseAA, caseAa, caseaa, ctrlAA, ctrlAa, ctrlaa,
+					Associations.ChocranArmitageTrendTestModel.CODOMINANT);
+		}
+	};
+
+	private final int degreesOfFreedom;
+
+	private PermutationTestStatistic(final int degreesOfFreedom) {
+		this.degreesOfFreedom = degreesOfFreedom;
+	}
+
+	public int getDegreesOfFreedom() {
+		return degreesOfFreedom;
+	}
+
+	/**
+	 * Calculates the statistic of a single marker.
+	 * Larger values mean stronger association.
+	 * @return the statistic, or <code>NaN</code> if it is undefined
+	 */
+	public abstract double calculate(int caseAA, int caseAa, int caseaa, int ctrlAA, int ctrlAa, int ctrlaa);
+}
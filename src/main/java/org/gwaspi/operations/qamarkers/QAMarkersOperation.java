@@ -18,18 +18,19 @@
 package org.gwaspi.operations.qamarkers;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.gwaspi.constants.NetCDFConstants.Defaults.AlleleByte;
+import org.gwaspi.global.OrderedBlockProcessor;
 import org.gwaspi.model.DataSetSource;
 import org.gwaspi.model.GenotypesList;
-import org.gwaspi.model.MarkerKey;
-import org.gwaspi.model.MarkersGenotypesSource;
 import org.gwaspi.model.OperationKey;
 import org.gwaspi.model.SampleInfo.Sex;
 import org.gwaspi.operations.AbstractOperationCreatingOperation;
 import org.gwaspi.operations.CensusDecision;
+import org.gwaspi.operations.MarkerGenotypesInput;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.OperationTypeInfo;
 import org.gwaspi.operations.AbstractOperationDataSet;
@@ -91,7 +92,8 @@ public class QAMarkersOperation extends AbstractOperationCreatingOperation<QAMar
 		dataSet.setNumChromosomes(parentDataSetSource.getNumChromosomes());
 		dataSet.setNumSamples(numSamples);
 
-		final List<Sex> sampleSexes = parentDataSetSource.getSamplesInfosSource().getSexes();
+		// copied, because the workers access it concurrently
+		final List<Sex> sampleSexes = new ArrayList<Sex>(parentDataSetSource.getSamplesInfosSource().getSexes());
 
 		// A is the major allele (the 'letter' (!= '0') which appears most often)
 		// a is the minor allele (the 'letter' (!= '0') which appears less often)
@@ -100,52 +102,43 @@ public class QAMarkersOperation extends AbstractOperationCreatingOperation<QAMar
 		final int[] alleleValueToOrdinalLookupTable = AlleleByte.createAlleleValueToOrdinalLookupTable();
 		final float counter = 1.0f;
 
-		RawMarkerAlleleAndGTStatistics rawMarkerAlleleAndGTStatistics = new RawMarkerAlleleAndGTStatistics(alleleValueToOrdinalLookupTable);
-
-		MarkersGenotypesSource markersGenotypesSource = parentDataSetSource.getMarkersGenotypesSource();
-		Iterator<GenotypesList> markersGenotypesSourceIt = markersGenotypesSource.iterator();
-		Iterator<String> markersChromosomesIt = parentDataSetSource.getMarkersMetadatasSource().getChromosomes().iterator();
-		Map<Integer, MarkerKey> markersIndicesMap = parentDataSetSource.getMarkersKeysSource().getIndicesMap();
-		int localMarkerIndex = 0;
+		// The genotypes are read on this thread, while the statistics
+		// are calculated in blocks of markers by the workers.
+		// The resulting entries are added in the original order,
+		// so the result is the same as with a sequential run.
+		final OrderedBlockProcessor<MarkerGenotypesInput, QAMarkersOperationEntry> blockProcessor
+				= new OrderedBlockProcessor<MarkerGenotypesInput, QAMarkersOperationEntry>(PROCESS_INFO.getShortName());
+		final AbstractOperationDataSet resultDataSet = (AbstractOperationDataSet) dataSet;
 		progressHandler.setNewStatus(ProcessStatus.RUNNING);
-		for (Map.Entry<Integer, MarkerKey> markerOrigIndexKey : markersIndicesMap.entrySet()) {
-			final int markerOrigIndex = markerOrigIndexKey.getKey();
-			final MarkerKey markerKey = markerOrigIndexKey.getValue();
-			final GenotypesList markerGenotypes = markersGenotypesSourceIt.next();
-			final String chromosome = markersChromosomesIt.next();
-
-			gatherRawMarkerAlleleAndGTStatistics(
-					rawMarkerAlleleAndGTStatistics,
-					chromosome,
-					sampleSexes,
-					counter,
-					markerGenotypes);
-
-			MarkerAlleleAndGTStatistics markerAlleleAndGTStatistics
-					= calculateMarkerAlleleAndGTStatistics(rawMarkerAlleleAndGTStatistics);
-			extractCompactStatistics(rawMarkerAlleleAndGTStatistics, markerAlleleAndGTStatistics, numSamples);
-
-			final double missingRatio = (double) rawMarkerAlleleAndGTStatistics.getMissingCount() / parentDataSetSource.getNumSamples();
-
-			((AbstractOperationDataSet) dataSet).addEntry(new DefaultQAMarkersOperationEntry(
-					markerKey,
-					markerOrigIndex,
-					markerAlleleAndGTStatistics.isMismatch(),
-					markerAlleleAndGTStatistics.getMajorAllele(),
-					markerAlleleAndGTStatistics.getMajorAlleleFreq(),
-					markerAlleleAndGTStatistics.getMinorAllele(),
-					1.0 - markerAlleleAndGTStatistics.getMajorAlleleFreq(),
-//					markerAlleleAndGTStatistics.getNumAA(),
-//					markerAlleleAndGTStatistics.getNumAa(),
-//					markerAlleleAndGTStatistics.getNumaa(),
-					rawMarkerAlleleAndGTStatistics.getMissingCount(),
-					missingRatio,
-					markerAlleleAndGTStatistics.getCompactAlleleStatistics(),
-					markerAlleleAndGTStatistics.getCompactGenotypeStatistics()
-			));
-			progressHandler.setProgress(localMarkerIndex);
-			localMarkerIndex++;
-		}
+		blockProcessor.process(
+				MarkerGenotypesInput.iterator(parentDataSetSource),
+				new OrderedBlockProcessor.BlockProcessor<MarkerGenotypesInput, QAMarkersOperationEntry>() {
+					@Override
+					public List<QAMarkersOperationEntry> processBlock(int firstIndex, List<MarkerGenotypesInput> block) throws IOException {
+
+						// scratch space, confined to the thread processing this block
+						final RawMarkerAlleleAndGTStatistics rawMarkerAlleleAndGTStatistics
+								= new RawMarkerAlleleAndGTStatistics(alleleValueToOrdinalLookupTable);
+						final List<QAMarkersOperationEntry> entries = new ArrayList<QAMarkersOperationEntry>(block.size());
+						for (final MarkerGenotypesInput marker : block) {
+							entries.add(calculateEntry(
+									rawMarkerAlleleAndGTStatistics,
+									marker,
+									sampleSexes,
+									counter,
+									numSamples));
+						}
+						return entries;
+					}
+				},
+				new OrderedBlockProcessor.ResultConsumer<QAMarkersOperationEntry>() {
+					@Override
+					public void consume(int index, QAMarkersOperationEntry entry) throws IOException {
+
+						resultDataSet.addEntry(entry);
+						progressHandler.setProgress(index);
+					}
+				});
 		progressHandler.setNewStatus(ProcessStatus.FINALIZING);
 		//</editor-fold>
 
@@ -158,6 +151,44 @@ public class QAMarkersOperation extends AbstractOperationCreatingOperation<QAMar
 		return resultOpKey;
 	}
 
+	private static QAMarkersOperationEntry calculateEntry(
+			final RawMarkerAlleleAndGTStatistics rawMarkerAlleleAndGTStatistics,
+			final MarkerGenotypesInput marker,
+			final List<Sex> sampleSexes,
+			final float counter,
+			final int numSamples)
+			throws IOException
+	{
+		gatherRawMarkerAlleleAndGTStatistics(
+				rawMarkerAlleleAndGTStatistics,
+				marker.getChromosome(),
+				sampleSexes,
+				counter,
+				marker.getGenotypes());
+
+		MarkerAlleleAndGTStatistics markerAlleleAndGTStatistics
+				= calculateMarkerAlleleAndGTStatistics(rawMarkerAlleleAndGTStatistics);
+		extractCompactStatistics(rawMarkerAlleleAndGTStatistics, markerAlleleAndGTStatistics, numSamples);
+
+		final double missingRatio = (double) rawMarkerAlleleAndGTStatistics.getMissingCount() / numSamples;
+
+		return new DefaultQAMarkersOperationEntry(
+				marker.getKey(),
+				marker.getOrigIndex(),
+				markerAlleleAndGTStatistics.isMismatch(),
+				markerAlleleAndGTStatistics.getMajorAllele(),
+				markerAlleleAndGTStatistics.getMajorAlleleFreq(),
+				markerAlleleAndGTStatistics.getMinorAllele(),
+				1.0 - markerAlleleAndGTStatistics.getMajorAlleleFreq(),
+//				markerAlleleAndGTStatistics.getNumAA(),
+//				markerAlleleAndGTStatistics.getNumAa(),
+//				markerAlleleAndGTStatistics.getNumaa(),
+				rawMarkerAlleleAndGTStatistics.getMissingCount(),
+				missingRatio,
+				markerAlleleAndGTStatistics.getCompactAlleleStatistics(),
+				markerAlleleAndGTStatistics.getCompactGenotypeStatistics());
+	}
+
 	/**
 	 * This gathers all possible raw statistics about the alleles and genotypes
 	 * of a single marker.
@@ -191,29 +222,41 @@ public class QAMarkersOperation extends AbstractOperationCreatingOperation<QAMar
 		// number of observed GTs of type 00; depending on decision
 		int missingCount = 0;
 
-		// Count alleles and genotypes
-		Iterator<byte[]> markerSamplesGenotypesIt = markerGenotypes.iterator();
-		for (Sex sampleSex : sampleSexes) {
-			byte[] markerSampleGenotype = markerSamplesGenotypesIt.next();
-
-			//<editor-fold defaultstate="expanded" desc="SUMMING SAMPLESET GENOTYPES">
-			final byte allele1 = markerSampleGenotype[0];
-			final byte allele2 = markerSampleGenotype[1];
-			final int allele1Ordinal = alleleValueToOrdinalLookupTable[allele1];
-			final int allele2Ordinal = alleleValueToOrdinalLookupTable[allele2];
-
-			alleleOrdinalCounts[allele1Ordinal] += counter;
-			alleleOrdinalCounts[allele2Ordinal] += counter;
-			if ((allele1 == AlleleByte._0_VALUE) && (allele2 == AlleleByte._0_VALUE)) {
-				CensusDecision decision = CensusDecision.getDecisionByChrAndSex(chromosome, sampleSex);
+		// Count genotype codes first, and only then alleles and genotypes,
+		// so we do not have to decode each genotype
+		final byte[][] genotypeDecodingTable = markerGenotypes.getGenotypeDecodingTable();
+		final int[] genotypeCodeCounts = new int[genotypeDecodingTable.length];
+		final boolean[] missingCodes = new boolean[genotypeDecodingTable.length];
+		for (int code = 0; code < genotypeDecodingTable.length; code++) {
+			missingCodes[code] = (genotypeDecodingTable[code][0] == AlleleByte._0_VALUE)
+					&& (genotypeDecodingTable[code][1] == AlleleByte._0_VALUE);
+		}
+		final int numSamples = sampleSexes.size();
+		for (int si = 0; si < numSamples; si++) {
+			final int genotypeCode = markerGenotypes.getGenotypeCode(si);
+			genotypeCodeCounts[genotypeCode]++;
+			if (missingCodes[genotypeCode]) {
+				CensusDecision decision = CensusDecision.getDecisionByChrAndSex(chromosome, sampleSexes.get(si));
 				if (decision != CensusDecision.CountFemalesNonAutosomally) {
 					missingCount++;
 				}
 			}
+		}
 
-			gtOrdinalCounts[allele1Ordinal][allele2Ordinal] += counter;
-			//</editor-fold>
+		//<editor-fold defaultstate="expanded" desc="SUMMING SAMPLESET GENOTYPES">
+		for (int code = 0; code < genotypeDecodingTable.length; code++) {
+			if (genotypeCodeCounts[code] == 0) {
+				continue;
+			}
+			final float codeCounter = genotypeCodeCounts[code] * counter;
+			final int allele1Ordinal = alleleValueToOrdinalLookupTable[genotypeDecodingTable[code][0]];
+			final int allele2Ordinal = alleleValueToOrdinalLookupTable[genotypeDecodingTable[code][1]];
+
+			alleleOrdinalCounts[allele1Ordinal] += codeCounter;
+			alleleOrdinalCounts[allele2Ordinal] += codeCounter;
+			gtOrdinalCounts[allele1Ordinal][allele2Ordinal] += codeCounter;
 		}
+		//</editor-fold>
 		rawMarkerAlleleAndGTStatistics.setMissingCount(missingCount);
 	}
 
@@ -23,7 +23,6 @@ import java.util.Map;
 import org.gwaspi.constants.NetCDFConstants.Defaults.AlleleByte;
 import org.gwaspi.model.DataSetSource;
 import org.gwaspi.model.GenotypesList;
-import org.gwaspi.model.MarkerMetadata;
 import org.gwaspi.model.MarkersMetadataSource;
 import org.gwaspi.model.OperationKey;
 import org.gwaspi.model.SampleKey;
@@ -91,6 +90,18 @@ public class QASamplesOperation extends AbstractOperationCreatingOperation<QASam
 		SamplesGenotypesSource samplesGenotypes = dataSetSource.getSamplesGenotypesSource();
 		MarkersMetadataSource markersInfSrc = dataSetSource.getMarkersMetadatasSource();
 
+		// WE DON'T WANT NON AUTOSOMAL CHR FOR HETZY
+		// This is the same for all samples, so we only look it up once.
+		final int numMarkers = dataSetSource.getNumMarkers();
+		final boolean[] markersAutosomal = new boolean[numMarkers];
+		int markerIndex = 0;
+		for (final String currentChr : markersInfSrc.getChromosomes()) {
+			markersAutosomal[markerIndex++] = !currentChr.equals("X")
+					&& !currentChr.equals("Y")
+					&& !currentChr.equals("XY")
+					&& !currentChr.equals("MT");
+		}
+
 		// Iterate through samples
 		Iterator<GenotypesList> samplesGenotypesIt = samplesGenotypes.iterator();
 		progressHandler.setNewStatus(ProcessStatus.RUNNING);
@@ -105,21 +116,20 @@ public class QASamplesOperation extends AbstractOperationCreatingOperation<QASam
 			int heterozygCount = 0;
 
 			// Iterate through markerset
-			GenotypesList sampleGenotypes = samplesGenotypesIt.next();
-			Iterator<MarkerMetadata> markersInfSrcIt = markersInfSrc.iterator();
-			for (byte[] tempGT : sampleGenotypes) {
-				if ((tempGT[0] == AlleleByte._0_VALUE) && (tempGT[1] == AlleleByte._0_VALUE)) {
+			final GenotypesList sampleGenotypes = samplesGenotypesIt.next();
+			final byte[][] genotypeDecodingTable = sampleGenotypes.getGenotypeDecodingTable();
+			final boolean[] missingCodes = new boolean[genotypeDecodingTable.length];
+			final boolean[] heterozygCodes = new boolean[genotypeDecodingTable.length];
+			for (int code = 0; code < genotypeDecodingTable.length; code++) {
+				final byte[] genotype = genotypeDecodingTable[code];
+				missingCodes[code] = (genotype[0] == AlleleByte._0_VALUE) && (genotype[1] == AlleleByte._0_VALUE);
+				heterozygCodes[code] = (genotype[0] != genotype[1]);
+			}
+			for (int mi = 0; mi < numMarkers; mi++) {
+				final int genotypeCode = sampleGenotypes.getGenotypeCode(mi);
+				if (missingCodes[genotypeCode]) {
 					missingCount++;
-				}
-
-				// WE DON'T WANT NON AUTOSOMAL CHR FOR HETZY
-				String currentChr = markersInfSrcIt.next().getChr();
-				if (!currentChr.equals("X")
-						&& !currentChr.equals("Y")
-						&& !currentChr.equals("XY")
-						&& !currentChr.equals("MT")
-						&& (tempGT[0] != tempGT[1]))
-				{
+				} else if (heterozygCodes[genotypeCode] && markersAutosomal[mi]) {
 					heterozygCount++;
 				}
 			}
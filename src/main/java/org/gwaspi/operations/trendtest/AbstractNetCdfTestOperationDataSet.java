@@ -28,10 +28,12 @@ import org.gwaspi.operations.AbstractAssociationTestsOperation;
 import org.gwaspi.operations.AbstractNetCdfOperationDataSet;
 import org.gwaspi.operations.MatrixOperation;
 import org.gwaspi.operations.OperationDataEntry;
+import org.gwaspi.operations.fisherexacttest.FisherExactTestOperation;
 import org.gwaspi.operations.genotypicassociationtest.GenotypicAssociationTestOperation;
 import ucar.ma2.DataType;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFileWriteable;
+import org.gwaspi.operations.permutationtest.PermutationTestOperation;
 
 public abstract class AbstractNetCdfTestOperationDataSet<E extends OperationDataEntry>
 		extends AbstractNetCdfOperationDataSet<E>
@@ -45,6 +47,8 @@ public abstract class AbstractNetCdfTestOperationDataSet<E extends OperationData
 	//   case "allelic association test": Association.VAR_OP_MARKERS_AS_ALLELIC_ASSOCIATION_TPOR: {T, P-Value, OR} [Double[3]]
 	//   case "genotypic association test": Association.VAR_OP_MARKERS_AS_GENOTYPIC_ASSOCIATION_TP2OR: {T, P-Value, OR-1, OR-2} [Double[4]]
 	//   case "trend test": Association.VAR_OP_MARKERS_AS_TREND_TEST_TP: {T, P-Value} [Double[2]]
+	//   case "Fisher exact test": {X^2 (2 df) equivalent, P-Value, allelic P-Value} [Double[3]]
+	//   case "permutation test": {T, empirical P-Value, corrected P-Value} [Double[3]]
 	// }
 
 	public AbstractNetCdfTestOperationDataSet(MatrixKey origin, DataSetKey parent, OperationKey operationKey) {
@@ -74,6 +78,10 @@ public abstract class AbstractNetCdfTestOperationDataSet<E extends OperationData
 			if (type.equals(GenotypicAssociationTestOperation.class)) {
 				ncFile.addVariable(NetCDFConstants.Association.VAR_OP_MARKERS_OR2, DataType.DOUBLE, markersSpace);
 			}
+		} else if (type.equals(FisherExactTestOperation.class)) {
+			ncFile.addVariable(NetCDFConstants.Association.VAR_OP_MARKERS_P_ALLELIC, DataType.DOUBLE, markersSpace);
+		} else if (type.equals(PermutationTestOperation.class)) {
+			ncFile.addVariable(NetCDFConstants.Association.VAR_OP_MARKERS_P_CORRECTED, DataType.DOUBLE, markersSpace);
 		}
 		// NOTE this method is overriden for the COMBI test
 	}
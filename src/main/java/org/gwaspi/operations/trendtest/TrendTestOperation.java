@@ -18,7 +18,6 @@
 package org.gwaspi.operations.trendtest;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.gwaspi.global.Text;
@@ -30,9 +29,9 @@ import org.gwaspi.operations.OperationTypeInfo;
 import org.gwaspi.operations.OperationDataSet;
 import org.gwaspi.progress.DefaultProcessInfo;
 import org.gwaspi.progress.ProcessInfo;
-import org.gwaspi.progress.ProcessStatus;
 import org.gwaspi.progress.ProgressHandler;
 import org.gwaspi.statistics.Associations;
+import org.gwaspi.statistics.GenotypeCounts;
 import org.gwaspi.statistics.Pvalue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +43,8 @@ public class TrendTestOperation extends AbstractTestMatrixOperation<TrendTestOpe
 
 	private final Logger log = LoggerFactory.getLogger(TrendTestOperation.class);
 
+	private boolean nonInformativeMarkers;
+
 	private static final ProcessInfo trendTestProcessInfo = new DefaultProcessInfo(
 			Text.Operation.trendTest,
 			Text.Operation.trendTest); // TODO We need a more elaborate description of this operation!
@@ -93,48 +94,61 @@ public class TrendTestOperation extends AbstractTestMatrixOperation<TrendTestOpe
 			ProgressHandler rawTestPH)
 			throws IOException
 	{
-		rawTestPH.setNewStatus(ProcessStatus.INITIALIZING);
 		TrendTestOperationDataSet trendTestDataSet = (TrendTestOperationDataSet) dataSet;
 		trendTestDataSet.setNumMarkers(markerOrigIndicesKeys.size());
 
-		Iterator<Census> caseMarkerCensusIt = caseMarkersCensus.iterator();
-		Iterator<Census> ctrlMarkersCensusIt = ctrlMarkersCensus.iterator();
-		boolean nonInformativeMarkers = false;
-		int localMarkerIndex = 0;
-		rawTestPH.setNewStatus(ProcessStatus.RUNNING);
-		for (Map.Entry<Integer, MarkerKey> markerOrigIndexKey : markerOrigIndicesKeys.entrySet()) {
-			final Integer origIndex = markerOrigIndexKey.getKey();
-			final MarkerKey markerKey = markerOrigIndexKey.getValue();
-			final Census caseCensus = caseMarkerCensusIt.next();
-			final Census ctrlCensus = ctrlMarkersCensusIt.next();
-
-			final double armitageT = Associations.calculateChocranArmitageTrendTest(
-					caseCensus.getAA(),
-					caseCensus.getAa(),
-					caseCensus.getaa(),
-					ctrlCensus.getAA(),
-					ctrlCensus.getAa(),
-					ctrlCensus.getaa(),
-					Associations.ChocranArmitageTrendTestModel.CODOMINANT);
-			if (Double.isNaN(armitageT)) {
-				nonInformativeMarkers = true;
-			}
-
-			final double armitagePval = Pvalue.calculatePvalueFromChiSqr(armitageT, 1);
-
-			rawTestPH.setProgress(localMarkerIndex);
-			trendTestDataSet.addEntry(new DefaultTrendTestOperationEntry(
-					markerKey,
-					origIndex,
-					armitageT,
-					armitagePval));
-
-			localMarkerIndex++;
-		}
-		rawTestPH.setNewStatus(ProcessStatus.FINALIZING);
+		nonInformativeMarkers = false;
+		super.performTest(dataSet, markerOrigIndicesKeys, caseMarkersCensus, ctrlMarkersCensus, rawTestPH);
 		if (nonInformativeMarkers) {
 			log.warn("There were markers baring no information (all genotypes are equal). You may consider first filtering them out.");
 		}
-		rawTestPH.setNewStatus(ProcessStatus.COMPLEETED);
+	}
+
+	@Override
+	protected int getNumTestResults() {
+		return 2;
+	}
+
+	@Override
+	protected void calculateTests(
+			final GenotypeCounts counts,
+			final int from,
+			final int to,
+			final double[][] results)
+	{
+		final double[] armitageTs = results[0];
+		Associations.calculateChocranArmitageTrendTests(
+				counts.getCaseAA(),
+				counts.getCaseAa(),
+				counts.getCaseaa(),
+				counts.getCtrlAA(),
+				counts.getCtrlAa(),
+				counts.getCtrlaa(),
+				Associations.ChocranArmitageTrendTestModel.CODOMINANT,
+				from,
+				to,
+				armitageTs);
+		Pvalue.calculatePvaluesFromChiSqrs(armitageTs, 1, from, to, results[1]);
+	}
+
+	@Override
+	protected void addTestEntry(
+			final OperationDataSet dataSet,
+			final Integer markerOrigIndex,
+			final MarkerKey markerKey,
+			final double[][] results,
+			final int index)
+			throws IOException
+	{
+		final double armitageT = results[0][index];
+		if (Double.isNaN(armitageT)) {
+			nonInformativeMarkers = true;
+		}
+
+		((TrendTestOperationDataSet) dataSet).addEntry(new DefaultTrendTestOperationEntry(
+				markerKey,
+				markerOrigIndex,
+				armitageT,
+				results[1][index]));
 	}
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.progress;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An integer progress handler suited for loops over many items,
+ * for example one call per marker.
+ * Setting the progress only stores it in an atomic counter,
+ * which is cheap, never blocks, and may be done from any thread.
+ * While the process is running, a single timer thread shared by all instances
+ * samples the counter at a fixed rate, and fires a progress event
+ * only if the progress changed since the last one.
+ * This is the same filtering {@link PerTimeIntervalFilteredProgressListener} does,
+ * but at the source, so the filtered events are never created,
+ * nor passed through forwarding listeners.
+ * The latest progress is always published before any status change,
+ * so listeners see the final progress before the end of the process.
+ */
+public class SampledIntegerProgressHandler extends IntegerProgressHandler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SampledIntegerProgressHandler.class);
+
+	public static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 250;
+	private static final int NO_PROGRESS = Integer.MIN_VALUE;
+
+	/**
+	 * Holds the timer thread,
+	 * which is only created once the first process starts running.
+	 */
+	private static class Sampler {
+
+		static final ScheduledExecutorService EXECUTOR
+				= Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable runnable) {
+
+						final Thread thread = new Thread(runnable, "Progress sampler");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	private final long sampleIntervalMillis;
+	private final AtomicInteger currentState;
+	/** Guarded by <code>this</code>. */
+	private int publishedState;
+	/** Guarded by <code>this</code>; <code>null</code> while not running. */
+	private ScheduledFuture<?> sampling;
+
+	public SampledIntegerProgressHandler(
+			final ProcessInfo processInfo,
+			final Integer startState,
+			final Integer endState,
+			final long sampleIntervalMillis)
+	{
+		super(processInfo, startState, endState);
+
+		this.sampleIntervalMillis = sampleIntervalMillis;
+		this.currentState = new AtomicInteger(NO_PROGRESS);
+		this.publishedState = NO_PROGRESS;
+		this.sampling = null;
+	}
+
+	public SampledIntegerProgressHandler(final ProcessInfo processInfo, final Integer startState, final Integer endState) {
+		this(processInfo, startState, endState, DEFAULT_SAMPLE_INTERVAL_MILLIS);
+	}
+
+	public long getSampleIntervalMillis() {
+		return sampleIntervalMillis;
+	}
+
+	@Override
+	public void setProgress(final Integer currentState) {
+		this.currentState.set(currentState);
+	}
+
+	@Override
+	public void setNewStatus(final ProcessStatus newStatus) {
+
+		synchronized (this) {
+			if (newStatus == ProcessStatus.RUNNING) {
+				startSampling();
+			} else {
+				stopSampling();
+			}
+			publish();
+		}
+		super.setNewStatus(newStatus);
+	}
+
+	private void startSampling() {
+
+		if (sampling != null) {
+			return;
+		}
+		sampling = Sampler.EXECUTOR.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void stopSampling() {
+
+		if (sampling != null) {
+			sampling.cancel(false);
+			sampling = null;
+		}
+	}
+
+	private synchronized void sample() {
+
+		if (sampling == null) {
+			// we were stopped while waiting for the lock
+			return;
+		}
+		try {
+			publish();
+		} catch (final RuntimeException ex) {
+			// NOTE If we let this through, the executor would silently stop sampling
+			LOG.warn("Failed to publish the progress of " + getInfo().getShortName(), ex);
+		}
+	}
+
+	/**
+	 * Fires a progress event if the progress changed since the last one.
+	 * Only ever called while holding the lock on <code>this</code>.
+	 */
+	private void publish() {
+
+		final int state = currentState.get();
+		if (state != publishedState) {
+			publishedState = state;
+			fireProgressHappened(state);
+		}
+	}
+}
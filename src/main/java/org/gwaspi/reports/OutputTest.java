@@ -52,8 +52,12 @@ import org.gwaspi.operations.OperationDataSet;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.OperationTypeInfo;
 import org.gwaspi.operations.allelicassociationtest.AllelicAssociationTestOperationEntry;
+import org.gwaspi.operations.fisherexacttest.FisherExactTestOperationEntry;
 import org.gwaspi.operations.genotypicassociationtest.GenotypicAssociationTestOperationEntry;
+import org.gwaspi.operations.permutationtest.PermutationTestOperationEntry;
+import org.gwaspi.operations.permutationtest.PermutationTestOperationDataSet;
 import org.gwaspi.operations.qamarkers.QAMarkersOperationDataSet;
+import org.gwaspi.operations.trendtest.CommonTestOperationDataSet;
 import org.gwaspi.operations.trendtest.TrendTestOperationEntry;
 import org.gwaspi.progress.DefaultProcessInfo;
 import org.gwaspi.progress.IndeterminateProgressHandler;
@@ -91,7 +95,6 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 					false);
 
 	private final String testName;
-	private final int qqPlotDof;
 	private final String header;
 	private ProgressHandler operationPH;
 	private ProgressHandler creatingManhattanPlotPH;
@@ -103,13 +106,10 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 
 		switch (getParams().getTestType()) {
 			case ALLELICTEST:
-				this.qqPlotDof = 1;
-				break;
 			case GENOTYPICTEST:
-				this.qqPlotDof = 2;
-				break;
 			case TRENDTEST:
-				this.qqPlotDof = 1;
+			case FISHEREXACTTEST:
+			case PERMUTATIONTEST:
 				break;
 			default:
 				throw new IllegalArgumentException("Not a supported test type: "
@@ -120,6 +120,33 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 		this.testName = createTestName(getParams().getTestType());
 	}
 
+	/**
+	 * @return the degrees of freedom of the X^2 distribution
+	 *   the test statistics are plotted against in the QQ-plot
+	 */
+	private int fetchQQPlotDof() throws IOException {
+
+		switch (getParams().getTestType()) {
+			case ALLELICTEST:
+				return 1;
+			case GENOTYPICTEST:
+				return 2;
+			case TRENDTEST:
+				return 1;
+			case FISHEREXACTTEST:
+				// of the X^2 equivalent of the genotypic P-value
+				return 2;
+			case PERMUTATIONTEST:
+				// of the statistic the operation was run with
+				final PermutationTestOperationDataSet permutationTestOperationDataSet
+						= (PermutationTestOperationDataSet) OperationManager.generateOperationDataSet(getParams().getTestOperationKey());
+				return permutationTestOperationDataSet.getStatistic().getDegreesOfFreedom();
+			default:
+				throw new IllegalArgumentException("Not a supported test type: "
+						+ getParams().getTestType().toString());
+		}
+	}
+
 	private OperationService getOperationService() {
 		return OperationsList.getOperationService();
 	}
@@ -140,6 +167,8 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 		columns.add(Text.Reports.majAallele);
 		if (associationTestType == OPType.TRENDTEST) {
 			columns.add(Text.Reports.trendTest);
+		} else if (associationTestType == OPType.FISHEREXACTTEST) {
+			columns.add(Text.Reports.fisherChiSqr);
 		} else {
 			columns.add(Text.Reports.chiSqr);
 		}
@@ -154,6 +183,12 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 				columns.add(Text.Reports.ORAAaa);
 				columns.add(Text.Reports.ORAaaa);
 				break;
+			case FISHEREXACTTEST:
+				columns.add(Text.Reports.allelicPVal);
+				break;
+			case PERMUTATIONTEST:
+				columns.add(Text.Reports.correctedPVal);
+				break;
 			default:
 				throw new IllegalArgumentException("Not a supported test type: "
 						+ associationTestType.toString());
@@ -225,6 +260,12 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 			case TRENDTEST:
 				testName = "Cochran-Armitage Trend";
 				break;
+			case FISHEREXACTTEST:
+				testName = "Fisher Exact";
+				break;
+			case PERMUTATIONTEST:
+				testName = "Max(T) Permutation";
+				break;
 			default:
 				throw new IllegalArgumentException("Not a supported test type: " + testType.toString());
 		}
@@ -355,7 +396,7 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 	private void writeQQPlotFromAssociationData(String outName, int width, int height) throws IOException {
 
 		// Generating XY scatter plot with loaded data
-		XYPlot qqPlot = GenericReportGenerator.buildQQPlot(getParams().getTestOperationKey(), qqPlotDof);
+		XYPlot qqPlot = GenericReportGenerator.buildQQPlot(getParams().getTestOperationKey(), fetchQQPlotDof());
 
 		JFreeChart chart = new JFreeChart("X² QQ", JFreeChart.DEFAULT_TITLE_FONT, qqPlot, true);
 
@@ -387,8 +428,8 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 
 	private void createSortedAssociationReport(String reportName) throws IOException {
 
-		OperationDataSet<? extends TrendTestOperationEntry> testOperationDataSet = OperationManager.generateOperationDataSet(getParams().getTestOperationKey());
-		List<? extends TrendTestOperationEntry> testOperationEntries = new ArrayList<TrendTestOperationEntry>(testOperationDataSet.getEntries());
+		final CommonTestOperationDataSet<?> testOperationDataSet = (CommonTestOperationDataSet<?>) OperationManager.generateOperationDataSet(getParams().getTestOperationKey());
+		final List<TrendTestOperationEntry> testOperationEntries = new ArrayList<TrendTestOperationEntry>(testOperationDataSet.getEntries());
 		Collections.sort(testOperationEntries, new TrendTestOperationEntry.PValueComparator());
 
 		List<Integer> sortedOrigIndices = new ArrayList<Integer>(testOperationEntries.size());
@@ -398,7 +439,7 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 
 		String sep = ExportConstants.SEPARATOR_REPORTS;
 		OperationMetadata rdOPMetadata = getOperationService().getOperationMetadata(getParams().getTestOperationKey());
-		DataSetSource matrixDataSetSource = MatrixFactory.generateMatrixDataSetSource(getParams().getTestOperationKey().getParentMatrixKey());
+		DataSetSource matrixDataSetSource = closeWhenFinished(MatrixFactory.generateMatrixDataSetSource(getParams().getTestOperationKey().getParentMatrixKey()));
 		MarkersMetadataSource markersMetadatas = matrixDataSetSource.getMarkersMetadatasSource();
 		List<MarkerMetadata> orderedMarkersMetadatas = Utils.createIndicesOrderedList(sortedOrigIndices, markersMetadatas);
 
@@ -415,7 +456,7 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 		reportWriter.appendColumnToReport(orderedMarkersMetadatas, null, MarkerMetadata.TO_CHR);
 
 		// WRITE MARKERSET POS
-		reportWriter.appendColumnToReport(orderedMarkersMetadatas, null, new Extractor.ToStringMetaExtractor(MarkerMetadata.TO_POS));
+		reportWriter.appendColumnToReport(orderedMarkersMetadatas, null, new Extractor.ToStringMetaExtractor<MarkerMetadata, Integer>(MarkerMetadata.TO_POS));
 
 		// WRITE KNOWN ALLELES FROM QA
 		final QAMarkersOperationDataSet qaMarkersOperationDataSet = (QAMarkersOperationDataSet) OperationManager.generateOperationDataSet(getParams().getQaMarkersOpKey());
@@ -433,19 +474,50 @@ public class OutputTest extends AbstractOutputOperation<TestOutputParams> {
 			String concatenatedValue = knownMinorAllele + sep + knownMajorAllele;
 			sortedMarkerAlleles.add(concatenatedValue);
 		}
-		reportWriter.appendColumnToReport(sortedMarkerAlleles, null, new Extractor.ToStringExtractor());
+		reportWriter.appendColumnToReport(sortedMarkerAlleles, null, new Extractor.ToStringExtractor<String>());
 
 		// WRITE DATA TO REPORT
-		reportWriter.appendColumnToReport(testOperationEntries, null, new Extractor.ToStringMetaExtractor(TrendTestOperationEntry.TO_T));
-		reportWriter.appendColumnToReport(testOperationEntries, null, new Extractor.ToStringMetaExtractor(TrendTestOperationEntry.TO_P));
-		if (getParams().getTestType() != OPType.TRENDTEST) {
-			reportWriter.appendColumnToReport(testOperationEntries, null, new Extractor.ToStringMetaExtractor(AllelicAssociationTestOperationEntry.TO_OR));
+		reportWriter.appendColumnToReport(testOperationEntries, null, new Extractor.ToStringMetaExtractor<TrendTestOperationEntry, Double>(TrendTestOperationEntry.TO_T));
+		reportWriter.appendColumnToReport(testOperationEntries, null, new Extractor.ToStringMetaExtractor<TrendTestOperationEntry, Double>(TrendTestOperationEntry.TO_P));
+		if (getParams().getTestType() == OPType.FISHEREXACTTEST) {
+			reportWriter.appendColumnToReport(
+					castEntries(testOperationEntries, FisherExactTestOperationEntry.class),
+					null,
+					new Extractor.ToStringMetaExtractor<FisherExactTestOperationEntry, Double>(FisherExactTestOperationEntry.TO_ALLELIC_P));
+		} else if (getParams().getTestType() == OPType.PERMUTATIONTEST) {
+			reportWriter.appendColumnToReport(
+					castEntries(testOperationEntries, PermutationTestOperationEntry.class),
+					null,
+					new Extractor.ToStringMetaExtractor<PermutationTestOperationEntry, Double>(PermutationTestOperationEntry.TO_CORRECTED_P));
+		} else if (getParams().getTestType() != OPType.TRENDTEST) {
+			reportWriter.appendColumnToReport(
+					castEntries(testOperationEntries, AllelicAssociationTestOperationEntry.class),
+					null,
+					new Extractor.ToStringMetaExtractor<AllelicAssociationTestOperationEntry, Double>(AllelicAssociationTestOperationEntry.TO_OR));
 			if (getParams().getTestType() != OPType.ALLELICTEST) {
-				reportWriter.appendColumnToReport(testOperationEntries, null, new Extractor.ToStringMetaExtractor(GenotypicAssociationTestOperationEntry.TO_OR2));
+				reportWriter.appendColumnToReport(
+						castEntries(testOperationEntries, GenotypicAssociationTestOperationEntry.class),
+						null,
+						new Extractor.ToStringMetaExtractor<GenotypicAssociationTestOperationEntry, Double>(GenotypicAssociationTestOperationEntry.TO_OR2));
 			}
 		}
 	}
 
+	/**
+	 * Returns the same entries, as a list of the specific type of the test.
+	 */
+	private static <E extends TrendTestOperationEntry> List<E> castEntries(
+			final List<TrendTestOperationEntry> entries,
+			final Class<E> entryType)
+	{
+		final List<E> typedEntries = new ArrayList<E>(entries.size());
+		for (final TrendTestOperationEntry entry : entries) {
+			typedEntries.add(entryType.cast(entry));
+		}
+
+		return typedEntries;
+	}
+
 	public static class AssociationTestReportParser implements ReportParser {
 
 		private final String[] columnHeaders;
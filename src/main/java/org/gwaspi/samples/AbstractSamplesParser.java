@@ -19,8 +19,8 @@ package org.gwaspi.samples;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.StudyKey;
 import org.gwaspi.netCDF.loader.DataSetDestination;
 import org.slf4j.Logger;
@@ -70,11 +70,9 @@ public abstract class AbstractSamplesParser implements SamplesParser {
 
 		File sampleFile = new File(sampleInfoPath);
 
-		FileReader inputFileReader = null;
 		BufferedReader inputBufferReader = null;
 		try {
-			inputFileReader = new FileReader(sampleFile);
-			inputBufferReader = new BufferedReader(inputFileReader);
+			inputBufferReader = InputFiles.openReader(sampleFile);
 
 			scanSampleInfoFile(studyKey, sampleInfoPath, inputBufferReader, samplesReceiver);
 		} finally {
@@ -85,13 +83,6 @@ public abstract class AbstractSamplesParser implements SamplesParser {
 					LOG.warn("Failed to close buffered file input stream when scanning samples: "
 							+ sampleFile.getCanonicalPath(), ex);
 				}
-			} else if (inputFileReader != null) {
-				try {
-					inputFileReader.close();
-				} catch (IOException ex) {
-					LOG.warn("Failed to close file input stream when scanning samples: "
-							+ sampleFile.getCanonicalPath(), ex);
-				}
 			}
 		}
 	}
@@ -19,9 +19,9 @@ package org.gwaspi.samples;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import org.gwaspi.constants.ImportConstants;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.SampleInfo;
 import org.gwaspi.model.StudyKey;
 import org.gwaspi.netCDF.loader.LoadGTFromHapmapFiles;
@@ -39,15 +39,13 @@ public class HapmapSamplesParser implements SamplesParser {
 	@Override
 	public void scanSampleInfo(StudyKey studyKey, String sampleInfoPath, DataSetDestination samplesReceiver) throws IOException {
 
-		FileReader inputFileReader = null;
 		BufferedReader inputBufferReader = null;
 		File hapmapGTFile = new File(sampleInfoPath);
 		if (hapmapGTFile.isDirectory()) {
 			File[] sampleFiles = org.gwaspi.global.Utils.listFiles(sampleInfoPath);
 			for (File sampleFile : sampleFiles) {
 				try {
-					inputFileReader = new FileReader(sampleFile);
-					inputBufferReader = new BufferedReader(inputFileReader);
+					inputBufferReader = InputFiles.openReader(sampleFile);
 					String header = inputBufferReader.readLine();
 					String[] hapmapVals = header.split(ImportConstants.Separators.separators_SpaceTab_rgxp);
 					for (int j = LoadGTFromHapmapFiles.Standard.sampleId; j < hapmapVals.length; j++) {
@@ -64,21 +62,13 @@ public class HapmapSamplesParser implements SamplesParser {
 									"Failed to close buffered file input stream when scanning samples: "
 											+ sampleFile.getCanonicalPath(), ex);
 						}
-					} else if (inputFileReader != null) {
-						try {
-							inputFileReader.close();
-						} catch (IOException ex) {
-							LOG.warn("Failed to close file input stream when scanning samples: "
-									+ sampleFile.getCanonicalPath(), ex);
-						}
 					}
 				}
 			}
 		} else {
 			File sampleFile = hapmapGTFile;
 			try {
-				inputFileReader = new FileReader(sampleFile);
-				inputBufferReader = new BufferedReader(inputFileReader);
+				inputBufferReader = InputFiles.openReader(sampleFile);
 
 				String header = inputBufferReader.readLine();
 
@@ -97,13 +87,6 @@ public class HapmapSamplesParser implements SamplesParser {
 								"Failed to close buffered file input stream when scanning samples: "
 										+ sampleFile.getCanonicalPath(), ex);
 					}
-				} else if (inputFileReader != null) {
-					try {
-						inputFileReader.close();
-					} catch (IOException ex) {
-						LOG.warn("Failed to close file input stream when scanning samples: "
-								+ sampleFile.getCanonicalPath(), ex);
-					}
 				}
 			}
 		}
@@ -19,9 +19,9 @@ package org.gwaspi.samples;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import org.gwaspi.constants.ImportConstants;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.SampleInfo;
 import org.gwaspi.model.StudyKey;
 import org.gwaspi.netCDF.loader.DataSetDestination;
@@ -40,11 +40,9 @@ public class IlluminaLGENSamplesParser implements SamplesParser {
 
 		int numSamples = 0;
 		for (File sampleFile : sampleFiles) {
-			FileReader inputFileReader = null;
 			BufferedReader inputBufferReader = null;
 			try {
-				inputFileReader = new FileReader(sampleFile);
-				inputBufferReader = new BufferedReader(inputFileReader);
+				inputBufferReader = InputFiles.openReader(sampleFile);
 				boolean gotHeader = false;
 				while (!gotHeader) {
 					String header = inputBufferReader.readLine();
@@ -84,13 +82,6 @@ public class IlluminaLGENSamplesParser implements SamplesParser {
 								"Failed to close buffered file input stream when scanning samples: "
 										+ sampleFile.getCanonicalPath(), ex);
 					}
-				} else if (inputFileReader != null) {
-					try {
-						inputFileReader.close();
-					} catch (IOException ex) {
-						log.warn("Failed to close file input stream when scanning samples: "
-								+ sampleFile.getCanonicalPath(), ex);
-					}
 				}
 			}
 		}
@@ -19,9 +19,9 @@ package org.gwaspi.samples;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import org.gwaspi.constants.ImportConstants;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.SampleInfo;
 import org.gwaspi.model.StudyKey;
 import org.gwaspi.netCDF.loader.DataSetDestination;
@@ -48,8 +48,7 @@ public class PlinkStandardSamplesParser extends AbstractSamplesParser {
 			// Start reading the file from the beginning again
 			sampleInfoBR.close();
 			final File sampleFile = new File(sampleInfoPath);
-			final FileReader sampleInfoFR = new FileReader(sampleFile);
-			sampleInfoBR = new BufferedReader(sampleInfoFR);
+			sampleInfoBR = InputFiles.openReader(sampleFile);
 		}
 
 		int sampleIndex = 0;
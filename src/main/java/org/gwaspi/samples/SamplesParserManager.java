@@ -19,7 +19,6 @@ package org.gwaspi.samples;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.EnumMap;
@@ -31,6 +30,7 @@ import org.gwaspi.constants.ImportConstants.Annotation.GWASpi;
 import org.gwaspi.constants.ImportConstants.ImportFormat;
 import org.gwaspi.dao.SampleInfoService;
 import org.gwaspi.global.ExtractorList;
+import org.gwaspi.global.InputFiles;
 import org.gwaspi.model.DataSetKey;
 import org.gwaspi.model.DataSetMetadata;
 import org.gwaspi.model.DataSetSource;
@@ -145,8 +145,7 @@ public class SamplesParserManager {
 		Set<Affection> result = EnumSet.noneOf(Affection.class);
 
 		File sampleFile = new File(sampleInfoPath);
-		FileReader inputFileReader = new FileReader(sampleFile);
-		BufferedReader inputBufferReader = new BufferedReader(inputFileReader);
+		BufferedReader inputBufferReader = InputFiles.openReader(sampleFile);
 
 		String header = inputBufferReader.readLine(); // ignore header block
 		String line;
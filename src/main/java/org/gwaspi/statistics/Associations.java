@@ -17,8 +17,6 @@
 
 package org.gwaspi.statistics;
 
-import java.math.BigInteger;
-
 public class Associations {
 
 	private Associations() {
@@ -31,23 +29,8 @@ public class Associations {
 		CODOMINANT;
 	}
 
-	public static double calculateChocranArmitageTrendTest(
-			final int caseAA,
-			final int caseAa,
-			final int caseaa,
-			final int ctrlAA,
-			final int ctrlAa,
-			final int ctrlaa,
-			final ChocranArmitageTrendTestModel model)
-	{
-		final double caseTot = caseAA + caseAa + caseaa;
-		final double ctrlTot = ctrlAA + ctrlAa + ctrlaa;
-		final double AATot = caseAA + ctrlAA;
-		final double AaTot = caseAa + ctrlAa;
-		final double aaTot = caseaa + ctrlaa;
-		final double N = caseTot + ctrlTot;
+	private static int[] createTrendTestWeights(final ChocranArmitageTrendTestModel model) {
 
-		// initialzie the model weights
 		final int[] weights = new int[3];
 		switch (model) {
 			case DOMINANT:
@@ -69,6 +52,25 @@ public class Associations {
 				throw new IllegalArgumentException("invalid Chocran-Armitage trend test model: " + model);
 		}
 
+		return weights;
+	}
+
+	private static double calculateChocranArmitageTrendTest(
+			final int caseAA,
+			final int caseAa,
+			final int caseaa,
+			final int ctrlAA,
+			final int ctrlAa,
+			final int ctrlaa,
+			final int[] weights)
+	{
+		final double caseTot = caseAA + caseAa + caseaa;
+		final double ctrlTot = ctrlAA + ctrlAa + ctrlaa;
+		final double AATot = caseAA + ctrlAA;
+		final double AaTot = caseAa + ctrlAa;
+		final double aaTot = caseaa + ctrlaa;
+		final double N = caseTot + ctrlTot;
+
 		// calculate trend-test
 		final double trendTest
 				= weights[0] * ((ctrlTot / N) * caseAA - (caseTot / N) * ctrlAA)
@@ -91,6 +93,45 @@ public class Associations {
 		return trendTestChiSqr;
 	}
 
+	public static double calculateChocranArmitageTrendTest(
+			final int caseAA,
+			final int caseAa,
+			final int caseaa,
+			final int ctrlAA,
+			final int ctrlAa,
+			final int ctrlaa,
+			final ChocranArmitageTrendTestModel model)
+	{
+		return calculateChocranArmitageTrendTest(caseAA, caseAa, caseaa, ctrlAA, ctrlAa, ctrlaa,
+				createTrendTestWeights(model));
+	}
+
+	/**
+	 * Batch version of
+	 * {@link #calculateChocranArmitageTrendTest(int, int, int, int, int, int, ChocranArmitageTrendTestModel)},
+	 * for the markers <code>[from, to)</code> of a block,
+	 * with the genotype counts given per column.
+	 * @param trendTestChiSqrs receives the results, at the markers indices
+	 */
+	public static void calculateChocranArmitageTrendTests(
+			final int[] caseAA,
+			final int[] caseAa,
+			final int[] caseaa,
+			final int[] ctrlAA,
+			final int[] ctrlAa,
+			final int[] ctrlaa,
+			final ChocranArmitageTrendTestModel model,
+			final int from,
+			final int to,
+			final double[] trendTestChiSqrs)
+	{
+		final int[] weights = createTrendTestWeights(model);
+		for (int mi = from; mi < to; mi++) {
+			trendTestChiSqrs[mi] = calculateChocranArmitageTrendTest(
+					caseAA[mi], caseAa[mi], caseaa[mi], ctrlAA[mi], ctrlAa[mi], ctrlaa[mi], weights);
+		}
+	}
+
 	public static double calculateAssociationChiSquare(
 			final int obsCaseAA,
 			final int obsCaseAa,
@@ -100,17 +141,7 @@ public class Associations {
 			final int obsCtrlaa,
 			final boolean genotypic)
 	{
-		final int[][] obsCntgTable = new int[3][2]; // 3 columns: AA Aa aa, 2 rows: case, ctrl
-		final double[][] expCntgTable = new double[3][2]; // 3 columns: AA Aa aa, 2 rows: case, ctrl
-
-		obsCntgTable[0][0] = obsCaseAA;
-		obsCntgTable[1][0] = obsCaseAa;
-		obsCntgTable[2][0] = obsCaseaa;
-
-		obsCntgTable[0][1] = obsCtrlAA;
-		obsCntgTable[1][1] = obsCtrlAa;
-		obsCntgTable[2][1] = obsCtrlaa;
-
+		// 3 columns: AA Aa aa, 2 rows: case, ctrl
 		final int obsCaseRowTot = obsCaseAA + obsCaseAa + obsCaseaa;
 		final int obsCtrlRowTot = obsCtrlAA + obsCtrlAa + obsCtrlaa;
 		final int totGT = obsCaseRowTot + obsCtrlRowTot;
@@ -121,18 +152,38 @@ public class Associations {
 
 		final double chiSQ;
 		if (totGT != 0) {
-			expCntgTable[0][0] = (double) (obsCaseRowTot * obsAAColTot) / totGT;
-			expCntgTable[1][0] = (double) (obsCaseRowTot * obsAaColTot) / totGT;
-			expCntgTable[2][0] = (double) (obsCaseRowTot * obsaaColTot) / totGT;
+			final double expCaseAA = (double) (obsCaseRowTot * obsAAColTot) / totGT;
+			final double expCaseAa = (double) (obsCaseRowTot * obsAaColTot) / totGT;
+			final double expCaseaa = (double) (obsCaseRowTot * obsaaColTot) / totGT;
 
-			expCntgTable[0][1] = (double) (obsCtrlRowTot * obsAAColTot) / totGT;
-			expCntgTable[1][1] = (double) (obsCtrlRowTot * obsAaColTot) / totGT;
-			expCntgTable[2][1] = (double) (obsCtrlRowTot * obsaaColTot) / totGT;
+			final double expCtrlAA = (double) (obsCtrlRowTot * obsAAColTot) / totGT;
+			final double expCtrlAa = (double) (obsCtrlRowTot * obsAaColTot) / totGT;
+			final double expCtrlaa = (double) (obsCtrlRowTot * obsaaColTot) / totGT;
 
 			if (genotypic) {
-				chiSQ = Chisquare.calculateGenotypicAssociationChiSquare(obsCntgTable, expCntgTable);
+				chiSQ = (Math.pow(obsCaseAA - expCaseAA, 2) / expCaseAA)
+						+ (Math.pow(obsCaseAa - expCaseAa, 2) / expCaseAa)
+						+ (Math.pow(obsCaseaa - expCaseaa, 2) / expCaseaa)
+						+ (Math.pow(obsCtrlAA - expCtrlAA, 2) / expCtrlAA)
+						+ (Math.pow(obsCtrlAa - expCtrlAa, 2) / expCtrlAa)
+						+ (Math.pow(obsCtrlaa - expCtrlaa, 2) / expCtrlaa);
 			} else {
-				chiSQ = Chisquare.calculateAllelicAssociationChiSquare(obsCntgTable, expCntgTable);
+				final double obsCaseA = 2 * obsCaseAA + obsCaseAa;
+				final double obsCasea = 2 * obsCaseaa + obsCaseAa;
+
+				final double expCaseA = 2 * expCaseAA + expCaseAa;
+				final double expCasea = 2 * expCaseaa + expCaseAa;
+
+				final double obsCtrlA = 2 * obsCtrlAA + obsCtrlAa;
+				final double obsCtrla = 2 * obsCtrlaa + obsCtrlAa;
+
+				final double expCtrlA = 2 * expCtrlAA + expCtrlAa;
+				final double expCtrla = 2 * expCtrlaa + expCtrlAa;
+
+				chiSQ = (Math.pow(obsCaseA - expCaseA, 2) / expCaseA)
+						+ (Math.pow(obsCasea - expCasea, 2) / expCasea)
+						+ (Math.pow(obsCtrlA - expCtrlA, 2) / expCtrlA)
+						+ (Math.pow(obsCtrla - expCtrla, 2) / expCtrla);
 			}
 		} else {
 			chiSQ = Double.NaN;
@@ -141,6 +192,33 @@ public class Associations {
 		return chiSQ;
 	}
 
+	/**
+	 * Batch version of
+	 * {@link #calculateAssociationChiSquare(int, int, int, int, int, int, boolean)},
+	 * for the markers <code>[from, to)</code> of a block,
+	 * with the genotype counts given per column.
+	 * @param chiSqrs receives the results, at the markers indices
+	 */
+	public static void calculateAssociationChiSquares(
+			final int[] obsCaseAA,
+			final int[] obsCaseAa,
+			final int[] obsCaseaa,
+			final int[] obsCtrlAA,
+			final int[] obsCtrlAa,
+			final int[] obsCtrlaa,
+			final boolean genotypic,
+			final int from,
+			final int to,
+			final double[] chiSqrs)
+	{
+		for (int mi = from; mi < to; mi++) {
+			chiSqrs[mi] = calculateAssociationChiSquare(
+					obsCaseAA[mi], obsCaseAa[mi], obsCaseaa[mi],
+					obsCtrlAA[mi], obsCtrlAa[mi], obsCtrlaa[mi],
+					genotypic);
+		}
+	}
+
 	/**
 	 * Calculate genotypic association odds ratios.
 	 *             Genotypes
@@ -181,6 +259,40 @@ public class Associations {
 		return oddsRatio;
 	}
 
+	/**
+	 * Batch version of
+	 * {@link #calculateGenotypicAssociationOR(int, int, int, int, int, int)},
+	 * for the markers <code>[from, to)</code> of a block,
+	 * with the genotype counts given per column.
+	 * @param oddsRatiosAAaa receives the first odds ratios, at the markers indices
+	 * @param oddsRatiosAaaa receives the second odds ratios, at the markers indices
+	 */
+	public static void calculateGenotypicAssociationORs(
+			final int[] caseAA,
+			final int[] caseAa,
+			final int[] caseaa,
+			final int[] ctrlAA,
+			final int[] ctrlAa,
+			final int[] ctrlaa,
+			final int from,
+			final int to,
+			final double[] oddsRatiosAAaa,
+			final double[] oddsRatiosAaaa)
+	{
+		for (int mi = from; mi < to; mi++) {
+			oddsRatiosAAaa[mi] = (double) (caseAa[mi] * ctrlaa[mi]) / (caseaa[mi] * ctrlAa[mi]);
+			oddsRatiosAaaa[mi] = (double) (caseAA[mi] * ctrlaa[mi]) / (caseaa[mi] * ctrlAA[mi]);
+		}
+	}
+
+	/**
+	 * Calculates the probability of the observed 2x3 table, given its margins,
+	 * which is the statistic of Fisher's exact test.
+	 * @deprecated This creates a new log-factorial cache on each call;
+	 *   use a shared {@link FisherExactTest} instead,
+	 *   which also calculates the P-values.
+	 */
+	@Deprecated
 	public static float calculateGenotypicFisherExactTest(
 			final int sampleNb,
 			final int obsCaseAA,
@@ -192,27 +304,14 @@ public class Associations {
 			final int obsCtrlaa,
 			final int ctrlTot)
 	{
-		// TODO implement Fisher's exact test
-		final int obsCaseRowTot = obsCaseAA + obsCaseAa + obsCaseaa;
-		final int obsCtrlRowTot = obsCtrlAA + obsCtrlAa + obsCtrlaa;
-		final int obsAAColTot = obsCaseAA + obsCtrlAA;
-		final int obsAaColTot = obsCaseAa + obsCtrlAa;
-		final int obsaaColTot = obsCaseaa + obsCtrlaa;
-		final int totGT = obsCaseRowTot + obsCtrlRowTot;
-
-		final BigInteger rowBang = StatisticsUtils.factorial(BigInteger.valueOf(obsCaseRowTot)).multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCtrlRowTot)));
-		final BigInteger colBang = StatisticsUtils.factorial(BigInteger.valueOf(obsAAColTot)).multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsAaColTot))).multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsaaColTot)));
-		BigInteger denomBang = StatisticsUtils.factorial(BigInteger.valueOf(totGT)).multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCaseAA)));
-		denomBang = denomBang.multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCaseAa)));
-		denomBang = denomBang.multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCaseaa)));
-		denomBang = denomBang.multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCtrlAA)));
-		denomBang = denomBang.multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCtrlAa)));
-		denomBang = denomBang.multiply(StatisticsUtils.factorial(BigInteger.valueOf(obsCtrlaa)));
-
-		BigInteger result = rowBang.multiply(colBang);
-		result = result.divide(denomBang);
-
-		return result.floatValue();
+		final FisherExactTest fisherExactTest = new FisherExactTest(sampleNb);
+		return (float) Math.exp(fisherExactTest.calculateGenotypicLogTableProbability(
+				obsCaseAA,
+				obsCaseAa,
+				obsCaseaa,
+				obsCtrlAA,
+				obsCtrlAa,
+				obsCtrlaa));
 	}
 	//</editor-fold>
 
@@ -260,5 +359,29 @@ public class Associations {
 
 		return oddsRatio;
 	}
+
+	/**
+	 * Batch version of
+	 * {@link #calculateAllelicAssociationOR(int, int, int, int, int, int)},
+	 * for the markers <code>[from, to)</code> of a block,
+	 * with the genotype counts given per column.
+	 * @param oddsRatios receives the results, at the markers indices
+	 */
+	public static void calculateAllelicAssociationORs(
+			final int[] caseAA,
+			final int[] caseAa,
+			final int[] caseaa,
+			final int[] ctrlAA,
+			final int[] ctrlAa,
+			final int[] ctrlaa,
+			final int from,
+			final int to,
+			final double[] oddsRatios)
+	{
+		for (int mi = from; mi < to; mi++) {
+			oddsRatios[mi] = calculateAllelicAssociationOR(
+					caseAA[mi], caseAa[mi], caseaa[mi], ctrlAA[mi], ctrlAa[mi], ctrlaa[mi]);
+		}
+	}
 	//</editor-fold>
 }
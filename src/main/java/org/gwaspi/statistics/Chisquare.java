@@ -36,38 +36,6 @@ public class Chisquare {
 		return chiSQ;
 	}
 
-	static double calculateGenotypicAssociationChiSquare(int[][] obsCntgTable, double[][] expCntgTable) {
-		//3 columns: AA Aa aa, 2 rows: case, ctrl
-		double chiSQ = (Math.pow(obsCntgTable[0][0] - expCntgTable[0][0], 2) / (expCntgTable[0][0]))
-				+ (Math.pow(obsCntgTable[1][0] - expCntgTable[1][0], 2) / (expCntgTable[1][0]))
-				+ (Math.pow(obsCntgTable[2][0] - expCntgTable[2][0], 2) / (expCntgTable[2][0]))
-				+ (Math.pow(obsCntgTable[0][1] - expCntgTable[0][1], 2) / (expCntgTable[0][1]))
-				+ (Math.pow(obsCntgTable[1][1] - expCntgTable[1][1], 2) / (expCntgTable[1][1]))
-				+ (Math.pow(obsCntgTable[2][1] - expCntgTable[2][1], 2) / (expCntgTable[2][1]));
-		return chiSQ;
-	}
-
-	static double calculateAllelicAssociationChiSquare(int[][] obsCntgTable, double[][] expCntgTable) {
-		//3 columns: AA Aa aa, 2 rows: case, ctrl
-		double obsCaseA = 2 * obsCntgTable[0][0] + obsCntgTable[1][0];
-		double obsCasea = 2 * obsCntgTable[2][0] + obsCntgTable[1][0];
-
-		double expCaseA = 2 * expCntgTable[0][0] + expCntgTable[1][0];
-		double expCasea = 2 * expCntgTable[2][0] + expCntgTable[1][0];
-
-		double obsCtrlA = 2 * obsCntgTable[0][1] + obsCntgTable[1][1];
-		double obsCtrla = 2 * obsCntgTable[2][1] + obsCntgTable[1][1];
-
-		double expCtrlA = 2 * expCntgTable[0][1] + expCntgTable[1][1];
-		double expCtrla = 2 * expCntgTable[2][1] + expCntgTable[1][1];
-
-		double chiSQ = (Math.pow(obsCaseA - expCaseA, 2) / expCaseA)
-				+ (Math.pow(obsCasea - expCasea, 2) / expCasea)
-				+ (Math.pow(obsCtrlA - expCtrlA, 2) / expCtrlA)
-				+ (Math.pow(obsCtrla - expCtrla, 2) / expCtrla);
-		return chiSQ;
-	}
-
 	public static List<Double> getChiSquareDistributionDf1(int size, float C) {
 		List<Double> chiQuareDist = new ArrayList<Double>();
 		Random generator = new Random();
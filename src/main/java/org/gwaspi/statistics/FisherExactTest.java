@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.statistics;
+
+/**
+ * Fisher's exact test for 2x2 (allelic) and 2x3 (genotypic) contingency tables,
+ * with the rows being cases and controls.
+ * All the probabilities are calculated in log space,
+ * using a cache of log-factorials that is shared between all the markers,
+ * so large sample counts neither overflow nor require arbitrary precision.
+ * The P-values are two-sided: the sum of the probabilities of all the tables
+ * with the same margins that are at most as probable as the observed one.
+ * As the hypergeometric distribution is unimodal, only the tails are summed,
+ * starting at the boundaries found by binary search,
+ * and stopping as soon as the terms become negligible.
+ * Instances are thread-safe.
+ */
+public class FisherExactTest {
+
+	/**
+	 * Tables whose probability exceeds the one of the observed table
+	 * by at most this relative amount still count as at least as extreme.
+	 * This covers rounding errors, and equals the tolerance used by R.
+	 */
+	private static final double LOG_RELATIVE_TOLERANCE = 1e-7;
+	/**
+	 * Terms smaller than this fraction of the current sum are neglected,
+	 * together with all the (even smaller) terms further out.
+	 */
+	private static final double NEGLIGIBLE_FRACTION = 1e-17;
+
+	private final LogFactorials logFactorials;
+
+	public FisherExactTest(final LogFactorials logFactorials) {
+		this.logFactorials = logFactorials;
+	}
+
+	/**
+	 * @param maxTableTotal the largest sum of all the cells of a table
+	 *   we expect to test, for example the number of alleles
+	 */
+	public FisherExactTest(final int maxTableTotal) {
+		this(new LogFactorials(maxTableTotal));
+	}
+
+	private double logFactorial(final int n) {
+		return logFactorials.get(n);
+	}
+
+	/**
+	 * Calculates the two-sided P-value of a 2x2 table of allele counts.
+	 * @return P-value, or <code>NaN</code> if the table is empty
+	 */
+	public double calculateAllelicPvalue(
+			final int caseA,
+			final int casea,
+			final int ctrlA,
+			final int ctrla)
+	{
+		final int caseTot = caseA + casea;
+		final int ctrlTot = ctrlA + ctrla;
+		final int totA = caseA + ctrlA;
+		final int tota = casea + ctrla;
+		final int total = caseTot + ctrlTot;
+		if (total == 0) {
+			return Double.NaN;
+		}
+
+		final double logBase = logFactorial(caseTot) + logFactorial(ctrlTot)
+				+ logFactorial(totA) + logFactorial(tota) - logFactorial(total);
+		final double logPObs = logBase - logHypergeometricDenominator(caseA, caseTot, totA, tota);
+		final double sum = sumTails(
+				logBase, caseTot, totA, tota, logPObs + LOG_RELATIVE_TOLERANCE, logPObs);
+
+		return toPvalue(logPObs, sum);
+	}
+
+	/**
+	 * Calculates the natural logarithm of the probability of observing
+	 * exactly this 2x3 table of genotype counts, given its margins.
+	 * This is the statistic of Fisher's exact test.
+	 * @return ln(probability), or <code>NaN</code> if the table is empty
+	 */
+	public double calculateGenotypicLogTableProbability(
+			final int caseAA,
+			final int caseAa,
+			final int caseaa,
+			final int ctrlAA,
+			final int ctrlAa,
+			final int ctrlaa)
+	{
+		final int caseTot = caseAA + caseAa + caseaa;
+		final int ctrlTot = ctrlAA + ctrlAa + ctrlaa;
+		final int total = caseTot + ctrlTot;
+		if (total == 0) {
+			return Double.NaN;
+		}
+
+		return logFactorial(caseTot) + logFactorial(ctrlTot)
+				+ logFactorial(caseAA + ctrlAA) + logFactorial(caseAa + ctrlAa) + logFactorial(caseaa + ctrlaa)
+				- logFactorial(total)
+				- logFactorial(caseAA) - logFactorial(caseAa) - logFactorial(caseaa)
+				- logFactorial(ctrlAA) - logFactorial(ctrlAa) - logFactorial(ctrlaa);
+	}
+
+	/**
+	 * Calculates the two-sided P-value of a 2x3 table of genotype counts.
+	 * The tables are enumerated in slices with equal case AA counts;
+	 * within each slice, the remaining counts are hypergeometric again.
+	 * @return P-value, or <code>NaN</code> if the table is empty
+	 */
+	public double calculateGenotypicPvalue(
+			final int caseAA,
+			final int caseAa,
+			final int caseaa,
+			final int ctrlAA,
+			final int ctrlAa,
+			final int ctrlaa)
+	{
+		final int caseTot = caseAA + caseAa + caseaa;
+		final int ctrlTot = ctrlAA + ctrlAa + ctrlaa;
+		final int totAA = caseAA + ctrlAA;
+		final int totAa = caseAa + ctrlAa;
+		final int totaa = caseaa + ctrlaa;
+		final int total = caseTot + ctrlTot;
+		if (total == 0) {
+			return Double.NaN;
+		}
+
+		final double logK = logFactorial(caseTot) + logFactorial(ctrlTot)
+				+ logFactorial(totAA) + logFactorial(totAa) + logFactorial(totaa)
+				- logFactorial(total);
+		final double logPObs = logK - logFactorial(caseAA) - logFactorial(ctrlAA)
+				- logHypergeometricDenominator(caseAa, caseTot - caseAA, totAa, totaa);
+		final double logThreshold = logPObs + LOG_RELATIVE_TOLERANCE;
+
+		final int totNotAA = totAa + totaa;
+		final int lo = Math.max(0, caseTot - totNotAA);
+		final int hi = Math.min(caseTot, totAA);
+		final int mode = hypergeometricMode(caseTot, totAA, totNotAA, lo, hi);
+		double sum = 0.0;
+		for (int sliceCaseAA = mode; sliceCaseAA >= lo; sliceCaseAA--) {
+			final double logSliceBase = logK - logFactorial(sliceCaseAA) - logFactorial(totAA - sliceCaseAA);
+			final int sliceCaseNotAA = caseTot - sliceCaseAA;
+			if ((sliceCaseAA < mode) && (Math.exp(logSliceBase
+					+ logHypergeometricTotal(sliceCaseNotAA, totAa, totaa) - logPObs) < sum * NEGLIGIBLE_FRACTION))
+			{
+				break;
+			}
+			sum += sumTails(logSliceBase, sliceCaseNotAA, totAa, totaa, logThreshold, logPObs);
+		}
+		for (int sliceCaseAA = mode + 1; sliceCaseAA <= hi; sliceCaseAA++) {
+			final double logSliceBase = logK - logFactorial(sliceCaseAA) - logFactorial(totAA - sliceCaseAA);
+			final int sliceCaseNotAA = caseTot - sliceCaseAA;
+			if (Math.exp(logSliceBase
+					+ logHypergeometricTotal(sliceCaseNotAA, totAa, totaa) - logPObs) < sum * NEGLIGIBLE_FRACTION)
+			{
+				break;
+			}
+			sum += sumTails(logSliceBase, sliceCaseNotAA, totAa, totaa, logThreshold, logPObs);
+		}
+
+		return toPvalue(logPObs, sum);
+	}
+
+	private static double toPvalue(final double logPObs, final double scaledSum) {
+		return Math.min(1.0, Math.exp(logPObs + Math.log(scaledSum)));
+	}
+
+	/**
+	 * The hypergeometric distribution of <code>x</code> successes
+	 * in <code>draws</code> draws from <code>successes</code> successes
+	 * and <code>failures</code> failures is
+	 * <code>exp(logBase - logHypergeometricDenominator(x, ...))</code>,
+	 * with a suitable <code>logBase</code>.
+	 */
+	private double logHypergeometricDenominator(
+			final int x,
+			final int draws,
+			final int successes,
+			final int failures)
+	{
+		return logFactorial(x) + logFactorial(draws - x)
+				+ logFactorial(successes - x) + logFactorial(failures - draws + x);
+	}
+
+	/**
+	 * Sum over all <code>x</code> of
+	 * <code>exp(-logHypergeometricDenominator(x, ...))</code>, in log space.
+	 */
+	private double logHypergeometricTotal(
+			final int draws,
+			final int successes,
+			final int failures)
+	{
+		final int population = successes + failures;
+		return logFactorial(population) - logFactorial(draws) - logFactorial(population - draws)
+				- logFactorial(successes) - logFactorial(failures);
+	}
+
+	private static int hypergeometricMode(
+			final int draws,
+			final int successes,
+			final int failures,
+			final int lo,
+			final int hi)
+	{
+		final int mode = (int) (((long) (draws + 1) * (successes + 1)) / (successes + failures + 2));
+		return Math.max(lo, Math.min(hi, mode));
+	}
+
+	/**
+	 * Sums the terms <code>exp(logBase - logHypergeometricDenominator(x, ...) - logScale)</code>
+	 * over all the <code>x</code> whose (unscaled) log-term
+	 * is at most <code>logThreshold</code>.
+	 */
+	private double sumTails(
+			final double logBase,
+			final int draws,
+			final int successes,
+			final int failures,
+			final double logThreshold,
+			final double logScale)
+	{
+		final int lo = Math.max(0, draws - failures);
+		final int hi = Math.min(draws, successes);
+		final int mode = hypergeometricMode(draws, successes, failures, lo, hi);
+		if ((logBase - logHypergeometricDenominator(mode, draws, successes, failures)) <= logThreshold) {
+			// even the most probable term is in the tails, so all of them are
+			return Math.exp(logBase + logHypergeometricTotal(draws, successes, failures) - logScale);
+		}
+
+		// the terms increase up to the mode, and decrease after it;
+		// find the outermost ones above the threshold
+		int left = lo;
+		int right = mode;
+		while (left < right) {
+			final int mid = (left + right) >>> 1;
+			if ((logBase - logHypergeometricDenominator(mid, draws, successes, failures)) > logThreshold) {
+				right = mid;
+			} else {
+				left = mid + 1;
+			}
+		}
+		final int firstAbove = left;
+		left = mode;
+		right = hi;
+		while (left < right) {
+			final int mid = (left + right + 1) >>> 1;
+			if ((logBase - logHypergeometricDenominator(mid, draws, successes, failures)) > logThreshold) {
+				left = mid;
+			} else {
+				right = mid - 1;
+			}
+		}
+		final int lastAbove = left;
+
+		// walk outwards, using the ratios of neighbouring terms
+		double sum = 0.0;
+		if (firstAbove > lo) {
+			int x = firstAbove - 1;
+			double term = Math.exp(logBase - logHypergeometricDenominator(x, draws, successes, failures) - logScale);
+			while (true) {
+				sum += term;
+				if ((x == lo) || (term < sum * NEGLIGIBLE_FRACTION)) {
+					break;
+				}
+				term *= ((double) x * (failures - draws + x)) / ((double) (draws - x + 1) * (successes - x + 1));
+				x--;
+			}
+		}
+		if (lastAbove < hi) {
+			int x = lastAbove + 1;
+			double term = Math.exp(logBase - logHypergeometricDenominator(x, draws, successes, failures) - logScale);
+			while (true) {
+				sum += term;
+				if ((x == hi) || (term < sum * NEGLIGIBLE_FRACTION)) {
+					break;
+				}
+				term *= ((double) (draws - x) * (successes - x)) / ((double) (x + 1) * (failures - draws + x + 1));
+				x++;
+			}
+		}
+
+		return sum;
+	}
+}
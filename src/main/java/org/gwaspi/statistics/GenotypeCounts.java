@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.statistics;
+
+/**
+ * The genotype counts of cases and controls for a block of markers,
+ * stored as one array per count (struct of arrays),
+ * as taken by the batch tests in {@link Associations}.
+ */
+public class GenotypeCounts {
+
+	private final int[] caseAA;
+	private final int[] caseAa;
+	private final int[] caseaa;
+	private final int[] ctrlAA;
+	private final int[] ctrlAa;
+	private final int[] ctrlaa;
+	private int size;
+
+	public GenotypeCounts(final int capacity) {
+
+		this.caseAA = new int[capacity];
+		this.caseAa = new int[capacity];
+		this.caseaa = new int[capacity];
+		this.ctrlAA = new int[capacity];
+		this.ctrlAa = new int[capacity];
+		this.ctrlaa = new int[capacity];
+		this.size = 0;
+	}
+
+	public int getCapacity() {
+		return caseAA.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isFull() {
+		return (size == getCapacity());
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(
+			final int caseAA,
+			final int caseAa,
+			final int caseaa,
+			final int ctrlAA,
+			final int ctrlAa,
+			final int ctrlaa)
+	{
+		this.caseAA[size] = caseAA;
+		this.caseAa[size] = caseAa;
+		this.caseaa[size] = caseaa;
+		this.ctrlAA[size] = ctrlAA;
+		this.ctrlAa[size] = ctrlAa;
+		this.ctrlaa[size] = ctrlaa;
+		size++;
+	}
+
+	public int[] getCaseAA() {
+		return caseAA;
+	}
+
+	public int[] getCaseAa() {
+		return caseAa;
+	}
+
+	public int[] getCaseaa() {
+		return caseaa;
+	}
+
+	public int[] getCtrlAA() {
+		return ctrlAA;
+	}
+
+	public int[] getCtrlAa() {
+		return ctrlAa;
+	}
+
+	public int[] getCtrlaa() {
+		return ctrlaa;
+	}
+}
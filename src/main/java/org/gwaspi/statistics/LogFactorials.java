@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.statistics;
+
+/**
+ * A cache of the natural logarithms of the factorials <code>ln(n!)</code>.
+ * It is meant to be sized to the number of samples (or alleles) once,
+ * and then be reused for all the markers.
+ * If a larger value is requested, the cache grows.
+ * Instances are thread-safe.
+ */
+public class LogFactorials {
+
+	private volatile double[] logFactorials;
+
+	/**
+	 * @param maxN the largest value whose log-factorial we expect to be requested
+	 */
+	public LogFactorials(final int maxN) {
+		this.logFactorials = extend(new double[] {0.0}, Math.max(maxN, 1));
+	}
+
+	private static double[] extend(final double[] logFactorials, final int maxN) {
+
+		final double[] extended = new double[maxN + 1];
+		System.arraycopy(logFactorials, 0, extended, 0, logFactorials.length);
+		for (int n = logFactorials.length; n <= maxN; n++) {
+			extended[n] = extended[n - 1] + Math.log(n);
+		}
+		return extended;
+	}
+
+	/**
+	 * @param n non-negative integer
+	 * @return ln(n!)
+	 */
+	public double get(final int n) {
+
+		double[] curLogFactorials = logFactorials;
+		if (n >= curLogFactorials.length) {
+			curLogFactorials = grow(n);
+		}
+		return curLogFactorials[n];
+	}
+
+	private synchronized double[] grow(final int n) {
+
+		if (n >= logFactorials.length) {
+			logFactorials = extend(logFactorials, Math.max(n, logFactorials.length * 2));
+		}
+		return logFactorials;
+	}
+}
@@ -22,6 +22,40 @@ public class Pvalue {
 	private Pvalue() {
 	}
 
+	/**
+	 * Coefficients of the rational approximations of the complementary error
+	 * function, for the ranges <code>|x| &lt;= 0.5</code> (A, B),
+	 * <code>0.5 &lt; |x| &lt;= 4</code> (C, D) and <code>|x| &gt; 4</code> (P, Q).
+	 * See W. J. Cody, "Rational Chebyshev Approximations for the Error Function",
+	 * Mathematics of Computation, 1969, pp. 631-638.
+	 * They yield a relative precision close to that of <code>double</code>
+	 * over the whole range, including the far tail.
+	 */
+	private static final double[] ERFC_A = {
+		3.16112374387056560e00, 1.13864154151050156e02, 3.77485237685302021e02,
+		3.20937758913846947e03, 1.85777706184603153e-1};
+	private static final double[] ERFC_B = {
+		2.36012909523441209e01, 2.44024637934444173e02, 1.28261652607737228e03,
+		2.84423683343917062e03};
+	private static final double[] ERFC_C = {
+		5.64188496988670089e-1, 8.88314979438837594e00, 6.61191906371416295e01,
+		2.98635138197400131e02, 8.81952221241769090e02, 1.71204761263407058e03,
+		2.05107837782607147e03, 1.23033935479799725e03, 2.15311535474403846e-8};
+	private static final double[] ERFC_D = {
+		1.57449261107098347e01, 1.17693950891312499e02, 5.37181101862009858e02,
+		1.62138957456669019e03, 3.29079923573345963e03, 4.36261909014324716e03,
+		3.43936767414372164e03, 1.23033935480374942e03};
+	private static final double[] ERFC_P = {
+		3.05326634961232344e-1, 3.60344899949804439e-1, 1.25781726111229246e-1,
+		1.60837851487422766e-2, 6.58749161529837803e-4, 1.63153871373020978e-2};
+	private static final double[] ERFC_Q = {
+		2.56852019228982242e00, 1.87295284992346725e00, 5.27905102951428412e-1,
+		6.05183413124413191e-2, 2.33520497626869185e-3};
+	/** 1 / sqrt(PI) */
+	private static final double ONE_BY_SQRT_PI = 5.6418958354775628695e-1;
+	/** Beyond this, <code>erfc(x)</code> is smaller than the smallest <code>double</code>. */
+	private static final double ERFC_X_MAX = 27.3;
+
 	/**
 	 * @param chiSqr X^2
 	 * @param df degrees of freedom
@@ -29,18 +63,41 @@ public class Pvalue {
 	 */
 	public static double calculatePvalueFromChiSqr(double chiSqr, int df) {
 		if (df == 1) {
-			if (chiSqr < 1) {
-				return calculatePvalueFromChiSqrPep(chiSqr, df);
-			} else {
-				return calculatePvalueFromChiSqrBelen(chiSqr, df);
-			}
+			return calculatePvalueFromChiSqrDf1(chiSqr);
 		} else if (df == 2) {
-			return calculatePvalueFromChiSqrBelen(chiSqr, df);
+			return calculatePvalueFromChiSqrDf2(chiSqr);
 		} else {
 			return calculatePvalueFromChiSqrPep(chiSqr, df);
 		}
 	}
 
+	/**
+	 * Batch version of {@link #calculatePvalueFromChiSqr(double, int)},
+	 * for the entries <code>[from, to)</code> of a block.
+	 * @param pValues receives the results, at the same indices as the input
+	 */
+	public static void calculatePvaluesFromChiSqrs(
+			final double[] chiSqrs,
+			final int df,
+			final int from,
+			final int to,
+			final double[] pValues)
+	{
+		if (df == 1) {
+			for (int i = from; i < to; i++) {
+				pValues[i] = calculatePvalueFromChiSqrDf1(chiSqrs[i]);
+			}
+		} else if (df == 2) {
+			for (int i = from; i < to; i++) {
+				pValues[i] = calculatePvalueFromChiSqrDf2(chiSqrs[i]);
+			}
+		} else {
+			for (int i = from; i < to; i++) {
+				pValues[i] = calculatePvalueFromChiSqrPep(chiSqrs[i], df);
+			}
+		}
+	}
+
 	//<editor-fold defaultstate="expanded" desc="HELPER METHODS">
 	private static double calculatePvalueFromChiSqrPep(double chiSqr, int df) {
 		double q;
@@ -79,57 +136,88 @@ public class Pvalue {
 		return (1 - p);
 	}
 
-	private static double calculatePvalueFromChiSqrBelen(double inputChiSqr, int df) {
-		double result = 0;
-		if (df == 1) {
-			double chiSqr = inputChiSqr;
-
-			double incr = 0.5;
-			int r = 7;
-			double w = incr / (4 * r);
-
-			double tempQ = 1;
-			double Q = 0;
-
-			while (tempQ >= 1e-300) {
-				tempQ = 2 * w / 45 * (7 * (dBelen(chiSqr) + dBelen(chiSqr + 28 * w))
-						+ 12 * (dBelen(chiSqr + 2 * w) + dBelen(chiSqr + 6 * w)
-						+ dBelen(chiSqr + 10 * w)
-						+ dBelen(chiSqr + 14 * w)
-						+ dBelen(chiSqr + 18 * w)
-						+ dBelen(chiSqr + 22 * w)
-						+ dBelen(chiSqr + 26 * w))
-						+ 14 * (dBelen(chiSqr + 4 * w)
-						+ dBelen(chiSqr + 8 * w)
-						+ dBelen(chiSqr + 12 * w)
-						+ dBelen(chiSqr + 16 * w)
-						+ dBelen(chiSqr + 20 * w)
-						+ dBelen(chiSqr + 24 * w))
-						+ 32 * (dBelen(chiSqr + w)
-						+ dBelen(chiSqr + 3 * w)
-						+ dBelen(chiSqr + 5 * w)
-						+ dBelen(chiSqr + 7 * w)
-						+ dBelen(chiSqr + 9 * w)
-						+ dBelen(chiSqr + 11 * w)
-						+ dBelen(chiSqr + 13 * w)
-						+ dBelen(chiSqr + 15 * w)
-						+ dBelen(chiSqr + 17 * w)
-						+ dBelen(chiSqr + 19 * w)
-						+ dBelen(chiSqr + 21 * w)
-						+ dBelen(chiSqr + 23 * w)
-						+ dBelen(chiSqr + 25 * w)
-						+ dBelen(chiSqr + 27 * w)));
-
-				Q += tempQ;
-				chiSqr += incr;
+	/**
+	 * For one degree of freedom, <code>P(X^2 &gt; chiSqr) = erfc(sqrt(chiSqr / 2))</code>.
+	 */
+	private static double calculatePvalueFromChiSqrDf1(double chiSqr) {
+		return calculateErfc(Math.sqrt(chiSqr / 2));
+	}
+
+	/**
+	 * For two degrees of freedom, <code>P(X^2 &gt; chiSqr) = exp(-chiSqr / 2)</code>.
+	 */
+	private static double calculatePvalueFromChiSqrDf2(double chiSqr) {
+		return Math.exp(-chiSqr / 2);
+	}
+
+	/**
+	 * Calculates the X^2 value with two degrees of freedom
+	 * that has the given P-value, which is <code>-2 ln(P)</code>.
+	 * This allows to compare the results of tests with other statistics
+	 * to the X^2 distribution, for example in a QQ-plot.
+	 * P-values too small to be represented are treated as
+	 * the smallest representable one.
+	 * @param pValue in <code>[0, 1]</code>
+	 * @return X^2 (2 df) equivalent of the P-value
+	 */
+	public static double calculateChiSqrDf2FromPvalue(double pValue) {
+		return -2.0 * Math.log(Math.min(1.0, Math.max(Double.MIN_VALUE, pValue)));
+	}
+
+	/**
+	 * Calculates the complementary error function for <code>x &gt;= 0</code>
+	 * (and <code>NaN</code>), using the rational approximations of Cody.
+	 */
+	private static double calculateErfc(double x) {
+
+		final double result;
+		if (x <= 0.5) {
+			final double ysq = x * x;
+			double xnum = ERFC_A[4] * ysq;
+			double xden = ysq;
+			for (int i = 0; i < 3; i++) {
+				xnum = (xnum + ERFC_A[i]) * ysq;
+				xden = (xden + ERFC_B[i]) * ysq;
 			}
-			return Q;
-		} else if (df == 2) {
-			result = Math.exp(-1 * inputChiSqr / 2);
+			result = 1 - x * (xnum + ERFC_A[3]) / (xden + ERFC_B[3]);
+		} else if (x <= 4) {
+			double xnum = ERFC_C[8] * x;
+			double xden = x;
+			for (int i = 0; i < 7; i++) {
+				xnum = (xnum + ERFC_C[i]) * x;
+				xden = (xden + ERFC_D[i]) * x;
+			}
+			result = expMinusSquare(x) * (xnum + ERFC_C[7]) / (xden + ERFC_D[7]);
+		} else if (x > ERFC_X_MAX) {
+			result = 0.0;
+		} else {
+			// this also covers NaN
+			final double ysq = 1 / (x * x);
+			double xnum = ERFC_P[5] * ysq;
+			double xden = ysq;
+			for (int i = 0; i < 4; i++) {
+				xnum = (xnum + ERFC_P[i]) * ysq;
+				xden = (xden + ERFC_Q[i]) * ysq;
+			}
+			final double ratio = ysq * (xnum + ERFC_P[4]) / (xden + ERFC_Q[4]);
+			result = expMinusSquare(x) * ((ONE_BY_SQRT_PI - ratio) / x);
 		}
+
 		return result;
 	}
 
+	/**
+	 * Calculates <code>exp(-x^2)</code>,
+	 * splitting <code>x^2</code> into an exactly representable part
+	 * and a small rest, so the relative error does not grow with <code>x</code>.
+	 */
+	private static double expMinusSquare(double x) {
+
+		final double xHigh = Math.floor(x * 16) / 16;
+		final double del = (x - xHigh) * (x + xHigh);
+		return Math.exp(-xHigh * xHigh) * Math.exp(-del);
+	}
+
 	private static double calculateNormal(double z) {
 		double q = Math.pow(z, 2);
 
@@ -139,14 +227,5 @@ public class Pvalue {
 		}
 		return calculatePvalueFromChiSqr(q, 1);
 	}
-
-	private static double dBelen(double x) {
-		double fx = (double) 1
-				/ Math.sqrt(x
-				* Math.exp(x)
-				* Math.PI
-				* 2);
-		return fx;
-	}
 	//</editor-fold>
 }
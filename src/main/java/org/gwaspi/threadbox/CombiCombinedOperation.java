@@ -19,7 +19,6 @@ package org.gwaspi.threadbox;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -29,16 +28,18 @@ import org.gwaspi.dao.OperationService;
 import org.gwaspi.global.RuntimeAnalyzer;
 import org.gwaspi.model.DataSetKey;
 import org.gwaspi.model.GWASpiExplorerNodes;
+import org.gwaspi.model.MatricesList;
 import org.gwaspi.model.OperationKey;
 import org.gwaspi.operations.MatrixOperation;
-import org.gwaspi.operations.OperationDataSet;
 import org.gwaspi.operations.OperationManager;
 import org.gwaspi.operations.combi.ByCombiWeightsFilterOperation;
 import org.gwaspi.operations.combi.ByCombiWeightsFilterOperationParams;
 import org.gwaspi.operations.combi.CombiOutputOperation;
 import org.gwaspi.operations.combi.CombiOutputOperationParams;
+import org.gwaspi.operations.combi.CombiPermutationCalibrator;
 import org.gwaspi.operations.combi.CombiTestOperation;
 import org.gwaspi.operations.combi.CombiTestOperationParams;
+import org.gwaspi.operations.combi.SymmetricKernelMatrix;
 import org.gwaspi.operations.filter.ByValidAffectionFilterOperation;
 import org.gwaspi.operations.filter.ByValidAffectionFilterOperationParams;
 import org.gwaspi.operations.hardyweinberg.ByHardyWeinbergThresholdFilterOperation;
@@ -50,7 +51,6 @@ import org.gwaspi.operations.markercensus.MarkerCensusOperationParams;
 import org.gwaspi.operations.qamarkers.QAMarkersOperation;
 import org.gwaspi.operations.qamarkers.QAMarkersOperationParams;
 import org.gwaspi.operations.trendtest.TrendTestOperation;
-import org.gwaspi.operations.trendtest.TrendTestOperationDataSet;
 import org.gwaspi.operations.trendtest.TrendTestOperationParams;
 import org.gwaspi.progress.DefaultProcessInfo;
 import org.gwaspi.progress.NullProgressHandler;
@@ -142,6 +142,24 @@ public class CombiCombinedOperation extends CommonRunnable {
 		return taskLockProperties;
 	}
 
+	/**
+	 * The kernel matrix dominates the memory usage,
+	 * unless it is too large to be stored on the heap.
+	 */
+	@Override
+	public long getEstimatedMemoryBytes() {
+
+		try {
+			final int numSamples = MatricesList.getDataSetMetadata(paramsTest.getParent()).getNumSamples();
+			return SymmetricKernelMatrix.isStoredOnHeap(numSamples)
+					? SymmetricKernelMatrix.calcNumBytes(numSamples)
+					: 0;
+		} catch (final IOException ex) {
+			getLog().warn("Failed to estimate the memory usage of " + getName(), ex);
+			return 0;
+		}
+	}
+
 	@Override
 	protected Logger createLog() {
 		return LoggerFactory.getLogger(CombiCombinedOperation.class);
@@ -151,95 +169,15 @@ public class CombiCombinedOperation extends CommonRunnable {
 		return resultingTrendTestOperationKey;
 	}
 
-	private void extractSmallestPValues(
-			final CombiTestOperationParams prototypeTestParams,
-			final TrendTestOperationDataSet trendTestDataSet,
-			final int numChromosomes,
-			final List<Double> ps,
-			final List<List<Double>> smallestPs)
-			throws IOException
-	{
-		if (prototypeTestParams.isPerChromosome()) {
-			// NOTE The following code assumes that markers are ordered by chromosome
-			final List<String> markersChromosomes = trendTestDataSet.getMarkersMetadatasSource().getChromosomes();
-			String currentChrom = markersChromosomes.get(0);
-			int ci = 0;
-			for (int mi = 0; mi < ps.size(); mi++) {
-				final List<Double> chromPs = new ArrayList<Double>(ps.size() / numChromosomes); // approximate markers per chromosome
-				while ((mi < ps.size()) && currentChrom.equals(markersChromosomes.get(mi))) {
-					chromPs.add(ps.get(mi));
-					mi++;
-				}
-				Collections.sort(chromPs);
-				smallestPs.get(ci).add(chromPs.get(0));
-				ci++;
-				mi--;
-			}
-//				for (int ci = 0; ci < numChromosomes; ci++) {
-//					final List<Double> chromPs = new ArrayList(XXX resultingTrendTestDataSet.getPs(-1, -1));
-//					Collections.sort(ps);
-//					smallestPs.get(ci).add(ps.get(0));
-//				}
-		} else {
-			Collections.sort(ps);
-			smallestPs.get(0).add(ps.get(0));
-		}
-	}
-
 	private List<Double> thresholdCalibration(
 			final CombiTestOperationParams prototypeTestParams,
 			final ByCombiWeightsFilterOperationParams prototypeFilterParams,
-			final List<CombiTestOperation.Kernel> kernel,
 			final List<Double> thresholdCalibrationPValueTargets)
 			throws IOException
 	{
-//		// HACK this is(?):
-		final OperationDataSet toLoadFromDataSet = OperationManager.generateOperationDataSet(prototypeTestParams.getQAMarkerOperationKey());
-//		final int totalMarkers = toLoadFromDataSet.getNumMarkers();
-
-		final int numChromosomes = prototypeTestParams.isPerChromosome() ? toLoadFromDataSet.getNumChromosomes() : 1;
-		final List<List<Double>> smallestPs = new ArrayList<List<Double>>(
-				numChromosomes);
-		for (int ci = 0; ci < numChromosomes; ci++) {
-			smallestPs.add(new ArrayList<Double>(
-					prototypeTestParams.getThresholdCalibrationPermutation2Iterations()));
-		}
-		for (int tci = 0; tci < prototypeTestParams.getThresholdCalibrationPermutation2Iterations(); tci++) {
-			final CombiTestOperationParams combiParams
-					= new CombiTestOperationParams(
-							prototypeTestParams.getQAMarkerOperationKey(),
-							prototypeTestParams.getEncoder(),
-							prototypeTestParams.getEncodingParams(),
-							false, // thresholdCalibrationEnabled
-							null, // thresholdCalibrationAlpha
-							null, // thresholdCalibrationIterations
-							false, // thresholdCalibrationAlphasCalculationEnabled
-							null, // thresholdCalibrationAlphasCalculationPValueTarget
-							null, // thresholdCalibrationAlphasCalculationIterations
-							prototypeTestParams.isPerChromosome(),
-							prototypeTestParams.getSolverLibrary(),
-							prototypeTestParams.getSolverParams(),
-							true, //prototypeTestParams.isUsingRandomSampleAffections(),
-							prototypeTestParams.getName() + "_threasholdCalibrationIteration" + tci);
-			final boolean mtkFraction = (prototypeFilterParams.getMarkersToKeep() == -1);
-			final ByCombiWeightsFilterOperationParams combiFilterParams
-					= new ByCombiWeightsFilterOperationParams(
-					prototypeFilterParams.getTotalMarkers(), //totalMarkers,
-					prototypeFilterParams.isPerChromosome(), //perChromosome,
-					prototypeFilterParams.getWeightsFilterWidth(), //weightsFilterWidth,
-//					mtkFraction ? null : prototypeFilterParams.getMarkersToKeep(), //markersToKeep,
-//					mtkFraction ? prototypeFilterParams.getMarkersToKeepFraction() : null, //prototypeFilterParams.getMarkersToKeepFraction(), //markersToKeepFraction
-					null, //markersToKeep,
-					1.0, //markersToKeepFraction
-					prototypeFilterParams.getName() + "_threasholdCalibrationIteration" + tci); //resultFilterOperationName);
-			final CombiCombinedOperation combinedCombi = new CombiCombinedOperation(combiParams, combiFilterParams, kernel);
-			combinedCombi.run();
-			final OperationKey resultingPermTrendTestOperationKey = combinedCombi.getResultingTrendTestOperationKey();
-			final TrendTestOperationDataSet resultingTrendTestDataSet = (TrendTestOperationDataSet)
-					OperationManager.generateOperationDataSet(resultingPermTrendTestOperationKey);
-			final List<Double> ps = new ArrayList<Double>(resultingTrendTestDataSet.getPs(-1, -1));
-			extractSmallestPValues(prototypeTestParams, resultingTrendTestDataSet, numChromosomes, ps, smallestPs);
-		}
+		final List<List<Double>> smallestPs = new CombiPermutationCalibrator(prototypeTestParams, prototypeFilterParams)
+				.calculateSmallestCombiPValues(prototypeTestParams.getThresholdCalibrationPermutation2Iterations());
+		final int numChromosomes = smallestPs.size();
 
 		final List<Double> pValueThreasholds = new ArrayList<Double>(numChromosomes);
 		// Find t_star(s, one per chromosome) as alpha-percentile of sorted p-values
@@ -285,58 +223,9 @@ public class CombiCombinedOperation extends CommonRunnable {
 			final CombiTestOperationParams prototypeTestParams)
 			throws IOException
 	{
-//		// HACK this is(?):
-		final OperationDataSet toLoadFromDataSet = OperationManager.generateOperationDataSet(prototypeTestParams.getQAMarkerOperationKey());
-//		final int totalMarkers = toLoadFromDataSet.getNumMarkers();
-
-		final int numChromosomes = prototypeTestParams.isPerChromosome() ? toLoadFromDataSet.getNumChromosomes() : 1;
-		final List<List<Double>> smallestPs = new ArrayList<List<Double>>(
-				numChromosomes);
-		for (int ci = 0; ci < numChromosomes; ci++) {
-			smallestPs.add(new ArrayList<Double>(
-					prototypeTestParams.getThresholdCalibrationPermutation1Iterations()));
-		}
-
-		final DataSetKey parentQAMarkers = prototypeTestParams.getParent(); // NOTE As of now, this returns the QA-Markers operation of/below our actual parent
-		final DataSetKey parent = new DataSetKey(parentQAMarkers.getOperationParent().getParentMatrixKey());
-		final List<OPType> necessaryOpTypes = Arrays.asList(OPType.SAMPLE_QA, OPType.MARKER_QA);
-		final List<OperationKey> necessaryOperations = OperationManager.findNecessaryOperations(necessaryOpTypes, parent, true);
-		if (necessaryOperations.size() < necessaryOpTypes.size()) {
-			throw new RuntimeException("Not all necessary operation types ("+necessaryOpTypes+") were found on parent \""+parent+"\""); // TODO FIXME Instead, just run these operations!
-		}
-		final MarkerCensusOperationParams mcVorlageParams = new MarkerCensusOperationParams(
-				parent,
-				necessaryOperations.get(0),
-				necessaryOperations.get(1));
-		for (int tci = 0; tci < prototypeTestParams.getThresholdCalibrationPermutation1Iterations(); tci++) {
-			final MarkerCensusOperationParams markerCensusParams
-					= new MarkerCensusOperationParams(
-							mcVorlageParams.getParent(), // parent
-							prototypeTestParams.getName() + "_threasholdCalibrationAlphaDiscoveryIteration" + tci, // name
-							mcVorlageParams.getSampleQAOpKey(), // qaSamplesOp
-							mcVorlageParams.getSampleMissingRatio(),
-							mcVorlageParams.getSampleHetzygRatio(),
-							mcVorlageParams.getMarkerQAOpKey(), // qaMarkersOp
-							mcVorlageParams.isDiscardMismatches(),
-							mcVorlageParams.getMarkerMissingRatio(),
-							mcVorlageParams.getPhenotypeFile(), // phenotypeFile
-							true); // random samples
-			final MarkerCensusOperation markerCensus = new MarkerCensusOperation(markerCensusParams);
-			final OperationKey markerCensusOpKey = OperationManager.performOperationCreatingOperation(markerCensus);
-
-			final TrendTestOperationParams trendTestParams
-					= new TrendTestOperationParams(
-							prototypeTestParams.getParent(),
-							prototypeTestParams.getName() + "_threasholdCalibrationIteration" + tci,
-							markerCensusOpKey);
-			final TrendTestOperation trendTest = new TrendTestOperation(trendTestParams);
-			final OperationKey trendTestOpKey = OperationManager.performOperationCreatingOperation(trendTest);
-
-			final TrendTestOperationDataSet resultingTrendTestDataSet = (TrendTestOperationDataSet)
-					OperationManager.generateOperationDataSet(trendTestOpKey);
-			final List<Double> ps = new ArrayList(resultingTrendTestDataSet.getPs(-1, -1));
-			extractSmallestPValues(prototypeTestParams, resultingTrendTestDataSet, numChromosomes, ps, smallestPs);
-		}
+		final List<List<Double>> smallestPs = new CombiPermutationCalibrator(prototypeTestParams, null)
+				.calculateSmallestTrendTestPValues(prototypeTestParams.getThresholdCalibrationPermutation1Iterations());
+		final int numChromosomes = smallestPs.size();
 
 		final List<Double> pValueTargets = new ArrayList<Double>(numChromosomes);
 		for (int ci = 0; ci < numChromosomes; ci++) {
@@ -398,9 +287,6 @@ public class CombiCombinedOperation extends CommonRunnable {
 		// NOTE ABORTION_POINT We could be gracefully aborted here
 
 		progressSource.setNewStatus(ProcessStatus.RUNNING);
-		final OperationDataSet toLoadFromDataSet = OperationManager.generateOperationDataSet(paramsTest.getQAMarkerOperationKey());
-		final int numParts = paramsTest.isPerChromosome() ? toLoadFromDataSet.getNumChromosomes() : 1;
-		final List<CombiTestOperation.Kernel> kernel = new ArrayList<CombiTestOperation.Kernel>(Collections.nCopies(numParts, (CombiTestOperation.Kernel) null));
 		final List<Double> pValueThreasholds;
 		if (paramsTest.isThresholdCalibrationPermutation1Enabled()) {
 			final List<Double> thresholdCalibrationPValueTargets;
@@ -415,7 +301,7 @@ public class CombiCombinedOperation extends CommonRunnable {
 			}
 			RuntimeAnalyzer.getInstance().log("COMBI-permutation-part2", true);
 			RuntimeAnalyzer.getInstance().setDiscard(true);
-			pValueThreasholds = thresholdCalibration(paramsTest, paramsFilter, kernel, thresholdCalibrationPValueTargets);
+			pValueThreasholds = thresholdCalibration(paramsTest, paramsFilter, thresholdCalibrationPValueTargets);
 			RuntimeAnalyzer.getInstance().setDiscard(false);
 			RuntimeAnalyzer.getInstance().log("COMBI-permutation-part2", false);
 			getLog().debug("pValueThreashold: {}", pValueThreasholds);
@@ -477,8 +363,9 @@ public class CombiCombinedOperation extends CommonRunnable {
 			final TestOutputParams testOutputParams = new TestOutputParams(trendTestOpKey, OPType.TRENDTEST, qaMarkersOpKey, pValueThreasholds);
 			final MatrixOperation testOutputOperation = new OutputTest(testOutputParams);
 			progressSource.replaceSubProgressSource(PLACEHOLDER_PS_TEST_OUTPUT, testOutputOperation.getProgressSource(), null);
-			OperationManager.performOperationCreatingOperation(testOutputOperation);
-			GWASpiExplorerNodes.insertReportsUnderOperationNode(trendTestOpKey);
+			if (OperationManager.performReportsOperation(testOutputOperation, trendTestOpKey)) {
+				GWASpiExplorerNodes.insertReportsUnderOperationNode(trendTestOpKey);
+			}
 
 			final CombiOutputOperationParams combiOutputOperationParams = new CombiOutputOperationParams(trendTestOpKey, combiTestOpKey, null, pValueThreasholds, null);
 			final MatrixOperation combiOutputOperation = new CombiOutputOperation(combiOutputOperationParams);
@@ -47,6 +47,13 @@ public abstract class CommonRunnable implements Runnable {
 
 	public abstract TaskLockProperties getTaskLockProperties();
 
+	/**
+	 * @see Task#getEstimatedMemoryBytes()
+	 */
+	public long getEstimatedMemoryBytes() {
+		return 0;
+	}
+
 	protected Logger getLog() {
 		return log;
 	}
@@ -149,6 +149,11 @@ public class DefaultTask implements Task {
 		return getTask().getTaskLockProperties();
 	}
 
+	@Override
+	public long getEstimatedMemoryBytes() {
+		return getTask().getEstimatedMemoryBytes();
+	}
+
 	@Override
 	public void run() {
 
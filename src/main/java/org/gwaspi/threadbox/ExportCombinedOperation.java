@@ -66,6 +66,10 @@ public class ExportCombinedOperation extends CommonRunnable {
 		final MatrixExporter mEx = new MatrixExporter(params);
 		progressForwarder.setInnerProgressHandler((ProgressHandler) mEx.getProgressSource()); // HACK
 //		OperationManager.performOperation(mEx); // XXX We can not do that, because MatrixExporter does not support getParams() yet, so instead we do ...
-		mEx.call();
+		try {
+			mEx.call();
+		} finally {
+			mEx.close();
+		}
 	}
 }
@@ -132,7 +132,7 @@ public class HardyWeinbergCombinedOperation extends CommonRunnable {
 		final OutputHardyWeinberg outputHardyWeinberg
 				= new OutputHardyWeinberg(hardyWeinbergOutputParams);
 		progressSource.replaceSubProgressSource(PLACEHOLDER_PS_HW_REPORTS, outputHardyWeinberg.getProgressSource(), null);
-		OperationManager.performOperation(outputHardyWeinberg);
+		OperationManager.performReportsOperation(outputHardyWeinberg, hardyWeinbergOperationKey);
 		progressSource.setNewStatus(ProcessStatus.COMPLEETED);
 	}
 }
@@ -145,7 +145,7 @@ public class QACombinedOperation extends CommonRunnable {
 				final QASamplesOutputParams qaSamplesOutputParams = new QASamplesOutputParams(samplesQAOperationKey, true);
 				final MatrixOperation outputQASamples = new OutputQASamples(qaSamplesOutputParams);
 				progressSource.replaceSubProgressSource(PLACEHOLDER_PS_QA_SAMPLES_REPORTS, outputQASamples.getProgressSource(), null);
-				OperationManager.performOperationCreatingOperation(outputQASamples);
+				OperationManager.performReportsOperation(outputQASamples, samplesQAOperationKey);
 			}
 		}
 		if (missingOPs.contains(OPType.MARKER_QA)) {
@@ -158,7 +158,7 @@ public class QACombinedOperation extends CommonRunnable {
 				final QAMarkersOutputParams qaMarkersOutputParams = new QAMarkersOutputParams(markersQAOperationKey);
 				final MatrixOperation outputQAMarkers = new OutputQAMarkers(qaMarkersOutputParams);
 				progressSource.replaceSubProgressSource(PLACEHOLDER_PS_QA_MARKERS_REPORTS, outputQAMarkers.getProgressSource(), null);
-				OperationManager.performOperationCreatingOperation(outputQAMarkers);
+				OperationManager.performReportsOperation(outputQAMarkers, markersQAOperationKey);
 			}
 		}
 		progressSource.setNewStatus(ProcessStatus.COMPLEETED);
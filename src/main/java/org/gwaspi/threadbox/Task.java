@@ -47,4 +47,12 @@ public interface Task extends Runnable {
 	ProgressSource getProgressSource();
 
 	TaskLockProperties getTaskLockProperties();
+
+	/**
+	 * Returns how much heap memory this task requires while running,
+	 * on top of what the application needs anyway.
+	 * It is used to not run memory intensive tasks at the same time.
+	 * @return estimated number of bytes; 0 if negligible
+	 */
+	long getEstimatedMemoryBytes();
 }
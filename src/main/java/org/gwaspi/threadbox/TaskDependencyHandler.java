@@ -129,4 +129,53 @@ public class TaskDependencyHandler {
 
 		return true;
 	}
+
+	/**
+	 * Checks whether two tasks may not run at the same time.
+	 * This is the case if one of them removes something
+	 * that the other one requires or removes as well,
+	 * or if one of them modifies a study that the other one uses in any way.
+	 * Requiring the same things is fine,
+	 * as tasks only read what they require.
+	 * @param lockProps of the one task
+	 * @param otherLockProps of the other task
+	 * @return true if the two tasks have to be run one after the other
+	 */
+	public static boolean isConflicting(final TaskLockProperties lockProps, final TaskLockProperties otherLockProps) {
+		return removesAnyOf(lockProps, otherLockProps) || removesAnyOf(otherLockProps, lockProps)
+				|| modifiesAnyOf(lockProps, otherLockProps) || modifiesAnyOf(otherLockProps, lockProps);
+	}
+
+	private static boolean modifiesAnyOf(final TaskLockProperties modifierLockProps, final TaskLockProperties otherLockProps) {
+
+		for (final Identifier<StudyKey> toBeModifiedStudy : modifierLockProps.getModifyingStudies()) {
+			if (otherLockProps.getRequiredStudies().contains(toBeModifiedStudy)
+					|| otherLockProps.getRemovingStudies().contains(toBeModifiedStudy))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean removesAnyOf(final TaskLockProperties removerLockProps, final TaskLockProperties otherLockProps) {
+
+		for (final Identifier<StudyKey> toBeRemovedStudy : removerLockProps.getRemovingStudies()) {
+			if (otherLockProps.getRequiredStudies().contains(toBeRemovedStudy)
+					|| otherLockProps.getRemovingStudies().contains(toBeRemovedStudy))
+			{
+				return true;
+			}
+		}
+		for (final Identifier<DataSetKey> toBeRemovedDataSet : removerLockProps.getRemovingDataSets()) {
+			if (otherLockProps.getRequiredDataSets().contains(toBeRemovedDataSet)
+					|| otherLockProps.getRemovingDataSets().contains(toBeRemovedDataSet))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
 }
@@ -38,6 +38,7 @@ public class TaskLockProperties {
 	private final Set<Identifier<DataSetKey>> requiredDataSets;
 	private final Collection<Identifier<StudyKey>> removingStudies;
 	private final Collection<Identifier<DataSetKey>> removingDataSets;
+	private final Collection<Identifier<StudyKey>> modifyingStudies;
 	private final Collection<Identifier<StudyKey>> introducingStudies;
 	private final Collection<Identifier<DataSetKey>> introducingDataSets;
 
@@ -47,6 +48,7 @@ public class TaskLockProperties {
 		this.requiredDataSets = new HashSet<Identifier<DataSetKey>>();
 		this.removingStudies = new ArrayList<Identifier<StudyKey>>();
 		this.removingDataSets = new ArrayList<Identifier<DataSetKey>>();
+		this.modifyingStudies = new ArrayList<Identifier<StudyKey>>();
 		this.introducingStudies = new ArrayList<Identifier<StudyKey>>();
 		this.introducingDataSets = new ArrayList<Identifier<DataSetKey>>();
 	}
@@ -89,6 +91,22 @@ public class TaskLockProperties {
 		removingDataSets.add(dataSetKey);
 	}
 
+	public Collection<Identifier<StudyKey>> getModifyingStudies() {
+		return Collections.unmodifiableCollection(modifyingStudies);
+	}
+
+	/**
+	 * Locks a study exclusively, because the task rewrites data
+	 * that all the data-sets of the study use, for example the sample info.
+	 * No other task using the study may run at the same time.
+	 * The study is required as well.
+	 */
+	public void addModifying(final StudyKey studyKey) {
+
+		requiredStudies.add(studyKey);
+		modifyingStudies.add(studyKey);
+	}
+
 	public Collection<Identifier<StudyKey>> getIntroducingStudies() {
 		return Collections.unmodifiableCollection(introducingStudies);
 	}
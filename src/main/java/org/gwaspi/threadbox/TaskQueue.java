@@ -27,15 +27,37 @@ import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import org.gwaspi.global.Config;
+import org.gwaspi.global.MemoryBoundedTaskRunner;
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.Identifier;
+import org.gwaspi.model.StudyKey;
 import org.gwaspi.progress.AbstractProgressListener;
 import org.gwaspi.progress.ProcessStatus;
 import org.gwaspi.progress.ProcessStatusChangeEvent;
 
+/**
+ * Runs the queued tasks on a bounded pool of threads.
+ * A task is started as soon as a thread is free,
+ * it does not conflict with any running or earlier queued task
+ * (see {@link TaskDependencyHandler#isConflicting(TaskLockProperties, TaskLockProperties)}),
+ * and its estimated memory usage fits into what is left of the memory budget
+ * (see {@link Task#getEstimatedMemoryBytes()}).
+ * A task that alone exceeds the memory budget is still run,
+ * but only once no other task is running.
+ * The running tasks share the default budget of the memory intensive parts
+ * of their operations (see {@link MemoryBoundedTaskRunner#addBudgetSharer()}).
+ */
 public class TaskQueue {
 
+	private static final int DEFAULT_MAX_TASKS = 2;
+
 	private static TaskQueue SINGLETON = null;
 
 	private final List<TaskQueueListener> taskListeners;
@@ -59,6 +81,13 @@ public class TaskQueue {
 	private final Map<Task, Future> taskToFuture;
 	private final Map<Task, Integer> taskToIndex;
 	private final Map<Task, TaskQueueProgressListener> taskToProgressListener;
+	private final Map<Task, Long> taskToEstimatedMemoryBytes;
+	private final int maxTasks;
+	private final long memoryBudgetBytes;
+	/**
+	 * The sum of the estimated memory usage of all the scheduled tasks.
+	 */
+	private long reservedBytes;
 	private final ExecutorService executorService;
 	private final TaskDependencyHandler dependencyHandler;
 	private final Lock queueLock;
@@ -106,9 +135,11 @@ public class TaskQueue {
 
 	private static class TaskThreadFactory implements ThreadFactory {
 
+		private final AtomicInteger numThreads = new AtomicInteger(0);
+
 		@Override
 		public Thread newThread(Runnable runnable) {
-			return new Thread(runnable, "Tasks executor");
+			return new Thread(runnable, "Tasks executor " + numThreads.incrementAndGet());
 		}
 	}
 
@@ -123,11 +154,45 @@ public class TaskQueue {
 		this.taskToFuture = new HashMap<Task, Future>();
 		this.taskToIndex = new HashMap<Task, Integer>();
 		this.taskToProgressListener = new HashMap<Task, TaskQueueProgressListener>();
+		this.taskToEstimatedMemoryBytes = new HashMap<Task, Long>();
+		this.maxTasks = fetchMaxTasks();
+		this.memoryBudgetBytes = fetchMemoryBudgetBytes();
+		this.reservedBytes = 0;
 		this.dependencyHandler = new TaskDependencyHandler();
 		this.queueLock = new ReentrantLock();
 		this.scheduleLock = new ReentrantLock();
 		this.doneLock = new ReentrantLock();
-		this.executorService = Executors.newSingleThreadExecutor(new TaskThreadFactory());
+		this.executorService = Executors.newFixedThreadPool(maxTasks, new TaskThreadFactory());
+	}
+
+	/**
+	 * Returns the maximum number of tasks to run at the same time,
+	 * as configured by the user, or 2 by default.
+	 * @see Config#PROPERTY_QUEUE_MAX_TASKS
+	 */
+	private static int fetchMaxTasks() {
+
+		final Config config = Config.getSingleton();
+		final int configured = (config == null) ? -1
+				: config.getInteger(Config.PROPERTY_QUEUE_MAX_TASKS, -1);
+		return (configured > 0) ? configured : DEFAULT_MAX_TASKS;
+	}
+
+	/**
+	 * Returns the memory budget for the tasks running at the same time,
+	 * as configured by the user, or three quarters of the maximum heap size
+	 * by default.
+	 * @see Config#PROPERTY_QUEUE_MAX_MB
+	 */
+	private static long fetchMemoryBudgetBytes() {
+
+		final Config config = Config.getSingleton();
+		final int configuredMB = (config == null) ? -1
+				: config.getInteger(Config.PROPERTY_QUEUE_MAX_MB, -1);
+		if (configuredMB > 0) {
+			return 1024L * 1024L * configuredMB;
+		}
+		return Runtime.getRuntime().maxMemory() / 4 * 3;
 	}
 
 	/**
@@ -168,6 +233,7 @@ public class TaskQueue {
 			tasks.add(task);
 			taskToIndex.put(task, taskIndex);
 			queued.add(task);
+			taskToEstimatedMemoryBytes.put(task, task.getEstimatedMemoryBytes());
 			dependencyHandler.add(task);
 			final TaskQueueProgressListener progressListener = new TaskQueueProgressListener(task);
 			taskToProgressListener.put(task, progressListener);
@@ -180,15 +246,71 @@ public class TaskQueue {
 		}
 	}
 
+	/**
+	 * Starts as many of the queued tasks as possible, in queue order.
+	 * A task may overtake earlier queued tasks it does not conflict with,
+	 * but not one that is waiting for memory,
+	 * as large tasks might otherwise never get to run.
+	 */
 	private void tryToSchedule() {
 
-		for (final Task queuedTask : queued) {
-			if (dependencyHandler.canBeDone(queuedTask)) {
+		queueLock.lock();
+		try {
+			final List<Task> waiting = new ArrayList<Task>(queued.size());
+			for (final Task queuedTask : new ArrayList<Task>(queued)) {
+				if (scheduled.size() >= maxTasks) {
+					break;
+				}
+				if (!isFree(queuedTask, waiting)) {
+					waiting.add(queuedTask);
+					continue;
+				}
+				if (!fitsIntoMemoryBudget(queuedTask)) {
+					break;
+				}
 				schedule(queuedTask);
 			}
+		} finally {
+			queueLock.unlock();
 		}
 	}
 
+	/**
+	 * Checks whether a task conflicts neither with any of the running tasks,
+	 * nor with any of the earlier queued ones that still have to wait.
+	 */
+	private boolean isFree(final Task task, final List<Task> waiting) {
+
+		final TaskLockProperties lockProps = task.getTaskLockProperties();
+		for (final Identifier<StudyKey> requiredStudy : lockProps.getRequiredStudies()) {
+			if (requiredStudy.isVirtual()) {
+				return false;
+			}
+		}
+		for (final Identifier<DataSetKey> requiredDataSet : lockProps.getRequiredDataSets()) {
+			if (requiredDataSet.isVirtual()) {
+				return false;
+			}
+		}
+		for (final Task scheduledTask : scheduled) {
+			if (TaskDependencyHandler.isConflicting(lockProps, scheduledTask.getTaskLockProperties())) {
+				return false;
+			}
+		}
+		for (final Task waitingTask : waiting) {
+			if (TaskDependencyHandler.isConflicting(lockProps, waitingTask.getTaskLockProperties())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean fitsIntoMemoryBudget(final Task task) {
+		return scheduled.isEmpty()
+				|| (reservedBytes + taskToEstimatedMemoryBytes.get(task) <= memoryBudgetBytes);
+	}
+
 	private void schedule(final Task task) {
 
 		scheduleLock.lock();
@@ -198,6 +320,7 @@ public class TaskQueue {
 				return;
 			}
 			scheduled.add(task);
+			reservedBytes += taskToEstimatedMemoryBytes.get(task);
 			final Integer taskIndex = taskToIndex.get(task);
 			task.setStatus(QueueState.SCHEDULED);
 			fireStatusChanged(new TaskQueueStatusChangedEvent(this, task, taskIndex));
@@ -220,7 +343,36 @@ public class TaskQueue {
 					}
 				}
 			});
-			final Future<?> taskFuture = executorService.submit(task);
+			// NOTE The task frees its thread and memory when it ends,
+			//   or when it gets canceled before it started.
+			final AtomicBoolean started = new AtomicBoolean(false);
+			final FutureTask<?> taskFuture = new FutureTask<Object>(new Runnable() {
+				@Override
+				public void run() {
+
+					if (!started.compareAndSet(false, true)) {
+						return;
+					}
+					// the tasks not reporting their memory usage,
+					// size their buffers according to their share of the free heap
+					MemoryBoundedTaskRunner.addBudgetSharer();
+					try {
+						task.run();
+					} finally {
+						MemoryBoundedTaskRunner.removeBudgetSharer();
+						done(task);
+					}
+				}
+			}, null) {
+				@Override
+				protected void done() {
+
+					if (started.compareAndSet(false, true)) {
+						TaskQueue.this.done(task);
+					}
+				}
+			};
+			executorService.execute(taskFuture);
 //			futureToTask.put(taskFuture, task);
 			taskToFuture.put(task, taskFuture);
 		} finally {
@@ -247,9 +399,15 @@ public class TaskQueue {
 
 		doneLock.lock();
 		try {
-			final boolean wasScheduled = scheduled.remove(task);
-			if (!wasScheduled) {
-				return;
+			queueLock.lock();
+			try {
+				final boolean wasScheduled = scheduled.remove(task);
+				if (!wasScheduled) {
+					return;
+				}
+				reservedBytes -= taskToEstimatedMemoryBytes.remove(task);
+			} finally {
+				queueLock.unlock();
 			}
 //			final Future<?> taskFuture = taskToFuture.get(task);
 //			futureToTask.remove(taskFuture);
@@ -262,6 +420,8 @@ public class TaskQueue {
 		} finally {
 			doneLock.unlock();
 		}
+
+		tryToSchedule();
 	}
 
 	public void clearDone() {
@@ -164,10 +164,11 @@ public class TestCombinedOperation extends CommonRunnable {
 			final TestOutputParams testOutputParams = new TestOutputParams(testOpKey, testType, markersQAOpKey, null); // TODO Maybe make the threshold(s) also configurable (through the gwas params)
 			final MatrixOperation reportsGenerationOperation = new OutputTest(testOutputParams);
 			progressSource.replaceSubProgressSource(PLACEHOLDER_PS_TEST_REPORTS, reportsGenerationOperation.getProgressSource(), null);
-//				OperationManager.performOperation(reportsGenerationOperation); // XXX We can not do that, because OutputTest does not support getParams() yet, so instead we do ...
-			reportsGenerationOperation.call();
+			final boolean reportsGenerated = OperationManager.performReportsOperation(reportsGenerationOperation, testOpKey);
 			progressSource.setNewStatus(ProcessStatus.FINALIZING);
-			GWASpiExplorerNodes.insertReportsUnderOperationNode(testOpKey);
+			if (reportsGenerated) {
+				GWASpiExplorerNodes.insertReportsUnderOperationNode(testOpKey);
+			}
 		}
 		progressSource.setNewStatus(ProcessStatus.COMPLEETED);
 	}
@@ -99,7 +99,12 @@ public class TranslateCombinedOperation extends CommonRunnable {
 
 		progressSource.setNewStatus(ProcessStatus.RUNNING);
 //		OperationManager.performOperation(matrixOperation); // XXX We can not do that, because our matrixOperation does not support getParams() yet, so instead we do ...
-		final MatrixKey resultMatrixKey = matrixOperation.call();
+		final MatrixKey resultMatrixKey;
+		try {
+			resultMatrixKey = matrixOperation.call();
+		} finally {
+			matrixOperation.close();
+		}
 
 		QACombinedOperation.matrixCompleeted(resultMatrixKey, progressSource);
 		progressSource.setNewStatus(ProcessStatus.COMPLEETED);
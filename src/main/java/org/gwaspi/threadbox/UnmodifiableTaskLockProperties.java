@@ -77,6 +77,16 @@ public class UnmodifiableTaskLockProperties extends TaskLockProperties {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public Collection<Identifier<StudyKey>> getModifyingStudies() {
+		return internal.getModifyingStudies();
+	}
+
+	@Override
+	public void addModifying(final StudyKey studyKey) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public Collection<Identifier<StudyKey>> getIntroducingStudies() {
 		return internal.getIntroducingStudies();
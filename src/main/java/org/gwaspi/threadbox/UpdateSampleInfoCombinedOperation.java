@@ -30,6 +30,7 @@ import org.gwaspi.model.StudyKey;
 import org.gwaspi.model.StudyList;
 import org.gwaspi.netCDF.loader.NullDataSetDestination;
 import org.gwaspi.netCDF.loader.SampleInfoExtractorDataSetDestination;
+import org.gwaspi.operations.OperationResultCache;
 import org.gwaspi.progress.DefaultProcessInfo;
 import org.gwaspi.progress.IndeterminateProgressHandler;
 import org.gwaspi.progress.ProcessInfo;
@@ -57,7 +58,9 @@ public class UpdateSampleInfoCombinedOperation extends CommonRunnable {
 		this.sampleInfoFile = sampleInfoFile;
 		this.progressHandler = new IndeterminateProgressHandler(processInfo);
 		this.taskLockProperties = new TaskLockProperties();
-		this.taskLockProperties.addRequired(studyKey);
+		// the affection and sex of the samples are rewritten,
+		// which all operations on this study read
+		this.taskLockProperties.addModifying(studyKey);
 	}
 
 	private SampleInfoService getSampleInfoService() {
@@ -102,6 +105,8 @@ public class UpdateSampleInfoCombinedOperation extends CommonRunnable {
 				sampleInfoExtractor);
 		Collection<SampleInfo> sampleInfos = sampleInfoExtractor.getSampleInfos().values();
 		getSampleInfoService().insertSamples(sampleInfos);
+		// operations on this study might have used the old sample info
+		OperationResultCache.invalidate(studyKey);
 		progressHandler.setNewStatus(ProcessStatus.FINALIZING);
 
 		// DO NOT! Write new reports of SAMPLE QA
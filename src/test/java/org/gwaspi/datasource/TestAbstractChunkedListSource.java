@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.datasource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAbstractChunkedListSource {
+
+	/**
+	 * Returns the index as value, and counts the number of ranges read.
+	 */
+	private static class CountingListSource extends AbstractChunkedListSource<Integer> {
+
+		private final int size;
+		private final boolean concurrentReadSafe;
+		private final AtomicInteger rangesRead;
+
+		CountingListSource(final int chunkSize, final int size, final boolean concurrentReadSafe) {
+			super(chunkSize);
+
+			this.size = size;
+			this.concurrentReadSafe = concurrentReadSafe;
+			this.rangesRead = new AtomicInteger(0);
+		}
+
+		@Override
+		public ListSource<Integer> getOrigSource() {
+			return this;
+		}
+
+		@Override
+		public List<Integer> getRange(int from, int to) throws IOException {
+
+			rangesRead.incrementAndGet();
+			final List<Integer> range = new ArrayList<Integer>(to - from + 1);
+			for (int i = from; i <= to; i++) {
+				range.add(i);
+			}
+			return range;
+		}
+
+		@Override
+		protected boolean isConcurrentReadSafe() {
+			return concurrentReadSafe;
+		}
+
+		@Override
+		protected int sizeInternal() {
+			return size;
+		}
+	}
+
+	@Test
+	public void testAlternatingAccessUsesCache() {
+
+		final CountingListSource source = new CountingListSource(10, 100, false);
+		for (int round = 0; round < 5; round++) {
+			Assert.assertEquals(Integer.valueOf(3), source.get(3));
+			Assert.assertEquals(Integer.valueOf(95), source.get(95));
+		}
+		Assert.assertEquals(2, source.rangesRead.get());
+		Assert.assertEquals(2, source.getCacheMisses());
+		Assert.assertEquals(8, source.getCacheHits());
+	}
+
+	@Test
+	public void testSequentialScanWithReadAhead() {
+
+		final CountingListSource source = new CountingListSource(7, 100, true);
+		int expected = 0;
+		for (final Integer value : source) {
+			Assert.assertEquals(Integer.valueOf(expected++), value);
+		}
+		Assert.assertEquals(100, expected);
+		// the chunks are 0 to 14, and all after the first one are read ahead
+		Assert.assertEquals(15, source.rangesRead.get());
+		Assert.assertEquals(1, source.getCacheMisses());
+		Assert.assertEquals(14, source.getCacheHits());
+	}
+
+	@Test
+	public void testSeekDuringReadAhead() {
+
+		final CountingListSource source = new CountingListSource(10, 100, true);
+		for (int round = 0; round < 3; round++) {
+			// reading chunks 0 and 1 reads chunk 2 ahead,
+			// which is cancelled again when reading chunks 5 and 6 reads chunk 7 ahead
+			for (int index = 0; index < 20; index++) {
+				Assert.assertEquals(Integer.valueOf(index), source.get(index));
+			}
+			for (int index = 50; index < 70; index++) {
+				Assert.assertEquals(Integer.valueOf(index), source.get(index));
+			}
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new CountingListSource(10, 15, false).get(15);
+	}
+}
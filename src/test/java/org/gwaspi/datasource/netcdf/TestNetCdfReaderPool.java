@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.datasource.netcdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriteable;
+
+public class TestNetCdfReaderPool {
+
+	private static File createNetCdfFile() throws IOException {
+
+		final File file = File.createTempFile("gwaspi-test-", ".nc");
+		file.deleteOnExit();
+		final NetcdfFileWriteable ncFile = NetcdfFileWriteable.createNew(file.getPath(), false);
+		ncFile.addDimension("test", 5);
+		ncFile.create();
+		ncFile.close();
+
+		return file;
+	}
+
+	@Test
+	public void testReaderPerThread() throws IOException, InterruptedException, ExecutionException {
+
+		final File file = createNetCdfFile();
+		final NetCdfReaderPool pool = NetCdfReaderPool.acquire(file);
+		Assert.assertSame(pool, NetCdfReaderPool.acquire(file));
+
+		final NetcdfFile reader = pool.getReader();
+		Assert.assertSame(reader, pool.getReader());
+		Assert.assertTrue(NetCdfReaderPool.isPooled(reader));
+		Assert.assertSame(reader, NetCdfReaderPool.resolveReader(reader));
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final NetcdfFile otherReader = executor.submit(new Callable<NetcdfFile>() {
+				@Override
+				public NetcdfFile call() throws IOException {
+					return NetCdfReaderPool.resolveReader(reader);
+				}
+			}).get();
+			Assert.assertNotSame(reader, otherReader);
+			Assert.assertEquals(5, otherReader.findDimension("test").getLength());
+		} finally {
+			executor.shutdown();
+		}
+
+		pool.release();
+		Assert.assertTrue(NetCdfReaderPool.isPooled(reader));
+		pool.release();
+		Assert.assertFalse(NetCdfReaderPool.isPooled(reader));
+		final NetCdfReaderPool newPool = NetCdfReaderPool.acquire(file);
+		Assert.assertNotSame(pool, newPool);
+		newPool.release();
+	}
+
+	private static NetcdfFile resolveOnNewThread(final NetcdfFile reader) throws InterruptedException {
+
+		final NetcdfFile[] threadReader = new NetcdfFile[1];
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					threadReader[0] = NetCdfReaderPool.resolveReader(reader);
+				} catch (IOException ex) {
+					throw new RuntimeException(ex);
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+
+		return threadReader[0];
+	}
+
+	@Test
+	public void testFinishedThreadsReadersAreClosed() throws IOException, InterruptedException {
+
+		final File file = createNetCdfFile();
+		final NetCdfReaderPool pool = NetCdfReaderPool.acquire(file);
+		final NetcdfFile reader = pool.getReader();
+
+		final NetcdfFile finishedReader = resolveOnNewThread(reader);
+		Assert.assertNotSame(reader, finishedReader);
+		Assert.assertNotNull(finishedReader.getIosp());
+
+		// opening a handle for an other thread closes the one of the finished thread
+		final NetcdfFile otherReader = resolveOnNewThread(finishedReader);
+		Assert.assertNotSame(finishedReader, otherReader);
+		Assert.assertNull(finishedReader.getIosp());
+		Assert.assertNotNull(reader.getIosp());
+		// sources still holding the closed handle get redirected
+		Assert.assertTrue(NetCdfReaderPool.isPooled(finishedReader));
+		Assert.assertSame(reader, NetCdfReaderPool.resolveReader(finishedReader));
+
+		pool.release();
+		Assert.assertNull(reader.getIosp());
+		Assert.assertNull(otherReader.getIosp());
+	}
+
+	@Test
+	public void testDiscard() throws IOException {
+
+		final File file = createNetCdfFile();
+		final NetCdfReaderPool pool = NetCdfReaderPool.acquire(file);
+		final NetcdfFile reader = pool.getReader();
+
+		NetCdfReaderPool.discard(file);
+		Assert.assertNull(reader.getIosp());
+		Assert.assertFalse(NetCdfReaderPool.isPooled(reader));
+		try {
+			pool.getReader();
+			Assert.fail("Reading from a discarded pool has to fail");
+		} catch (IOException ex) {
+			// expected
+		}
+
+		// a new pool for the same file is not affected by releasing the old one
+		final NetCdfReaderPool newPool = NetCdfReaderPool.acquire(file);
+		Assert.assertNotSame(pool, newPool);
+		pool.release();
+		Assert.assertNotNull(newPool.getReader().getIosp());
+		newPool.release();
+	}
+}
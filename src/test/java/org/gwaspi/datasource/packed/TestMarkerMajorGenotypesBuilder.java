@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.datasource.packed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.model.GenotypesList;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.ArrayByte;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriteable;
+
+public class TestMarkerMajorGenotypesBuilder {
+
+	private static final int NUM_SAMPLES = 9;
+	private static final int NUM_MARKERS = 31;
+
+	/**
+	 * Marker 0 has more then 4 different genotypes,
+	 * all others only use a few.
+	 */
+	private static byte[] genotype(final int sampleIndex, final int markerIndex) {
+
+		if (markerIndex == 0) {
+			return new byte[] {(byte) ('0' + sampleIndex), 'A'};
+		} else {
+			return new byte[] {'A', (byte) ('A' + ((sampleIndex + markerIndex) % 3))};
+		}
+	}
+
+	private static File createMatrixFile() throws IOException {
+
+		final File file = File.createTempFile("gwaspi-test-matrix-", ".nc");
+		file.deleteOnExit();
+		final NetcdfFileWriteable ncfile = NetcdfFileWriteable.createNew(file.getAbsolutePath(), false);
+		try {
+			final Dimension samplesDim = ncfile.addDimension(NetCDFConstants.Dimensions.DIM_SAMPLESET, NUM_SAMPLES);
+			final Dimension markersDim = ncfile.addDimension(NetCDFConstants.Dimensions.DIM_MARKERSET, NUM_MARKERS);
+			final Dimension gtStrideDim = ncfile.addDimension(NetCDFConstants.Dimensions.DIM_GTSTRIDE, NetCDFConstants.Strides.STRIDE_GT);
+			ncfile.addVariable(NetCDFConstants.Variables.VAR_GENOTYPES, DataType.BYTE,
+					Arrays.asList(samplesDim, markersDim, gtStrideDim));
+			ncfile.create();
+
+			final ArrayByte.D3 genotypes = new ArrayByte.D3(NUM_SAMPLES, NUM_MARKERS, NetCDFConstants.Strides.STRIDE_GT);
+			final Index index = genotypes.getIndex();
+			for (int si = 0; si < NUM_SAMPLES; si++) {
+				for (int mi = 0; mi < NUM_MARKERS; mi++) {
+					final byte[] genotype = genotype(si, mi);
+					genotypes.setByte(index.set(si, mi, 0), genotype[0]);
+					genotypes.setByte(index.set(si, mi, 1), genotype[1]);
+				}
+			}
+			ncfile.write(NetCDFConstants.Variables.VAR_GENOTYPES, new int[] {0, 0, 0}, genotypes);
+		} catch (final InvalidRangeException ex) {
+			throw new IOException(ex);
+		} finally {
+			ncfile.close();
+		}
+
+		return file;
+	}
+
+	@Test
+	public void testMarkersPerBlock() {
+
+		Assert.assertEquals(10, MarkerMajorGenotypesBuilder.calculateMarkersPerBlock(5, 100, 100));
+		Assert.assertEquals(100, MarkerMajorGenotypesBuilder.calculateMarkersPerBlock(5, 100, 100000));
+		Assert.assertEquals(1, MarkerMajorGenotypesBuilder.calculateMarkersPerBlock(5000, 100, 100));
+	}
+
+	@Test
+	public void testBuild() throws IOException {
+
+		final File matrixFile = createMatrixFile();
+		final File copyFile = File.createTempFile("gwaspi-test-matrix-", ".mgtp");
+		copyFile.deleteOnExit();
+
+		final NetcdfFile ncFile = NetcdfFile.open(matrixFile.getAbsolutePath());
+		try {
+			// 4 markers per block, so the last block is only partially filled
+			MarkerMajorGenotypesBuilder.build(ncFile, copyFile, 4 * NUM_SAMPLES * NetCDFConstants.Strides.STRIDE_GT);
+		} finally {
+			ncFile.close();
+		}
+
+		final PackedGenotypesFile copy = PackedGenotypesFile.open(copyFile);
+		Assert.assertEquals(NUM_MARKERS, copy.getNumMarkers());
+		Assert.assertEquals(NUM_SAMPLES, copy.getNumSamples());
+		for (int mi = 0; mi < NUM_MARKERS; mi++) {
+			final GenotypesList markerGenotypes = copy.readMarker(mi);
+			for (int si = 0; si < NUM_SAMPLES; si++) {
+				Assert.assertArrayEquals(genotype(si, mi), markerGenotypes.get(si));
+			}
+		}
+	}
+}
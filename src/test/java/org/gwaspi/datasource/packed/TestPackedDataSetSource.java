@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.gwaspi.global.Utils;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.SamplesGenotypesSource;
+import org.gwaspi.model.StudyKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestPackedDataSetSource {
+
+	private static final byte[][] GENOTYPES = new byte[][] {
+		{'A', 'A'}, {'A', 'G'}, {'G', 'G'}, {'0', '0'}};
+
+	private static byte[] createGenotype(final int markerIndex, final int sampleIndex) {
+		return GENOTYPES[(markerIndex * 3 + sampleIndex) % GENOTYPES.length];
+	}
+
+	private static File createTempDir() throws IOException {
+
+		final File dir = File.createTempFile("gwaspi-test-", "");
+		Assert.assertTrue(dir.delete());
+		Assert.assertTrue(dir.mkdir());
+		return dir;
+	}
+
+	private static void deleteDir(final File dir) {
+
+		for (final File file : dir.listFiles()) {
+			file.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Exports a packed matrix the way the GWASpi format exporter does,
+	 * copying both files next to each other,
+	 * and imports its genotypes again.
+	 */
+	@Test
+	public void testExportImportRoundTrip() throws IOException {
+
+		final int numMarkers = 11;
+		final int numSamples = 9;
+		final File matrixDir = createTempDir();
+		final File exportDir = createTempDir();
+		try {
+			final File matrixNetCdfFile = new File(matrixDir, "matrix.nc");
+			final File matrixPackedFile = new File(matrixDir, "matrix.gtp");
+			Assert.assertTrue(matrixNetCdfFile.createNewFile());
+			final PackedGenotypesWriter writer = new PackedGenotypesWriter(matrixPackedFile, numMarkers, numSamples);
+			for (int mi = 0; mi < numMarkers; mi++) {
+				for (int si = 0; si < numSamples; si++) {
+					writer.setGenotype(mi, si, createGenotype(mi, si));
+				}
+			}
+			writer.close();
+
+			final File exportedNetCdfFile = new File(exportDir, "Exported_Matrix.nc");
+			Utils.copyFile(matrixNetCdfFile, exportedNetCdfFile);
+			Assert.assertNull(PackedDataSetSource.findSiblingPackedGenotypesFile(exportedNetCdfFile));
+			Utils.copyFile(matrixPackedFile, new File(exportDir, "Exported_Matrix.gtp"));
+
+			final File importPackedFile = PackedDataSetSource.findSiblingPackedGenotypesFile(exportedNetCdfFile);
+			Assert.assertNotNull(importPackedFile);
+			final PackedDataSetSource imported
+					= new PackedDataSetSource(exportedNetCdfFile, importPackedFile, new StudyKey(1));
+			try {
+				final SamplesGenotypesSource samplesGenotypes = imported.getSamplesGenotypesSource();
+				Assert.assertEquals(numSamples, samplesGenotypes.size());
+				for (int si = 0; si < numSamples; si++) {
+					final List<byte[]> sampleGenotypes = samplesGenotypes.get(si);
+					Assert.assertEquals(numMarkers, sampleGenotypes.size());
+					for (int mi = 0; mi < numMarkers; mi++) {
+						Assert.assertArrayEquals(createGenotype(mi, si), sampleGenotypes.get(mi));
+					}
+				}
+				final GenotypesList firstMarker = imported.getMarkersGenotypesSource().get(0);
+				Assert.assertArrayEquals(createGenotype(0, numSamples - 1), firstMarker.get(numSamples - 1));
+			} finally {
+				imported.close();
+			}
+		} finally {
+			deleteDir(matrixDir);
+			deleteDir(exportDir);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.datasource.packed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.operations.NetCdfUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestPackedGenotypesFile {
+
+	private static final byte[][] GENOTYPES = new byte[][] {
+		{'A', 'A'}, {'A', 'G'}, {'G', 'A'}, {'G', 'G'}, {'0', '0'}, {'A', '0'}};
+
+	/**
+	 * Creates genotypes for each marker,
+	 * where marker <code>m</code> uses <code>m % 6 + 1</code> different values,
+	 * so some markers need the escape code.
+	 */
+	private static List<List<byte[]>> createMarkersGenotypes(final int numMarkers, final int numSamples) {
+
+		final List<List<byte[]>> markersGenotypes = new ArrayList<List<byte[]>>(numMarkers);
+		for (int mi = 0; mi < numMarkers; mi++) {
+			final int numValues = mi % GENOTYPES.length + 1;
+			final List<byte[]> markerGenotypes = new ArrayList<byte[]>(numSamples);
+			for (int si = 0; si < numSamples; si++) {
+				markerGenotypes.add(GENOTYPES[(si * 7 + mi) % numValues]);
+			}
+			markersGenotypes.add(markerGenotypes);
+		}
+
+		return markersGenotypes;
+	}
+
+	private static void assertEqualGenotypes(final List<byte[]> expected, final List<byte[]> actual) {
+
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int gti = 0; gti < expected.size(); gti++) {
+			Assert.assertArrayEquals("at index " + gti, expected.get(gti), actual.get(gti));
+		}
+	}
+
+	private static void testRoundTrip(final int numMarkers, final int numSamples, final boolean perSample)
+			throws IOException
+	{
+		final List<List<byte[]>> markersGenotypes = createMarkersGenotypes(numMarkers, numSamples);
+
+		final File file = File.createTempFile("gwaspi-test-", ".gtp");
+		try {
+			final PackedGenotypesWriter writer = new PackedGenotypesWriter(file, numMarkers, numSamples);
+			if (perSample) {
+				for (int si = 0; si < numSamples; si++) {
+					final List<byte[]> sampleGenotypes = new ArrayList<byte[]>(numMarkers);
+					for (final List<byte[]> markerGenotypes : markersGenotypes) {
+						sampleGenotypes.add(markerGenotypes.get(si));
+					}
+					writer.setSampleGenotypes(si, sampleGenotypes);
+				}
+			} else {
+				for (int mi = 0; mi < numMarkers; mi++) {
+					writer.setMarkerGenotypes(mi, markersGenotypes.get(mi));
+				}
+			}
+			writer.close();
+
+			final PackedGenotypesFile packedFile = PackedGenotypesFile.open(file);
+			Assert.assertEquals(numMarkers, packedFile.getNumMarkers());
+			Assert.assertEquals(numSamples, packedFile.getNumSamples());
+			final List<GenotypesList> readMarkersGenotypes = packedFile.readMarkers(0, numMarkers - 1);
+			for (int mi = 0; mi < numMarkers; mi++) {
+				final List<byte[]> expected = markersGenotypes.get(mi);
+				final GenotypesList actual = readMarkersGenotypes.get(mi);
+				assertEqualGenotypes(expected, actual);
+				assertEqualGenotypes(
+						new ArrayList<byte[]>(NetCdfUtils.extractUniqueGenotypesOrdered(expected)),
+						new ArrayList<byte[]>(actual.getPossibleGenotypes()));
+			}
+
+			final int fromSample = numSamples / 3;
+			final List<List<byte[]>> readSamplesGenotypes = packedFile.readSamples(fromSample, numSamples - 1);
+			for (int si = fromSample; si < numSamples; si++) {
+				final List<byte[]> sampleGenotypes = readSamplesGenotypes.get(si - fromSample);
+				for (int mi = 0; mi < numMarkers; mi++) {
+					Assert.assertArrayEquals(markersGenotypes.get(mi).get(si), sampleGenotypes.get(mi));
+				}
+			}
+			packedFile.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRoundTripPerMarker() throws IOException {
+		testRoundTrip(25, 13, false);
+	}
+
+	@Test
+	public void testRoundTripPerSample() throws IOException {
+		testRoundTrip(25, 13, true);
+	}
+
+	@Test
+	public void testRoundTripFullBytes() throws IOException {
+		testRoundTrip(7, 16, false);
+	}
+
+	@Test
+	public void testReadAfterClose() throws IOException {
+
+		final File file = File.createTempFile("gwaspi-test-", ".gtp");
+		try {
+			final PackedGenotypesWriter writer = new PackedGenotypesWriter(file, 3, 5);
+			final List<List<byte[]>> markersGenotypes = createMarkersGenotypes(3, 5);
+			for (int mi = 0; mi < markersGenotypes.size(); mi++) {
+				writer.setMarkerGenotypes(mi, markersGenotypes.get(mi));
+			}
+			writer.close();
+
+			final PackedGenotypesFile packedFile = PackedGenotypesFile.open(file);
+			packedFile.close();
+			// closing twice is allowed
+			packedFile.close();
+			try {
+				packedFile.readMarker(0);
+				Assert.fail("reading from a closed file has to fail");
+			} catch (final IllegalStateException ex) {
+				// expected
+			}
+		} finally {
+			Assert.assertTrue(file.delete());
+		}
+	}
+}
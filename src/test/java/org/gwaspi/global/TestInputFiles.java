@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.global;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestInputFiles {
+
+	private static final int NUM_LINES = 20000;
+
+	private static File writeLines(final boolean compressed) throws IOException {
+
+		final File file = File.createTempFile("gwaspi-test-input-", compressed ? ".txt.gz" : ".txt");
+		file.deleteOnExit();
+		OutputStream out = new FileOutputStream(file);
+		if (compressed) {
+			out = new GZIPOutputStream(out);
+		}
+		try {
+			for (int li = 0; li < NUM_LINES; li++) {
+				out.write(("rs" + li + "\tA\tG\n").getBytes("US-ASCII"));
+			}
+		} finally {
+			out.close();
+		}
+
+		return file;
+	}
+
+	private static void assertLines(final File file) throws IOException {
+
+		final BufferedReader reader = InputFiles.openReader(file);
+		try {
+			int numLines = 0;
+			// some loaders use this idiom, so it has to work with decompression too
+			while (reader.ready()) {
+				Assert.assertEquals("rs" + numLines + "\tA\tG", reader.readLine());
+				numLines++;
+			}
+			Assert.assertEquals(NUM_LINES, numLines);
+			Assert.assertNull(reader.readLine());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testReadPlain() throws IOException {
+
+		final File file = writeLines(false);
+		Assert.assertFalse(InputFiles.isGzipCompressed(file));
+		assertLines(file);
+	}
+
+	@Test
+	public void testReadCompressed() throws IOException {
+
+		final File file = writeLines(true);
+		Assert.assertTrue(InputFiles.isGzipCompressed(file));
+		assertLines(file);
+	}
+
+	@Test
+	public void testReadAheadInSmallChunks() throws IOException {
+
+		final byte[] data = new byte[10007];
+		for (int bi = 0; bi < data.length; bi++) {
+			data[bi] = (byte) bi;
+		}
+		final InputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), "test", 100, 2);
+		final ByteArrayOutputStream read = new ByteArrayOutputStream();
+		try {
+			final byte[] buffer = new byte[333];
+			int numRead;
+			while ((numRead = in.read(buffer)) >= 0) {
+				read.write(buffer, 0, numRead);
+			}
+			Assert.assertEquals(-1, in.read());
+		} finally {
+			in.close();
+		}
+		Assert.assertArrayEquals(data, read.toByteArray());
+	}
+
+	@Test(expected = IllegalStateException.class, timeout = 10000)
+	public void testReadAheadUncheckedFailureIsPropagated() throws IOException {
+
+		final InputStream failingSource = new ByteArrayInputStream(new byte[1000]) {
+			private int numReads = 0;
+
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+
+				if (++numReads > 2) {
+					throw new IllegalStateException("failed on purpose");
+				}
+				return super.read(b, off, len);
+			}
+		};
+		final InputStream in = new ReadAheadInputStream(failingSource, "test", 100, 2);
+		try {
+			final byte[] buffer = new byte[333];
+			while (in.read(buffer) >= 0) {
+				// just read everything
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedCompressedFails() throws IOException {
+
+		final File file = writeLines(true);
+		final byte[] content = new byte[(int) file.length()];
+		final InputStream fileIn = new FileInputStream(file);
+		try {
+			int offset = 0;
+			while (offset < content.length) {
+				offset += fileIn.read(content, offset, content.length - offset);
+			}
+		} finally {
+			fileIn.close();
+		}
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(Arrays.copyOf(content, content.length / 2));
+		} finally {
+			out.close();
+		}
+
+		final BufferedReader reader = InputFiles.openReader(file);
+		try {
+			while (reader.readLine() != null) {
+				// just read through
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMemoryBoundedTaskRunner {
+
+	/**
+	 * Squares its index, while keeping track of the memory in use
+	 * by all the tasks running concurrently.
+	 */
+	private static class SquaringTask implements MemoryBoundedTaskRunner.Task<Integer> {
+
+		private final int index;
+		private final long bytes;
+		private final AtomicLong usedBytes;
+		private final AtomicLong maxUsedBytes;
+
+		SquaringTask(final int index, final long bytes, final AtomicLong usedBytes, final AtomicLong maxUsedBytes) {
+
+			this.index = index;
+			this.bytes = bytes;
+			this.usedBytes = usedBytes;
+			this.maxUsedBytes = maxUsedBytes;
+		}
+
+		@Override
+		public long estimateMemoryBytes() {
+			return bytes;
+		}
+
+		@Override
+		public Callable<Integer> prepare() {
+
+			return new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+
+					final long used = usedBytes.addAndGet(bytes);
+					synchronized (maxUsedBytes) {
+						maxUsedBytes.set(Math.max(maxUsedBytes.get(), used));
+					}
+					Thread.sleep(5);
+					usedBytes.addAndGet(-bytes);
+					return index * index;
+				}
+			};
+		}
+	}
+
+	private static List<Integer> run(final int numWorkers, final long budget, final long[] taskBytes, final AtomicLong maxUsedBytes)
+			throws IOException
+	{
+		final AtomicLong usedBytes = new AtomicLong(0);
+		final List<SquaringTask> tasks = new ArrayList<SquaringTask>(taskBytes.length);
+		for (int ti = 0; ti < taskBytes.length; ti++) {
+			tasks.add(new SquaringTask(ti, taskBytes[ti], usedBytes, maxUsedBytes));
+		}
+
+		return new MemoryBoundedTaskRunner<Integer>("test", numWorkers, budget).run(tasks);
+	}
+
+	@Test
+	public void testResultsKeepOrder() throws IOException {
+
+		final long[] taskBytes = new long[20];
+		for (int ti = 0; ti < taskBytes.length; ti++) {
+			taskBytes[ti] = 1 + (ti % 3);
+		}
+		final List<Integer> sequential = run(1, 10, taskBytes, new AtomicLong(0));
+		Assert.assertEquals(20, sequential.size());
+		Assert.assertEquals(19 * 19, (int) sequential.get(19));
+		Assert.assertEquals(sequential, run(4, 10, taskBytes, new AtomicLong(0)));
+		Assert.assertEquals(new ArrayList<Integer>(), run(4, 10, new long[0], new AtomicLong(0)));
+	}
+
+	@Test
+	public void testBudgetIsRespected() throws IOException {
+
+		final long[] taskBytes = new long[30];
+		for (int ti = 0; ti < taskBytes.length; ti++) {
+			taskBytes[ti] = 3 + (ti % 4);
+		}
+		final AtomicLong maxUsedBytes = new AtomicLong(0);
+		run(8, 12, taskBytes, maxUsedBytes);
+		Assert.assertTrue("used " + maxUsedBytes.get() + " bytes", maxUsedBytes.get() <= 12);
+	}
+
+	@Test
+	public void testOversizedTaskRunsAlone() throws IOException {
+
+		final AtomicLong maxUsedBytes = new AtomicLong(0);
+		final List<Integer> results = run(4, 10, new long[] {2, 100, 2, 2}, maxUsedBytes);
+		Assert.assertEquals(4, results.size());
+		Assert.assertEquals(100, maxUsedBytes.get());
+	}
+
+	/**
+	 * Creates tasks returning their index.
+	 * @param failingIndex the index of the task that fails, or -1
+	 */
+	private static List<MemoryBoundedTaskRunner.Task<Integer>> createTasks(final int numTasks, final int failingIndex) {
+
+		final List<MemoryBoundedTaskRunner.Task<Integer>> tasks = new ArrayList<MemoryBoundedTaskRunner.Task<Integer>>();
+		for (int ti = 0; ti < numTasks; ti++) {
+			final int index = ti;
+			tasks.add(new MemoryBoundedTaskRunner.Task<Integer>() {
+				@Override
+				public long estimateMemoryBytes() {
+					return 1;
+				}
+
+				@Override
+				public Callable<Integer> prepare() {
+
+					return new Callable<Integer>() {
+						@Override
+						public Integer call() throws IOException {
+
+							if (index == failingIndex) {
+								throw new IOException("failed on purpose");
+							}
+							return index;
+						}
+					};
+				}
+			});
+		}
+
+		return tasks;
+	}
+
+	@Test(expected = IOException.class)
+	public void testWorkerExceptionIsPropagated() throws IOException {
+		new MemoryBoundedTaskRunner<Integer>("test", 3, 2).run(createTasks(10, 5));
+	}
+
+	@Test
+	public void testReuseAfterFailure() throws IOException {
+
+		final MemoryBoundedTaskRunner<Integer> runner = new MemoryBoundedTaskRunner<Integer>("test", 3, 2);
+		try {
+			runner.run(createTasks(10, 5));
+			Assert.fail("the failing task did not fail the run");
+		} catch (final IOException ex) {
+			// expected
+		}
+
+		final List<Integer> results = runner.run(createTasks(10, -1));
+		Assert.assertEquals(10, results.size());
+		Assert.assertEquals(9, (int) results.get(9));
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestOrderedBlockProcessor {
+
+	private static final OrderedBlockProcessor.BlockProcessor<Integer, Integer> SQUARER
+			= new OrderedBlockProcessor.BlockProcessor<Integer, Integer>() {
+				@Override
+				public List<Integer> processBlock(int firstIndex, List<Integer> block) {
+
+					final List<Integer> squares = new ArrayList<Integer>(block.size());
+					for (final Integer value : block) {
+						squares.add(value * value);
+					}
+					return squares;
+				}
+			};
+
+	private static List<Integer> process(final int numWorkers, final int blockSize, final int numItems)
+			throws IOException
+	{
+		final List<Integer> results = new ArrayList<Integer>(numItems);
+		new OrderedBlockProcessor<Integer, Integer>("test", numWorkers, blockSize).process(
+				new IndicesList(numItems).iterator(),
+				SQUARER,
+				new OrderedBlockProcessor.ResultConsumer<Integer>() {
+					@Override
+					public void consume(int index, Integer result) {
+
+						Assert.assertEquals(results.size(), index);
+						results.add(result);
+					}
+				});
+		return results;
+	}
+
+	@Test
+	public void testParallelKeepsOrder() throws IOException {
+
+		final List<Integer> sequential = process(1, 7, 1000);
+		Assert.assertEquals(1000, sequential.size());
+		Assert.assertEquals(999 * 999, (int) sequential.get(999));
+		Assert.assertEquals(sequential, process(4, 7, 1000));
+		Assert.assertEquals(sequential, process(3, 1000, 1000));
+		Assert.assertEquals(new ArrayList<Integer>(), process(4, 7, 0));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWorkerExceptionIsPropagated() throws IOException {
+
+		new OrderedBlockProcessor<Integer, Integer>("test", 4, 3).process(
+				new IndicesList(100).iterator(),
+				new OrderedBlockProcessor.BlockProcessor<Integer, Integer>() {
+					@Override
+					public List<Integer> processBlock(int firstIndex, List<Integer> block) throws IOException {
+
+						if (firstIndex > 50) {
+							throw new IOException("failed on purpose");
+						}
+						return block;
+					}
+				},
+				new OrderedBlockProcessor.ResultConsumer<Integer>() {
+					@Override
+					public void consume(int index, Integer result) {
+					}
+				});
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.global;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestParallelRanges {
+
+	private static int[] process(final int numWorkers, final int rangeSize, final int size)
+			throws IOException
+	{
+		final int[] visits = new int[size];
+		new ParallelRanges("test", numWorkers, rangeSize).process(size, new ParallelRanges.RangeProcessor() {
+			@Override
+			public void process(int from, int to) {
+
+				Assert.assertTrue(from < to);
+				Assert.assertTrue((to - from) <= rangeSize);
+				for (int i = from; i < to; i++) {
+					visits[i]++;
+				}
+			}
+		});
+		return visits;
+	}
+
+	private static void assertAllVisitedOnce(final int[] visits) {
+
+		for (final int visitCount : visits) {
+			Assert.assertEquals(1, visitCount);
+		}
+	}
+
+	@Test
+	public void testSequential() throws IOException {
+		assertAllVisitedOnce(process(1, 10, 95));
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		assertAllVisitedOnce(process(4, 10, 95));
+		assertAllVisitedOnce(process(4, 10, 100));
+		assertAllVisitedOnce(process(4, 10, 0));
+	}
+
+	@Test
+	public void testFailurePropagates() {
+
+		final AtomicInteger processed = new AtomicInteger();
+		try {
+			new ParallelRanges("test", 3, 1).process(10, new ParallelRanges.RangeProcessor() {
+				@Override
+				public void process(int from, int to) throws IOException {
+
+					processed.incrementAndGet();
+					if (from == 5) {
+						throw new IOException("range " + from);
+					}
+				}
+			});
+			Assert.fail();
+		} catch (final IOException ex) {
+			Assert.assertEquals("range 5", ex.getMessage());
+		}
+		Assert.assertEquals(10, processed.get());
+	}
+}
@@ -41,6 +41,7 @@ import org.gwaspi.operations.combi.MarkerGenotypesEncoder;
 import org.gwaspi.operations.combi.NominalGenotypeEncoder;
 import org.gwaspi.operations.combi.SolverLibrary;
 import org.gwaspi.operations.combi.SolverParams;
+import org.gwaspi.operations.combi.SymmetricKernelMatrix;
 import org.gwaspi.operations.combi.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -128,7 +129,7 @@ public class UnitTestingCombiTestOperationSpy implements CombiTestOperationSpy {
 	}
 
 	@Override
-	public void kernelCalculated(float[][] K) {
+	public void kernelCalculated(SymmetricKernelMatrix K) {
 
 		final String correctKernelFilePath = BASE_PATH + "K_" + encoderString;
 		final InputStream correctKernelFile = UnitTestingCombiTestOperationSpy.class.getResourceAsStream(correctKernelFilePath);
@@ -138,7 +139,7 @@ public class UnitTestingCombiTestOperationSpy implements CombiTestOperationSpy {
 		}
 		List<List<Double>> correctKernel = Util.parsePlainTextMatrix(correctKernelFile, false);
 
-		List<List<Double>> calculatedKernel = new Util.DoubleMatrixWrapperFloatArray2D(K);
+		List<List<Double>> calculatedKernel = new Util.DoubleMatrixWrapperSymmetricKernelMatrix(K);
 
 		LOG.debug("\ncompare kernel matrices ...");
 		Util.compareMatrices(correctKernel, calculatedKernel);
@@ -21,8 +21,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import org.junit.Assert;
 import org.junit.ComparisonFailure;
 import org.junit.Test;
 
@@ -152,6 +154,35 @@ public class TestCompactGenotypesList {
 		CompactGenotypesList cgl = new CompactGenotypesList(originalGenotypes, possibleGenotypes);
 
 		compare(cgl, originalGenotypes);
+		compareAlleles(cgl, originalGenotypes);
+		compareAlleles(
+				new ArrayGenotypesList(originalGenotypes, new LinkedHashSet<byte[]>(possibleGenotypes)),
+				originalGenotypes);
+	}
+
+	/**
+	 * Checks the primitive allele and genotype-code accessors
+	 * against the original values.
+	 */
+	private static void compareAlleles(GenotypesList genotypesList, List<byte[]> originalValues) {
+
+		final byte[][] decodingTable = genotypesList.getGenotypeDecodingTable();
+		Assert.assertEquals(genotypesList.getPossibleGenotypes().size(), decodingTable.length);
+		int code = 0;
+		for (byte[] possibleGenotype : genotypesList.getPossibleGenotypes()) {
+			Assert.assertArrayEquals(possibleGenotype, decodingTable[code++]);
+		}
+
+		final byte[] alleles = new byte[originalValues.size() * 2];
+		genotypesList.copyAlleles(alleles);
+		for (int gti = 0; gti < originalValues.size(); gti++) {
+			final byte[] originalValue = originalValues.get(gti);
+			Assert.assertEquals(originalValue[0], genotypesList.getFatherAllele(gti));
+			Assert.assertEquals(originalValue[1], genotypesList.getMotherAllele(gti));
+			Assert.assertArrayEquals(originalValue, decodingTable[genotypesList.getGenotypeCode(gti)]);
+			Assert.assertEquals(originalValue[0], alleles[gti * 2]);
+			Assert.assertEquals(originalValue[1], alleles[gti * 2 + 1]);
+		}
 	}
 
 	private static void compare(GenotypesList genotypesList, Collection<byte[]> originalValues) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGenotypeBitPlanes {
+
+	private static final byte[][] GENOTYPES = new byte[][] {
+		{'A', 'A'},
+		{'A', 'G'},
+		{'G', 'G'},
+		{'0', '0'}
+	};
+
+	private static GenotypesList createRandomGenotypes(final Random random, final int numSamples, final int numValues) {
+
+		final List<byte[]> rawGenotypes = new ArrayList<byte[]>(numSamples);
+		for (int si = 0; si < numSamples; si++) {
+			rawGenotypes.add(GENOTYPES[random.nextInt(numValues)].clone());
+		}
+
+		return ArrayGenotypesList.FACTORY.extract(rawGenotypes);
+	}
+
+	private static long[] createRandomMask(final Random random, final boolean[] members) {
+
+		final long[] mask = new long[GenotypeBitPlanes.getNumWords(members.length)];
+		for (int si = 0; si < members.length; si++) {
+			members[si] = random.nextBoolean();
+			if (members[si]) {
+				mask[si / 64] |= 1L << (si % 64);
+			}
+		}
+
+		return mask;
+	}
+
+	private static void assertCounts(final GenotypesList genotypes, final boolean[] members, final long[] mask, final GenotypeBitPlanes planes) {
+
+		final int numCodes = genotypes.getGenotypeDecodingTable().length;
+		final int[] expected = new int[numCodes];
+		for (int si = 0; si < genotypes.size(); si++) {
+			if ((members == null) || members[si]) {
+				expected[genotypes.getGenotypeCode(si)]++;
+			}
+		}
+
+		final int[] actual = new int[numCodes];
+		planes.countCodes(mask, actual);
+		Assert.assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	public void testNumWords() {
+
+		Assert.assertEquals(0, GenotypeBitPlanes.getNumWords(0));
+		Assert.assertEquals(1, GenotypeBitPlanes.getNumWords(1));
+		Assert.assertEquals(1, GenotypeBitPlanes.getNumWords(64));
+		Assert.assertEquals(2, GenotypeBitPlanes.getNumWords(65));
+	}
+
+	@Test
+	public void testCountsEqualPerSampleCounts() {
+
+		final Random random = new Random(21L);
+		final int numSamples = 201;
+		final boolean[] members = new boolean[numSamples];
+		final GenotypeBitPlanes planes = new GenotypeBitPlanes(numSamples);
+
+		// reuse the same planes for markers with more and less genotypes
+		for (int numValues : new int[] {4, 1, 3, 2, 4}) {
+			final GenotypesList genotypes = createRandomGenotypes(random, numSamples, numValues);
+			planes.load(genotypes);
+			final long[] mask = createRandomMask(random, members);
+
+			assertCounts(genotypes, null, null, planes);
+			assertCounts(genotypes, members, mask, planes);
+			assertCounts(genotypes, members, mask, planes.copy());
+		}
+	}
+
+	@Test
+	public void testCountsOfSelectedSamples() {
+
+		final Random random = new Random(22L);
+		final int numAllSamples = 150;
+		final GenotypesList allGenotypes = createRandomGenotypes(random, numAllSamples, 4);
+
+		// exclude about a third of the samples
+		final List<byte[]> selectedRawGenotypes = new ArrayList<byte[]>();
+		final List<Integer> selectedIndices = new ArrayList<Integer>();
+		for (int si = 0; si < numAllSamples; si++) {
+			if (random.nextInt(3) != 0) {
+				selectedIndices.add(si);
+				selectedRawGenotypes.add(allGenotypes.get(si));
+			}
+		}
+		final int[] sampleIndices = new int[selectedIndices.size()];
+		for (int ssi = 0; ssi < sampleIndices.length; ssi++) {
+			sampleIndices[ssi] = selectedIndices.get(ssi);
+		}
+		final GenotypesList selectedGenotypes = ArrayGenotypesList.FACTORY.extract(selectedRawGenotypes);
+
+		final GenotypeBitPlanes planes = new GenotypeBitPlanes(sampleIndices.length);
+		planes.load(allGenotypes, sampleIndices);
+		final boolean[] members = new boolean[sampleIndices.length];
+		final long[] mask = createRandomMask(random, members);
+
+		// compare by genotype, as the codes of the two lists may differ
+		final byte[][] decodingTable = planes.getGenotypeDecodingTable();
+		for (int ssi = 0; ssi < sampleIndices.length; ssi++) {
+			final long[] plane = planes.getPlane(allGenotypes.getGenotypeCode(sampleIndices[ssi]));
+			Assert.assertNotNull(plane);
+			Assert.assertTrue((plane[ssi / 64] & (1L << (ssi % 64))) != 0L);
+		}
+		for (int code = 0; code < decodingTable.length; code++) {
+			int expectedAll = 0;
+			int expectedMembers = 0;
+			for (int ssi = 0; ssi < sampleIndices.length; ssi++) {
+				if (Arrays.equals(decodingTable[code], selectedGenotypes.get(ssi))) {
+					expectedAll++;
+					if (members[ssi]) {
+						expectedMembers++;
+					}
+				}
+			}
+			Assert.assertEquals(expectedAll, planes.count(code, null));
+			Assert.assertEquals(expectedMembers, planes.count(code, mask));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfSelectedSamples() {
+
+		final GenotypeBitPlanes planes = new GenotypeBitPlanes(10);
+		planes.load(createRandomGenotypes(new Random(0L), 20, 2), new int[11]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongNumberOfSamples() {
+
+		final GenotypeBitPlanes planes = new GenotypeBitPlanes(10);
+		planes.load(createRandomGenotypes(new Random(0L), 11, 2));
+	}
+}
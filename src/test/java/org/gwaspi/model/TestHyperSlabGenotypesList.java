@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.gwaspi.operations.NetCdfUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.ArrayByte;
+
+public class TestHyperSlabGenotypesList {
+
+	private static final int NUM_SAMPLES = 3;
+	private static final int NUM_MARKERS = 5;
+
+	/**
+	 * Creates a hyperslab in which the father allele encodes the sample index
+	 * and the mother allele encodes the marker index.
+	 */
+	private static ArrayByte.D3 createHyperSlab() {
+
+		final ArrayByte.D3 hyperSlab = new ArrayByte.D3(NUM_SAMPLES, NUM_MARKERS, 2);
+		for (int si = 0; si < NUM_SAMPLES; si++) {
+			for (int mi = 0; mi < NUM_MARKERS; mi++) {
+				hyperSlab.set(si, mi, 0, (byte) ('a' + si));
+				hyperSlab.set(si, mi, 1, (byte) ('A' + mi));
+			}
+		}
+
+		return hyperSlab;
+	}
+
+	@Test
+	public void testMarkers() {
+
+		final List<GenotypesList> markersGenotypes
+				= NetCdfUtils.wrapD3ArrayByteToGenotypeLists(createHyperSlab(), true);
+		Assert.assertEquals(NUM_MARKERS, markersGenotypes.size());
+		for (int mi = 0; mi < NUM_MARKERS; mi++) {
+			final GenotypesList markerGenotypes = markersGenotypes.get(mi);
+			Assert.assertEquals(NUM_SAMPLES, markerGenotypes.size());
+			Assert.assertEquals(NUM_SAMPLES, markerGenotypes.getPossibleGenotypes().size());
+			for (int si = 0; si < NUM_SAMPLES; si++) {
+				Assert.assertArrayEquals(new byte[] {(byte) ('a' + si), (byte) ('A' + mi)}, markerGenotypes.get(si));
+				Assert.assertEquals((byte) ('a' + si), ((HyperSlabGenotypesList) markerGenotypes).getFatherAllele(si));
+				Assert.assertEquals((byte) ('A' + mi), ((HyperSlabGenotypesList) markerGenotypes).getMotherAllele(si));
+			}
+		}
+	}
+
+	@Test
+	public void testSamples() {
+
+		final List<GenotypesList> samplesGenotypes
+				= NetCdfUtils.wrapD3ArrayByteToGenotypeLists(createHyperSlab(), false);
+		Assert.assertEquals(NUM_SAMPLES, samplesGenotypes.size());
+		for (int si = 0; si < NUM_SAMPLES; si++) {
+			final GenotypesList sampleGenotypes = samplesGenotypes.get(si);
+			Assert.assertEquals(NUM_MARKERS, sampleGenotypes.size());
+			for (int mi = 0; mi < NUM_MARKERS; mi++) {
+				Assert.assertArrayEquals(new byte[] {(byte) ('a' + si), (byte) ('A' + mi)}, sampleGenotypes.get(mi));
+			}
+		}
+	}
+
+	@Test
+	public void testPossibleGenotypes() {
+
+		// genotypes: AG, GG, 0A (negative), AG, AA, GG, 0A; the last allele is padding
+		final byte[] alleles = new byte[] {
+			'A', 'G', 'G', 'G', -1, 'A', 'A', 'G', 'A', 'A', 'G', 'G', -1, 'A', 0};
+		final HyperSlabGenotypesList genotypes = new HyperSlabGenotypesList(alleles, 0, 2, 7);
+
+		final Set<byte[]> expected = NetCdfUtils.extractUniqueGenotypesOrdered(new ArrayList<byte[]>(genotypes));
+		final Set<byte[]> actual = genotypes.getPossibleGenotypes();
+		Assert.assertEquals(4, actual.size());
+		Assert.assertArrayEquals(expected.toArray(), actual.toArray());
+		for (int gti = 0; gti < genotypes.size(); gti++) {
+			final byte[] decoded = genotypes.getGenotypeDecodingTable()[genotypes.getGenotypeCode(gti)];
+			Assert.assertTrue(Arrays.equals(genotypes.get(gti), decoded));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new HyperSlabGenotypesList(new byte[6], 0, 2, 3).get(3);
+	}
+}
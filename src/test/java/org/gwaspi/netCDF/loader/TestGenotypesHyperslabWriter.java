@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.netCDF.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.gwaspi.constants.NetCDFConstants;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.Index;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriteable;
+
+public class TestGenotypesHyperslabWriter {
+
+	private static final int NUM_SAMPLES = 7;
+	private static final int NUM_MARKERS = 23;
+
+	private static byte[] genotype(final int sampleIndex, final int markerIndex) {
+		return new byte[] {(byte) sampleIndex, (byte) markerIndex};
+	}
+
+	private static List<byte[]> sampleGenotypes(final int sampleIndex) {
+
+		final List<byte[]> genotypes = new ArrayList<byte[]>(NUM_MARKERS);
+		for (int mi = 0; mi < NUM_MARKERS; mi++) {
+			genotypes.add(genotype(sampleIndex, mi));
+		}
+		return genotypes;
+	}
+
+	private static List<byte[]> markerGenotypes(final int markerIndex) {
+
+		final List<byte[]> genotypes = new ArrayList<byte[]>(NUM_SAMPLES);
+		for (int si = 0; si < NUM_SAMPLES; si++) {
+			genotypes.add(genotype(si, markerIndex));
+		}
+		return genotypes;
+	}
+
+	private static NetcdfFileWriteable createFile() throws IOException {
+
+		final File file = File.createTempFile("gwaspi-test-genotypes-", ".nc");
+		file.deleteOnExit();
+		final NetcdfFileWriteable ncfile = NetcdfFileWriteable.createNew(file.getAbsolutePath(), false);
+		final Dimension samplesDim = ncfile.addDimension(NetCDFConstants.Dimensions.DIM_SAMPLESET, NUM_SAMPLES);
+		final Dimension markersDim = ncfile.addDimension(NetCDFConstants.Dimensions.DIM_MARKERSET, NUM_MARKERS);
+		final Dimension gtStrideDim = ncfile.addDimension(NetCDFConstants.Dimensions.DIM_GTSTRIDE, NetCDFConstants.Strides.STRIDE_GT);
+		ncfile.addVariable(NetCDFConstants.Variables.VAR_GENOTYPES, DataType.BYTE,
+				Arrays.asList(samplesDim, markersDim, gtStrideDim));
+		ncfile.create();
+		return ncfile;
+	}
+
+	private static void assertAllGenotypes(final NetcdfFileWriteable ncfile) throws IOException {
+
+		final String path = ncfile.getLocation();
+		ncfile.close();
+		final NetcdfFile readFile = NetcdfFile.open(path);
+		try {
+			final Array genotypes = readFile.findVariable(NetCDFConstants.Variables.VAR_GENOTYPES).read();
+			final Index index = genotypes.getIndex();
+			for (int si = 0; si < NUM_SAMPLES; si++) {
+				for (int mi = 0; mi < NUM_MARKERS; mi++) {
+					Assert.assertEquals(si, genotypes.getByte(index.set(si, mi, 0)));
+					Assert.assertEquals(mi, genotypes.getByte(index.set(si, mi, 1)));
+				}
+			}
+		} finally {
+			readFile.close();
+		}
+	}
+
+	@Test
+	public void testRowsPerSlab() {
+
+		Assert.assertEquals(5, GenotypesHyperslabWriter.calculateRowsPerSlab(100, 10, 100));
+		Assert.assertEquals(100, GenotypesHyperslabWriter.calculateRowsPerSlab(100, 10, 1000000));
+		Assert.assertEquals(1, GenotypesHyperslabWriter.calculateRowsPerSlab(100, 1000, 10));
+	}
+
+	@Test
+	public void testWritePerSample() throws IOException {
+
+		final NetcdfFileWriteable ncfile = createFile();
+		// 3 samples per slab, so the last slab is only partially filled
+		final GenotypesHyperslabWriter writer = new GenotypesHyperslabWriter(
+				ncfile, true, NUM_SAMPLES, NUM_MARKERS,
+				GenotypesHyperslabWriter.NUM_BUFFERS * 3 * NUM_MARKERS * 2);
+		Assert.assertEquals(3, writer.getRowsPerSlab());
+		for (int si = 0; si < NUM_SAMPLES; si++) {
+			writer.addRow(si, sampleGenotypes(si));
+		}
+		writer.close();
+
+		assertAllGenotypes(ncfile);
+	}
+
+	@Test
+	public void testWritePerMarkerOutOfOrder() throws IOException {
+
+		final NetcdfFileWriteable ncfile = createFile();
+		final GenotypesHyperslabWriter writer = new GenotypesHyperslabWriter(
+				ncfile, false, NUM_SAMPLES, NUM_MARKERS,
+				GenotypesHyperslabWriter.NUM_BUFFERS * 5 * NUM_SAMPLES * 2);
+		Assert.assertEquals(5, writer.getRowsPerSlab());
+		for (int mi = 10; mi < NUM_MARKERS; mi++) {
+			writer.addRow(mi, markerGenotypes(mi));
+		}
+		for (int mi = 0; mi < 10; mi++) {
+			writer.addRow(mi, markerGenotypes(mi));
+		}
+		writer.close();
+
+		assertAllGenotypes(ncfile);
+	}
+}
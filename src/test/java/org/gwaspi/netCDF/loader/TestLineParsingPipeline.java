@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLineParsingPipeline {
+
+	private static String createLines(final int numLines) {
+
+		final StringBuilder lines = new StringBuilder();
+		for (int li = 0; li < numLines; li++) {
+			lines.append(li).append('\n');
+		}
+		return lines.toString();
+	}
+
+	private static List<Integer> parse(final int numWorkers, final int blockSize, final Reader input)
+			throws IOException
+	{
+		final List<Integer> parsed = new ArrayList<Integer>();
+		new LineParsingPipeline<Integer>("test", numWorkers, blockSize).process(
+				new BufferedReader(input),
+				new LineParsingPipeline.LineParser<Integer>() {
+					@Override
+					public Integer parse(String line) {
+
+						final int value = Integer.parseInt(line);
+						// skip every third line
+						return (value % 3 == 2) ? null : value;
+					}
+				},
+				new LineParsingPipeline.ParsedLineConsumer<Integer>() {
+					@Override
+					public void consume(Integer value) {
+						parsed.add(value);
+					}
+				});
+		return parsed;
+	}
+
+	@Test
+	public void testParallelKeepsOrder() throws IOException {
+
+		final List<Integer> sequential = parse(1, 7, new StringReader(createLines(1000)));
+		Assert.assertEquals(667, sequential.size());
+		Assert.assertEquals(999, (int) sequential.get(666));
+		Assert.assertEquals(sequential, parse(4, 7, new StringReader(createLines(1000))));
+		Assert.assertEquals(sequential, parse(3, 1, new StringReader(createLines(1000))));
+		Assert.assertEquals(sequential, parse(2, 2000, new StringReader(createLines(1000))));
+		Assert.assertEquals(new ArrayList<Integer>(), parse(4, 7, new StringReader("")));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadFailureIsPropagated() throws IOException {
+
+		final Reader failingReader = new StringReader(createLines(100)) {
+			private int numReads = 0;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+
+				if (++numReads > 2) {
+					throw new IOException("failed on purpose");
+				}
+				return super.read(cbuf, off, Math.min(len, 50));
+			}
+		};
+		parse(4, 5, failingReader);
+	}
+
+	@Test(expected = IllegalStateException.class, timeout = 10000)
+	public void testUncheckedReadFailureIsPropagated() throws IOException {
+
+		final Reader failingReader = new StringReader(createLines(100)) {
+			private int numReads = 0;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) throws IOException {
+
+				if (++numReads > 2) {
+					throw new IllegalStateException("failed on purpose");
+				}
+				return super.read(cbuf, off, Math.min(len, 50));
+			}
+		};
+		parse(4, 5, failingReader);
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.util.Arrays;
+import java.util.List;
+import org.gwaspi.constants.NetCDFConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLoadGTFromPlinkBinaryFiles {
+
+	@Test
+	public void testDecodeMarker() {
+
+		final byte[][] decodingTable = LoadGTFromPlinkBinaryFiles.createDecodingTable((byte) 'A', (byte) 'G');
+		// samples (lowest bits first): 00 (AA), 10 (missing), 01 (AG), 11 (GG), then 11 (GG), 00 (AA)
+		// the excess bits of the last byte are set, to make sure they are ignored
+		final byte[] bedBytes = new byte[] {
+			(byte) 0x7F, // padding before the marker
+			(byte) 0xE4, // 11 10 01 00
+			(byte) 0xF3 // 11 11 00 11
+		};
+		final List<byte[]> markerGenotypes = Arrays.asList(new byte[6][]);
+		LoadGTFromPlinkBinaryFiles.decodeMarker(decodingTable, bedBytes, 1, markerGenotypes);
+
+		Assert.assertArrayEquals(new byte[] {'A', 'A'}, markerGenotypes.get(0));
+		Assert.assertArrayEquals(NetCDFConstants.Defaults.DEFAULT_GT, markerGenotypes.get(1));
+		Assert.assertArrayEquals(new byte[] {'A', 'G'}, markerGenotypes.get(2));
+		Assert.assertArrayEquals(new byte[] {'G', 'G'}, markerGenotypes.get(3));
+		Assert.assertArrayEquals(new byte[] {'G', 'G'}, markerGenotypes.get(4));
+		Assert.assertArrayEquals(new byte[] {'A', 'A'}, markerGenotypes.get(5));
+		// equal genotypes share the same instance
+		Assert.assertSame(markerGenotypes.get(3), markerGenotypes.get(4));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.netCDF.loader;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.gwaspi.constants.NetCDFConstants;
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.model.SampleKey;
+import org.gwaspi.model.StudyKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSampleBlockGenotypesBuffer {
+
+	private static final StudyKey STUDY = new StudyKey(1);
+
+	private static SampleKey sample(final String sampleId) {
+		return new SampleKey(STUDY, sampleId, SampleKey.FAMILY_ID_NONE);
+	}
+
+	@Test
+	public void testScatteredGenotypes() {
+
+		final Map<SampleKey, Integer> sampleIndices = SampleBlockGenotypesBuffer.createIndices(
+				Arrays.asList(sample("s0"), sample("s1"), sample("s2"), sample("s3")));
+		final Map<MarkerKey, Integer> markerIndices = SampleBlockGenotypesBuffer.createIndices(
+				Arrays.asList(new MarkerKey("rs1"), new MarkerKey("rs2"), new MarkerKey("rs3")));
+		final SampleBlockGenotypesBuffer sampleBlock
+				= new SampleBlockGenotypesBuffer(sampleIndices, markerIndices, 1, 3);
+
+		Assert.assertEquals(-1, sampleBlock.getBlockSampleIndex(sample("s0")));
+		Assert.assertEquals(2, sampleBlock.getBlockSampleIndex(sample("s2")));
+		Assert.assertEquals(-1, sampleBlock.getBlockSampleIndex(sample("s3")));
+		Assert.assertEquals(-1, sampleBlock.getBlockSampleIndex(sample("unknown")));
+		Assert.assertEquals(1, sampleBlock.getMarkerIndex(new MarkerKey("rs2")));
+		Assert.assertEquals(-1, sampleBlock.getMarkerIndex(new MarkerKey("rs4")));
+
+		// in arbitrary order, with later values overwriting earlier ones
+		sampleBlock.put(sample("s2"), new MarkerKey("rs3"), (byte) 'A', (byte) 'G');
+		sampleBlock.put(sample("s1"), new MarkerKey("rs1"), (byte) 'C', (byte) 'C');
+		sampleBlock.put(sample("s1"), new MarkerKey("rs1"), (byte) 'A', (byte) 'G');
+		// ignored, as outside of the block, or unknown
+		sampleBlock.put(sample("s0"), new MarkerKey("rs1"), (byte) 'T', (byte) 'T');
+		sampleBlock.put(sample("s1"), new MarkerKey("rs4"), (byte) 'T', (byte) 'T');
+
+		final byte[] missing = NetCDFConstants.Defaults.DEFAULT_GT;
+		final List<byte[]> s1Alleles = sampleBlock.getSampleAlleles(1);
+		Assert.assertEquals(3, s1Alleles.size());
+		Assert.assertArrayEquals(new byte[] {'A', 'G'}, s1Alleles.get(0));
+		Assert.assertArrayEquals(missing, s1Alleles.get(1));
+		Assert.assertArrayEquals(missing, s1Alleles.get(2));
+		final List<byte[]> s2Alleles = sampleBlock.getSampleAlleles(2);
+		Assert.assertArrayEquals(missing, s2Alleles.get(0));
+		Assert.assertArrayEquals(new byte[] {'A', 'G'}, s2Alleles.get(2));
+		// equal genotypes share the same instance
+		Assert.assertSame(s1Alleles.get(0), s2Alleles.get(2));
+	}
+
+	@Test
+	public void testMaxBlockSamples() {
+
+		Assert.assertEquals(10, SampleBlockGenotypesBuffer.calculateMaxBlockSamples(1000, 20000));
+		Assert.assertEquals(1, SampleBlockGenotypesBuffer.calculateMaxBlockSamples(1000, 10));
+		Assert.assertEquals(Integer.MAX_VALUE, SampleBlockGenotypesBuffer.calculateMaxBlockSamples(0, Long.MAX_VALUE));
+	}
+}
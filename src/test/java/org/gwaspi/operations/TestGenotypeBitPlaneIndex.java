@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.gwaspi.model.ArrayGenotypesList;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.MarkerKey;
+import org.gwaspi.model.SampleInfo.Affection;
+import org.gwaspi.model.SampleInfo.Sex;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGenotypeBitPlaneIndex {
+
+	private static final byte[][] GENOTYPES = new byte[][] {
+		{'A', 'A'},
+		{'A', 'G'},
+		{'G', 'G'},
+		{'0', '0'}
+	};
+
+	private static final int NUM_SAMPLES = 130;
+	private static final int NUM_MARKERS = 12;
+
+	private final List<Sex> samplesSexes = new ArrayList<Sex>(NUM_SAMPLES);
+	private final List<Affection> samplesAffections = new ArrayList<Affection>(NUM_SAMPLES);
+	private final List<MarkerGenotypesInput> markers = new ArrayList<MarkerGenotypesInput>(NUM_MARKERS);
+
+	private void createRandomDataSet(final Random random) {
+
+		for (int si = 0; si < NUM_SAMPLES; si++) {
+			samplesSexes.add(Sex.values()[random.nextInt(Sex.values().length)]);
+			samplesAffections.add(Affection.values()[random.nextInt(Affection.values().length)]);
+		}
+
+		for (int mi = 0; mi < NUM_MARKERS; mi++) {
+			final int numValues = 1 + random.nextInt(GENOTYPES.length);
+			final List<byte[]> rawGenotypes = new ArrayList<byte[]>(NUM_SAMPLES);
+			for (int si = 0; si < NUM_SAMPLES; si++) {
+				rawGenotypes.add(GENOTYPES[random.nextInt(numValues)].clone());
+			}
+			final String chromosome = (mi < NUM_MARKERS / 2) ? "1" : "X";
+			markers.add(new MarkerGenotypesInput(mi, new MarkerKey("rs" + mi), chromosome,
+					ArrayGenotypesList.FACTORY.extract(rawGenotypes)));
+		}
+	}
+
+	/**
+	 * Counts the genotype codes of the samples of a group one by one.
+	 */
+	private int[] countScalar(final GenotypesList genotypes, final int[] sampleIndices, final Sex sex, final Affection affection) {
+
+		final int[] codeCounts = new int[genotypes.getGenotypeDecodingTable().length];
+		final int numSelected = (sampleIndices == null) ? genotypes.size() : sampleIndices.length;
+		for (int ssi = 0; ssi < numSelected; ssi++) {
+			final int si = (sampleIndices == null) ? ssi : sampleIndices[ssi];
+			if (((sex == null) || (samplesSexes.get(si) == sex))
+					&& ((affection == null) || (samplesAffections.get(si) == affection)))
+			{
+				codeCounts[genotypes.getGenotypeCode(si)]++;
+			}
+		}
+
+		return codeCounts;
+	}
+
+	private void assertCountsEqualScalarCounts(final int[] sampleIndices) {
+
+		final GenotypeBitPlaneIndex index = GenotypeBitPlaneIndex.build(
+				samplesSexes, samplesAffections, sampleIndices, markers.iterator());
+		final SampleGroupMasks masks = index.getSampleGroupMasks();
+
+		final int numSelected = (sampleIndices == null) ? NUM_SAMPLES : sampleIndices.length;
+		Assert.assertEquals(numSelected, masks.getNumSamples());
+		Assert.assertEquals(NUM_MARKERS, index.getNumMarkers());
+		for (int mi = 0; mi < NUM_MARKERS; mi++) {
+			final MarkerGenotypesInput marker = markers.get(mi);
+			final GenotypesList genotypes = marker.getGenotypes();
+			Assert.assertEquals(marker.getChromosome(), index.getChromosome(mi));
+
+			final int[] actual = new int[genotypes.getGenotypeDecodingTable().length];
+			index.countCodes(mi, masks.getAllMask(), actual);
+			Assert.assertArrayEquals(countScalar(genotypes, sampleIndices, null, null), actual);
+			index.countCodes(mi, masks.getCaseMask(), actual);
+			Assert.assertArrayEquals(countScalar(genotypes, sampleIndices, null, Affection.AFFECTED), actual);
+			index.countCodes(mi, masks.getControlMask(), actual);
+			Assert.assertArrayEquals(countScalar(genotypes, sampleIndices, null, Affection.UNAFFECTED), actual);
+			index.countCodes(mi, masks.getMaleMask(), actual);
+			Assert.assertArrayEquals(countScalar(genotypes, sampleIndices, Sex.MALE, null), actual);
+			index.countCodes(mi, SampleGroupMasks.and(masks.getFemaleMask(), masks.getCaseMask()), actual);
+			Assert.assertArrayEquals(countScalar(genotypes, sampleIndices, Sex.FEMALE, Affection.AFFECTED), actual);
+		}
+	}
+
+	@Test
+	public void testCountsOfAllSamples() {
+
+		createRandomDataSet(new Random(31L));
+		assertCountsEqualScalarCounts(null);
+	}
+
+	@Test
+	public void testCountsOfSelectedSamples() {
+
+		final Random random = new Random(32L);
+		createRandomDataSet(random);
+
+		// exclude about a third of the samples, as sample QA would
+		final List<Integer> selectedIndices = new ArrayList<Integer>();
+		for (int si = 0; si < NUM_SAMPLES; si++) {
+			if (random.nextInt(3) != 0) {
+				selectedIndices.add(si);
+			}
+		}
+		final int[] sampleIndices = new int[selectedIndices.size()];
+		for (int ssi = 0; ssi < sampleIndices.length; ssi++) {
+			sampleIndices[ssi] = selectedIndices.get(ssi);
+		}
+
+		assertCountsEqualScalarCounts(sampleIndices);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations;
+
+import java.io.File;
+import java.io.IOException;
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.model.StudyKey;
+import org.gwaspi.operations.hardyweinberg.ByHardyWeinbergThresholdFilterOperationParams;
+import org.gwaspi.operations.markercensus.MarkerCensusOperationParams;
+import org.gwaspi.operations.permutationtest.PermutationTestOperationParams;
+import org.gwaspi.operations.permutationtest.PermutationTestStatistic;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestOperationResultCache {
+
+	private static final MatrixKey MATRIX = new MatrixKey(new StudyKey(1), 2);
+	private static final OperationKey HW_OP = new OperationKey(MATRIX, 3);
+	private static final OperationKey OTHER_HW_OP = new OperationKey(MATRIX, 4);
+	private static final OperationKey CENSUS_OP = new OperationKey(MATRIX, 5);
+
+	private static String hwFilterKey(final OperationKey hwOpKey, final String name, final double threshold) {
+		return OperationResultCache.createKey(
+				new ByHardyWeinbergThresholdFilterOperationParams(hwOpKey, name, hwOpKey, threshold));
+	}
+
+	private static String permutationTestKey(final int numPermutations, final long seed) {
+		return OperationResultCache.createKey(new PermutationTestOperationParams(
+				new DataSetKey(HW_OP), null, CENSUS_OP, PermutationTestStatistic.TREND, numPermutations, seed));
+	}
+
+	@Test
+	public void testEqualParamsEqualKeys() {
+
+		final String key = hwFilterKey(HW_OP, null, 1e-7);
+
+		Assert.assertNotNull(key);
+		Assert.assertEquals(64, key.length());
+		Assert.assertEquals(key, hwFilterKey(HW_OP, null, 1e-7));
+		Assert.assertEquals(permutationTestKey(1000, 3L), permutationTestKey(1000, 3L));
+	}
+
+	@Test
+	public void testNameIsIgnored() {
+		Assert.assertEquals(hwFilterKey(HW_OP, null, 1e-7), hwFilterKey(HW_OP, "my filter", 1e-7));
+	}
+
+	@Test
+	public void testDifferentParamsDifferentKeys() {
+
+		final String key = hwFilterKey(HW_OP, null, 1e-7);
+
+		Assert.assertFalse(key.equals(hwFilterKey(HW_OP, null, 1e-6)));
+		Assert.assertFalse(key.equals(hwFilterKey(OTHER_HW_OP, null, 1e-7)));
+		Assert.assertFalse(permutationTestKey(1000, 3L).equals(permutationTestKey(1000, 4L)));
+		Assert.assertFalse(permutationTestKey(1000, 3L).equals(permutationTestKey(2000, 3L)));
+	}
+
+	@Test
+	public void testChangedFileChangesKey() throws IOException {
+
+		final File phenotypeFile = File.createTempFile("gwaspi-phenotypes", ".txt");
+		phenotypeFile.deleteOnExit();
+		final MarkerCensusOperationParams params = new MarkerCensusOperationParams(
+				new DataSetKey(MATRIX), "census", null, 0.05, 0.5, null, true, 0.05, phenotypeFile);
+
+		final String key = OperationResultCache.createKey(params);
+		Assert.assertNotNull(key);
+		Assert.assertTrue(phenotypeFile.setLastModified(phenotypeFile.lastModified() - 60000L));
+		Assert.assertFalse(key.equals(OperationResultCache.createKey(params)));
+	}
+}
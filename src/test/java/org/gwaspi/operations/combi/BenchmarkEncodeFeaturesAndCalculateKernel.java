@@ -69,17 +69,17 @@ public class BenchmarkEncodeFeaturesAndCalculateKernel {
 
 		final Map<String, GenotypeEncoder> genotypeEncoders = CombiTestScriptCommand.GENOTYPE_ENCODERS;
 		final GenotypeEncodingParams genotypeEncodingParams = new GenotypeEncodingParams();
-		final int[] kernelCalculationAlgorithms = new int[] {2, 3, 4, 5};
+		final int[] kernelCalculationThreadCounts = new int[] {1, 2, 4};
 		final int[] chunkSizes = new int[] {1, 10, 100, 1000};
 		final boolean[] arrayCopyStates = new boolean[] {/*true, */false};
 
 		final StringBuilder benchmarkSummary = new StringBuilder("\n");
-		String header = ("WCT(s)\tGT-enc\tkern-a\tchunk-s\tarray-c");
+		String header = ("WCT(s)\tGT-enc\tkern-t\tchunk-s\tarray-c");
 		log.info(header);
 		benchmarkSummary.append(header).append("\n");
 		for (Map.Entry<String, GenotypeEncoder> genotypeEncoder : genotypeEncoders.entrySet()) {
-			for (int kernelCalculationAlgorithm : kernelCalculationAlgorithms) {
-				CombiTestOperation.KERNEL_CALCULATION_ALGORTIHM = kernelCalculationAlgorithm;
+			for (int kernelCalculationThreads : kernelCalculationThreadCounts) {
+				CombiTestOperation.KERNEL_CALCULATION_THREADS = kernelCalculationThreads;
 				for (int chunkSize : chunkSizes) {
 					for (boolean arrayCopy : arrayCopyStates) {
 						NetCdfUtils.ARRAY_COPY = arrayCopy;
@@ -88,7 +88,7 @@ public class BenchmarkEncodeFeaturesAndCalculateKernel {
 								"%d\t%s\t%d\t%d\t%s",
 								wallClockTime / 1000,
 								genotypeEncoder.getKey(),
-								kernelCalculationAlgorithm,
+								kernelCalculationThreads,
 								chunkSize,
 								arrayCopy ? "yes" : "no"
 						);
@@ -158,7 +158,7 @@ public class BenchmarkEncodeFeaturesAndCalculateKernel {
 //				validSampleAffections,
 //				markersGenotypesSource,
 //				genotypeEncoder);
-		float[][] kernelMatrix = CombiTestOperation.encodeFeaturesAndCalculateKernel(
+		SymmetricKernelMatrix kernelMatrix = CombiTestOperation.encodeFeaturesAndCalculateKernel(
 				markerGenotypesEncoder,
 				null,
 				new NullProgressHandler<Integer>(null));
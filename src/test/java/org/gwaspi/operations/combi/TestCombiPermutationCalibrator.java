@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.operations.combi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.gwaspi.model.ArrayGenotypesList;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.statistics.Associations;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCombiPermutationCalibrator {
+
+	private static final byte MAJOR = 'A';
+	private static final byte MINOR = 'G';
+	private static final byte MISSING = '0';
+
+	private static GenotypesList createRandomGenotypes(final Random random, final int n) {
+
+		final byte[] alleles = new byte[] {MAJOR, MINOR, MISSING};
+		final List<byte[]> genotypes = new ArrayList<byte[]>(n);
+		for (int si = 0; si < n; si++) {
+			// missing alleles are rare
+			genotypes.add(new byte[] {
+				alleles[random.nextInt(10) == 0 ? 2 : random.nextInt(2)],
+				alleles[random.nextInt(10) == 0 ? 2 : random.nextInt(2)]});
+		}
+		return (GenotypesList) ArrayGenotypesList.FACTORY.extract(genotypes);
+	}
+
+	private static double calculateTrendTestDirectly(final GenotypesList genotypes, final long[] cases) {
+
+		final int[][] counts = new int[2][3];
+		for (int si = 0; si < genotypes.size(); si++) {
+			final byte[] genotype = genotypes.get(si);
+			if ((genotype[0] == MISSING) || (genotype[1] == MISSING)) {
+				continue;
+			}
+			final int numMinor = ((genotype[0] == MINOR) ? 1 : 0) + ((genotype[1] == MINOR) ? 1 : 0);
+			final boolean isCase = ((cases[si / 64] >>> (si % 64)) & 1L) != 0;
+			counts[isCase ? 0 : 1][numMinor]++;
+		}
+		return Associations.calculateChocranArmitageTrendTest(
+				counts[0][0], counts[0][1], counts[0][2],
+				counts[1][0], counts[1][1], counts[1][2],
+				Associations.ChocranArmitageTrendTestModel.CODOMINANT);
+	}
+
+	@Test
+	public void testRandomCasesDifferPerPermutation() {
+
+		final List<long[]> cases = CombiPermutationCalibrator.createRandomCases(200, 3);
+		Assert.assertEquals(3, cases.size());
+		Assert.assertFalse(Arrays.equals(cases.get(0), cases.get(1)));
+		Assert.assertFalse(Arrays.equals(cases.get(1), cases.get(2)));
+	}
+
+	@Test
+	public void testTrendStatisticsEqualDirectCalculation() {
+
+		final int n = 150; // more then 2 words
+		final Random random = new Random(42);
+		final List<long[]> permutationsCases = CombiPermutationCalibrator.createRandomCases(n, 5);
+		final CombiPermutationCalibrator.TrendStatisticsCalculator calculator
+				= new CombiPermutationCalibrator.TrendStatisticsCalculator(n);
+		for (int mi = 0; mi < 10; mi++) {
+			final GenotypesList genotypes = createRandomGenotypes(random, n);
+			final double[] statistics = calculator.calculate(genotypes, MAJOR, MINOR, mi, permutationsCases, null);
+			Assert.assertEquals(permutationsCases.size(), statistics.length);
+			for (int pi = 0; pi < statistics.length; pi++) {
+				Assert.assertEquals(calculateTrendTestDirectly(genotypes, permutationsCases.get(pi)), statistics[pi], 1E-10);
+			}
+		}
+	}
+
+	@Test
+	public void testTrendStatisticsOnlyForKeptMarkers() {
+
+		final int n = 70;
+		final List<long[]> permutationsCases = CombiPermutationCalibrator.createRandomCases(n, 2);
+		final List<boolean[]> kept = Arrays.asList(new boolean[] {true, false}, new boolean[] {false, true});
+		final GenotypesList genotypes = createRandomGenotypes(new Random(7), n);
+		final double[] statistics = new CombiPermutationCalibrator.TrendStatisticsCalculator(n)
+				.calculate(genotypes, MAJOR, MINOR, 1, permutationsCases, kept);
+		Assert.assertTrue(Double.isNaN(statistics[0]));
+		Assert.assertFalse(Double.isNaN(statistics[1]));
+	}
+
+	@Test
+	public void testQAPassedMarkers() {
+
+		final boolean[] qaPassed = CombiPermutationCalibrator.selectQAPassedMarkers(
+				Arrays.asList(false, true, false, false),
+				Arrays.asList(0.0, 0.0, 0.05, 0.5));
+		Assert.assertArrayEquals(new boolean[] {true, false, true, false}, qaPassed);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.combi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import libsvm.svm_parameter;
+import libsvm.svm_problem;
+import org.gwaspi.progress.DefaultProcessInfo;
+import org.gwaspi.progress.NullProgressHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestKernelCalculator {
+
+	private static float[] createFeatures(final int n, final int numFeatures) {
+
+		final Random random = new Random(42);
+		final float[] features = new float[n * numFeatures];
+		for (int vi = 0; vi < features.length; vi++) {
+			features[vi] = random.nextInt(3) - 1.0f;
+		}
+
+		return features;
+	}
+
+	private static void test(final int n, final int numFeatures, final int numThreads) throws IOException {
+		test(new HeapSymmetricKernelMatrix(n), numFeatures, numThreads);
+	}
+
+	private static void test(final SymmetricKernelMatrix kernel, final int numFeatures, final int numThreads) throws IOException {
+
+		final int n = kernel.getNumSamples();
+		final float[] features = createFeatures(n, numFeatures);
+		final KernelCalculator kernelCalculator = new KernelCalculator(numThreads);
+		try {
+			// adding the same block twice has to double the values
+			kernelCalculator.addFeatures(kernel, features, numFeatures);
+			kernelCalculator.addFeatures(kernel, features, numFeatures);
+		} finally {
+			kernelCalculator.close();
+		}
+
+		for (int row = 0; row < n; row++) {
+			for (int col = 0; col < n; col++) {
+				float expected = 0.0f;
+				for (int fi = 0; fi < numFeatures; fi++) {
+					expected += features[row * numFeatures + fi] * features[col * numFeatures + fi];
+				}
+				Assert.assertEquals(2.0f * expected, kernel.get(row, col), 0.0f);
+			}
+		}
+	}
+
+	@Test
+	public void testSingleThreaded() throws IOException {
+		test(150, 7, 1);
+	}
+
+	@Test
+	public void testMultiThreaded() throws IOException {
+
+		test(150, 7, 3);
+		test(KernelCalculator.TILE_SIZE * 2, 1, 4);
+	}
+
+	@Test
+	public void testMemoryMapped() throws IOException {
+
+		final File scratchFile = File.createTempFile("gwaspiTestKernel", ".bin");
+		final MappedSymmetricKernelMatrix kernel = new MappedSymmetricKernelMatrix(150, scratchFile);
+		test(kernel, 7, 3);
+
+		kernel.clear();
+		Assert.assertEquals(0.0f, kernel.get(149, 3), 0.0f);
+	}
+
+	@Test
+	public void testPackedIndices() {
+
+		final int n = 5;
+		Assert.assertEquals(15, SymmetricKernelMatrix.calcNumValues(n));
+		Assert.assertEquals(0, SymmetricKernelMatrix.calcRowStart(n, 0));
+		Assert.assertEquals(5, SymmetricKernelMatrix.calcRowStart(n, 1));
+		Assert.assertEquals(9, SymmetricKernelMatrix.calcRowStart(n, 2));
+		Assert.assertEquals(14, SymmetricKernelMatrix.calcRowStart(n, 4));
+	}
+
+	@Test
+	public void testLibSvmProblemIndices() throws IOException {
+
+		final int n = 20;
+		final SymmetricKernelMatrix kernel = new HeapSymmetricKernelMatrix(n);
+		final KernelCalculator kernelCalculator = new KernelCalculator(1);
+		try {
+			kernelCalculator.addFeatures(kernel, createFeatures(n, 7), 7);
+		} finally {
+			kernelCalculator.close();
+		}
+		final List<Double> labels = new ArrayList<Double>(n);
+		for (int si = 0; si < n; si++) {
+			labels.add((si % 2 == 0) ? 1.0 : -1.0);
+		}
+		final svm_parameter libSvmParameters = new svm_parameter();
+		libSvmParameters.kernel_type = svm_parameter.PRECOMPUTED;
+
+		final svm_problem problem = (svm_problem) CombiTestOperation.createLibSvmOrLinearProblem(
+				null, kernel, labels, libSvmParameters, null, null, null,
+				new NullProgressHandler<Integer>(new DefaultProcessInfo("test", "test process")),
+				true);
+
+		// libSVM stores the sample number first, followed by one node per sample
+		for (int row = 0; row < n; row++) {
+			Assert.assertEquals(0, problem.x[row][0].index);
+			Assert.assertEquals(row + 1, problem.x[row][0].value, 0.0);
+			for (int col = 0; col < n; col++) {
+				Assert.assertEquals(1 + col, problem.x[row][1 + col].index);
+				Assert.assertEquals(kernel.get(row, col), problem.x[row][1 + col].value, 0.0);
+			}
+		}
+	}
+}
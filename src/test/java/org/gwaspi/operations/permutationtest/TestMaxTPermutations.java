@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.operations.permutationtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.gwaspi.model.ArrayGenotypesList;
+import org.gwaspi.model.GenotypesList;
+import org.gwaspi.model.SampleInfo.Affection;
+import org.gwaspi.statistics.Associations;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMaxTPermutations {
+
+	private static final byte[][] GENOTYPES = new byte[][] {
+		{'A', 'A'},
+		{'A', 'G'},
+		{'G', 'G'},
+		{'0', '0'}
+	};
+
+	private static GenotypesList createGenotypes(final int[] genotypeIndices) {
+
+		final List<byte[]> rawGenotypes = new ArrayList<byte[]>(genotypeIndices.length);
+		for (final int genotypeIndex : genotypeIndices) {
+			rawGenotypes.add(GENOTYPES[genotypeIndex].clone());
+		}
+
+		return ArrayGenotypesList.FACTORY.extract(rawGenotypes);
+	}
+
+	private static List<Affection> createAffections(final int numCases, final int numControls, final int numUnknown) {
+
+		final List<Affection> affections = new ArrayList<Affection>();
+		affections.addAll(Collections.nCopies(numCases, Affection.AFFECTED));
+		affections.addAll(Collections.nCopies(numControls, Affection.UNAFFECTED));
+		affections.addAll(Collections.nCopies(numUnknown, Affection.UNKNOWN));
+
+		return affections;
+	}
+
+	@Test
+	public void testObservedEqualsAssociationTest() throws IOException {
+
+		final Random random = new Random(22L);
+		final int numSamples = 150;
+		final List<Affection> affections = createAffections(60, 80, 10);
+		final List<GenotypesList> markers = new ArrayList<GenotypesList>();
+		final int[][] markersGenotypes = new int[20][numSamples];
+		for (final int[] genotypeIndices : markersGenotypes) {
+			for (int si = 0; si < numSamples; si++) {
+				genotypeIndices[si] = random.nextInt(GENOTYPES.length);
+			}
+			markers.add(createGenotypes(genotypeIndices));
+		}
+
+		final MaxTPermutations permutations = new MaxTPermutations(
+				"test", markers.size(), affections, PermutationTestStatistic.GENOTYPIC, 50, 0L);
+		permutations.addMarkers(markers.subList(0, 7));
+		permutations.addMarkers(markers.subList(7, markers.size()));
+
+		for (int mi = 0; mi < markers.size(); mi++) {
+			// case and control counts of AA, Aa and aa
+			final int[][] counts = new int[2][3];
+			for (int si = 0; si < numSamples; si++) {
+				final int genotypeIndex = markersGenotypes[mi][si];
+				if ((genotypeIndex < 3) && (affections.get(si) != Affection.UNKNOWN)) {
+					counts[(affections.get(si) == Affection.AFFECTED) ? 0 : 1][genotypeIndex]++;
+				}
+			}
+			final double expected = Associations.calculateAssociationChiSquare(
+					counts[0][0], counts[0][1], counts[0][2],
+					counts[1][0], counts[1][1], counts[1][2],
+					true);
+			Assert.assertEquals(expected, permutations.getObservedStatistic(mi), 1E-9);
+
+			final double empiricalP = permutations.getEmpiricalP(mi);
+			final double correctedP = permutations.getCorrectedP(mi);
+			Assert.assertTrue(empiricalP >= 1.0 / 51.0);
+			Assert.assertTrue(empiricalP <= 1.0);
+			Assert.assertTrue(correctedP >= empiricalP);
+			Assert.assertTrue(correctedP <= 1.0);
+		}
+	}
+
+	@Test
+	public void testPerfectAssociation() throws IOException {
+
+		final int numPermutations = 200;
+		final int[] genotypeIndices = new int[40];
+		for (int si = 20; si < 40; si++) {
+			genotypeIndices[si] = 2;
+		}
+		final List<GenotypesList> markers = new ArrayList<GenotypesList>();
+		markers.add(createGenotypes(genotypeIndices));
+
+		final MaxTPermutations permutations = new MaxTPermutations(
+				"test", markers.size(), createAffections(20, 20, 0), PermutationTestStatistic.ALLELIC, numPermutations, 1L);
+		permutations.addMarkers(markers);
+
+		Assert.assertEquals(80.0, permutations.getObservedStatistic(0), 1E-9);
+		Assert.assertEquals(1.0 / (numPermutations + 1), permutations.getEmpiricalP(0), 0.0);
+		// with a single marker, the maximum is the marker itself
+		Assert.assertEquals(permutations.getEmpiricalP(0), permutations.getCorrectedP(0), 0.0);
+	}
+
+	@Test
+	public void testReproducible() throws IOException {
+
+		final Random random = new Random(7L);
+		final List<GenotypesList> markers = new ArrayList<GenotypesList>();
+		for (int mi = 0; mi < 5; mi++) {
+			final int[] genotypeIndices = new int[100];
+			for (int si = 0; si < genotypeIndices.length; si++) {
+				genotypeIndices[si] = random.nextInt(3);
+			}
+			markers.add(createGenotypes(genotypeIndices));
+		}
+
+		final double[][] ps = new double[2][];
+		for (int run = 0; run < 2; run++) {
+			final MaxTPermutations permutations = new MaxTPermutations(
+					"test", markers.size(), createAffections(50, 50, 0), PermutationTestStatistic.TREND, 100, 3L);
+			permutations.addMarkers(markers);
+			ps[run] = new double[markers.size()];
+			for (int mi = 0; mi < markers.size(); mi++) {
+				ps[run][mi] = permutations.getEmpiricalP(mi) + permutations.getCorrectedP(mi);
+			}
+		}
+		Assert.assertArrayEquals(ps[0], ps[1], 0.0);
+	}
+
+	@Test
+	public void testUntestableMarkers() throws IOException {
+
+		final List<GenotypesList> markers = new ArrayList<GenotypesList>();
+		// monomorphic
+		markers.add(createGenotypes(new int[] {0, 0, 0, 0}));
+		// three alleles
+		final List<byte[]> rawGenotypes = new ArrayList<byte[]>();
+		rawGenotypes.add(new byte[] {'A', 'A'});
+		rawGenotypes.add(new byte[] {'C', 'C'});
+		rawGenotypes.add(new byte[] {'G', 'G'});
+		rawGenotypes.add(new byte[] {'A', 'G'});
+		markers.add(ArrayGenotypesList.FACTORY.extract(rawGenotypes));
+
+		final MaxTPermutations permutations = new MaxTPermutations(
+				"test", markers.size(), createAffections(2, 2, 0), PermutationTestStatistic.ALLELIC, 10, 0L);
+		permutations.addMarkers(markers);
+
+		for (int mi = 0; mi < markers.size(); mi++) {
+			Assert.assertTrue(Double.isNaN(permutations.getEmpiricalP(mi)));
+			Assert.assertTrue(Double.isNaN(permutations.getCorrectedP(mi)));
+		}
+	}
+}
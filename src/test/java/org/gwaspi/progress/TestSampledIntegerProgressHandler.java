@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.progress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSampledIntegerProgressHandler {
+
+	/**
+	 * Records progress states and end statuses in the order they arrive.
+	 */
+	private static class RecordingProgressListener extends AbstractProgressListener<Integer> {
+
+		private final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+
+		@Override
+		public void progressHappened(final ProgressEvent<Integer> evt) {
+			received.add(evt.getCurrentState());
+		}
+
+		@Override
+		public void statusChanged(final ProcessStatusChangeEvent evt) {
+
+			if (evt.getNewStatus().isEnd()) {
+				received.add(evt.getNewStatus());
+			}
+		}
+
+		public List<Object> getReceived() {
+			return received;
+		}
+	}
+
+	private static SampledIntegerProgressHandler createHandler(final int numItems, final long sampleIntervalMillis) {
+		return new SampledIntegerProgressHandler(
+				new DefaultProcessInfo("test", "test process"),
+				0, numItems - 1,
+				sampleIntervalMillis);
+	}
+
+	@Test
+	public void testFinalProgressPublishedBeforeEnd() {
+
+		final int numItems = 1000000;
+		final SampledIntegerProgressHandler progressHandler = createHandler(numItems, 1000000L);
+		final RecordingProgressListener listener = new RecordingProgressListener();
+		progressHandler.addProgressListener(listener);
+
+		progressHandler.setNewStatus(ProcessStatus.RUNNING);
+		for (int i = 0; i < numItems; i++) {
+			progressHandler.setProgress(i);
+		}
+		progressHandler.setNewStatus(ProcessStatus.COMPLEETED);
+
+		// the sample interval is way longer than the test,
+		// so only the final progress is published
+		Assert.assertEquals(2, listener.getReceived().size());
+		Assert.assertEquals(numItems - 1, listener.getReceived().get(0));
+		Assert.assertEquals(ProcessStatus.COMPLEETED, listener.getReceived().get(1));
+	}
+
+	@Test
+	public void testSampledWhileRunning() throws InterruptedException {
+
+		final SampledIntegerProgressHandler progressHandler = createHandler(100, 5L);
+		final RecordingProgressListener listener = new RecordingProgressListener();
+		progressHandler.addProgressListener(listener);
+
+		progressHandler.setNewStatus(ProcessStatus.RUNNING);
+		progressHandler.setProgress(10);
+		final long waitUntil = System.currentTimeMillis() + 5000L;
+		while (listener.getReceived().isEmpty() && (System.currentTimeMillis() < waitUntil)) {
+			Thread.sleep(5L);
+		}
+		Assert.assertEquals(Collections.singletonList((Object) 10), listener.getReceived());
+
+		// unchanged progress is not published again
+		Thread.sleep(50L);
+		progressHandler.setNewStatus(ProcessStatus.COMPLEETED);
+		Assert.assertEquals(2, listener.getReceived().size());
+		Assert.assertEquals(ProcessStatus.COMPLEETED, listener.getReceived().get(1));
+	}
+
+	@Test
+	public void testNothingPublishedWithoutProgress() {
+
+		final SampledIntegerProgressHandler progressHandler = createHandler(100, 5L);
+		final RecordingProgressListener listener = new RecordingProgressListener();
+		progressHandler.addProgressListener(listener);
+
+		progressHandler.setNewStatus(ProcessStatus.RUNNING);
+		progressHandler.setNewStatus(ProcessStatus.FAILED);
+
+		Assert.assertEquals(Collections.singletonList((Object) ProcessStatus.FAILED), listener.getReceived());
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.statistics;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAssociations {
+
+	private static final int NUM_MARKERS = 1000;
+	private static final int FROM = 7;
+	private static final int TO = NUM_MARKERS - 13;
+
+	private static GenotypeCounts createRandomCounts() {
+
+		final Random random = new Random(42);
+		final GenotypeCounts counts = new GenotypeCounts(NUM_MARKERS);
+		// all zero, and non-informative (only one genotype)
+		counts.add(0, 0, 0, 0, 0, 0);
+		counts.add(5, 0, 0, 7, 0, 0);
+		while (!counts.isFull()) {
+			counts.add(
+					random.nextInt(50),
+					random.nextInt(50),
+					random.nextInt(50),
+					random.nextInt(50),
+					random.nextInt(50),
+					random.nextInt(50));
+		}
+		return counts;
+	}
+
+	private static void assertBitEquals(final double expected, final double actual) {
+		Assert.assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+	}
+
+	@Test
+	public void testTrendTestsEqualScalar() {
+
+		final GenotypeCounts c = createRandomCounts();
+		final double[] results = new double[NUM_MARKERS];
+		for (final Associations.ChocranArmitageTrendTestModel model : Associations.ChocranArmitageTrendTestModel.values()) {
+			Associations.calculateChocranArmitageTrendTests(
+					c.getCaseAA(), c.getCaseAa(), c.getCaseaa(), c.getCtrlAA(), c.getCtrlAa(), c.getCtrlaa(),
+					model, 0, NUM_MARKERS, results);
+			for (int mi = 0; mi < NUM_MARKERS; mi++) {
+				assertBitEquals(Associations.calculateChocranArmitageTrendTest(
+						c.getCaseAA()[mi], c.getCaseAa()[mi], c.getCaseaa()[mi],
+						c.getCtrlAA()[mi], c.getCtrlAa()[mi], c.getCtrlaa()[mi],
+						model),
+						results[mi]);
+			}
+		}
+	}
+
+	@Test
+	public void testAssociationChiSquaresEqualScalar() {
+
+		final GenotypeCounts c = createRandomCounts();
+		for (final boolean genotypic : new boolean[] {false, true}) {
+			final double[] chiSqrs = new double[NUM_MARKERS];
+			final double[] pValues = new double[NUM_MARKERS];
+			Associations.calculateAssociationChiSquares(
+					c.getCaseAA(), c.getCaseAa(), c.getCaseaa(), c.getCtrlAA(), c.getCtrlAa(), c.getCtrlaa(),
+					genotypic, FROM, TO, chiSqrs);
+			final int df = genotypic ? 2 : 1;
+			Pvalue.calculatePvaluesFromChiSqrs(chiSqrs, df, FROM, TO, pValues);
+			for (int mi = 0; mi < NUM_MARKERS; mi++) {
+				if ((mi < FROM) || (mi >= TO)) {
+					// outside the range, nothing may be written
+					assertBitEquals(0.0, chiSqrs[mi]);
+					assertBitEquals(0.0, pValues[mi]);
+					continue;
+				}
+				final double chiSqr = Associations.calculateAssociationChiSquare(
+						c.getCaseAA()[mi], c.getCaseAa()[mi], c.getCaseaa()[mi],
+						c.getCtrlAA()[mi], c.getCtrlAa()[mi], c.getCtrlaa()[mi],
+						genotypic);
+				assertBitEquals(chiSqr, chiSqrs[mi]);
+				assertBitEquals(Pvalue.calculatePvalueFromChiSqr(chiSqr, df), pValues[mi]);
+			}
+		}
+	}
+
+	@Test
+	public void testOddsRatiosEqualScalar() {
+
+		final GenotypeCounts c = createRandomCounts();
+		final double[] allelicORs = new double[NUM_MARKERS];
+		final double[] genotypicORsAAaa = new double[NUM_MARKERS];
+		final double[] genotypicORsAaaa = new double[NUM_MARKERS];
+		Associations.calculateAllelicAssociationORs(
+				c.getCaseAA(), c.getCaseAa(), c.getCaseaa(), c.getCtrlAA(), c.getCtrlAa(), c.getCtrlaa(),
+				0, NUM_MARKERS, allelicORs);
+		Associations.calculateGenotypicAssociationORs(
+				c.getCaseAA(), c.getCaseAa(), c.getCaseaa(), c.getCtrlAA(), c.getCtrlAa(), c.getCtrlaa(),
+				0, NUM_MARKERS, genotypicORsAAaa, genotypicORsAaaa);
+		for (int mi = 0; mi < NUM_MARKERS; mi++) {
+			final int caseAA = c.getCaseAA()[mi];
+			final int caseAa = c.getCaseAa()[mi];
+			final int caseaa = c.getCaseaa()[mi];
+			final int ctrlAA = c.getCtrlAA()[mi];
+			final int ctrlAa = c.getCtrlAa()[mi];
+			final int ctrlaa = c.getCtrlaa()[mi];
+			assertBitEquals(
+					Associations.calculateAllelicAssociationOR(caseAA, caseAa, caseaa, ctrlAA, ctrlAa, ctrlaa),
+					allelicORs[mi]);
+			final double[] genotypicORs
+					= Associations.calculateGenotypicAssociationOR(caseAA, caseAa, caseaa, ctrlAA, ctrlAa, ctrlaa);
+			assertBitEquals(genotypicORs[0], genotypicORsAAaa[mi]);
+			assertBitEquals(genotypicORs[1], genotypicORsAaaa[mi]);
+		}
+	}
+
+	@Test
+	public void testAssociationChiSquareKnownValue() {
+
+		// 2x3 table with cases 10, 20, 30 and controls 30, 20, 10
+		final double genotypic = Associations.calculateAssociationChiSquare(10, 20, 30, 30, 20, 10, true);
+		Assert.assertEquals(20.0, genotypic, 1e-9);
+		Assert.assertTrue(Double.isNaN(Associations.calculateAssociationChiSquare(0, 0, 0, 0, 0, 0, false)));
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFisherExactTest {
+
+	private static final double MAX_RELATIVE_ERROR = 1e-9;
+
+	private static void assertRelativeEquals(final double expected, final double actual) {
+		Assert.assertEquals(expected, actual, expected * MAX_RELATIVE_ERROR);
+	}
+
+	@Test
+	public void testAllelic() {
+
+		final FisherExactTest fisherExactTest = new FisherExactTest(20);
+		// "lady tasting tea": 34 / 70
+		assertRelativeEquals(34.0 / 70.0, fisherExactTest.calculateAllelicPvalue(3, 1, 1, 3));
+		// 2 / binomial(20, 10)
+		assertRelativeEquals(2.0 / 184756.0, fisherExactTest.calculateAllelicPvalue(10, 0, 0, 10));
+		assertRelativeEquals(1.0, fisherExactTest.calculateAllelicPvalue(0, 5, 0, 5));
+		Assert.assertTrue(Double.isNaN(fisherExactTest.calculateAllelicPvalue(0, 0, 0, 0)));
+	}
+
+	@Test
+	public void testGenotypic() {
+
+		// reference values by enumeration of all the tables
+		final FisherExactTest fisherExactTest = new FisherExactTest(10);
+		assertRelativeEquals(3.5267855435749024e-05, fisherExactTest.calculateGenotypicPvalue(10, 20, 30, 30, 20, 10));
+		assertRelativeEquals(0.05714285714285718, fisherExactTest.calculateGenotypicPvalue(3, 1, 0, 0, 1, 3));
+		assertRelativeEquals(0.007756425635841701, fisherExactTest.calculateGenotypicPvalue(12, 7, 1, 4, 9, 8));
+		assertRelativeEquals(1.0, fisherExactTest.calculateGenotypicPvalue(5, 5, 5, 5, 5, 5));
+		Assert.assertTrue(Double.isNaN(fisherExactTest.calculateGenotypicPvalue(0, 0, 0, 0, 0, 0)));
+	}
+
+	@Test
+	public void testGenotypicTableProbability() {
+
+		final FisherExactTest fisherExactTest = new FisherExactTest(120);
+		assertRelativeEquals(1.0251693341384353e-06,
+				Math.exp(fisherExactTest.calculateGenotypicLogTableProbability(10, 20, 30, 30, 20, 10)));
+	}
+
+	@Test
+	public void testLargeSamples() {
+
+		// this overflows even the exponent of a double, if not calculated in log space
+		final FisherExactTest fisherExactTest = new FisherExactTest(20000);
+		final double significant = fisherExactTest.calculateGenotypicPvalue(3000, 4000, 3000, 2500, 5000, 2500);
+		Assert.assertTrue(significant > 0.0);
+		Assert.assertTrue(significant < 1e-20);
+		final double insignificant = fisherExactTest.calculateGenotypicPvalue(2500, 5000, 2500, 2500, 5000, 2500);
+		Assert.assertEquals(1.0, insignificant, 1e-6);
+		final double allelic = fisherExactTest.calculateAllelicPvalue(10000, 10000, 9000, 11000);
+		Assert.assertTrue(allelic > 0.0);
+		Assert.assertTrue(allelic < 1e-20);
+	}
+
+	@Test
+	public void testLogFactorialsGrow() {
+
+		final LogFactorials logFactorials = new LogFactorials(3);
+		Assert.assertEquals(0.0, logFactorials.get(0), 0.0);
+		Assert.assertEquals(0.0, logFactorials.get(1), 0.0);
+		Assert.assertEquals(Math.log(6.0), logFactorials.get(3), 1e-12);
+		Assert.assertEquals(Math.log(3628800.0), logFactorials.get(10), 1e-12);
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestPvalue {
+
+	/** Pairs of {chiSqr, P-value} for one degree of freedom. */
+	private static final double[][] REFERENCE_DF1 = {
+		{0.0, 1.0},
+		{0.1, 0.7518296340458492},
+		{0.5, 0.4795001221869535},
+		{1.0, 0.31731050786291404},
+		{3.84, 0.05004352124870509},
+		{20.0, 7.744216431044074e-06},
+		{100.0, 1.5239706048320995e-23},
+		{1000.0, 1.7958327848006385e-219},
+		{1370.0, 6.942937364643414e-300},
+		{1400.0, 2.1010145162642754e-306}
+	};
+
+	private static final double MAX_RELATIVE_ERROR = 1e-14;
+
+	private static void assertRelativeEquals(final double expected, final double actual) {
+		Assert.assertEquals(expected, actual, expected * MAX_RELATIVE_ERROR);
+	}
+
+	@Test
+	public void testDf1() {
+
+		for (final double[] reference : REFERENCE_DF1) {
+			assertRelativeEquals(reference[1], Pvalue.calculatePvalueFromChiSqr(reference[0], 1));
+		}
+	}
+
+	@Test
+	public void testDf2() {
+
+		for (final double chiSqr : new double[] {0.0, 1.0, 10.0, 500.0, 1380.0}) {
+			assertRelativeEquals(Math.exp(-chiSqr / 2), Pvalue.calculatePvalueFromChiSqr(chiSqr, 2));
+		}
+	}
+
+	@Test
+	public void testDf2Inverse() {
+
+		for (final double chiSqr : new double[] {0.0, 1.0, 10.0, 500.0, 1380.0}) {
+			Assert.assertEquals(chiSqr, Pvalue.calculateChiSqrDf2FromPvalue(Pvalue.calculatePvalueFromChiSqr(chiSqr, 2)), 1e-9);
+		}
+		Assert.assertEquals(0.0, Pvalue.calculateChiSqrDf2FromPvalue(1.0000001), 0.0);
+		Assert.assertFalse(Double.isInfinite(Pvalue.calculateChiSqrDf2FromPvalue(0.0)));
+		Assert.assertTrue(Double.isNaN(Pvalue.calculateChiSqrDf2FromPvalue(Double.NaN)));
+	}
+
+	@Test
+	public void testFarTailDoesNotUnderflow() {
+
+		// P-values of about 1e-300 and below stay positive, as long as they are representable
+		Assert.assertTrue(Pvalue.calculatePvalueFromChiSqr(1400.0, 1) > 0.0);
+		Assert.assertTrue(Pvalue.calculatePvalueFromChiSqr(1450.0, 1) > 0.0);
+		Assert.assertTrue(Pvalue.calculatePvalueFromChiSqr(1450.0, 2) > 0.0);
+		Assert.assertEquals(0.0, Pvalue.calculatePvalueFromChiSqr(Double.POSITIVE_INFINITY, 1), 0.0);
+		Assert.assertTrue(Double.isNaN(Pvalue.calculatePvalueFromChiSqr(Double.NaN, 1)));
+		Assert.assertTrue(Double.isNaN(Pvalue.calculatePvalueFromChiSqr(Double.NaN, 2)));
+	}
+
+	@Test
+	public void testBatchEqualsScalar() {
+
+		final double[] chiSqrs = new double[2000];
+		for (int i = 0; i < chiSqrs.length; i++) {
+			chiSqrs[i] = i * 0.75;
+		}
+		final double[] pValues = new double[chiSqrs.length];
+		for (final int df : new int[] {1, 2, 3}) {
+			Pvalue.calculatePvaluesFromChiSqrs(chiSqrs, df, 0, chiSqrs.length, pValues);
+			for (int i = 0; i < chiSqrs.length; i++) {
+				Assert.assertEquals(
+						Double.doubleToLongBits(Pvalue.calculatePvalueFromChiSqr(chiSqrs[i], df)),
+						Double.doubleToLongBits(pValues[i]));
+			}
+		}
+	}
+}
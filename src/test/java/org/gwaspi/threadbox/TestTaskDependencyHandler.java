@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.gwaspi.threadbox;
+
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.OperationKey;
+import org.gwaspi.model.StudyKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTaskDependencyHandler {
+
+	private static final StudyKey STUDY_A = new StudyKey(1);
+	private static final StudyKey STUDY_B = new StudyKey(2);
+	private static final MatrixKey MATRIX_A = new MatrixKey(STUDY_A, 1);
+	private static final MatrixKey MATRIX_B = new MatrixKey(STUDY_B, 2);
+
+	private static TaskLockProperties requiring(final DataSetKey dataSetKey) {
+
+		final TaskLockProperties lockProperties = new TaskLockProperties();
+		lockProperties.addRequired(dataSetKey);
+		return lockProperties;
+	}
+
+	private static TaskLockProperties removing(final DataSetKey dataSetKey) {
+
+		final TaskLockProperties lockProperties = new TaskLockProperties();
+		lockProperties.addRemoving(dataSetKey);
+		return lockProperties;
+	}
+
+	@Test
+	public void testReadersDoNotConflict() {
+
+		final TaskLockProperties qaOnA = requiring(new DataSetKey(MATRIX_A));
+		final TaskLockProperties exportOfA = requiring(new DataSetKey(MATRIX_A));
+		final TaskLockProperties exportOfB = requiring(new DataSetKey(MATRIX_B));
+
+		Assert.assertFalse(TaskDependencyHandler.isConflicting(qaOnA, exportOfA));
+		Assert.assertFalse(TaskDependencyHandler.isConflicting(qaOnA, exportOfB));
+	}
+
+	@Test
+	public void testRemovalConflicts() {
+
+		final DataSetKey operationOfA = new DataSetKey(new OperationKey(MATRIX_A, 3));
+		final TaskLockProperties testOnOperationOfA = requiring(operationOfA);
+		final TaskLockProperties deleteA = removing(new DataSetKey(MATRIX_A));
+		final TaskLockProperties deleteOperationOfA = removing(operationOfA);
+		final TaskLockProperties deleteB = removing(new DataSetKey(MATRIX_B));
+
+		// requiring an operation implies requiring its matrix
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(testOnOperationOfA, deleteA));
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(deleteA, testOnOperationOfA));
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(deleteOperationOfA, testOnOperationOfA));
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(deleteA, removing(new DataSetKey(MATRIX_A))));
+		Assert.assertFalse(TaskDependencyHandler.isConflicting(testOnOperationOfA, deleteB));
+		Assert.assertFalse(TaskDependencyHandler.isConflicting(deleteA, deleteB));
+	}
+
+	@Test
+	public void testStudyRemovalConflicts() {
+
+		final TaskLockProperties deleteStudyA = new TaskLockProperties();
+		deleteStudyA.addRemoving(STUDY_A);
+
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(requiring(new DataSetKey(MATRIX_A)), deleteStudyA));
+		Assert.assertFalse(TaskDependencyHandler.isConflicting(requiring(new DataSetKey(MATRIX_B)), deleteStudyA));
+	}
+}
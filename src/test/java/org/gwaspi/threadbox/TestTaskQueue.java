@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2016 Universitat Pompeu Fabra
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.gwaspi.threadbox;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gwaspi.model.DataSetKey;
+import org.gwaspi.model.MatrixKey;
+import org.gwaspi.model.StudyKey;
+import org.gwaspi.progress.DefaultProcessInfo;
+import org.gwaspi.progress.IndeterminateProgressHandler;
+import org.gwaspi.progress.ProgressSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTaskQueue {
+
+	private static final long TIMEOUT_SECONDS = 10;
+	private static final StudyKey STUDY = new StudyKey(1);
+	private static final DataSetKey MATRIX_A = new DataSetKey(new MatrixKey(STUDY, 1));
+	private static final DataSetKey MATRIX_B = new DataSetKey(new MatrixKey(STUDY, 2));
+
+	/**
+	 * Blocks while running, until it gets released.
+	 */
+	private static class BlockingTask implements Task {
+
+		private final String name;
+		private final TaskLockProperties taskLockProperties;
+		private final ProgressSource progressSource;
+		private final AtomicInteger numRunning;
+		private final AtomicInteger maxRunning;
+		private final CountDownLatch started;
+		private final CountDownLatch release;
+		private final Date createTime;
+		private Date startTime;
+		private Date endTime;
+		private QueueState status;
+
+		BlockingTask(
+				final String name,
+				final TaskLockProperties taskLockProperties,
+				final AtomicInteger numRunning,
+				final AtomicInteger maxRunning,
+				final CountDownLatch started,
+				final CountDownLatch release)
+		{
+			this.name = name;
+			this.taskLockProperties = taskLockProperties;
+			this.progressSource = new IndeterminateProgressHandler(new DefaultProcessInfo(name, name));
+			this.numRunning = numRunning;
+			this.maxRunning = maxRunning;
+			this.started = started;
+			this.release = release;
+			this.createTime = new Date();
+			this.startTime = null;
+			this.endTime = null;
+			this.status = QueueState.CREATED;
+		}
+
+		@Override
+		public void run() {
+
+			final int running = numRunning.incrementAndGet();
+			synchronized (maxRunning) {
+				maxRunning.set(Math.max(maxRunning.get(), running));
+			}
+			started.countDown();
+			try {
+				release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				numRunning.decrementAndGet();
+			}
+		}
+
+		@Override
+		public QueueState getStatus() {
+			return status;
+		}
+
+		@Override
+		public void setStatus(final QueueState status) {
+			this.status = status;
+		}
+
+		@Override
+		public Date getCreateTime() {
+			return createTime;
+		}
+
+		@Override
+		public Date getStartTime() {
+			return startTime;
+		}
+
+		@Override
+		public void setStartTime(final Date startTime) {
+			this.startTime = startTime;
+		}
+
+		@Override
+		public Date getEndTime() {
+			return endTime;
+		}
+
+		@Override
+		public void setEndTime(final Date endTime) {
+			this.endTime = endTime;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getDescription() {
+			return name;
+		}
+
+		@Override
+		public ProgressSource getProgressSource() {
+			return progressSource;
+		}
+
+		@Override
+		public TaskLockProperties getTaskLockProperties() {
+			return taskLockProperties;
+		}
+
+		@Override
+		public long getEstimatedMemoryBytes() {
+			return 0;
+		}
+	}
+
+	private static TaskLockProperties requiring(final DataSetKey dataSetKey) {
+
+		final TaskLockProperties lockProperties = new TaskLockProperties();
+		lockProperties.addRequired(dataSetKey);
+		return lockProperties;
+	}
+
+	private static TaskLockProperties removing(final DataSetKey dataSetKey) {
+
+		final TaskLockProperties lockProperties = new TaskLockProperties();
+		lockProperties.addRemoving(dataSetKey);
+		return lockProperties;
+	}
+
+	private static TaskLockProperties modifying(final StudyKey studyKey) {
+
+		final TaskLockProperties lockProperties = new TaskLockProperties();
+		lockProperties.addModifying(studyKey);
+		return lockProperties;
+	}
+
+	private static void waitUntilDone(final TaskQueue taskQueue) throws InterruptedException {
+
+		final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+		while (taskQueue.isActive() && (System.currentTimeMillis() < deadline)) {
+			Thread.sleep(10);
+		}
+		Assert.assertFalse("tasks did not finish in time", taskQueue.isActive());
+	}
+
+	@After
+	public void tearDown() {
+		TaskQueue.killInstance();
+	}
+
+	@Test
+	public void testNonConflictingTasksRunConcurrently() throws InterruptedException {
+
+		final TaskQueue taskQueue = TaskQueue.getInstance();
+		final AtomicInteger numRunning = new AtomicInteger(0);
+		final AtomicInteger maxRunning = new AtomicInteger(0);
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		taskQueue.queueTask(new BlockingTask("QA of A", requiring(MATRIX_A), numRunning, maxRunning, started, release));
+		taskQueue.queueTask(new BlockingTask("QA of B", requiring(MATRIX_B), numRunning, maxRunning, started, release));
+
+		// both have to be running before either of them is released
+		final boolean bothStarted = started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		release.countDown();
+		waitUntilDone(taskQueue);
+
+		Assert.assertTrue("the tasks did not run at the same time", bothStarted);
+		Assert.assertEquals(2, maxRunning.get());
+	}
+
+	@Test
+	public void testConflictingTasksRunOneAfterTheOther() throws InterruptedException {
+
+		final TaskQueue taskQueue = TaskQueue.getInstance();
+		final AtomicInteger numRunning = new AtomicInteger(0);
+		final AtomicInteger maxRunning = new AtomicInteger(0);
+		final CountDownLatch firstStarted = new CountDownLatch(1);
+		final CountDownLatch secondStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		taskQueue.queueTask(new BlockingTask("Delete A", removing(MATRIX_A), numRunning, maxRunning, firstStarted, release));
+		taskQueue.queueTask(new BlockingTask("QA of A", requiring(MATRIX_A), numRunning, maxRunning, secondStarted, release));
+
+		Assert.assertTrue(firstStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		Assert.assertFalse("the conflicting task started while the first one was still running",
+				secondStarted.await(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		Assert.assertTrue(secondStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		waitUntilDone(taskQueue);
+
+		Assert.assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void testModifyingStudyConflictsWithItsDataSets() throws InterruptedException {
+
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(modifying(STUDY), requiring(MATRIX_A)));
+		Assert.assertTrue(TaskDependencyHandler.isConflicting(requiring(MATRIX_B), modifying(STUDY)));
+		Assert.assertFalse(TaskDependencyHandler.isConflicting(modifying(new StudyKey(2)), requiring(MATRIX_A)));
+
+		final TaskQueue taskQueue = TaskQueue.getInstance();
+		final AtomicInteger numRunning = new AtomicInteger(0);
+		final AtomicInteger maxRunning = new AtomicInteger(0);
+		final CountDownLatch firstStarted = new CountDownLatch(1);
+		final CountDownLatch secondStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		taskQueue.queueTask(new BlockingTask("Update Sample Info", modifying(STUDY), numRunning, maxRunning, firstStarted, release));
+		taskQueue.queueTask(new BlockingTask("QA of A", requiring(MATRIX_A), numRunning, maxRunning, secondStarted, release));
+
+		Assert.assertTrue(firstStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		Assert.assertFalse("the QA started while the sample info was still being updated",
+				secondStarted.await(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		Assert.assertTrue(secondStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		waitUntilDone(taskQueue);
+
+		Assert.assertEquals(1, maxRunning.get());
+	}
+}